@@ -0,0 +1,100 @@
+package ing.interview.store_management.journal;
+
+import ing.interview.store_management.model.StockChangeReason;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append throughput of the stock journal, and the time to replay ten million records when it is opened.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockJournalBenchmark {
+
+    private static final int REPLAYED_RECORDS = 10_000_000;
+
+    @State(Scope.Benchmark)
+    public static class Appending {
+
+        private Path directory;
+        private StockJournal journal;
+        private long sequence;
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            directory = Files.createTempDirectory("stock-journal-append");
+            journal = StockJournalBenchmark.open(directory);
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            journal.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Replaying {
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            directory = Files.createTempDirectory("stock-journal-replay");
+            StockJournal journal = StockJournalBenchmark.open(directory);
+            for (int i = 0; i < REPLAYED_RECORDS; i++) {
+                journal.append(i & 1023, -1, i, StockChangeReason.ORDER_CREATED);
+            }
+            journal.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long append(Appending state) {
+        long i = state.sequence++;
+        return state.journal.append(i & 1023, -1, (int) i, StockChangeReason.ORDER_CREATED);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int replay(Replaying state) {
+        StockJournal journal = open(state.directory);
+        try {
+            return journal.currentStock().size();
+        } finally {
+            journal.close();
+        }
+    }
+
+    // Segments of a million records, never snapshotted, so the replay reads every record
+    private static StockJournal open(Path directory) {
+        StockJournal journal = new StockJournal(directory.toString(), 1 << 20, 1_000, Long.MAX_VALUE, true);
+        journal.open();
+        return journal;
+    }
+}
@@ -0,0 +1,65 @@
+package ing.interview.store_management.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order total pricing on 1,000-line orders, BigDecimal against minor units.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int LINES = 1_000;
+
+    private BigDecimal[] decimalPrices;
+    private Money[] prices;
+    private int[] quantities;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        decimalPrices = new BigDecimal[LINES];
+        prices = new Money[LINES];
+        quantities = new int[LINES];
+        for (int i = 0; i < LINES; i++) {
+            decimalPrices[i] = BigDecimal.valueOf(1 + random.nextInt(100_000), 2);
+            prices[i] = Money.of(decimalPrices[i]);
+            quantities[i] = 1 + random.nextInt(20);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalOrderTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < LINES; i++) {
+            total = total.add(decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long minorUnitOrderTotal() {
+        long total = 0;
+        for (int i = 0; i < LINES; i++) {
+            total = Money.add(total, Money.lineTotal(prices[i].minorUnits(), quantities[i]));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,86 @@
+package ing.interview.store_management.pricing;
+
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.PricingRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static ing.interview.store_management.pricing.PricingPlanTest.buyNGetMFree;
+import static ing.interview.store_management.pricing.PricingPlanTest.percentOff;
+import static ing.interview.store_management.pricing.PricingPlanTest.threshold;
+
+/**
+ * Compiling a pricing plan, and pricing 1,000-line orders against it, for a growing number of active rules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingPlanBenchmark {
+
+    private static final int PRODUCTS = 100_000;
+    private static final int LINES = 1_000;
+
+    @Param({"100", "10000", "100000"})
+    public int ruleCount;
+
+    private List<PricingRule> rules;
+    private PricingPlan plan;
+    private Long[] lineProducts;
+    private long[] prices;
+    private int[] quantities;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rules = new ArrayList<>(ruleCount);
+        for (long id = 1; id <= ruleCount; id++) {
+            long productId = 1 + random.nextInt(PRODUCTS);
+            switch ((int) (id % 3)) {
+                case 0 -> rules.add(percentOff(id, productId, 1 + random.nextInt(5_000)));
+                case 1 -> rules.add(buyNGetMFree(id, productId, 1 + random.nextInt(4), 1, random.nextInt(10)));
+                default -> rules.add(threshold(id, random.nextInt(10_000_000), 1L + random.nextInt(50_000), null));
+            }
+        }
+        plan = PricingPlan.compile(rules);
+
+        lineProducts = new Long[LINES];
+        prices = new long[LINES];
+        quantities = new int[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lineProducts[i] = (long) (1 + random.nextInt(PRODUCTS));
+            prices[i] = 1 + random.nextInt(100_000);
+            quantities[i] = 1 + random.nextInt(20);
+        }
+    }
+
+    @Benchmark
+    public PricingPlan compile() {
+        return PricingPlan.compile(rules);
+    }
+
+    @Benchmark
+    public long priceOrder() {
+        long subtotal = 0;
+        for (int i = 0; i < LINES; i++) {
+            subtotal = Money.add(subtotal, plan.lineTotal(lineProducts[i], prices[i], quantities[i]));
+        }
+        return subtotal - plan.orderDiscount(subtotal);
+    }
+}
@@ -0,0 +1,54 @@
+package ing.interview.store_management.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency over a million products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchIndexBenchmark {
+
+    private static final String[] WORDS = {"red", "blue", "green", "cotton", "wool", "shirt", "sweater", "sock", "hat",
+            "scarf", "large", "small", "medium", "slim", "classic", "premium", "organic", "striped", "plain", "winter"};
+
+    @Param({"item4242", "item12345 red", "premium wool", "item99", "striped sock winter"})
+    public String query;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new ProductSearchIndex();
+        ReflectionTestUtils.setField(index, "maxPrefixExpansions", 64);
+        Random random = new Random(42);
+        for (long id = 1; id <= 1_000_000; id++) {
+            index.index(id, WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " item" + id,
+                    WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+
+    @Benchmark
+    public List<Long> search() {
+        return index.search(query, 20);
+    }
+}
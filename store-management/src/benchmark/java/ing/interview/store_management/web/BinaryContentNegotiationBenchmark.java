@@ -0,0 +1,107 @@
+package ing.interview.store_management.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.ProductDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization cost of product and order lists in JSON, CBOR and Smile. The payload sizes, raw and gzipped,
+ * are logged once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryContentNegotiationBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryContentNegotiationBenchmark.class);
+
+    @Param({"JSON", "CBOR", "Smile"})
+    public String format;
+
+    @Param({"products", "orders"})
+    public String payload;
+
+    private ObjectMapper mapper;
+    private Object value;
+    private TypeReference<?> type;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "CBOR" -> new CBORFactory();
+            case "Smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        mapper = bootObjectMapperBuilder().factory(factory).build();
+        if (payload.equals("products")) {
+            value = BinaryContentNegotiationTest.products(10_000);
+            type = new TypeReference<List<ProductDto>>() {
+            };
+        } else {
+            value = BinaryContentNegotiationTest.orders(5_000);
+            type = new TypeReference<List<OrderDto>>() {
+            };
+        }
+        bytes = mapper.writeValueAsBytes(value);
+        logger.info("{} {}: {} bytes, {} bytes gzipped", format, payload, bytes.length, gzip(bytes).length);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object read() throws IOException {
+        return mapper.readValue(bytes, type);
+    }
+
+    // The builder Boot configures from spring.jackson.*, the converters are built from it too
+    private static Jackson2ObjectMapperBuilder bootObjectMapperBuilder() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(JacksonAutoConfiguration.class)
+                .web(WebApplicationType.NONE).bannerMode(Banner.Mode.OFF).logStartupInfo(false).run()) {
+            return context.getBean(Jackson2ObjectMapperBuilder.class);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,130 @@
+package ing.interview.store_management.analytics;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Byte level encodings shared by the snapshot writer and reader: unsigned LEB128 varints, zigzag for signed
+ * values (so small deltas of either sign take one byte), and deflate for whole column chunks.
+ */
+final class ColumnCodec {
+
+    private ColumnCodec() {
+    }
+
+    /**
+     * Growable byte buffer a column chunk is encoded into, reused across blocks.
+     */
+    static final class Output {
+        private byte[] bytes = new byte[4096];
+        private int size;
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeBytes(byte[] source) {
+            ensureCapacity(source.length);
+            System.arraycopy(source, 0, bytes, size, source.length);
+            size += source.length;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        /**
+         * Deflates the first {@code size} bytes of another buffer into this one, replacing its content.
+         */
+        void compress(Output raw, Deflater deflater) {
+            deflater.reset();
+            deflater.setInput(raw.bytes, 0, raw.size);
+            deflater.finish();
+            size = 0;
+            while (!deflater.finished()) {
+                ensureCapacity(Math.max(1024, raw.size / 4));
+                size += deflater.deflate(bytes, size, bytes.length - size);
+            }
+        }
+    }
+
+    /**
+     * Cursor over a decoded column chunk.
+     */
+    static final class Input {
+        private byte[] bytes = new byte[4096];
+        private int position;
+
+        /**
+         * Inflates a compressed column chunk into this cursor and rewinds it.
+         */
+        void decompress(byte[] source, int offset, int compressedLength, int rawLength, Inflater inflater) {
+            if (bytes.length < rawLength) {
+                bytes = new byte[Math.max(rawLength, bytes.length * 2)];
+            }
+            inflater.reset();
+            inflater.setInput(source, offset, compressedLength);
+            try {
+                int inflated = 0;
+                while (inflated < rawLength) {
+                    int read = inflater.inflate(bytes, inflated, rawLength - inflated);
+                    if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IllegalStateException("Truncated column chunk");
+                    }
+                    inflated += read;
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupted column chunk", e);
+            }
+            position = 0;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = bytes[position++];
+                value |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+
+        long readSignedVarLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        byte[] readBytes(int length) {
+            byte[] result = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return result;
+        }
+    }
+}
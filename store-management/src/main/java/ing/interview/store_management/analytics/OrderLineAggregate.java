@@ -0,0 +1,12 @@
+package ing.interview.store_management.analytics;
+
+/**
+ * Totals of the order lines of a date range, read from an order line snapshot.
+ *
+ * @param orders       the number of orders.
+ * @param lines        the number of order lines.
+ * @param quantity     the total quantity ordered.
+ * @param revenueMinor the sum of the order totals, in minor units.
+ */
+public record OrderLineAggregate(long orders, long lines, long quantity, long revenueMinor) {
+}
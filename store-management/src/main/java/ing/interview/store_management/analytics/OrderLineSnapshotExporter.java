@@ -0,0 +1,156 @@
+package ing.interview.store_management.analytics;
+
+import ing.interview.store_management.dto.OrderLineExportView;
+import ing.interview.store_management.dto.OrderSnapshotDto;
+import ing.interview.store_management.repository.ArchivedOrderRepository;
+import ing.interview.store_management.repository.OrderProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Exports the full order line history, archived orders included, to a columnar snapshot file in
+ * {@code orderSnapshot.directory}, every night and on demand. Lines are read in keyset pages of
+ * {@code orderSnapshot.pageSize} projections and streamed into the writer, so memory stays bounded.
+ * Both tiers are read in one read-only repeatable read transaction, an order moved by the OrderArchiver
+ * during the export is neither missed nor written twice.
+ */
+@Component
+public class OrderLineSnapshotExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderLineSnapshotExporter.class);
+
+    static final String FILE_PREFIX = "order-lines-";
+    static final String FILE_SUFFIX = ".olc";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${orderSnapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${orderSnapshot.directory:data/order-snapshots}")
+    private String directory;
+
+    @Value("${orderSnapshot.pageSize:5000}")
+    private int pageSize;
+
+    @Value("${orderSnapshot.blockRows:65536}")
+    private int blockRows;
+
+    private TransactionTemplate snapshotTransaction;
+
+    @PostConstruct
+    public void init() {
+        snapshotTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction.setReadOnly(true);
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Scheduled(cron = "${orderSnapshot.cron:0 30 2 * * *}")
+    public void scheduledExport() {
+        if (enabled) {
+            export();
+        }
+    }
+
+    /**
+     * Writes a new snapshot of every order line.
+     *
+     * @return the file written, with its number of rows and size.
+     */
+    public synchronized OrderSnapshotDto export() {
+        long start = System.nanoTime();
+        Path file = Path.of(directory).resolve(FILE_PREFIX + LocalDateTime.now().format(FILE_TIMESTAMP) + FILE_SUFFIX);
+        OrderSnapshotDto snapshot = snapshotTransaction.execute(status -> {
+            try {
+                Files.createDirectories(file.getParent());
+                try (OrderLineSnapshotWriter writer = new OrderLineSnapshotWriter(file, blockRows)) {
+                    // Archived orders first, they are the oldest
+                    exportLines(writer, archivedOrderRepository::findExportViewsAfter);
+                    exportLines(writer, orderProductRepository::findExportViewsAfter);
+                    long bytes = writer.commit();
+                    return new OrderSnapshotDto(file.getFileName().toString(), writer.rowCount(), bytes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the order line snapshot " + file, e);
+            }
+        });
+        logger.info("Exported {} order lines to {} ({} bytes) in {} ms", snapshot.getRows(), file, snapshot.getBytes(),
+                (System.nanoTime() - start) / 1_000_000);
+        return snapshot;
+    }
+
+    /**
+     * @return the most recent snapshot file, if any.
+     */
+    public Optional<Path> latestSnapshot() {
+        Path snapshotDirectory = Path.of(directory);
+        if (!Files.isDirectory(snapshotDirectory)) {
+            return Optional.empty();
+        }
+        // The timestamp in the name sorts chronologically
+        try (Stream<Path> files = Files.list(snapshotDirectory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                    })
+                    .max(Path::compareTo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list the order line snapshots in " + snapshotDirectory, e);
+        }
+    }
+
+    private void exportLines(OrderLineSnapshotWriter writer, LinePage linePage) throws IOException {
+        Long afterOrderId = 0L;
+        Long afterLineId = 0L;
+        List<OrderLineExportView> page;
+        do {
+            page = linePage.after(afterOrderId, afterLineId, PageRequest.ofSize(pageSize));
+            for (OrderLineExportView line : page) {
+                writer.append(line.getOrderId(),
+                        OrderLineSnapshotReader.toEpochMillis(line.getOrderDate()),
+                        line.getStatus(),
+                        line.getProductId() != null ? line.getProductId() : 0L,
+                        line.getQuantity() != null ? line.getQuantity() : 0,
+                        line.getTotalPrice() != null ? line.getTotalPrice().minorUnits() : 0L);
+            }
+            if (!page.isEmpty()) {
+                OrderLineExportView last = page.get(page.size() - 1);
+                afterOrderId = last.getOrderId();
+                afterLineId = last.getLineId();
+            }
+        } while (page.size() == pageSize);
+    }
+
+    @FunctionalInterface
+    private interface LinePage {
+        List<OrderLineExportView> after(Long afterOrderId, Long afterLineId, Pageable pageable);
+    }
+}
@@ -0,0 +1,308 @@
+package ing.interview.store_management.analytics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Inflater;
+
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.BLOCK_HEADER_SIZE;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.COLUMNS;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.HEADER_SIZE;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.MAGIC;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.ORDER_DATE;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.ORDER_ID;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.ORDER_TOTAL;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.PRODUCT_ID;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.QUANTITY;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.STATUS;
+import static ing.interview.store_management.analytics.OrderLineSnapshotWriter.VERSION;
+
+/**
+ * Reads a snapshot written by {@link OrderLineSnapshotWriter}. Only the footer is read when opening; a scan reads
+ * the blocks whose min/max order date overlaps the range and inflates only the columns it needs.
+ * Ranges are half open, [from, to). A reader is not thread safe.
+ */
+public class OrderLineSnapshotReader implements Closeable {
+
+    private final FileChannel channel;
+    private final List<Block> blocks;
+    private final Inflater inflater = new Inflater();
+    private final ColumnCodec.Input[] columns = new ColumnCodec.Input[COLUMNS];
+    private ByteBuffer blockBuffer = ByteBuffer.allocate(0);
+
+    private OrderLineSnapshotReader(FileChannel channel, List<Block> blocks) {
+        this.channel = channel;
+        this.blocks = blocks;
+        for (int column = 0; column < COLUMNS; column++) {
+            columns[column] = new ColumnCodec.Input();
+        }
+    }
+
+    /**
+     * Opens a snapshot and reads its block index.
+     *
+     * @param file the snapshot file.
+     * @return the reader, to be closed.
+     * @throws IOException if the file can not be read or is not a complete snapshot.
+     */
+    public static OrderLineSnapshotReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            ByteBuffer trailer = readFully(channel, size - Long.BYTES - Integer.BYTES, Long.BYTES + Integer.BYTES);
+            if (header.getInt() != MAGIC || trailer.getInt(Long.BYTES) != MAGIC) {
+                throw new IOException("Not a complete order line snapshot: " + file);
+            }
+            if (header.getInt() != VERSION) {
+                throw new IOException("Unsupported order line snapshot version in " + file);
+            }
+            long footerOffset = trailer.getLong();
+            ByteBuffer footer = readFully(channel, footerOffset, (int) (size - Long.BYTES - Integer.BYTES - footerOffset));
+            int blockCount = footer.getInt();
+            List<Block> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(new Block(footer.getLong(), footer.getInt(), footer.getLong(), footer.getLong(), footer.getLong(), footer.getLong()));
+            }
+            // The end of each block is the start of the next one, or of the footer
+            List<Block> bounded = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                long end = i + 1 < blockCount ? blocks.get(i + 1).offset() : footerOffset;
+                bounded.add(blocks.get(i).withLength((int) (end - blocks.get(i).offset())));
+            }
+            return new OrderLineSnapshotReader(channel, Collections.unmodifiableList(bounded));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of order lines in the snapshot.
+     */
+    public long rowCount() {
+        return blocks.stream().mapToLong(Block::rowCount).sum();
+    }
+
+    /**
+     * @return the number of blocks in the snapshot.
+     */
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Aggregates the order lines of the orders placed in a date range.
+     *
+     * @param from the start of the range, inclusive.
+     * @param to   the end of the range, exclusive.
+     * @return the number of orders and lines, the total quantity and the total of the orders.
+     * @throws IOException if the file can not be read.
+     */
+    public OrderLineAggregate aggregate(LocalDateTime from, LocalDateTime to) throws IOException {
+        return aggregate(toEpochMillis(from), toEpochMillis(to));
+    }
+
+    /**
+     * Aggregates the order lines of the orders placed in a date range.
+     *
+     * @param fromMillis the start of the range, epoch milliseconds in UTC, inclusive.
+     * @param toMillis   the end of the range, epoch milliseconds in UTC, exclusive.
+     * @return the number of orders and lines, the total quantity and the total of the orders.
+     * @throws IOException if the file can not be read.
+     */
+    public OrderLineAggregate aggregate(long fromMillis, long toMillis) throws IOException {
+        long orders = 0;
+        long lines = 0;
+        long quantity = 0;
+        long revenueMinor = 0;
+        long lastOrderId = Long.MIN_VALUE;
+
+        for (Block block : blocks) {
+            if (!block.overlaps(fromMillis, toMillis)) {
+                continue;
+            }
+            // A block inside the range needs no date filter, so its date column is not even inflated
+            boolean filtered = block.minDate() < fromMillis || block.maxDate() >= toMillis;
+            ByteBuffer buffer = readBlock(block);
+            inflate(buffer, block, filtered, ORDER_ID, ORDER_DATE, QUANTITY, ORDER_TOTAL);
+
+            ColumnCodec.Input orderIdColumn = columns[ORDER_ID];
+            ColumnCodec.Input dateColumn = columns[ORDER_DATE];
+            ColumnCodec.Input quantityColumn = columns[QUANTITY];
+            ColumnCodec.Input totalColumn = columns[ORDER_TOTAL];
+            long orderId = 0;
+            long date = 0;
+            long total = 0;
+            for (int row = 0; row < block.rowCount(); row++) {
+                orderId += orderIdColumn.readSignedVarLong();
+                long rowQuantity = quantityColumn.readSignedVarLong();
+                total += totalColumn.readSignedVarLong();
+                if (filtered) {
+                    date += dateColumn.readSignedVarLong();
+                    if (date < fromMillis || date >= toMillis) {
+                        continue;
+                    }
+                }
+                lines++;
+                quantity += rowQuantity;
+                // Only the first line of an order carries its total, the others hold 0
+                revenueMinor += total;
+                if (orderId != lastOrderId) {
+                    orders++;
+                    lastOrderId = orderId;
+                }
+            }
+        }
+        return new OrderLineAggregate(orders, lines, quantity, revenueMinor);
+    }
+
+    /**
+     * Visits every order line of the orders placed in a date range, in file order.
+     *
+     * @param fromMillis the start of the range, epoch milliseconds in UTC, inclusive.
+     * @param toMillis   the end of the range, epoch milliseconds in UTC, exclusive.
+     * @param visitor    called for every line.
+     * @throws IOException if the file can not be read.
+     */
+    public void scan(long fromMillis, long toMillis, OrderLineVisitor visitor) throws IOException {
+        long lastOrderId = Long.MIN_VALUE;
+        long lastOrderTotal = 0;
+        for (Block block : blocks) {
+            if (!block.overlaps(fromMillis, toMillis)) {
+                continue;
+            }
+            ByteBuffer buffer = readBlock(block);
+            inflate(buffer, block, true, ORDER_ID, ORDER_DATE, STATUS, PRODUCT_ID, QUANTITY, ORDER_TOTAL);
+
+            String[] dictionary = readDictionary(columns[STATUS]);
+            long orderId = 0;
+            long date = 0;
+            long productId = 0;
+            long total = 0;
+            for (int row = 0; row < block.rowCount(); row++) {
+                orderId += columns[ORDER_ID].readSignedVarLong();
+                date += columns[ORDER_DATE].readSignedVarLong();
+                String status = dictionary[(int) columns[STATUS].readVarLong()];
+                productId += columns[PRODUCT_ID].readSignedVarLong();
+                int quantity = (int) columns[QUANTITY].readSignedVarLong();
+                total += columns[ORDER_TOTAL].readSignedVarLong();
+                // Give every line the total of its order, which is only stored with the first one
+                if (orderId != lastOrderId) {
+                    lastOrderId = orderId;
+                    lastOrderTotal = total;
+                }
+                if (date >= fromMillis && date < toMillis) {
+                    visitor.visit(orderId, date, status, productId, quantity, lastOrderTotal);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    /**
+     * Converts a date the way the snapshot stores it.
+     *
+     * @param dateTime a local date time.
+     * @return its epoch milliseconds in UTC.
+     */
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private ByteBuffer readBlock(Block block) throws IOException {
+        if (blockBuffer.capacity() < block.length()) {
+            blockBuffer = ByteBuffer.allocate(block.length());
+        }
+        blockBuffer.clear().limit(block.length());
+        readFully(channel, block.offset(), blockBuffer);
+        return blockBuffer;
+    }
+
+    // Walks the chunk headers of the block and inflates the wanted columns, the others are skipped over
+    private void inflate(ByteBuffer buffer, Block block, boolean withDates, int... wanted) {
+        boolean[] inflate = new boolean[COLUMNS];
+        for (int column : wanted) {
+            inflate[column] = column != ORDER_DATE || withDates;
+        }
+        int position = BLOCK_HEADER_SIZE;
+        for (int column = 0; column < COLUMNS; column++) {
+            int compressedLength = buffer.getInt(position);
+            int rawLength = buffer.getInt(position + Integer.BYTES);
+            position += 2 * Integer.BYTES;
+            if (inflate[column]) {
+                columns[column].decompress(buffer.array(), position, compressedLength, rawLength, inflater);
+            }
+            position += compressedLength;
+        }
+        if (position != block.length()) {
+            throw new IllegalStateException("Corrupted block at offset " + block.offset());
+        }
+    }
+
+    private static String[] readDictionary(ColumnCodec.Input statusColumn) {
+        String[] dictionary = new String[(int) statusColumn.readVarLong()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = new String(statusColumn.readBytes((int) statusColumn.readVarLong()), StandardCharsets.UTF_8);
+        }
+        return dictionary;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long offset, int length) throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IOException("Not a complete order line snapshot");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, offset, buffer);
+        return buffer;
+    }
+
+    private static void readFully(FileChannel channel, long offset, ByteBuffer buffer) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the order line snapshot");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Receives the order lines of a scan.
+     */
+    @FunctionalInterface
+    public interface OrderLineVisitor {
+        void visit(long orderId, long orderDateMillis, String status, long productId, int quantity, long orderTotalMinor);
+    }
+
+    private record Block(long offset, int rowCount, long minDate, long maxDate, long minOrderId, long maxOrderId, int length) {
+
+        Block(long offset, int rowCount, long minDate, long maxDate, long minOrderId, long maxOrderId) {
+            this(offset, rowCount, minDate, maxDate, minOrderId, maxOrderId, 0);
+        }
+
+        Block withLength(int length) {
+            return new Block(offset, rowCount, minDate, maxDate, minOrderId, maxOrderId, length);
+        }
+
+        boolean overlaps(long fromMillis, long toMillis) {
+            return maxDate >= fromMillis && minDate < toMillis;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package ing.interview.store_management.analytics;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes order lines to a columnar snapshot file. Rows are buffered in primitive arrays until a block of
+ * {@code blockRows} rows is full, so memory stays bounded whatever the number of rows.
+ * <pre>
+ * file   = | magic (4) | version (4) | block* | footer | footer offset (8) | magic (4) |
+ * block  = | row count (4) | min date (8) | max date (8) | min order id (8) | max order id (8) |
+ *          (| compressed length (4) | raw length (4) | deflated column chunk |) x 6
+ * footer = | block count (4) | (| offset (8) | row count (4) | min date (8) | max date (8) | min order id (8) | max order id (8) |)*
+ * </pre>
+ * Column chunks, in order: order ID and order date (zigzag varint deltas), status (block dictionary then
+ * varint indexes), product ID (zigzag varint deltas), quantity (zigzag varints), order total in minor units
+ * (zigzag varint deltas, 0 for every line after the first of an order). Dates are epoch milliseconds in UTC.
+ * <p>
+ * The file is written under a temporary name and only moved in place by {@link #commit()}, closing without
+ * committing deletes it.
+ */
+public class OrderLineSnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x4F4C4346;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+    static final int BLOCK_HEADER_SIZE = Integer.BYTES + 4 * Long.BYTES;
+
+    static final int ORDER_ID = 0;
+    static final int ORDER_DATE = 1;
+    static final int STATUS = 2;
+    static final int PRODUCT_ID = 3;
+    static final int QUANTITY = 4;
+    static final int ORDER_TOTAL = 5;
+    static final int COLUMNS = 6;
+
+    private final Path file;
+    private final Path temporaryFile;
+    private final DataOutputStream out;
+    private final int blockRows;
+
+    private final long[] orderIds;
+    private final long[] orderDates;
+    private final String[] statuses;
+    private final long[] productIds;
+    private final int[] quantities;
+    private final long[] orderTotals;
+    private int rows;
+
+    private final ColumnCodec.Output raw = new ColumnCodec.Output();
+    private final ColumnCodec.Output compressed = new ColumnCodec.Output();
+    private final Deflater deflater = new Deflater();
+    private final List<BlockInfo> blocks = new ArrayList<>();
+    private long position;
+    private long rowCount;
+    private boolean committed;
+
+    /**
+     * Creates the temporary file and writes the header.
+     *
+     * @param file      the snapshot file, replaced on commit if it exists.
+     * @param blockRows the number of rows per block.
+     * @throws IOException if the file can not be created.
+     */
+    public OrderLineSnapshotWriter(Path file, int blockRows) throws IOException {
+        if (blockRows <= 0) {
+            throw new IllegalArgumentException("A block needs at least one row");
+        }
+        this.file = file;
+        this.temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.blockRows = blockRows;
+        this.orderIds = new long[blockRows];
+        this.orderDates = new long[blockRows];
+        this.statuses = new String[blockRows];
+        this.productIds = new long[blockRows];
+        this.quantities = new int[blockRows];
+        this.orderTotals = new long[blockRows];
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        position = HEADER_SIZE;
+    }
+
+    /**
+     * Appends one order line. The lines of an order are expected one after the other,
+     * the order total is only stored with the first of them.
+     *
+     * @param orderId          the ID of the order.
+     * @param orderDateMillis  the order date, epoch milliseconds in UTC.
+     * @param status           the status of the order.
+     * @param productId        the ID of the ordered product.
+     * @param quantity         the ordered quantity.
+     * @param orderTotalMinor  the total price of the order, in minor units.
+     * @throws IOException if a full block can not be written.
+     */
+    public void append(long orderId, long orderDateMillis, String status, long productId, int quantity, long orderTotalMinor) throws IOException {
+        boolean sameOrder = rows > 0 ? orderIds[rows - 1] == orderId : rowCount > 0 && lastOrderIdOfPreviousBlock() == orderId;
+        orderIds[rows] = orderId;
+        orderDates[rows] = orderDateMillis;
+        statuses[rows] = status;
+        productIds[rows] = productId;
+        quantities[rows] = quantity;
+        orderTotals[rows] = sameOrder ? 0 : orderTotalMinor;
+        rowCount++;
+        if (++rows == blockRows) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * @return the number of rows appended so far.
+     */
+    public long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Writes the last block and the footer, then moves the file in place.
+     *
+     * @return the size of the file, in bytes.
+     * @throws IOException if the file can not be written.
+     */
+    public long commit() throws IOException {
+        if (rows > 0) {
+            writeBlock();
+        }
+        long footerOffset = position;
+        out.writeInt(blocks.size());
+        for (BlockInfo block : blocks) {
+            out.writeLong(block.offset());
+            out.writeInt(block.rowCount());
+            out.writeLong(block.minDate());
+            out.writeLong(block.maxDate());
+            out.writeLong(block.minOrderId());
+            out.writeLong(block.maxOrderId());
+        }
+        out.writeLong(footerOffset);
+        out.writeInt(MAGIC);
+        out.close();
+        deflater.end();
+        committed = true;
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            out.close();
+            deflater.end();
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private long lastOrderIdOfPreviousBlock() {
+        return blocks.get(blocks.size() - 1).lastOrderId();
+    }
+
+    private void writeBlock() throws IOException {
+        long minDate = Long.MAX_VALUE;
+        long maxDate = Long.MIN_VALUE;
+        long minOrderId = Long.MAX_VALUE;
+        long maxOrderId = Long.MIN_VALUE;
+        for (int i = 0; i < rows; i++) {
+            minDate = Math.min(minDate, orderDates[i]);
+            maxDate = Math.max(maxDate, orderDates[i]);
+            minOrderId = Math.min(minOrderId, orderIds[i]);
+            maxOrderId = Math.max(maxOrderId, orderIds[i]);
+        }
+        blocks.add(new BlockInfo(position, rows, minDate, maxDate, minOrderId, maxOrderId, orderIds[rows - 1]));
+
+        out.writeInt(rows);
+        out.writeLong(minDate);
+        out.writeLong(maxDate);
+        out.writeLong(minOrderId);
+        out.writeLong(maxOrderId);
+        position += BLOCK_HEADER_SIZE;
+
+        for (int column = 0; column < COLUMNS; column++) {
+            raw.reset();
+            encodeColumn(column);
+            compressed.compress(raw, deflater);
+            out.writeInt(compressed.size());
+            out.writeInt(raw.size());
+            out.write(compressed.bytes(), 0, compressed.size());
+            position += 2 * Integer.BYTES + compressed.size();
+        }
+        Arrays.fill(statuses, 0, rows, null);
+        rows = 0;
+    }
+
+    private void encodeColumn(int column) {
+        switch (column) {
+            case ORDER_ID -> encodeDeltas(orderIds);
+            case ORDER_DATE -> encodeDeltas(orderDates);
+            case STATUS -> encodeDictionary(statuses);
+            case PRODUCT_ID -> encodeDeltas(productIds);
+            case QUANTITY -> {
+                for (int i = 0; i < rows; i++) {
+                    raw.writeSignedVarLong(quantities[i]);
+                }
+            }
+            case ORDER_TOTAL -> encodeDeltas(orderTotals);
+            default -> throw new IllegalArgumentException("Unknown column " + column);
+        }
+    }
+
+    private void encodeDeltas(long[] values) {
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            raw.writeSignedVarLong(values[i] - previous);
+            previous = values[i];
+        }
+    }
+
+    // A handful of distinct statuses, each row stores the index of its status in the block dictionary
+    private void encodeDictionary(String[] values) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        int[] indexes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            String value = values[i] != null ? values[i] : "";
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = entries.size();
+                dictionary.put(value, index);
+                entries.add(value);
+            }
+            indexes[i] = index;
+        }
+        raw.writeVarLong(entries.size());
+        for (String entry : entries) {
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            raw.writeVarLong(bytes.length);
+            raw.writeBytes(bytes);
+        }
+        for (int i = 0; i < rows; i++) {
+            raw.writeVarLong(indexes[i]);
+        }
+    }
+
+    private record BlockInfo(long offset, int rowCount, long minDate, long maxDate, long minOrderId, long maxOrderId,
+                             long lastOrderId) {
+    }
+}
@@ -0,0 +1,371 @@
+package ing.interview.store_management.analytics;
+
+import ing.interview.store_management.model.ArchivedOrder;
+import ing.interview.store_management.model.ArchivedOrderLine;
+import ing.interview.store_management.model.DailyProductSales;
+import ing.interview.store_management.model.DailySales;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.Order;
+import ing.interview.store_management.model.OrderProduct;
+import ing.interview.store_management.model.OrderSalesContribution;
+import ing.interview.store_management.model.OrderStatus;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.model.RollupWatermark;
+import ing.interview.store_management.model.SalesChange;
+import ing.interview.store_management.repository.ArchivedOrderRepository;
+import ing.interview.store_management.repository.DailyProductSalesRepository;
+import ing.interview.store_management.repository.DailySalesRepository;
+import ing.interview.store_management.repository.OrderRepository;
+import ing.interview.store_management.repository.OrderSalesContributionRepository;
+import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.RollupWatermarkRepository;
+import ing.interview.store_management.repository.SalesChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the daily sales rollups, per day and per day and product, so reports never scan the orders.
+ * OrderService records a SalesChange with every order it creates, updates or deletes. The job drains these
+ * changes in batches of {@code salesRollup.batchSize}: each changed order has its previous contribution,
+ * kept in order_sales_contribution, taken out of the rollups and its current one added, which handles updates
+ * and deletions as deltas. The rollups, the contributions, the removal of the changes and the watermark are
+ * written in one transaction, and a contribution is a state rather than an increment, so a run repeated after a
+ * failure, or an order folded twice, leaves the rollups the same.
+ * The changes are drained in ID order instead of being filtered by the watermark, so a change committed after
+ * one with a higher ID is not skipped. Orders moved by the OrderArchiver keep counting, from the archive.
+ * Every node runs the job: each batch starts by locking the watermark row until it commits, so batches run one
+ * at a time across the nodes and never fold an order or update a rollup row concurrently.
+ * The revenue of an order is its total price, split over its lines pro rata to their list value.
+ */
+@Component
+public class SalesRollupJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupJob.class);
+
+    static final String WATERMARK = "daily-sales";
+
+    // Orders which did not sell anything
+    private static final Set<String> EXCLUDED_STATUSES = Set.of(OrderStatus.CANCELED.getStatus(), OrderStatus.ANULATED.getStatus());
+
+    @Autowired
+    private SalesChangeRepository salesChangeRepository;
+
+    @Autowired
+    private OrderSalesContributionRepository orderSalesContributionRepository;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private DailyProductSalesRepository dailyProductSalesRepository;
+
+    @Autowired
+    private RollupWatermarkRepository rollupWatermarkRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${salesRollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${salesRollup.batchSize:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${salesRollup.intervalMillis:60000}", initialDelayString = "${salesRollup.initialDelayMillis:30000}")
+    public void scheduledRollup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rollup();
+        } catch (PessimisticLockingFailureException e) {
+            logger.debug("The sales rollups are being updated by another node: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Folds every pending change into the rollups.
+     *
+     * @return the number of changes processed.
+     */
+    public synchronized int rollup() {
+        long start = System.nanoTime();
+        createWatermark();
+        int processed = 0;
+        int batch;
+        do {
+            batch = runBatch();
+            processed += batch;
+        } while (batch == batchSize);
+        if (processed > 0) {
+            logger.info("Folded {} order changes into the sales rollups in {} ms", processed, (System.nanoTime() - start) / 1_000_000);
+        }
+        return processed;
+    }
+
+    /**
+     * @return the watermark of the rollups, empty before the first run.
+     */
+    public RollupWatermark watermark() {
+        return rollupWatermarkRepository.findById(WATERMARK).orElseGet(() -> new RollupWatermark(WATERMARK));
+    }
+
+    /**
+     * Creates the watermark row locked by the batches, once. Another node may create it at the same time.
+     */
+    private void createWatermark() {
+        if (rollupWatermarkRepository.existsById(WATERMARK)) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> rollupWatermarkRepository.saveAndFlush(new RollupWatermark(WATERMARK)));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("The sales rollup watermark was created by another node");
+        }
+    }
+
+    /**
+     * Folds the oldest pending changes, at most {@code salesRollup.batchSize}, in one transaction.
+     *
+     * @return the number of changes processed.
+     */
+    int runBatch() {
+        return transactionTemplate.execute(status -> rollupBatch());
+    }
+
+    private int rollupBatch() {
+        RollupWatermark watermark = rollupWatermarkRepository.findByIdForUpdate(WATERMARK)
+                .orElseThrow(() -> new IllegalStateException("The sales rollup watermark is missing"));
+        List<SalesChange> changes = salesChangeRepository.findOldest(PageRequest.ofSize(batchSize));
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        Set<Long> orderIds = new LinkedHashSet<>();
+        for (SalesChange change : changes) {
+            orderIds.add(change.getOrderId());
+        }
+        for (Long orderId : orderIds) {
+            fold(orderId);
+        }
+
+        long lastChangeId = changes.get(changes.size() - 1).getId();
+        salesChangeRepository.deleteByIdIn(changes.stream().map(SalesChange::getId).toList());
+        watermark.setLastChangeId(Math.max(watermark.getLastChangeId(), lastChangeId));
+        watermark.setProcessedAt(Instant.now());
+        rollupWatermarkRepository.save(watermark);
+        return changes.size();
+    }
+
+    /**
+     * Replaces the contribution of an order to the rollups by its current one.
+     */
+    private void fold(Long orderId) {
+        Map<Long, OrderSalesContribution> previous = orderSalesContributionRepository.findByOrderId(orderId).stream()
+                .collect(Collectors.toMap(OrderSalesContribution::getProductId, Function.identity()));
+        Map<Long, OrderSalesContribution> current = currentContribution(orderId);
+        if (previous.equals(current)) {
+            return;
+        }
+
+        // Netted per key first, taking a row out and putting it back would delete and insert the same key
+        Map<DailyProductSales.Key, Delta> productDeltas = new LinkedHashMap<>();
+        Map<LocalDate, Delta> dailyDeltas = new LinkedHashMap<>();
+        collectDeltas(previous.values(), -1, productDeltas, dailyDeltas);
+        collectDeltas(current.values(), 1, productDeltas, dailyDeltas);
+        productDeltas.forEach(this::applyToProductSales);
+        dailyDeltas.forEach(this::applyToDailySales);
+
+        for (OrderSalesContribution contribution : previous.values()) {
+            OrderSalesContribution replacement = current.remove(contribution.getProductId());
+            if (replacement == null) {
+                orderSalesContributionRepository.delete(contribution);
+            } else {
+                // Updated in place, a delete and insert of the same key would be flushed in the wrong order
+                contribution.setDay(replacement.getDay());
+                contribution.setUnits(replacement.getUnits());
+                contribution.setRevenueMinor(replacement.getRevenueMinor());
+            }
+        }
+        orderSalesContributionRepository.saveAll(current.values());
+        // Rows emptied by this order are gone before the next order of the batch may bring them back
+        orderSalesContributionRepository.flush();
+    }
+
+    private void collectDeltas(Iterable<OrderSalesContribution> contributions, int sign,
+                               Map<DailyProductSales.Key, Delta> productDeltas, Map<LocalDate, Delta> dailyDeltas) {
+        Set<LocalDate> countedDays = new LinkedHashSet<>();
+        for (OrderSalesContribution contribution : contributions) {
+            Delta delta = new Delta(sign * contribution.getUnits(), sign * contribution.getRevenueMinor(), sign);
+            productDeltas.merge(new DailyProductSales.Key(contribution.getDay(), contribution.getProductId()), delta, Delta::plus);
+            // An order is counted once on its day, whatever its number of lines
+            Delta dailyDelta = countedDays.add(contribution.getDay()) ? delta : new Delta(delta.units(), delta.revenueMinor(), 0);
+            dailyDeltas.merge(contribution.getDay(), dailyDelta, Delta::plus);
+        }
+    }
+
+    private void applyToProductSales(DailyProductSales.Key key, Delta delta) {
+        if (delta.isZero()) {
+            return;
+        }
+        DailyProductSales productSales = dailyProductSalesRepository.findById(key)
+                .orElseGet(() -> new DailyProductSales(key.getDay(), key.getProductId()));
+        productSales.setUnits(productSales.getUnits() + delta.units());
+        productSales.setRevenueMinor(productSales.getRevenueMinor() + delta.revenueMinor());
+        productSales.setOrderCount(productSales.getOrderCount() + delta.orderCount());
+        if (productSales.getOrderCount() <= 0) {
+            dailyProductSalesRepository.delete(productSales);
+        } else {
+            dailyProductSalesRepository.save(productSales);
+        }
+    }
+
+    private void applyToDailySales(LocalDate day, Delta delta) {
+        if (delta.isZero()) {
+            return;
+        }
+        DailySales daily = dailySalesRepository.findById(day).orElseGet(() -> new DailySales(day));
+        daily.setUnits(daily.getUnits() + delta.units());
+        daily.setRevenueMinor(daily.getRevenueMinor() + delta.revenueMinor());
+        daily.setOrderCount(daily.getOrderCount() + delta.orderCount());
+        if (daily.getOrderCount() <= 0) {
+            dailySalesRepository.delete(daily);
+        } else {
+            dailySalesRepository.save(daily);
+        }
+    }
+
+    /**
+     * Computes what an order adds to the rollups now, from the live order or from the archive.
+     *
+     * @return the contribution of each product of the order, empty for a deleted or canceled order.
+     */
+    private Map<Long, OrderSalesContribution> currentContribution(Long orderId) {
+        Map<Long, Long> units = new LinkedHashMap<>();
+        LocalDateTime orderDate;
+        String status;
+        Money totalPrice;
+
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order != null) {
+            orderDate = order.getOrderDate();
+            status = order.getStatus();
+            totalPrice = order.getTotalPrice();
+            for (OrderProduct line : order.getOrderProducts()) {
+                if (line.getProduct() != null && line.getQuantity() != null && line.getQuantity() > 0) {
+                    units.merge(line.getProduct().getId(), (long) line.getQuantity(), Long::sum);
+                }
+            }
+        } else {
+            ArchivedOrder archivedOrder = archivedOrderRepository.findById(orderId).orElse(null);
+            if (archivedOrder == null) {
+                return new LinkedHashMap<>();
+            }
+            orderDate = archivedOrder.getOrderDate();
+            status = archivedOrder.getStatus();
+            totalPrice = archivedOrder.getTotalPrice();
+            for (ArchivedOrderLine line : archivedOrder.getOrderLines()) {
+                if (line.getProductId() != null && line.getQuantity() != null && line.getQuantity() > 0) {
+                    units.merge(line.getProductId(), (long) line.getQuantity(), Long::sum);
+                }
+            }
+        }
+        if (units.isEmpty() || orderDate == null || EXCLUDED_STATUSES.contains(status)) {
+            return new LinkedHashMap<>();
+        }
+
+        LocalDate day = orderDate.toLocalDate();
+        Map<Long, Long> revenue = splitRevenue(totalPrice != null ? totalPrice.minorUnits() : 0L, units);
+        Map<Long, OrderSalesContribution> contribution = new LinkedHashMap<>();
+        units.forEach((productId, quantity) ->
+                contribution.put(productId, new OrderSalesContribution(orderId, productId, day, quantity, revenue.get(productId))));
+        return contribution;
+    }
+
+    /**
+     * Splits the total of an order over its products pro rata to their list value, quantity times current price,
+     * or to their quantity when no price is known. The remainder goes to the largest share, so the parts add up
+     * to the total exactly.
+     */
+    private Map<Long, Long> splitRevenue(long totalMinor, Map<Long, Long> units) {
+        Map<Long, Money> prices = productRepository.findAllById(units.keySet()).stream()
+                .filter(product -> product.getPrice() != null)
+                .collect(Collectors.toMap(Product::getId, Product::getPrice));
+        boolean priced = prices.keySet().containsAll(units.keySet());
+
+        Map<Long, BigInteger> weights = new LinkedHashMap<>();
+        BigInteger totalWeight = BigInteger.ZERO;
+        for (Map.Entry<Long, Long> entry : units.entrySet()) {
+            BigInteger weight = BigInteger.valueOf(entry.getValue());
+            if (priced) {
+                weight = weight.multiply(BigInteger.valueOf(prices.get(entry.getKey()).minorUnits()));
+            }
+            weights.put(entry.getKey(), weight);
+            totalWeight = totalWeight.add(weight);
+        }
+        if (totalWeight.signum() == 0) {
+            // Free products, split by quantity instead
+            return splitRevenue(totalMinor, units, units.entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> BigInteger.valueOf(entry.getValue()),
+                            (first, second) -> first, LinkedHashMap::new)));
+        }
+        return splitRevenue(totalMinor, units, weights);
+    }
+
+    private Map<Long, Long> splitRevenue(long totalMinor, Map<Long, Long> units, Map<Long, BigInteger> weights) {
+        BigInteger totalWeight = weights.values().stream().reduce(BigInteger.ZERO, BigInteger::add);
+        BigInteger total = BigInteger.valueOf(totalMinor);
+        Map<Long, Long> shares = new LinkedHashMap<>();
+        long allocated = 0;
+        Long largest = null;
+        for (Long productId : units.keySet()) {
+            long share = total.multiply(weights.get(productId)).divide(totalWeight).longValueExact();
+            shares.put(productId, share);
+            allocated += share;
+            if (largest == null || weights.get(productId).compareTo(weights.get(largest)) > 0) {
+                largest = productId;
+            }
+        }
+        shares.merge(largest, totalMinor - allocated, Long::sum);
+        return shares;
+    }
+
+    private record Delta(long units, long revenueMinor, long orderCount) {
+
+        Delta plus(Delta other) {
+            return new Delta(units + other.units, revenueMinor + other.revenueMinor, orderCount + other.orderCount);
+        }
+
+        boolean isZero() {
+            return units == 0 && revenueMinor == 0 && orderCount == 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ing.interview.store_management.archive;
+
+import ing.interview.store_management.model.OrderStatus;
+import ing.interview.store_management.repository.ArchivedOrderRepository;
+import ing.interview.store_management.repository.OrderProductRepository;
+import ing.interview.store_management.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves the completed and canceled orders older than {@code orderArchive.retentionDays} from store_order and
+ * order_product to archived_order and archived_order_product, so the hot tables only hold the retention window.
+ * <p>
+ * Orders are moved oldest first in chunks of {@code orderArchive.chunkSize}, each chunk in its own transaction
+ * with INSERT ... SELECT and bulk DELETE statements, and the job pauses {@code orderArchive.throttleMillis}
+ * between chunks to leave room for the order traffic.
+ */
+@Component
+public class OrderArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderArchiver.class);
+
+    static final List<String> ARCHIVED_STATUSES = List.of(OrderStatus.COMPLETED.getStatus(), OrderStatus.CANCELED.getStatus());
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${orderArchive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${orderArchive.retentionDays:90}")
+    private long retentionDays;
+
+    @Value("${orderArchive.chunkSize:500}")
+    private int chunkSize;
+
+    @Value("${orderArchive.throttleMillis:200}")
+    private long throttleMillis;
+
+    /**
+     * Archives every order past the retention window.
+     */
+    @Scheduled(fixedDelayString = "${orderArchive.intervalMillis:3600000}", initialDelayString = "${orderArchive.initialDelayMillis:60000}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        long start = System.nanoTime();
+        int archived = 0;
+        int moved;
+        do {
+            moved = archiveChunk(before);
+            archived += moved;
+            if (moved == chunkSize && !pause()) {
+                break;
+            }
+        } while (moved == chunkSize);
+
+        if (archived > 0) {
+            logger.info("Archived {} orders placed before {} in {} ms", archived, before, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Moves one chunk of orders placed before the given date.
+     *
+     * @param before orders placed before this date are archived.
+     * @return the number of orders moved.
+     */
+    int archiveChunk(LocalDateTime before) {
+        Integer moved = transactionTemplate.execute(status -> {
+            List<Long> orderIds = orderRepository.findIdsByStatusInAndOrderDateBefore(ARCHIVED_STATUSES, before, PageRequest.ofSize(chunkSize));
+            if (orderIds.isEmpty()) {
+                return 0;
+            }
+            // Copy before deleting, in the same transaction, so an order is always in exactly one of the tiers
+            archivedOrderRepository.copyOrders(orderIds, LocalDateTime.now());
+            archivedOrderRepository.copyOrderLines(orderIds);
+            orderProductRepository.deleteByOrderIdIn(orderIds);
+            orderRepository.deleteByIdIn(orderIds);
+            return orderIds.size();
+        });
+        return moved != null ? moved : 0;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(throttleMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -2,8 +2,15 @@ package ing.interview.store_management.controller;
 
 import ing.interview.store_management.dto.AuthenticationRequest;
 import ing.interview.store_management.dto.AuthenticationResponse;
+import ing.interview.store_management.dto.RefreshTokenRequest;
+import ing.interview.store_management.exception.InvalidRefreshTokenException;
+import ing.interview.store_management.security.CredentialVerificationExecutor;
 import ing.interview.store_management.security.JwtUtil;
+import ing.interview.store_management.service.RefreshTokenService;
+import ing.interview.store_management.service.TokenRevocationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,14 +18,19 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Controller that handles authentication endpoints for example the login
- * Provides token-based authentication for the users
+ * Provides token-based authentication for the users, with short-lived JWTs and rotating refresh tokens
  */
 @RestController
 @RequestMapping("/authenticate")
@@ -30,14 +42,43 @@ public class AuthenticationController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private CredentialVerificationExecutor credentialVerificationExecutor;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Value("${auth.verification.retryAfterSeconds:1}")
+    private long retryAfterSeconds;
+
     /**
      * Handles the user login by authenticating the user and returning a JWT token
+     * The password check runs on the credential verifier pool, the request thread is released while it runs.
      *
      * @param authenticationRequest The authentication request information (username and password).
-     * @return ResponseEntity containing the JWT token.
+     * @return ResponseEntity containing the JWT token and a refresh token, or 503 with Retry-After if the verifier pool is saturated.
      */
     @PostMapping
-    public ResponseEntity<?> authenticate(@RequestBody AuthenticationRequest authenticationRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticate(@RequestBody AuthenticationRequest authenticationRequest) {
+        try {
+            return credentialVerificationExecutor.submit(() -> verifyCredentials(authenticationRequest));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body("Too many login attempts in progress, retry later"));
+        }
+    }
+
+    /**
+     * Authenticates the credentials and generates the JWT token
+     *
+     * @param authenticationRequest The authentication request information (username and password).
+     * @return ResponseEntity containing the JWT token and a refresh token, or 401 for invalid credentials.
+     */
+    private ResponseEntity<?> verifyCredentials(AuthenticationRequest authenticationRequest) {
         try {
             UsernamePasswordAuthenticationToken authenticationToken =
                     new UsernamePasswordAuthenticationToken(authenticationRequest.getUsername(), authenticationRequest.getPassword());
@@ -49,10 +90,69 @@ public class AuthenticationController {
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
 
             String jwt = jwtUtil.generateToken(userDetails);
-            return ResponseEntity.ok(new AuthenticationResponse(jwt));
+            String refreshToken = refreshTokenService.issue(userDetails.getUsername());
+            return ResponseEntity.ok(new AuthenticationResponse(jwt, refreshToken));
 
         } catch (BadCredentialsException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
         }
     }
+
+    /**
+     * Mints a new JWT token from a refresh token, without checking the password again.
+     * The refresh token is rotated: the one sent is consumed and a new one is returned.
+     *
+     * @param refreshTokenRequest The refresh token received from a previous login or refresh.
+     * @return ResponseEntity containing the new JWT token and refresh token, or 401 if the refresh token is not valid.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest refreshTokenRequest) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshTokenRequest.getRefreshToken());
+
+            String jwt = jwtUtil.generateToken(rotation.userDetails());
+            return ResponseEntity.ok(new AuthenticationResponse(jwt, rotation.refreshToken()));
+
+        } catch (InvalidRefreshTokenException | UsernameNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Revokes a refresh token, used on logout.
+     *
+     * @param refreshTokenRequest The refresh token to revoke.
+     * @return ResponseEntity with no content.
+     */
+    @PostMapping("/revoke")
+    public ResponseEntity<Void> revoke(@RequestBody RefreshTokenRequest refreshTokenRequest) {
+        refreshTokenService.revoke(refreshTokenRequest.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Logs the user out by revoking the JWT token sent in the Authorization header,
+     * and the refresh token if one is sent in the body.
+     *
+     * @param authorization       The Authorization header with the Bearer JWT token.
+     * @param refreshTokenRequest The refresh token to revoke, optional.
+     * @return ResponseEntity with no content, or 401 if the JWT token is not valid.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                    @RequestBody(required = false) RefreshTokenRequest refreshTokenRequest) {
+        if (!authorization.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Authorization header missing or incorrect format");
+        }
+        String token = authorization.substring(7);
+        try {
+            tokenRevocationService.revokeToken(jwtUtil.extractTokenId(token), jwtUtil.extractExpiration(token));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token format");
+        }
+        if (refreshTokenRequest != null) {
+            refreshTokenService.revoke(refreshTokenRequest.getRefreshToken());
+        }
+        return ResponseEntity.noContent().build();
+    }
 }
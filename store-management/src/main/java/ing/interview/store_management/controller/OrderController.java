@@ -5,6 +5,7 @@ import ing.interview.store_management.dto.OrderProductDto;
 import ing.interview.store_management.exception.InsufficientStockException;
 import ing.interview.store_management.exception.NoValidProductInOrderException;
 import ing.interview.store_management.exception.OrderNotFoundException;
+import ing.interview.store_management.exception.ProductDiscontinuedException;
 import ing.interview.store_management.exception.ProductNotFoundException;
 import ing.interview.store_management.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,7 +39,7 @@ public class OrderController {
         try {
             OrderDto orderDto = orderService.createOrder(orderProductDTOs);
             return ResponseEntity.status(HttpStatus.CREATED).body(orderDto);
-        } catch (NoValidProductInOrderException | InsufficientStockException ex) {
+        } catch (NoValidProductInOrderException | InsufficientStockException | IllegalArgumentException ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
         } catch (Exception ex) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred.");
@@ -88,8 +89,10 @@ public class OrderController {
         try {
             OrderDto updatedOrder = orderService.updateOrder(orderId, updatedOrderProductDtos);
             return ResponseEntity.ok(updatedOrder);
-        } catch (ProductNotFoundException | InsufficientStockException e) {
+        } catch (ProductNotFoundException | InsufficientStockException | IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (ProductDiscontinuedException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (OrderNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         } catch (Exception e) {
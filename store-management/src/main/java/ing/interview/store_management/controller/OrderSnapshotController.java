@@ -0,0 +1,64 @@
+package ing.interview.store_management.controller;
+
+import ing.interview.store_management.analytics.OrderLineAggregate;
+import ing.interview.store_management.analytics.OrderLineSnapshotExporter;
+import ing.interview.store_management.analytics.OrderLineSnapshotReader;
+import ing.interview.store_management.dto.OrderSnapshotDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * REST Controller for the columnar order line snapshots used for analytics.
+ * The /api/admin/** path is restricted to the "ADMIN" role.
+ */
+@RestController
+@RequestMapping("/api/admin/order-snapshots")
+public class OrderSnapshotController {
+
+    @Autowired
+    private OrderLineSnapshotExporter orderLineSnapshotExporter;
+
+    /**
+     * Writes a new snapshot of every order line, without waiting for the nightly export.
+     *
+     * @return the file written, with its number of rows and size.
+     */
+    @PostMapping
+    public OrderSnapshotDto export() {
+        return orderLineSnapshotExporter.export();
+    }
+
+    /**
+     * Aggregates the orders placed in a date range, from the latest snapshot.
+     *
+     * @param from the start of the range, inclusive.
+     * @param to   the end of the range, exclusive.
+     * @return the number of orders and lines, the total quantity and revenue, or 404 when no snapshot was written yet.
+     * @throws IOException if the snapshot can not be read.
+     */
+    @GetMapping("/aggregate")
+    public ResponseEntity<OrderLineAggregate> aggregate(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) throws IOException {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("The start of the range must be before its end");
+        }
+        Optional<Path> snapshot = orderLineSnapshotExporter.latestSnapshot();
+        if (snapshot.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try (OrderLineSnapshotReader reader = OrderLineSnapshotReader.open(snapshot.get())) {
+            return ResponseEntity.ok(reader.aggregate(from, to));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ing.interview.store_management.controller;
+
+import ing.interview.store_management.dto.PricingRuleDto;
+import ing.interview.store_management.service.PricingRuleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST Controller for managing the promotions applied when pricing orders.
+ * The /api/admin/** path is restricted to the "ADMIN" role.
+ */
+@RestController
+@RequestMapping("/api/admin/pricing-rules")
+public class PricingRuleController {
+
+    @Autowired
+    private PricingRuleService pricingRuleService;
+
+    /**
+     * Creates a pricing rule, it applies to the orders priced from now on.
+     *
+     * @param pricingRuleDto the rule.
+     * @return the created rule.
+     */
+    @PostMapping
+    public PricingRuleDto createRule(@RequestBody PricingRuleDto pricingRuleDto) {
+        return pricingRuleService.createRule(pricingRuleDto);
+    }
+
+    /**
+     * Replaces a pricing rule.
+     *
+     * @param id             the ID of the rule.
+     * @param pricingRuleDto the new definition of the rule.
+     * @return the updated rule.
+     */
+    @PutMapping("/{id}")
+    public PricingRuleDto updateRule(@PathVariable Long id, @RequestBody PricingRuleDto pricingRuleDto) {
+        return pricingRuleService.updateRule(id, pricingRuleDto);
+    }
+
+    /**
+     * Deletes a pricing rule.
+     *
+     * @param id the ID of the rule.
+     */
+    @DeleteMapping("/{id}")
+    public void deleteRule(@PathVariable Long id) {
+        pricingRuleService.deleteRule(id);
+    }
+
+    /**
+     * Lists all pricing rules.
+     *
+     * @return the rules.
+     */
+    @GetMapping
+    public List<PricingRuleDto> listRules() {
+        return pricingRuleService.listRules();
+    }
+}
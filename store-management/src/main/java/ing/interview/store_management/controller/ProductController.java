@@ -1,15 +1,20 @@
 package ing.interview.store_management.controller;
 
 import ing.interview.store_management.dto.ProductDto;
+import ing.interview.store_management.dto.ProductStockDto;
+import ing.interview.store_management.dto.ProductSuggestionDto;
+import ing.interview.store_management.dto.StockAdjustmentDto;
 import ing.interview.store_management.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -69,6 +74,30 @@ public class ProductController {
         productService.deleteProduct(id);
     }
 
+    /**
+     * Deletes several products in one request, with their order lines, without loading them.
+     * The IDs are sent in the body, a query string would cap them at the size limit of the request line.
+     *
+     * @param ids the IDs of the products to delete.
+     * @return the number of products deleted.
+     */
+    @PostMapping("/delete")
+    public int deleteProducts(@RequestBody List<Long> ids) {
+        return productService.deleteProducts(ids);
+    }
+
+    /**
+     * Discontinues several products in one request. Their order history is kept,
+     * but they are no longer listed, searched or orderable.
+     *
+     * @param ids the IDs of the products to discontinue.
+     * @return the number of products newly discontinued.
+     */
+    @PostMapping("/discontinue")
+    public int discontinueProducts(@RequestBody List<Long> ids) {
+        return productService.discontinueProducts(ids);
+    }
+
     /**
      * Retrieves a list of all products in the system.
      *
@@ -78,4 +107,65 @@ public class ProductController {
     public List<ProductDto> listAllProducts() {
         return productService.listAllProducts();
     }
-}
\ No newline at end of file
+
+    /**
+     * Searches products by name and description. Every word of the query must match a word of the product,
+     * or the start of one, and the best matches come first.
+     *
+     * @param q     the search text.
+     * @param limit the maximum number of results.
+     * @return the matching products as DTOs.
+     */
+    @GetMapping("/search")
+    public List<ProductDto> searchProducts(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        return productService.searchProducts(q, limit);
+    }
+
+    /**
+     * Suggests product names as the user types, for autocompletion.
+     *
+     * @param prefix what was typed so far.
+     * @return the most ordered products whose name, or a word of it, starts with the prefix.
+     */
+    @GetMapping("/suggest")
+    public List<ProductSuggestionDto> suggestProducts(@RequestParam(defaultValue = "") String prefix) {
+        return productService.suggestProducts(prefix);
+    }
+
+    /**
+     * Adds a relative delta to the stock of a product, applied atomically in the database.
+     *
+     * @param id                 the ID of the product.
+     * @param stockAdjustmentDto the DTO containing the delta, negative to remove stock.
+     * @return the resulting stock level.
+     */
+    @PatchMapping("/{id}/stock")
+    public ProductStockDto adjustStock(@PathVariable Long id, @RequestBody StockAdjustmentDto stockAdjustmentDto) {
+        return productService.adjustStock(id, stockAdjustmentDto.getDelta());
+    }
+
+    /**
+     * Adds relative deltas to the stock of several products in one request, for example a received shipment.
+     * Either all deltas are applied or none.
+     *
+     * @param stockAdjustmentDtos the products and the delta for each.
+     * @return the resulting stock levels.
+     */
+    @PatchMapping("/stock")
+    public List<ProductStockDto> adjustStocks(@RequestBody List<StockAdjustmentDto> stockAdjustmentDtos) {
+        return productService.adjustStocks(stockAdjustmentDtos);
+    }
+
+    /**
+     * Splits the stock of a hot product across a number of rows, so concurrent orders for it do not queue on one row.
+     * The stock returned by the other endpoints stays a single number.
+     *
+     * @param id    the ID of the product.
+     * @param count the number of shards, 0 to keep the stock in the product row again.
+     * @return the stock of the product.
+     */
+    @PutMapping("/{id}/stock-shards")
+    public ProductStockDto reshardStock(@PathVariable Long id, @RequestParam int count) {
+        return productService.reshardStock(id, count);
+    }
+}
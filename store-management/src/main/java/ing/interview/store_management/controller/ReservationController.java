@@ -0,0 +1,72 @@
+package ing.interview.store_management.controller;
+
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.ReservationRequest;
+import ing.interview.store_management.dto.StockReservationDto;
+import ing.interview.store_management.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST Controller for time-limited stock reservations.
+ * A checkout reserves its products, then confirms the reservation into an order or releases it;
+ * a reservation neither confirmed nor released expires and its stock is returned.
+ */
+@RestController
+@RequestMapping("/api/reservations")
+public class ReservationController {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    /**
+     * Holds stock for a checkout.
+     *
+     * @param reservationRequest the products and quantities to hold, and for how long.
+     * @return the active reservation with its expiry.
+     */
+    @PostMapping
+    public ResponseEntity<StockReservationDto> reserve(@RequestBody ReservationRequest reservationRequest) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(stockReservationService.reserve(reservationRequest));
+    }
+
+    /**
+     * Turns an active reservation into an order.
+     *
+     * @param id the ID of the reservation.
+     * @return the created order.
+     */
+    @PostMapping("/{id}/confirm")
+    public ResponseEntity<OrderDto> confirm(@PathVariable Long id) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(stockReservationService.confirm(id));
+    }
+
+    /**
+     * Releases an active reservation, its stock is returned.
+     *
+     * @param id the ID of the reservation.
+     */
+    @DeleteMapping("/{id}")
+    public void release(@PathVariable Long id) {
+        stockReservationService.release(id);
+    }
+
+    /**
+     * Retrieves a reservation.
+     *
+     * @param id the ID of the reservation.
+     * @return the reservation.
+     */
+    @GetMapping("/{id}")
+    public StockReservationDto getReservation(@PathVariable Long id) {
+        return stockReservationService.getReservation(id);
+    }
+}
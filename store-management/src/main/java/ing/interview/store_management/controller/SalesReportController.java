@@ -0,0 +1,104 @@
+package ing.interview.store_management.controller;
+
+import ing.interview.store_management.analytics.SalesRollupJob;
+import ing.interview.store_management.dto.DailySalesDto;
+import ing.interview.store_management.dto.ProductSalesDto;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.RollupWatermark;
+import ing.interview.store_management.repository.DailyProductSalesRepository;
+import ing.interview.store_management.repository.DailySalesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST Controller for the sales reports, read from the daily rollups kept by the SalesRollupJob.
+ * The figures include the orders changed up to the last run of the job, see the watermark.
+ * The /api/admin/** path is restricted to the "ADMIN" role.
+ */
+@RestController
+@RequestMapping("/api/admin/sales")
+public class SalesReportController {
+
+    private static final int MAX_PRODUCTS = 1_000;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private DailyProductSalesRepository dailyProductSalesRepository;
+
+    @Autowired
+    private SalesRollupJob salesRollupJob;
+
+    /**
+     * Lists the sales of each day of a range, days without sales are left out.
+     *
+     * @param from the first day of the range, inclusive.
+     * @param to   the last day of the range, inclusive.
+     * @return the units sold, the revenue and the number of orders of each day.
+     */
+    @GetMapping("/daily")
+    public List<DailySalesDto> daily(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        validateRange(from, to);
+        return dailySalesRepository.findByDayBetweenOrderByDay(from, to).stream()
+                .map(sales -> new DailySalesDto(sales.getDay(), sales.getUnits(),
+                        Money.ofMinor(sales.getRevenueMinor()).toBigDecimal(), sales.getOrderCount()))
+                .toList();
+    }
+
+    /**
+     * Lists the best selling products of a range of days, by revenue.
+     *
+     * @param from  the first day of the range, inclusive.
+     * @param to    the last day of the range, inclusive.
+     * @param limit the maximum number of products returned.
+     * @return the units sold, the revenue and the number of orders of each product.
+     */
+    @GetMapping("/products")
+    public List<ProductSalesDto> products(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(defaultValue = "20") int limit) {
+        validateRange(from, to);
+        if (limit < 1 || limit > MAX_PRODUCTS) {
+            throw new IllegalArgumentException("The limit must be between 1 and " + MAX_PRODUCTS);
+        }
+        return dailyProductSalesRepository.sumByProduct(from, to, PageRequest.ofSize(limit)).stream()
+                .map(sales -> new ProductSalesDto(sales.getProductId(), sales.getUnits(),
+                        Money.ofMinor(sales.getRevenueMinor()).toBigDecimal(), sales.getOrderCount()))
+                .toList();
+    }
+
+    /**
+     * @return the last change folded into the rollups and when.
+     */
+    @GetMapping("/watermark")
+    public RollupWatermark watermark() {
+        return salesRollupJob.watermark();
+    }
+
+    /**
+     * Folds the pending changes into the rollups, without waiting for the next scheduled run.
+     *
+     * @return the number of changes processed.
+     */
+    @PostMapping("/rollup")
+    public int rollup() {
+        return salesRollupJob.rollup();
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The start of the range must not be after its end");
+        }
+    }
+}
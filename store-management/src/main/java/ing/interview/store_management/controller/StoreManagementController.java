@@ -33,7 +33,7 @@ public class StoreManagementController {
      *
      * @return A message confirming access to the user profile.
      */
-    @PreAuthorize("hasAuthority('READ')")
+    @PreAuthorize("@authorityBitmask.hasPermission(authentication, 'READ')")
     @GetMapping("/user/profile")
     public String getUserProfile() {
         return "Welcome to your user profile!";
@@ -55,7 +55,7 @@ public class StoreManagementController {
      *
      * @return A message confirming access to a write-enabled endpoint.
      */
-    @PreAuthorize("hasAuthority('WRITE')")
+    @PreAuthorize("@authorityBitmask.hasPermission(authentication, 'WRITE')")
     @GetMapping("/admin/write")
     public String getAdminWriteAccess() {
         return "You have WRITE access to the admin endpoint!";
@@ -67,7 +67,7 @@ public class StoreManagementController {
      *
      * @return A message confirming that the user has read access.
      */
-    @PreAuthorize("hasAuthority('READ')")
+    @PreAuthorize("@authorityBitmask.hasPermission(authentication, 'READ')")
     @GetMapping("/user/read")
     public String getUserReadAccess() {
         return "You have READ access to the user endpoint!";
@@ -79,7 +79,7 @@ public class StoreManagementController {
      *
      * @return A message confirming that the admin has write access.
      */
-    @PreAuthorize("hasAuthority('WRITE')")
+    @PreAuthorize("@authorityBitmask.hasPermission(authentication, 'WRITE')")
     @GetMapping("/admin/edit")
     public String getAdminEditAccess() {
         return "Admin can edit data here!";
@@ -91,7 +91,7 @@ public class StoreManagementController {
      *
      * @return A message explaining the restriction for users without write access.
      */
-    @PreAuthorize("hasAuthority('WRITE')")
+    @PreAuthorize("@authorityBitmask.hasPermission(authentication, 'WRITE')")
     @GetMapping("/user/edit")
     public String getUserEditAccess() {
         return "Users are not authorized to edit data!";
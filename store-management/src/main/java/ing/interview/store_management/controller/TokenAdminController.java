@@ -0,0 +1,38 @@
+package ing.interview.store_management.controller;
+
+import ing.interview.store_management.service.RefreshTokenService;
+import ing.interview.store_management.service.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST Controller for the admin management of tokens.
+ * The /api/admin/** path is restricted to the "ADMIN" role.
+ */
+@RestController
+@RequestMapping("/api/admin/tokens")
+public class TokenAdminController {
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    /**
+     * Revokes every JWT token and refresh token of a user, forcing a new login.
+     *
+     * @param username the user whose tokens are revoked.
+     * @return ResponseEntity with no content.
+     */
+    @PostMapping("/revoke/{username}")
+    public ResponseEntity<Void> revokeUserTokens(@PathVariable String username) {
+        tokenRevocationService.revokeAllTokens(username);
+        refreshTokenService.revokeAll(username);
+        return ResponseEntity.noContent().build();
+    }
+}
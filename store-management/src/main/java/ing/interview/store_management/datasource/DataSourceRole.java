@@ -0,0 +1,9 @@
+package ing.interview.store_management.datasource;
+
+/**
+ * The database a connection is routed to.
+ */
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
@@ -0,0 +1,100 @@
+package ing.interview.store_management.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import ing.interview.store_management.web.WorkloadClass;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Splits the database traffic between the primary (spring.datasource.*) and a read replica (datasource.replica.*).
+ * Read-only transactions are routed to the replica, all others to the primary. Each WorkloadClass has a pool of its
+ * own on both, of bulkhead.<key>.connections connections (by default its bulkhead.<key>.maxConcurrent permits),
+ * the shared pools serve the unclassified work. Hikari only opens a pool at its first connection, so the replica
+ * pool of a class which never reads costs nothing.
+ * Without a real replica, the replica URL defaults to the primary one: the replica pool then reads the same
+ * local H2 database through its own connections, which stands in for a replica with no lag.
+ */
+@Configuration
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties dataSourceProperties,
+                                              @Value("${datasource.replica.url:}") String url,
+                                              @Value("${datasource.replica.username:}") String username,
+                                              @Value("${datasource.replica.password:}") String password,
+                                              @Value("${datasource.replica.maximumPoolSize:10}") int maximumPoolSize) {
+        return replicaPool(dataSourceProperties, url, username, password, "replica", maximumPoolSize);
+    }
+
+    @Bean
+    public WorkloadDataSources workloadDataSources(DataSourceProperties dataSourceProperties, Environment environment,
+                                                   @Value("${datasource.replica.url:}") String url,
+                                                   @Value("${datasource.replica.username:}") String username,
+                                                   @Value("${datasource.replica.password:}") String password) {
+        Map<WorkloadClass, DataSource> primary = new EnumMap<>(WorkloadClass.class);
+        Map<WorkloadClass, DataSource> replica = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            String prefix = "bulkhead." + workloadClass.getKey() + ".";
+            int connections = environment.getProperty(prefix + "connections", Integer.class,
+                    environment.getProperty(prefix + "maxConcurrent", Integer.class, 10));
+            HikariDataSource primaryPool = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            primaryPool.setPoolName("primary-" + workloadClass.getKey());
+            primaryPool.setMaximumPoolSize(connections);
+            primary.put(workloadClass, primaryPool);
+            replica.put(workloadClass, replicaPool(dataSourceProperties, url, username, password,
+                    "replica-" + workloadClass.getKey(), connections));
+        }
+        return new WorkloadDataSources(primary, replica);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                               @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${datasource.replica.enabled:true}") boolean enabled,
+                                               @Value("${datasource.replica.maxLagMillis:2000}") long maxLagMillis) {
+        return new ReplicaLagMonitor(primaryDataSource, replicaDataSource, enabled, maxLagMillis);
+    }
+
+    /**
+     * The data source used by JPA and everything else, routing each transaction when it runs its first statement.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 WorkloadDataSources workloadDataSources,
+                                 ReplicaLagMonitor replicaLagMonitor, ReadYourWrites readYourWrites) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource,
+                workloadDataSources, replicaLagMonitor, readYourWrites));
+    }
+
+    private static HikariDataSource replicaPool(DataSourceProperties dataSourceProperties, String url, String username,
+                                               String password, String poolName, int maximumPoolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(poolName);
+        dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        dataSource.setJdbcUrl(url.isBlank() ? dataSourceProperties.determineUrl() : url);
+        dataSource.setUsername(username.isBlank() ? dataSourceProperties.determineUsername() : username);
+        dataSource.setPassword(username.isBlank() ? dataSourceProperties.determinePassword() : password);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+}
@@ -0,0 +1,65 @@
+package ing.interview.store_management.datasource;
+
+import ing.interview.store_management.web.WorkloadClass;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends the connections of read-only transactions to the replica and everything else to the primary.
+ * Reads fall back to the primary when the replica lags more than tolerated, or when the current user wrote
+ * recently and must read their own writes. The work of a WorkloadClass uses the pools of its class on either
+ * database, other work the shared pools.
+ * <p>
+ * The routing key is evaluated when the connection is fetched, so this data source must be wrapped in a
+ * LazyConnectionDataSourceProxy: the transaction manager then only fetches the connection at the first statement,
+ * once the read-only flag of the transaction is set.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final ReadYourWrites readYourWrites;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, WorkloadDataSources workloadDataSources,
+                                      ReplicaLagMonitor replicaLagMonitor, ReadYourWrites readYourWrites) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.readYourWrites = readYourWrites;
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(new RoutingKey(DataSourceRole.PRIMARY, null), primary);
+        targetDataSources.put(new RoutingKey(DataSourceRole.REPLICA, null), replica);
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            for (DataSourceRole role : DataSourceRole.values()) {
+                // A class without a pool of its own on a database shares the pool of the other work there
+                DataSource dataSource = workloadDataSources.get(workloadClass, role);
+                targetDataSources.put(new RoutingKey(role, workloadClass), dataSource != null ? dataSource
+                        : targetDataSources.get(new RoutingKey(role, null)));
+            }
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return new RoutingKey(currentRole(), WorkloadClass.current());
+    }
+
+    /**
+     * @return the database the connections fetched now are routed to.
+     */
+    public DataSourceRole currentRole() {
+        boolean readOnly = TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (readOnly && replicaLagMonitor.isReplicaUsable() && !readYourWrites.isPinnedToPrimary()) {
+            return DataSourceRole.REPLICA;
+        }
+        return DataSourceRole.PRIMARY;
+    }
+
+    private record RoutingKey(DataSourceRole role, WorkloadClass workloadClass) {
+    }
+}
@@ -0,0 +1,64 @@
+package ing.interview.store_management.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the reads of a user on the primary for {@code datasource.replica.readYourWritesMillis} after they wrote,
+ * so a user who just placed an order finds it even when the replica did not catch up yet.
+ * Users are told apart by the name of the authenticated principal, unauthenticated work is never pinned.
+ */
+@Component
+public class ReadYourWrites {
+
+    // User name -> until when, in epoch milliseconds, their reads go to the primary
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    @Value("${datasource.replica.readYourWritesMillis:5000}")
+    private long readYourWritesMillis;
+
+    /**
+     * Sends the reads of the current user to the primary for the read-your-writes window.
+     */
+    public void pinCurrentUser() {
+        String user = currentUser();
+        if (user != null && readYourWritesMillis > 0) {
+            pinnedUntil.put(user, System.currentTimeMillis() + readYourWritesMillis);
+        }
+    }
+
+    /**
+     * @return whether the current user wrote within the read-your-writes window.
+     */
+    public boolean isPinnedToPrimary() {
+        if (pinnedUntil.isEmpty()) {
+            return false;
+        }
+        String user = currentUser();
+        if (user == null) {
+            return false;
+        }
+        Long until = pinnedUntil.get(user);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    /**
+     * Forgets the windows which are over.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.readYourWritesMillis:5000}")
+    public void prune() {
+        long now = System.currentTimeMillis();
+        pinnedUntil.values().removeIf(until -> until <= now);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
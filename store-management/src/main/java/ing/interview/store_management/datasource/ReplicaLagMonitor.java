@@ -0,0 +1,87 @@
+package ing.interview.store_management.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Measures how far the replica is behind the primary with a heartbeat row: every
+ * {@code datasource.replica.heartbeatMillis} the current time is written on the primary and read back from the
+ * replica, the difference is the replication lag. Reads may go to the replica only while the lag is within
+ * {@code datasource.replica.maxLagMillis}; a replica which can not be reached, or where the heartbeat never
+ * arrives, is treated as infinitely late. Until the first heartbeat is seen every read goes to the primary.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final boolean enabled;
+    private final long maxLagMillis;
+    private volatile long lagMillis = Long.MAX_VALUE;
+    private volatile boolean tableCreated;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, boolean enabled, long maxLagMillis) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.enabled = enabled;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    /**
+     * @return whether reads may go to the replica.
+     */
+    public boolean isReplicaUsable() {
+        return enabled && lagMillis <= maxLagMillis;
+    }
+
+    /**
+     * @return the lag measured by the last heartbeat, Long.MAX_VALUE when the replica is unreachable or stale.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Writes a heartbeat on the primary and measures the lag of the replica.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.heartbeatMillis:1000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            if (!tableCreated) {
+                primary.execute("create table if not exists replication_heartbeat (id int primary key, beat_at bigint not null)");
+                tableCreated = true;
+            }
+            if (primary.update("update replication_heartbeat set beat_at = ? where id = 1", now) == 0) {
+                primary.update("insert into replication_heartbeat (id, beat_at) values (1, ?)", now);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not write the replication heartbeat on the primary: {}", e.getMessage());
+            return;
+        }
+
+        long measured;
+        try {
+            List<Long> beats = replica.queryForList("select beat_at from replication_heartbeat where id = 1", Long.class);
+            measured = beats.isEmpty() ? Long.MAX_VALUE : Math.max(0, now - beats.get(0));
+        } catch (DataAccessException e) {
+            measured = Long.MAX_VALUE;
+        }
+        boolean wasUsable = isReplicaUsable();
+        lagMillis = measured;
+        if (wasUsable != isReplicaUsable()) {
+            logger.warn("Replica {} read traffic, lag {} ms (tolerated {} ms)", isReplicaUsable() ? "resumes" : "stops serving",
+                    measured == Long.MAX_VALUE ? "unknown" : measured, maxLagMillis);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ing.interview.store_management.datasource;
+
+import ing.interview.store_management.web.WorkloadClass;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The connection pools of each WorkloadClass, one on the primary and one on the replica, so a saturated class
+ * waits for its own connections and never for those of another class or of the unclassified work.
+ */
+public class WorkloadDataSources implements Closeable {
+
+    private final Map<WorkloadClass, DataSource> primary;
+    private final Map<WorkloadClass, DataSource> replica;
+
+    public WorkloadDataSources(Map<WorkloadClass, DataSource> primary, Map<WorkloadClass, DataSource> replica) {
+        this.primary = new EnumMap<>(primary);
+        this.replica = new EnumMap<>(replica);
+    }
+
+    /**
+     * @return the pool of the class on the given database, null if the class has none.
+     */
+    public DataSource get(WorkloadClass workloadClass, DataSourceRole role) {
+        return (role == DataSourceRole.REPLICA ? replica : primary).get(workloadClass);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Map<WorkloadClass, DataSource> pools : List.of(primary, replica)) {
+            for (DataSource dataSource : pools.values()) {
+                if (dataSource instanceof Closeable closeable) {
+                    closeable.close();
+                }
+            }
+        }
+    }
+}
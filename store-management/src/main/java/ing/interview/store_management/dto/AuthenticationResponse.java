@@ -4,11 +4,12 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 
 /**
- * This class represents the response data after user authentication (login)
+ * This class represents the response data after user authentication (login) or token refresh
  */
 @Data
 @AllArgsConstructor
 public class AuthenticationResponse {
 
     private String jwt;
+    private String refreshToken;
 }
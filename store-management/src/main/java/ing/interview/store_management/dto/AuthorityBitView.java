@@ -0,0 +1,11 @@
+package ing.interview.store_management.dto;
+
+/**
+ * This projection holds the name and the JWT bit position of a permission or a role
+ */
+public interface AuthorityBitView {
+
+    String getName();
+
+    Integer getBitPosition();
+}
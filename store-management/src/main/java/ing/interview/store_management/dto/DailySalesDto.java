@@ -0,0 +1,18 @@
+package ing.interview.store_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailySalesDto {
+    private LocalDate day;
+    private long units;
+    private BigDecimal revenue;
+    private long orders;
+}
@@ -0,0 +1,25 @@
+package ing.interview.store_management.dto;
+
+import ing.interview.store_management.model.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * This projection holds an order line with the fields of its order, as written to the order line snapshots
+ */
+public interface OrderLineExportView {
+
+    Long getOrderId();
+
+    Long getLineId();
+
+    LocalDateTime getOrderDate();
+
+    String getStatus();
+
+    Money getTotalPrice();
+
+    Long getProductId();
+
+    Integer getQuantity();
+}
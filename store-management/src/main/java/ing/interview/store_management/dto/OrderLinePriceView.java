@@ -0,0 +1,19 @@
+package ing.interview.store_management.dto;
+
+import ing.interview.store_management.model.Money;
+
+/**
+ * This projection holds an order line with the total price of its order and the current price of its product
+ */
+public interface OrderLinePriceView {
+
+    Long getOrderId();
+
+    Money getTotalPrice();
+
+    Long getProductId();
+
+    Money getPrice();
+
+    Integer getQuantity();
+}
@@ -0,0 +1,14 @@
+package ing.interview.store_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSnapshotDto {
+    private String file;
+    private long rows;
+    private long bytes;
+}
@@ -0,0 +1,25 @@
+package ing.interview.store_management.dto;
+
+import ing.interview.store_management.model.PricingRuleType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PricingRuleDto {
+    private Long id;
+    private String name;
+    private PricingRuleType type;
+    private Long productId;
+    private Integer buyQuantity;
+    private Integer freeQuantity;
+    private Integer percentOffBasisPoints;
+    private BigDecimal threshold;
+    private BigDecimal amountOff;
+    private int priority;
+    private boolean active = true;
+}
@@ -15,4 +15,5 @@ public class ProductDto {
     private String description;
     private BigDecimal price;
     private Integer stock;
+    private boolean discontinued;
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package ing.interview.store_management.dto;
+
+/**
+ * This projection holds the name of a product and the total quantity ordered of it
+ */
+public interface ProductPopularityView {
+
+    Long getId();
+
+    String getName();
+
+    Long getPopularity();
+}
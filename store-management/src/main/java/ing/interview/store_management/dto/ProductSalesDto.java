@@ -0,0 +1,17 @@
+package ing.interview.store_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSalesDto {
+    private Long productId;
+    private long units;
+    private BigDecimal revenue;
+    private long orders;
+}
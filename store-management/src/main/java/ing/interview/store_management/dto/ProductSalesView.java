@@ -0,0 +1,15 @@
+package ing.interview.store_management.dto;
+
+/**
+ * This projection holds the sales of a product summed over a range of days of the rollups
+ */
+public interface ProductSalesView {
+
+    Long getProductId();
+
+    Long getUnits();
+
+    Long getRevenueMinor();
+
+    Long getOrderCount();
+}
@@ -0,0 +1,13 @@
+package ing.interview.store_management.dto;
+
+/**
+ * This projection holds the product fields covered by the product search index
+ */
+public interface ProductSearchView {
+
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+}
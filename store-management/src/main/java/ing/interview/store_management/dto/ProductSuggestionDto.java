@@ -0,0 +1,15 @@
+package ing.interview.store_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSuggestionDto {
+    private Long productId;
+    private String name;
+    // Total quantity ordered, suggestions are ranked on it
+    private Long popularity;
+}
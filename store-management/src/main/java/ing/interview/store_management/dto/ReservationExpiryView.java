@@ -0,0 +1,13 @@
+package ing.interview.store_management.dto;
+
+import java.time.Instant;
+
+/**
+ * This projection holds the ID and the expiry of an active stock reservation
+ */
+public interface ReservationExpiryView {
+
+    Long getId();
+
+    Instant getExpiresAt();
+}
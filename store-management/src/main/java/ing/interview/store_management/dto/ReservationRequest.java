@@ -0,0 +1,16 @@
+package ing.interview.store_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservationRequest {
+    private Set<OrderProductDto> orderProducts;
+    // How long the stock is held, the configured default when null
+    private Long ttlSeconds;
+}
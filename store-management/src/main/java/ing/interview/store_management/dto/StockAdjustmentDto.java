@@ -0,0 +1,13 @@
+package ing.interview.store_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockAdjustmentDto {
+    private Long productId;
+    private Integer delta;
+}
@@ -0,0 +1,20 @@
+package ing.interview.store_management.dto;
+
+import ing.interview.store_management.model.ReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Set;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockReservationDto {
+    private Long id;
+    private ReservationStatus status;
+    private Instant expiresAt;
+    private Long orderId;
+    private Set<OrderProductDto> orderProducts;
+}
@@ -0,0 +1,11 @@
+package ing.interview.store_management.dto;
+
+/**
+ * This projection holds the index and the quantity of one stock shard of a product
+ */
+public interface StockShardView {
+
+    Integer getShardIndex();
+
+    Integer getQuantity();
+}
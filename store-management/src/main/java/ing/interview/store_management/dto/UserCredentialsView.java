@@ -0,0 +1,15 @@
+package ing.interview.store_management.dto;
+
+/**
+ * This projection holds only the columns needed to authenticate a user, one row per permission of the user's role
+ */
+public interface UserCredentialsView {
+
+    String getUsername();
+
+    String getPassword();
+
+    String getRoleName();
+
+    String getPermissionName();
+}
@@ -0,0 +1,7 @@
+package ing.interview.store_management.exception;
+
+public class PricingRuleNotFoundException extends RuntimeException {
+    public PricingRuleNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package ing.interview.store_management.exception;
+
+/**
+ * Thrown when more of a discontinued product is ordered
+ */
+public class ProductDiscontinuedException extends RuntimeException {
+    public ProductDiscontinuedException(String message) {
+        super(message);
+    }
+}
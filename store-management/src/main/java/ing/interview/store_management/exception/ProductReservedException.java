@@ -0,0 +1,10 @@
+package ing.interview.store_management.exception;
+
+/**
+ * Thrown when deleting products which active stock reservations still hold
+ */
+public class ProductReservedException extends RuntimeException {
+    public ProductReservedException(String message) {
+        super(message);
+    }
+}
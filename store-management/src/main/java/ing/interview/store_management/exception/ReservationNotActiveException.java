@@ -0,0 +1,10 @@
+package ing.interview.store_management.exception;
+
+/**
+ * Thrown when confirming or releasing a reservation which was already confirmed, released or has expired
+ */
+public class ReservationNotActiveException extends RuntimeException {
+    public ReservationNotActiveException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ing.interview.store_management.exception;
+
+public class ReservationNotFoundException extends RuntimeException {
+    public ReservationNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,282 @@
+package ing.interview.store_management.expiry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for a large number of deadlines, scheduling and cancelling are O(1).
+ * <p>
+ * The first wheel has {@code wheelSize} buckets of {@code tickMillis} each; a deadline beyond its span goes
+ * to an overflow wheel whose ticks are the span of the wheel below, created on demand. Only buckets holding
+ * entries are put in a DelayQueue, so the expiry thread sleeps until the next non-empty bucket is due, however
+ * many entries are scheduled. When a bucket of a higher wheel is due its entries are re-inserted, which moves
+ * them down to a finer wheel, until they expire from the first wheel.
+ *
+ * @param <T> the payload handed to the expiry callback.
+ */
+public class HierarchicalTimingWheel<T> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+    private final DelayQueue<Bucket<T>> dueBuckets = new DelayQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Consumer<T> onExpiry;
+    private final long tickMillis;
+    private final Wheel<T> wheel;
+    private final Thread expiryThread;
+    private volatile boolean running = true;
+
+    /**
+     * Creates the wheel and starts its expiry thread.
+     *
+     * @param tickMillis the resolution of the first wheel, entries fire at or up to one tick after their deadline.
+     * @param wheelSize  the number of buckets per wheel.
+     * @param onExpiry   called on the expiry thread with the payload of every entry reaching its deadline.
+     * @param threadName the name of the expiry thread.
+     */
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, Consumer<T> onExpiry, String threadName) {
+        this.onExpiry = onExpiry;
+        this.tickMillis = tickMillis;
+        this.wheel = new Wheel<>(tickMillis, wheelSize, System.currentTimeMillis(), dueBuckets);
+        this.expiryThread = new Thread(this::runExpiry, threadName);
+        this.expiryThread.setDaemon(true);
+        this.expiryThread.start();
+    }
+
+    /**
+     * Schedules a payload. A deadline already passed fires on the expiry thread right away.
+     *
+     * @param payload        handed to the callback at the deadline.
+     * @param deadlineMillis the deadline, in epoch milliseconds.
+     * @return a handle to cancel the entry.
+     */
+    public Timeout schedule(T payload, long deadlineMillis) {
+        // Rounded up to a tick of the first wheel, the bucket holding the entry is never due before its deadline
+        Entry<T> entry = new Entry<>(payload, Math.ceilDiv(deadlineMillis, tickMillis) * tickMillis);
+        lock.lock();
+        try {
+            if (!wheel.add(entry)) {
+                // Already due, hand it to the expiry thread through an immediately due bucket
+                Bucket<T> bucket = new Bucket<>();
+                bucket.add(entry);
+                bucket.setExpiration(deadlineMillis);
+                dueBuckets.add(bucket);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return entry;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        expiryThread.interrupt();
+    }
+
+    private void runExpiry() {
+        List<Entry<T>> expired = new ArrayList<>();
+        while (running) {
+            try {
+                Bucket<T> bucket = dueBuckets.poll(1, TimeUnit.SECONDS);
+                if (bucket == null) {
+                    continue;
+                }
+                lock.lock();
+                try {
+                    // Drain every bucket which is due, advancing the clock to each of them
+                    while (bucket != null) {
+                        wheel.advanceClock(bucket.getExpiration());
+                        bucket.flush(entry -> {
+                            if (!wheel.add(entry)) {
+                                expired.add(entry);
+                            }
+                        });
+                        bucket = dueBuckets.poll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                // Callbacks run outside the lock, scheduling from them does not wait for the drain
+                for (Entry<T> entry : expired) {
+                    if (entry.cancelled) {
+                        continue;
+                    }
+                    try {
+                        onExpiry.accept(entry.payload);
+                    } catch (RuntimeException e) {
+                        logger.error("Expiry callback failed for {}", entry.payload, e);
+                    }
+                }
+                expired.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Handle to a scheduled entry.
+     */
+    public interface Timeout {
+
+        /**
+         * Removes the entry, its callback will not run. Does nothing if it already ran.
+         */
+        void cancel();
+    }
+
+    /**
+     * One level of the hierarchy. Guarded by the lock of the timing wheel.
+     */
+    private static final class Wheel<T> {
+        private final long tickMillis;
+        private final int wheelSize;
+        private final long intervalMillis;
+        private final Bucket<T>[] buckets;
+        private final DelayQueue<Bucket<T>> dueBuckets;
+        // Start of the current tick, always a multiple of tickMillis
+        private long currentTime;
+        private Wheel<T> overflow;
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        Wheel(long tickMillis, int wheelSize, long startMillis, DelayQueue<Bucket<T>> dueBuckets) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.intervalMillis = tickMillis * wheelSize;
+            this.dueBuckets = dueBuckets;
+            this.currentTime = startMillis - (startMillis % tickMillis);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<>();
+            }
+        }
+
+        // Returns false when the entry is due (or cancelled) and must not be stored
+        boolean add(Entry<T> entry) {
+            if (entry.cancelled) {
+                return true;
+            }
+            if (entry.deadlineMillis < currentTime + tickMillis) {
+                return false;
+            }
+            if (entry.deadlineMillis < currentTime + intervalMillis) {
+                long virtualTick = entry.deadlineMillis / tickMillis;
+                Bucket<T> bucket = buckets[(int) (virtualTick % wheelSize)];
+                bucket.add(entry);
+                // A bucket is queued once per round, when its expiration changes
+                if (bucket.setExpiration(virtualTick * tickMillis)) {
+                    dueBuckets.add(bucket);
+                }
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Wheel<>(intervalMillis, wheelSize, currentTime, dueBuckets);
+            }
+            return overflow.add(entry);
+        }
+
+        void advanceClock(long timeMillis) {
+            if (timeMillis >= currentTime + tickMillis) {
+                currentTime = timeMillis - (timeMillis % tickMillis);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * Entries sharing a tick, kept in a doubly linked list so a cancel unlinks in O(1).
+     */
+    private static final class Bucket<T> implements Delayed {
+        private final AtomicLong expiration = new AtomicLong(-1);
+        private final Entry<T> head = new Entry<>(null, -1);
+
+        Bucket() {
+            head.next = head;
+            head.previous = head;
+        }
+
+        synchronized void add(Entry<T> entry) {
+            entry.bucket = this;
+            entry.previous = head.previous;
+            entry.next = head;
+            head.previous.next = entry;
+            head.previous = entry;
+        }
+
+        synchronized void remove(Entry<T> entry) {
+            if (entry.bucket == this) {
+                entry.previous.next = entry.next;
+                entry.next.previous = entry.previous;
+                entry.next = null;
+                entry.previous = null;
+                entry.bucket = null;
+            }
+        }
+
+        // Empties the bucket and hands every entry to the consumer, the bucket can be reused for a later round
+        synchronized void flush(Consumer<Entry<T>> consumer) {
+            Entry<T> entry = head.next;
+            while (entry != head) {
+                Entry<T> next = entry.next;
+                remove(entry);
+                consumer.accept(entry);
+                entry = next;
+            }
+            expiration.set(-1);
+        }
+
+        boolean setExpiration(long expirationMillis) {
+            return expiration.getAndSet(expirationMillis) != expirationMillis;
+        }
+
+        long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(0, getExpiration() - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket<?>) other).getExpiration());
+        }
+    }
+
+    private static final class Entry<T> implements Timeout {
+        private final T payload;
+        private final long deadlineMillis;
+        private volatile boolean cancelled;
+        private volatile Bucket<T> bucket;
+        private Entry<T> next;
+        private Entry<T> previous;
+
+        Entry(T payload, long deadlineMillis) {
+            this.payload = payload;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Bucket<T> current = bucket;
+            if (current != null) {
+                current.remove(this);
+            }
+        }
+    }
+}
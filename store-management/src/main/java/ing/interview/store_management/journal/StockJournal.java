@@ -0,0 +1,497 @@
+package ing.interview.store_management.journal;
+
+import ing.interview.store_management.model.StockChangeReason;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of every stock change, kept on local disk next to the database.
+ * Each change is a fixed-size record written into a memory-mapped segment file:
+ * <pre>
+ * | sequence (8) | epoch millis (8) | product id (8) | delta (4) | stock after (4) | reason (4) | crc32c (4) |
+ * </pre>
+ * Appends only copy 40 bytes into the mapping; a background thread forces dirty segments to disk every
+ * {@code stockJournal.fsyncIntervalMillis} (group fsync), so a crash loses at most that window.
+ * Every {@code stockJournal.snapshotEveryRecords} records the same thread writes a snapshot of the stock per product,
+ * forced to disk before it replaces the previous one, after which the segments it covers are deleted. On startup the
+ * snapshot is loaded and the newer records are replayed, a zeroed or torn record (bad checksum) marks the end of the
+ * journal.
+ * Records are appended after their transaction commits, so two changes of a product may be appended in the
+ * other order than they were made. The stock of a product is therefore the sum of its deltas, its first record
+ * giving the base, and the stock after of a record is only kept for auditing. A record which can not be appended
+ * is logged and skipped, its change is already committed.
+ * The journal describes the stock of the database it sits next to, the StockJournalReconciler aligns it with
+ * that database at startup.
+ */
+@Component
+public class StockJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockJournal.class);
+
+    static final int RECORD_SIZE = 40;
+    private static final int CHECKSUMMED_BYTES = RECORD_SIZE - Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String LOCK_FILE = "journal.lock";
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long fsyncIntervalMillis;
+    private final long snapshotEveryRecords;
+    private final boolean enabled;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Integer> stockByProduct = new HashMap<>();
+    // Staging area for one record, reused so an append does not allocate
+    private final ByteBuffer staging = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32C crc = new CRC32C();
+
+    private FileChannel lockChannel;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private Path segmentPath;
+    private long lastSequence;
+    private long snapshotSequence;
+    private long recordsSinceSnapshot;
+    private volatile boolean dirty;
+    private volatile boolean snapshotDue;
+    private ScheduledExecutorService flusher;
+
+    public StockJournal(@Value("${stockJournal.directory:data/stock-journal}") String directory,
+                        @Value("${stockJournal.segmentRecords:1048576}") int segmentRecords,
+                        @Value("${stockJournal.fsyncIntervalMillis:50}") long fsyncIntervalMillis,
+                        @Value("${stockJournal.snapshotEveryRecords:1000000}") long snapshotEveryRecords,
+                        @Value("${stockJournal.enabled:true}") boolean enabled) {
+        this.directory = Path.of(directory);
+        this.segmentRecords = segmentRecords;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Loads the snapshot, replays the newer records and opens the last segment for appending.
+     */
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            lockDirectory();
+            loadSnapshot();
+            replaySegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the stock journal in " + directory.toAbsolutePath(), e);
+        }
+        logger.info("Stock journal opened in {} ms: {} products, last sequence {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), stockByProduct.size(), lastSequence);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Journals a stock change. Inside a transaction the record is appended after the commit,
+     * so rolled back changes never reach the journal.
+     *
+     * @param productId  the product whose stock changed
+     * @param delta      the change, negative when stock was taken
+     * @param stockAfter the stock after the change
+     * @param reason     why the stock changed
+     */
+    public void record(long productId, int delta, int stockAfter, StockChangeReason reason) {
+        if (!enabled || delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appendCommitted(productId, delta, stockAfter, reason);
+                }
+            });
+        } else {
+            appendCommitted(productId, delta, stockAfter, reason);
+        }
+    }
+
+    /**
+     * Appends the record of a committed change. The caller's change stands whatever happens to the journal, so a
+     * failure is logged rather than thrown: the client would see an error for a change which was made, and retry it.
+     * The StockJournalReconciler corrects the journaled stock of the product at the next startup.
+     */
+    private void appendCommitted(long productId, int delta, int stockAfter, StockChangeReason reason) {
+        try {
+            append(productId, delta, stockAfter, reason);
+        } catch (RuntimeException e) {
+            logger.error("Could not journal the stock change {} of product {} ({})", delta, productId, reason, e);
+        }
+    }
+
+    /**
+     * Appends a record to the current segment, rolling to a new segment when it is full.
+     *
+     * @return the sequence number of the record
+     */
+    long append(long productId, int delta, int stockAfter, StockChangeReason reason) {
+        lock.lock();
+        try {
+            if (segment == null || segment.remaining() < RECORD_SIZE) {
+                rollSegment();
+            }
+            long sequence = ++lastSequence;
+            staging.clear();
+            staging.putLong(sequence)
+                    .putLong(System.currentTimeMillis())
+                    .putLong(productId)
+                    .putInt(delta)
+                    .putInt(stockAfter)
+                    .putInt(reason.getCode());
+            crc.reset();
+            crc.update(staging.array(), 0, CHECKSUMMED_BYTES);
+            staging.putInt((int) crc.getValue());
+            segment.put(staging.array(), 0, RECORD_SIZE);
+            dirty = true;
+
+            applyRecord(productId, delta, stockAfter);
+            if (++recordsSinceSnapshot >= snapshotEveryRecords) {
+                // Written by the flusher thread, not by the committing request
+                snapshotDue = true;
+            }
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the stock journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the appended records to disk and writes the snapshot when one is due, called by the flusher thread.
+     * Only the segment is read under the lock, appends go on while it is forced.
+     */
+    public void flush() {
+        if (dirty) {
+            MappedByteBuffer dirtySegment;
+            lock.lock();
+            try {
+                dirty = false;
+                dirtySegment = segment;
+            } finally {
+                lock.unlock();
+            }
+            if (dirtySegment != null) {
+                dirtySegment.force();
+            }
+        }
+        if (snapshotDue) {
+            try {
+                writeSnapshot();
+            } catch (IOException | UncheckedIOException e) {
+                logger.warn("Could not write the stock journal snapshot, the segments are kept", e);
+            }
+        }
+    }
+
+    /**
+     * Aligns the journal with the stock in the database: products which no longer exist are dropped, and a
+     * RECONCILED record is appended for every product whose journaled stock differs, including products
+     * the journal never saw. Meant to run at startup, before any stock changes.
+     *
+     * @param stockInDatabase the stock of every product in the database
+     * @return the number of products reconciled
+     */
+    public int reconcile(Map<Long, Integer> stockInDatabase) {
+        if (!enabled) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            int reconciled = 0;
+            for (Long productId : List.copyOf(stockByProduct.keySet())) {
+                if (!stockInDatabase.containsKey(productId)) {
+                    int stock = stockByProduct.get(productId);
+                    if (stock != 0) {
+                        append(productId, -stock, 0, StockChangeReason.RECONCILED);
+                        reconciled++;
+                    }
+                    // Replayed again as 0 after a restart, and dropped again
+                    stockByProduct.remove(productId);
+                }
+            }
+            for (Map.Entry<Long, Integer> entry : stockInDatabase.entrySet()) {
+                int journaled = stockByProduct.getOrDefault(entry.getKey(), 0);
+                if (journaled != entry.getValue()) {
+                    append(entry.getKey(), entry.getValue() - journaled, entry.getValue(), StockChangeReason.RECONCILED);
+                    reconciled++;
+                }
+            }
+            return reconciled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the journaled stock of every product, as rebuilt at startup and kept up to date by appends.
+     *
+     * @return an immutable copy of the stock per product id
+     */
+    public Map<Long, Integer> currentStock() {
+        lock.lock();
+        try {
+            return Map.copyOf(stockByProduct);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                // Lets a snapshot being written finish before the directory lock is released
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.lock();
+        try {
+            if (segment != null) {
+                segment.force();
+                segmentChannel.close();
+                segment = null;
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not close the stock journal: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes an exclusive lock on the directory, two writers on the same segments would corrupt them.
+     */
+    private void lockDirectory() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (lockChannel.tryLock() != null) {
+                return;
+            }
+        } catch (OverlappingFileLockException e) {
+            // Locked by this JVM already
+        }
+        lockChannel.close();
+        throw new IllegalStateException("The stock journal in " + directory.toAbsolutePath() + " is already in use");
+    }
+
+    private void rollSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+            segmentChannel.close();
+        }
+        openSegment(directory.resolve(segmentName(lastSequence + 1)), 0);
+    }
+
+    private void openSegment(Path path, int position) throws IOException {
+        segmentPath = path;
+        segmentChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE);
+        segment.position(position);
+    }
+
+    private void loadSnapshot() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            snapshotSequence = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                stockByProduct.put(in.readLong(), in.readInt());
+            }
+        }
+        lastSequence = snapshotSequence;
+    }
+
+    private void replaySegments() throws IOException {
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            int end;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                end = replaySegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+            if (i == segments.size() - 1) {
+                // Continue appending after the last valid record of the newest segment
+                openSegment(path, end);
+            }
+        }
+    }
+
+    /**
+     * Applies the records of one segment newer than the snapshot.
+     *
+     * @return the position after the last valid record
+     */
+    private int replaySegment(ByteBuffer buffer) {
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer view = ByteBuffer.wrap(record);
+        int position = 0;
+        while (position + RECORD_SIZE <= buffer.limit()) {
+            buffer.get(position, record);
+            long sequence = view.getLong(0);
+            crc.reset();
+            crc.update(record, 0, CHECKSUMMED_BYTES);
+            if (sequence == 0 || view.getInt(CHECKSUMMED_BYTES) != (int) crc.getValue()) {
+                break;
+            }
+            if (sequence > snapshotSequence) {
+                applyRecord(view.getLong(16), view.getInt(24), view.getInt(28));
+                recordsSinceSnapshot++;
+            }
+            lastSequence = Math.max(lastSequence, sequence);
+            position += RECORD_SIZE;
+        }
+        return position;
+    }
+
+    /**
+     * Adds the delta of a record to the stock of its product, the first record of a product sets its stock.
+     */
+    private void applyRecord(long productId, int delta, int stockAfter) {
+        Integer stock = stockByProduct.get(productId);
+        stockByProduct.put(productId, stock == null ? stockAfter : stock + delta);
+    }
+
+    /**
+     * Writes the stock per product to a new snapshot file which atomically replaces the previous one, then deletes
+     * the segments that only hold records covered by it. Only the stock is copied under the lock. The snapshot is
+     * forced to disk before the rename, and the rename before the deletion, so a crash at any point leaves either
+     * the old snapshot with its segments or the new one.
+     */
+    private void writeSnapshot() throws IOException {
+        Map<Long, Integer> stock;
+        long sequence;
+        long records;
+        Path currentSegment;
+        lock.lock();
+        try {
+            stock = new HashMap<>(stockByProduct);
+            sequence = lastSequence;
+            records = recordsSinceSnapshot;
+            currentSegment = segmentPath;
+        } finally {
+            lock.unlock();
+        }
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeLong(sequence);
+            out.writeInt(stock.size());
+            for (Map.Entry<Long, Integer> entry : stock.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+
+        lock.lock();
+        try {
+            snapshotSequence = sequence;
+            recordsSinceSnapshot -= records;
+            snapshotDue = recordsSinceSnapshot >= snapshotEveryRecords;
+        } finally {
+            lock.unlock();
+        }
+
+        // The segments before the one written when the stock was copied only hold records up to the snapshot,
+        // the names embed the zero padded first sequence so they sort before it
+        for (Path path : listSegments()) {
+            if (currentSegment != null && path.getFileName().compareTo(currentSegment.getFileName()) < 0) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Forces the directory entries, so the renamed snapshot survives a power loss.
+     * Some platforms can not open a directory, the rename is then left to the file system.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Could not force the stock journal directory: {}", e.getMessage());
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)).forEach(segments::add);
+        }
+        // Names embed the zero padded first sequence, so the lexical order is the append order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+}
@@ -0,0 +1,62 @@
+package ing.interview.store_management.journal;
+
+import ing.interview.store_management.dto.ProductStockDto;
+import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.ProductStockShardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aligns the stock journal with the database at startup. The journal outlives an in-memory database, or may
+ * have missed changes made while it was disabled: products it holds which no longer exist are dropped and
+ * stocks which differ are corrected with a RECONCILED record, so the journal always starts from the database.
+ * It runs once every bean is created, before the web server and the scheduled jobs start, so no stock changes
+ * while the database is read.
+ */
+@Component
+public class StockJournalReconciler implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockJournalReconciler.class);
+
+    @Autowired
+    private StockJournal stockJournal;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<Long, Integer> stockInDatabase = transactionTemplate.execute(status -> readStock());
+        int reconciled = stockJournal.reconcile(stockInDatabase);
+        if (reconciled > 0) {
+            logger.warn("Reconciled the journaled stock of {} products with the database", reconciled);
+        }
+    }
+
+    /**
+     * @return the stock of every product, the sum of its shards for a sharded product.
+     */
+    private Map<Long, Integer> readStock() {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (ProductStockDto product : productRepository.findAllStock()) {
+            stock.put(product.getProductId(), product.getStock() != null ? product.getStock() : 0);
+        }
+        for (ProductStockDto shards : productStockShardRepository.sumAllQuantities()) {
+            stock.put(shards.getProductId(), shards.getStock());
+        }
+        return stock;
+    }
+}
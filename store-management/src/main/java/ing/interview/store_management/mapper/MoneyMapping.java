@@ -0,0 +1,22 @@
+package ing.interview.store_management.mapper;
+
+import ing.interview.store_management.model.Money;
+import org.modelmapper.ModelMapper;
+
+import java.math.BigDecimal;
+
+/**
+ * The DTOs carry amounts as BigDecimal and the entities as Money, this registers the conversion both ways
+ */
+final class MoneyMapping {
+
+    private MoneyMapping() {
+    }
+
+    static ModelMapper register(ModelMapper modelMapper) {
+        modelMapper.addConverter(context -> Money.of(context.getSource()), BigDecimal.class, Money.class);
+        modelMapper.addConverter(context -> context.getSource() != null ? context.getSource().toBigDecimal() : null,
+                Money.class, BigDecimal.class);
+        return modelMapper;
+    }
+}
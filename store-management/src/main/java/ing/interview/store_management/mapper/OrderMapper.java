@@ -2,6 +2,7 @@ package ing.interview.store_management.mapper;
 
 import ing.interview.store_management.dto.OrderDto;
 import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.model.ArchivedOrder;
 import ing.interview.store_management.model.Order;
 import ing.interview.store_management.model.OrderProduct;
 import org.modelmapper.ModelMapper;
@@ -16,7 +17,7 @@ public class OrderMapper {
     private final ModelMapper modelMapper;
 
     public OrderMapper() {
-        this.modelMapper = new ModelMapper();
+        this.modelMapper = MoneyMapping.register(new ModelMapper());
     }
 
     // Convert Order entity to OrderDto
@@ -30,6 +31,16 @@ public class OrderMapper {
         return OrderDto;
     }
 
+    // Convert an archived order to the same OrderDto as the order it was
+    public OrderDto toDto(ArchivedOrder archivedOrder) {
+        Set<OrderProductDto> orderProductsDTO = archivedOrder.getOrderLines().stream()
+                .map(line -> new OrderProductDto(line.getOrderProductId(), line.getProductId(), line.getQuantity()))
+                .collect(Collectors.toSet());
+
+        return new OrderDto(archivedOrder.getId(), archivedOrder.getOrderDate(), archivedOrder.getStatus(),
+                archivedOrder.getTotalPrice() != null ? archivedOrder.getTotalPrice().toBigDecimal() : null, orderProductsDTO);
+    }
+
     // Convert OrderDto to Order entity
     public Order toEntity(OrderDto OrderDto) {
         Set<OrderProduct> orderProducts = OrderDto.getOrderProducts().stream()
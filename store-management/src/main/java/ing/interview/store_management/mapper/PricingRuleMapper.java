@@ -0,0 +1,34 @@
+package ing.interview.store_management.mapper;
+
+import ing.interview.store_management.dto.PricingRuleDto;
+import ing.interview.store_management.model.PricingRule;
+import org.modelmapper.MappingException;
+import org.modelmapper.ModelMapper;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PricingRuleMapper {
+
+    private final ModelMapper modelMapper;
+
+    public PricingRuleMapper() {
+        this.modelMapper = MoneyMapping.register(new ModelMapper());
+    }
+
+    // Convert PricingRule entity to PricingRuleDto
+    public PricingRuleDto toDto(PricingRule pricingRule) {
+        return modelMapper.map(pricingRule, PricingRuleDto.class);
+    }
+
+    // Convert PricingRuleDto to PricingRule entity, an invalid amount is reported as it was thrown by Money
+    public PricingRule toEntity(PricingRuleDto pricingRuleDto) {
+        try {
+            return modelMapper.map(pricingRuleDto, PricingRule.class);
+        } catch (MappingException e) {
+            if (e.getCause() instanceof IllegalArgumentException invalidAmount) {
+                throw invalidAmount;
+            }
+            throw e;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package ing.interview.store_management.mapper;
 import ing.interview.store_management.dto.ProductDto;
 import ing.interview.store_management.model.Product;
 import org.springframework.stereotype.Component;
+import org.modelmapper.MappingException;
 import org.modelmapper.ModelMapper;
 
 @Component
@@ -11,7 +12,7 @@ public class ProductMapper {
     private final ModelMapper modelMapper;
 
     public ProductMapper() {
-        this.modelMapper = new ModelMapper();
+        this.modelMapper = MoneyMapping.register(new ModelMapper());
     }
 
     // Convert Product entity to ProductDTO
@@ -19,8 +20,15 @@ public class ProductMapper {
         return modelMapper.map(product, ProductDto.class);
     }
 
-    // Convert ProductDTO to Product entity
+    // Convert ProductDTO to Product entity, an invalid price is reported as it was thrown by Money
     public Product toEntity(ProductDto productDTO) {
-        return modelMapper.map(productDTO, Product.class);
+        try {
+            return modelMapper.map(productDTO, Product.class);
+        } catch (MappingException e) {
+            if (e.getCause() instanceof IllegalArgumentException invalidAmount) {
+                throw invalidAmount;
+            }
+            throw e;
+        }
     }
 }
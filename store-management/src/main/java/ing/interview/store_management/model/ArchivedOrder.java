@@ -0,0 +1,40 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The ArchivedOrder Do
+ * A completed or canceled order moved out of store_order by the OrderArchiver, it keeps the ID of the order.
+ * Archived orders are read only.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "archived_order")
+public class ArchivedOrder {
+    @Id
+    private Long id;
+
+    private LocalDateTime orderDate;
+    private String status;
+    @Column(precision = Money.PRECISION, scale = Money.SCALE)
+    private Money totalPrice;
+    private LocalDateTime archivedAt;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "archived_order_product", joinColumns = @JoinColumn(name = "order_id"))
+    private Set<ArchivedOrderLine> orderLines = new HashSet<>();
+}
@@ -0,0 +1,19 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A line of an ArchivedOrder, as it was in order_product
+ */
+@Embeddable
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedOrderLine {
+    private Long orderProductId;
+    private Long productId;
+    private Integer quantity;
+}
@@ -0,0 +1,48 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * The DailyProductSales Do
+ * Units, revenue and number of orders of one product on one day, maintained by the SalesRollupJob.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@IdClass(DailyProductSales.Key.class)
+@Table(name = "daily_product_sales")
+public class DailyProductSales {
+    @Id
+    // DAY is a reserved word in H2
+    @Column(name = "sales_day")
+    private LocalDate day;
+    @Id
+    private Long productId;
+
+    private long units;
+    private long revenueMinor;
+    private long orderCount;
+
+    public DailyProductSales(LocalDate day, Long productId) {
+        this.day = day;
+        this.productId = productId;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long productId;
+    }
+}
@@ -0,0 +1,33 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * The DailySales Do
+ * Units, revenue and number of orders of one day, maintained by the SalesRollupJob.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "daily_sales")
+public class DailySales {
+    @Id
+    // DAY is a reserved word in H2
+    @Column(name = "sales_day")
+    private LocalDate day;
+
+    private long units;
+    private long revenueMinor;
+    private long orderCount;
+
+    public DailySales(LocalDate day) {
+        this.day = day;
+    }
+}
@@ -0,0 +1,91 @@
+package ing.interview.store_management.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money in the store currency, held as a count of minor units (cents) at a fixed scale of {@value #SCALE}.
+ * Pricing, totals and aggregates work on the long directly with overflow checked arithmetic;
+ * BigDecimal is only used at the edges, by the DTOs and by the database column (see MoneyConverter).
+ *
+ * @param minorUnits the amount in minor units, 12.34 is 1234.
+ */
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    // Column definition matching the scale, 17 digits before the decimal point
+    public static final int PRECISION = 19;
+
+    private static final BigDecimal MIN = BigDecimal.valueOf(Long.MIN_VALUE, SCALE);
+    private static final BigDecimal MAX = BigDecimal.valueOf(Long.MAX_VALUE, SCALE);
+
+    /**
+     * Converts a decimal amount, at most {@value #SCALE} decimals are accepted.
+     *
+     * @param amount the amount, null stays null.
+     * @return the amount as Money.
+     * @throws IllegalArgumentException if the amount has more decimals than the currency or does not fit in a long.
+     */
+    public static Money of(BigDecimal amount) throws IllegalArgumentException {
+        if (amount == null) {
+            return null;
+        }
+        if (amount.compareTo(MIN) < 0 || amount.compareTo(MAX) > 0) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+        try {
+            return new Money(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount has more than " + SCALE + " decimals: " + amount);
+        }
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return new Money(minorUnits);
+    }
+
+    /**
+     * @return the amount as a decimal with a scale of {@value #SCALE}.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(int quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    /**
+     * Price of a line in minor units, without creating a Money.
+     *
+     * @throws ArithmeticException if the result overflows a long.
+     */
+    public static long lineTotal(long unitPriceMinorUnits, int quantity) {
+        return Math.multiplyExact(unitPriceMinorUnits, quantity);
+    }
+
+    /**
+     * Adds two amounts in minor units, without creating a Money.
+     *
+     * @throws ArithmeticException if the result overflows a long.
+     */
+    public static long add(long minorUnits, long otherMinorUnits) {
+        return Math.addExact(minorUnits, otherMinorUnits);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
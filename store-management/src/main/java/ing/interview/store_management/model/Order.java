@@ -5,8 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
@@ -17,7 +17,8 @@ import java.util.Set;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "store_order")
+// Lets the OrderArchiver find the old completed and canceled orders without a full scan
+@Table(name = "store_order", indexes = @Index(name = "idx_store_order_status_date", columnList = "status, orderDate"))
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -25,10 +26,11 @@ public class Order {
 
     private LocalDateTime orderDate;
     private String status;
-    private BigDecimal totalPrice;
+    @Column(precision = Money.PRECISION, scale = Money.SCALE)
+    private Money totalPrice;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
-    private Set<OrderProduct> orderProducts;
+    private Set<OrderProduct> orderProducts = new HashSet<>();
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,43 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A pending status change of an order, due at dueAt. Any node may claim it by taking a lease until leaseExpiresAt,
+ * a job whose lease ran out is claimed again, so the work of a crashed node is picked up by the others.
+ * A job which failed maxAttempts times is parked with no due date and left for inspection.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "order_lifecycle_job", indexes = @Index(name = "idx_order_lifecycle_job_due", columnList = "dueAt"))
+public class OrderLifecycleJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // No foreign key, a job of a deleted order just finds nothing to change
+    private Long orderId;
+
+    private Instant dueAt;
+
+    private String leaseOwner;
+    private Instant leaseExpiresAt;
+
+    private int attempts;
+    private String lastError;
+
+    public OrderLifecycleJob(Long orderId, Instant dueAt) {
+        this.orderId = orderId;
+        this.dueAt = dueAt;
+    }
+}
@@ -42,12 +42,15 @@ public class OrderProduct {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         OrderProduct that = (OrderProduct) o;
-        return Objects.equals(id, that.id);
+        // Lines not persisted yet are only equal to themselves, so several new lines fit in the order's set
+        return id != null && Objects.equals(id, that.id);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        // The product of a line never changes, and an order has one line per product, so the lines of an order
+        // spread over the set. The id would change on persist.
+        return product != null ? Objects.hashCode(product.getId()) : 0;
     }
 
     @Override
@@ -0,0 +1,46 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * The OrderSalesContribution Do
+ * What one product line of an order currently adds to the sales rollups. When the order changes, the
+ * SalesRollupJob takes these amounts out of the rollups before adding the new ones, so the rollups follow
+ * updates and deletions exactly, whatever the prices are by then.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(OrderSalesContribution.Key.class)
+@Table(name = "order_sales_contribution")
+public class OrderSalesContribution {
+    @Id
+    private Long orderId;
+    @Id
+    private Long productId;
+
+    // DAY is a reserved word in H2
+    @Column(name = "sales_day")
+    private LocalDate day;
+    private long units;
+    private long revenueMinor;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long orderId;
+        private Long productId;
+    }
+}
@@ -1,11 +1,17 @@
 package ing.interview.store_management.model;
 
+import ing.interview.store_management.security.AuthDataChangeListener;
+import ing.interview.store_management.security.AuthorityBitmask;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -18,6 +24,7 @@ import java.util.Set;
  * The Permission Do
  */
 @Entity
+@EntityListeners(AuthDataChangeListener.class)
 @Data
 @NoArgsConstructor
 @Table(name = "store_permission")
@@ -29,6 +36,10 @@ public class Permission {
 
     private String name;
 
+    // Stable position of this permission in the bitmask carried by the JWT, see AuthorityBitmask
+    @Column(unique = true)
+    private Integer bitPosition;
+
     @ManyToMany(mappedBy = "permissions", fetch = FetchType.EAGER)
     private Set<Role> roles = new HashSet<>();
 
@@ -36,11 +47,24 @@ public class Permission {
         this.name = name;
     }
 
+    public Permission(String name, Integer bitPosition) {
+        this.name = name;
+        this.bitPosition = bitPosition;
+    }
+
+    // Rejected on save rather than on the first login of a user holding it
+    @PrePersist
+    @PreUpdate
+    private void checkBitPosition() {
+        AuthorityBitmask.checkBitPosition(name, bitPosition);
+    }
+
     @Override
     public String toString() {
         return "Permission{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
+                ", bitPosition=" + bitPosition +
                 '}';
     }
 }
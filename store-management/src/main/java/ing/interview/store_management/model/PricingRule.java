@@ -0,0 +1,57 @@
+package ing.interview.store_management.model;
+
+import ing.interview.store_management.pricing.PricingRuleChangeListener;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The PricingRule Do
+ * A promotion defined as data. Active rules are compiled by the PricingEngine into a plan indexed by product,
+ * which only the fields relevant to the type are read from.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@EntityListeners(PricingRuleChangeListener.class)
+@Table(name = "pricing_rule", indexes = @Index(name = "idx_pricing_rule_active", columnList = "active"))
+public class PricingRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PricingRuleType type;
+
+    // Product the rule applies to, null for ORDER_THRESHOLD
+    private Long productId;
+
+    private Integer buyQuantity;
+    private Integer freeQuantity;
+
+    // 1250 is 12.50%
+    private Integer percentOffBasisPoints;
+
+    @Column(precision = Money.PRECISION, scale = Money.SCALE)
+    private Money threshold;
+
+    @Column(precision = Money.PRECISION, scale = Money.SCALE)
+    private Money amountOff;
+
+    // When two BUY_N_GET_M_FREE rules target the same product, the lowest priority (then the lowest ID) wins
+    private int priority;
+
+    private boolean active = true;
+}
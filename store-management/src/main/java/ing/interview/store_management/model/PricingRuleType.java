@@ -0,0 +1,16 @@
+package ing.interview.store_management.model;
+
+/**
+ * The kinds of promotion a PricingRule can describe
+ */
+public enum PricingRuleType {
+
+    // Percentage off the lines of one product (percentOffBasisPoints)
+    PRODUCT_PERCENT_OFF,
+
+    // For every buyQuantity + freeQuantity units of one product, freeQuantity units are free
+    BUY_N_GET_M_FREE,
+
+    // Percentage (percentOffBasisPoints) or amount (amountOff) off the order once its subtotal reaches threshold
+    ORDER_THRESHOLD
+}
@@ -1,6 +1,7 @@
 package ing.interview.store_management.model;
 
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -8,7 +9,6 @@ import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import lombok.Data;
 
-import java.math.BigDecimal;
 import java.util.Set;
 
 /**
@@ -23,9 +23,21 @@ public class Product {
 
     private String name;
     private String description;
-    private BigDecimal price;
+    @Column(precision = Money.PRECISION, scale = Money.SCALE)
+    private Money price;
     private Integer stock;
 
+    // Number of ProductStockShard rows holding the stock of a hot product, null or 0 when stock is kept in this row
+    private Integer stockShards;
+
+    // A discontinued product is no longer listed, searched or orderable, but keeps its order history
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean discontinued;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<OrderProduct> orderProducts;
-}
\ No newline at end of file
+
+    public boolean isStockSharded() {
+        return stockShards != null && stockShards > 0;
+    }
+}
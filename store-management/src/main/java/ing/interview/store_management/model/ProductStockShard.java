@@ -0,0 +1,41 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The ProductStockShard Do
+ * A slice of the stock of a hot product. Orders decrement a random shard, so concurrent orders for the
+ * same product lock different rows. The stock of the product is the sum of its shards.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "product_stock_shard", uniqueConstraints = @UniqueConstraint(columnNames = {"productId", "shardIndex"}))
+public class ProductStockShard {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer shardIndex;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    public ProductStockShard(Long productId, Integer shardIndex, Integer quantity) {
+        this.productId = productId;
+        this.shardIndex = shardIndex;
+        this.quantity = quantity;
+    }
+}
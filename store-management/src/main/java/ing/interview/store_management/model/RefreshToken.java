@@ -0,0 +1,58 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The RefreshToken Do
+ * Only the SHA-256 hash of the opaque token is stored, the token itself is returned once to the client.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "store_refresh_token", indexes = {
+        @Index(name = "idx_refresh_token_hash", columnList = "tokenHash", unique = true),
+        @Index(name = "idx_refresh_token_expires_at", columnList = "expiresAt")
+})
+public class RefreshToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String tokenHash;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    // Set when the token is rotated, revoked tokens are deleted instead
+    private boolean revoked;
+
+    public RefreshToken(String tokenHash, String username, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.username = username;
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "RefreshToken{" +
+                "id=" + id +
+                ", username='" + username + '\'' +
+                ", expiresAt=" + expiresAt +
+                ", revoked=" + revoked +
+                '}';
+    }
+}
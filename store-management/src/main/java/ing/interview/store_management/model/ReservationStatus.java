@@ -0,0 +1,13 @@
+package ing.interview.store_management.model;
+
+public enum ReservationStatus {
+
+    // The stock is held until the reservation expires
+    ACTIVE,
+    // An order was created from the held stock
+    CONFIRMED,
+    // The held stock was returned on request
+    RELEASED,
+    // The held stock was returned when the reservation timed out
+    EXPIRED
+}
@@ -0,0 +1,18 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A quantity of one product held by a StockReservation
+ */
+@Embeddable
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservedQuantity {
+    private Long productId;
+    private Integer quantity;
+}
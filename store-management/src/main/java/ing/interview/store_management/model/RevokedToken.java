@@ -0,0 +1,49 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The RevokedToken Do
+ * The revocation key is either the id (jti) of a single JWT, or "user:" + username to revoke every JWT
+ * of that user issued up to revokedAt, kept in whole seconds like the issue time of a JWT, so the tokens
+ * issued within the second of the revocation are revoked as well.
+ * The row is useless once expiresAt has passed and is then pruned.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "store_revoked_token", indexes = {
+        @Index(name = "idx_revoked_token_key", columnList = "revocationKey", unique = true),
+        @Index(name = "idx_revoked_token_expires_at", columnList = "expiresAt"),
+        @Index(name = "idx_revoked_token_revoked_at", columnList = "revokedAt")
+})
+public class RevokedToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String revocationKey;
+
+    @Column(nullable = false)
+    private Instant revokedAt;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    public RevokedToken(String revocationKey, Instant revokedAt, Instant expiresAt) {
+        this.revocationKey = revocationKey;
+        this.revokedAt = revokedAt;
+        this.expiresAt = expiresAt;
+    }
+}
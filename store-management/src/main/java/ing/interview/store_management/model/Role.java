@@ -1,6 +1,8 @@
 package ing.interview.store_management.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import ing.interview.store_management.security.AuthDataChangeListener;
+import ing.interview.store_management.security.AuthorityBitmask;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -14,6 +16,7 @@ import java.util.Set;
  * The Role Do
  */
 @Entity
+@EntityListeners(AuthDataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,6 +29,10 @@ public class Role {
 
     private String name;
 
+    // Stable position of this role in the bitmask carried by the JWT, see AuthorityBitmask
+    @Column(unique = true)
+    private Integer bitPosition;
+
     @OneToMany(mappedBy = "role", fetch = FetchType.EAGER)
     @JsonIgnore
     private Set<User> users = new HashSet<>();
@@ -42,11 +49,24 @@ public class Role {
         this.name = name;
     }
 
+    public Role(String name, Integer bitPosition) {
+        this.name = name;
+        this.bitPosition = bitPosition;
+    }
+
+    // A role without a bit could never be put in a token, the unique constraint keeps two roles off one bit
+    @PrePersist
+    @PreUpdate
+    private void checkBitPosition() {
+        AuthorityBitmask.checkBitPosition(name, bitPosition);
+    }
+
     @Override
     public String toString() {
         return "Role{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
+                ", bitPosition=" + bitPosition +
                 '}';
     }
 }
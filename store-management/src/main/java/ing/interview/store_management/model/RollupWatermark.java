@@ -0,0 +1,29 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The RollupWatermark Do
+ * How far a rollup got: the last change folded into it and when it ran.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "rollup_watermark")
+public class RollupWatermark {
+    @Id
+    private String name;
+
+    private long lastChangeId;
+    private Instant processedAt;
+
+    public RollupWatermark(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,34 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The SalesChange Do
+ * Records that an order was created, updated or deleted, in the same transaction, so the SalesRollupJob
+ * knows which orders to fold into the sales rollups again.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "sales_change")
+public class SalesChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long orderId;
+    private Instant changedAt;
+
+    public SalesChange(Long orderId, Instant changedAt) {
+        this.orderId = orderId;
+        this.changedAt = changedAt;
+    }
+}
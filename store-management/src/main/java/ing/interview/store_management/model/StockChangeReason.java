@@ -0,0 +1,33 @@
+package ing.interview.store_management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public enum StockChangeReason {
+
+    ORDER_CREATED(1),
+    ORDER_UPDATED(2),
+    // Not written any more, deleting an order leaves the stock unchanged
+    ORDER_DELETED(3),
+    MANUAL_UPDATE(4),
+    STOCK_ADJUSTMENT(5),
+    RESERVATION_HELD(6),
+    RESERVATION_RELEASED(7),
+    RECONCILED(8);
+
+    // Stable code written in the stock journal records, never reuse or renumber
+    private final int code;
+
+    public static StockChangeReason fromCode(int code) {
+        for (StockChangeReason reason : StockChangeReason.values()) {
+            if (reason.code == code) {
+                return reason;
+            }
+        }
+        throw new IllegalArgumentException("Unknown stock change reason: " + code);
+    }
+}
@@ -0,0 +1,49 @@
+package ing.interview.store_management.model;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The StockReservation Do
+ * Stock held for a checkout until it is confirmed into an order, released, or it expires.
+ * The held quantities are taken out of the product stock when the reservation is made, so every stock read
+ * already accounts for the active holds.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "stock_reservation", indexes = @Index(name = "idx_stock_reservation_status", columnList = "status"))
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status;
+
+    private Instant createdAt;
+    private Instant expiresAt;
+
+    // Order created when the reservation was confirmed
+    private Long orderId;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "stock_reservation_line", joinColumns = @JoinColumn(name = "reservation_id"))
+    private Set<ReservedQuantity> reservedQuantities = new HashSet<>();
+}
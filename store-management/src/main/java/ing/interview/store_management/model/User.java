@@ -1,6 +1,8 @@
 package ing.interview.store_management.model;
 
+import ing.interview.store_management.security.AuthDataChangeListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -14,6 +16,7 @@ import lombok.*;
  * The User Do
  */
 @Entity
+@EntityListeners(AuthDataChangeListener.class)
 @Data
 @Table(name = "store_user")
 @AllArgsConstructor
@@ -0,0 +1,68 @@
+package ing.interview.store_management.pricing;
+
+import ing.interview.store_management.repository.PricingRuleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prices orders with the active PricingRules. The rules are compiled into a {@link PricingPlan} on first use
+ * and the plan is cached until a rule changes.
+ */
+@Component
+public class PricingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PricingEngine.class);
+
+    // Bumped on every rule change, a plan compiled while it moved may be stale and is not cached
+    private final AtomicLong generation = new AtomicLong();
+    private volatile PricingPlan plan;
+
+    @Autowired
+    private PricingRuleRepository pricingRuleRepository;
+
+    /**
+     * @return the plan compiled from the active rules.
+     */
+    public PricingPlan currentPlan() {
+        PricingPlan current = plan;
+        return current != null ? current : compile();
+    }
+
+    /**
+     * Drops the cached plan. When called inside a transaction it is dropped again after the commit,
+     * so a plan compiled from the rules as they were before the commit does not stay cached.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        plan = null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                    plan = null;
+                }
+            });
+        }
+    }
+
+    private synchronized PricingPlan compile() {
+        PricingPlan current = plan;
+        if (current != null) {
+            return current;
+        }
+        long compiledGeneration = generation.get();
+        PricingPlan compiled = PricingPlan.compile(pricingRuleRepository.findByActiveTrue());
+        if (generation.get() == compiledGeneration) {
+            plan = compiled;
+        }
+        logger.debug("Compiled a pricing plan with {} rules", compiled.ruleCount());
+        return compiled;
+    }
+}
@@ -0,0 +1,179 @@
+package ing.interview.store_management.pricing;
+
+import ing.interview.store_management.model.PricingRule;
+import ing.interview.store_management.model.PricingRuleType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The active pricing rules compiled for evaluation. Immutable, so it is shared by every order priced with it.
+ * <p>
+ * The line rules of a product are folded into a single {@link ProductPricing}, found with one map lookup,
+ * so a line only pays for the rules of its own product. Order thresholds are sorted with the best discount
+ * reachable at each threshold precomputed, so the order discount is two binary searches.
+ * <p>
+ * Evaluation is deterministic: on a line the free units of the BUY_N_GET_M_FREE rule are taken off first,
+ * then the best PRODUCT_PERCENT_OFF applies to what is left; the order gets the single best ORDER_THRESHOLD
+ * discount its subtotal reaches. Percentage discounts are rounded down to the minor unit.
+ * All amounts are in minor units, see Money.
+ */
+public final class PricingPlan {
+
+    public static final PricingPlan EMPTY = new PricingPlan(Map.of(), new long[0], new long[0], new long[0], new int[0], 0);
+
+    private static final int BASIS_POINTS = 10_000;
+
+    private final Map<Long, ProductPricing> productPricing;
+    // Thresholds ascending, with the best amount off reachable at each of them
+    private final long[] amountThresholds;
+    private final long[] bestAmountOff;
+    // Thresholds ascending, with the best percentage off reachable at each of them
+    private final long[] percentThresholds;
+    private final int[] bestPercentOff;
+    private final int ruleCount;
+
+    private PricingPlan(Map<Long, ProductPricing> productPricing, long[] amountThresholds, long[] bestAmountOff,
+                        long[] percentThresholds, int[] bestPercentOff, int ruleCount) {
+        this.productPricing = productPricing;
+        this.amountThresholds = amountThresholds;
+        this.bestAmountOff = bestAmountOff;
+        this.percentThresholds = percentThresholds;
+        this.bestPercentOff = bestPercentOff;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Compiles rules into a plan. The result does not depend on the order of the rules.
+     *
+     * @param rules the active rules.
+     * @return the plan.
+     */
+    public static PricingPlan compile(List<PricingRule> rules) {
+        List<PricingRule> sorted = new ArrayList<>(rules);
+        sorted.sort(Comparator.comparingInt(PricingRule::getPriority).thenComparing(PricingRule::getId,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Map<Long, ProductPricing> productPricing = new HashMap<>();
+        List<long[]> amountRules = new ArrayList<>();
+        List<long[]> percentRules = new ArrayList<>();
+        for (PricingRule rule : sorted) {
+            switch (rule.getType()) {
+                case PRODUCT_PERCENT_OFF -> productPricing.merge(rule.getProductId(),
+                        new ProductPricing(0, 0, rule.getPercentOffBasisPoints()),
+                        (current, added) -> new ProductPricing(current.buyQuantity(), current.freeQuantity(),
+                                Math.max(current.percentOffBasisPoints(), added.percentOffBasisPoints())));
+                // Rules are sorted by priority, the first BUY_N_GET_M_FREE of a product wins
+                case BUY_N_GET_M_FREE -> productPricing.merge(rule.getProductId(),
+                        new ProductPricing(rule.getBuyQuantity(), rule.getFreeQuantity(), 0),
+                        (current, added) -> current.freeQuantity() > 0 ? current
+                                : new ProductPricing(added.buyQuantity(), added.freeQuantity(), current.percentOffBasisPoints()));
+                case ORDER_THRESHOLD -> {
+                    long threshold = rule.getThreshold().minorUnits();
+                    if (rule.getAmountOff() != null) {
+                        amountRules.add(new long[]{threshold, rule.getAmountOff().minorUnits()});
+                    }
+                    if (rule.getPercentOffBasisPoints() != null) {
+                        percentRules.add(new long[]{threshold, rule.getPercentOffBasisPoints()});
+                    }
+                }
+            }
+        }
+
+        long[][] amounts = cumulativeBest(amountRules);
+        long[][] percents = cumulativeBest(percentRules);
+        int[] bestPercentOff = Arrays.stream(percents[1]).mapToInt(Math::toIntExact).toArray();
+        return new PricingPlan(Map.copyOf(productPricing), amounts[0], amounts[1], percents[0], bestPercentOff, rules.size());
+    }
+
+    /**
+     * Prices one order line with the rules of its product.
+     *
+     * @param productId      the product of the line.
+     * @param unitPriceMinor the unit price, in minor units.
+     * @param quantity       the quantity ordered.
+     * @return the line total after line discounts, in minor units.
+     * @throws ArithmeticException if the total overflows a long.
+     */
+    public long lineTotal(Long productId, long unitPriceMinor, int quantity) {
+        ProductPricing pricing = productPricing.get(productId);
+        if (pricing == null) {
+            return Math.multiplyExact(unitPriceMinor, quantity);
+        }
+        int chargedQuantity = quantity;
+        if (pricing.freeQuantity() > 0) {
+            int group = pricing.buyQuantity() + pricing.freeQuantity();
+            chargedQuantity -= quantity / group * pricing.freeQuantity();
+        }
+        long total = Math.multiplyExact(unitPriceMinor, chargedQuantity);
+        return total - percentOf(total, pricing.percentOffBasisPoints());
+    }
+
+    /**
+     * Returns the order-level discount for a subtotal: the best of the amount and percentage thresholds it reaches,
+     * never more than the subtotal.
+     *
+     * @param subtotalMinor the sum of the line totals, in minor units.
+     * @return the discount, in minor units.
+     */
+    public long orderDiscount(long subtotalMinor) {
+        long discount = 0;
+        int amountIndex = lastReached(amountThresholds, subtotalMinor);
+        if (amountIndex >= 0) {
+            discount = bestAmountOff[amountIndex];
+        }
+        int percentIndex = lastReached(percentThresholds, subtotalMinor);
+        if (percentIndex >= 0) {
+            discount = Math.max(discount, percentOf(subtotalMinor, bestPercentOff[percentIndex]));
+        }
+        return Math.min(discount, subtotalMinor);
+    }
+
+    /**
+     * @return the number of rules compiled into this plan.
+     */
+    public int ruleCount() {
+        return ruleCount;
+    }
+
+    private static long percentOf(long amount, long basisPoints) {
+        return basisPoints == 0 ? 0 : Math.multiplyExact(amount, basisPoints) / BASIS_POINTS;
+    }
+
+    // Index of the highest threshold which is at most the subtotal, -1 if none
+    private static int lastReached(long[] thresholds, long subtotal) {
+        int index = Arrays.binarySearch(thresholds, subtotal);
+        if (index >= 0) {
+            // Equal thresholds may repeat, the best value is at the last of them
+            while (index + 1 < thresholds.length && thresholds[index + 1] == subtotal) {
+                index++;
+            }
+            return index;
+        }
+        return -index - 2;
+    }
+
+    // Sorts (threshold, value) pairs by threshold and keeps the running maximum of the value
+    private static long[][] cumulativeBest(List<long[]> rules) {
+        rules.sort(Comparator.comparingLong((long[] rule) -> rule[0]).thenComparingLong(rule -> rule[1]));
+        long[] thresholds = new long[rules.size()];
+        long[] best = new long[rules.size()];
+        long max = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            thresholds[i] = rules.get(i)[0];
+            max = Math.max(max, rules.get(i)[1]);
+            best[i] = max;
+        }
+        return new long[][]{thresholds, best};
+    }
+
+    /**
+     * The line rules of one product folded together.
+     */
+    private record ProductPricing(int buyQuantity, int freeQuantity, int percentOffBasisPoints) {
+    }
+}
@@ -0,0 +1,27 @@
+package ing.interview.store_management.pricing;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener registered on PricingRule, any change to a rule invalidates the compiled pricing plan
+ */
+@Component
+public class PricingRuleChangeListener {
+
+    // Lazy because the engine needs a repository, which needs the EntityManagerFactory this listener is part of
+    @Lazy
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        pricingEngine.invalidate();
+    }
+}
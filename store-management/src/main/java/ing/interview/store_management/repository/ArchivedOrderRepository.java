@@ -0,0 +1,34 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.dto.OrderLineExportView;
+import ing.interview.store_management.model.ArchivedOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    // Copies the orders with INSERT ... SELECT, nothing is loaded into the persistence context
+    @Modifying
+    @Query(value = "insert into archived_order (id, order_date, status, total_price, archived_at) " +
+            "select id, order_date, status, total_price, :archivedAt from store_order where id in :ids", nativeQuery = true)
+    int copyOrders(@Param("ids") Collection<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+
+    @Modifying
+    @Query(value = "insert into archived_order_product (order_id, order_product_id, product_id, quantity) " +
+            "select order_id, id, product_id, quantity from order_product where order_id in :ids", nativeQuery = true)
+    int copyOrderLines(@Param("ids") Collection<Long> ids);
+
+    // Same keyset pagination as OrderProductRepository.findExportViewsAfter, over the archived lines
+    @Query("select a.id as orderId, l.orderProductId as lineId, a.orderDate as orderDate, a.status as status, " +
+            "a.totalPrice as totalPrice, l.productId as productId, l.quantity as quantity from ArchivedOrder a join a.orderLines l " +
+            "where a.id > :afterOrderId or (a.id = :afterOrderId and l.orderProductId > :afterLineId) order by a.id, l.orderProductId")
+    List<OrderLineExportView> findExportViewsAfter(@Param("afterOrderId") Long afterOrderId, @Param("afterLineId") Long afterLineId,
+                                                   Pageable pageable);
+}
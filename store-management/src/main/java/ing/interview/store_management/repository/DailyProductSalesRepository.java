@@ -0,0 +1,20 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.dto.ProductSalesView;
+import ing.interview.store_management.model.DailyProductSales;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyProductSalesRepository extends JpaRepository<DailyProductSales, DailyProductSales.Key> {
+
+    // Totals per product over a range of days, best selling by revenue first
+    @Query("select s.productId as productId, sum(s.units) as units, sum(s.revenueMinor) as revenueMinor, " +
+            "sum(s.orderCount) as orderCount from DailyProductSales s where s.day between :from and :to " +
+            "group by s.productId order by sum(s.revenueMinor) desc, s.productId")
+    List<ProductSalesView> sumByProduct(@Param("from") LocalDate from, @Param("to") LocalDate to, Pageable pageable);
+}
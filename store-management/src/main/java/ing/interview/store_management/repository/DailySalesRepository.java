@@ -0,0 +1,12 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.model.DailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailySalesRepository extends JpaRepository<DailySales, LocalDate> {
+
+    List<DailySales> findByDayBetweenOrderByDay(LocalDate from, LocalDate to);
+}
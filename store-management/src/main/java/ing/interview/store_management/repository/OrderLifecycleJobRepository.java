@@ -0,0 +1,42 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.model.OrderLifecycleJob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderLifecycleJobRepository extends JpaRepository<OrderLifecycleJob, Long> {
+
+    // Due jobs without a live lease, oldest first. A lock timeout of -2 is SKIP LOCKED: rows another node is
+    // claiming are passed over instead of waited for, on databases without it the claim waits for that node
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select j from OrderLifecycleJob j where j.dueAt <= :now "
+            + "and (j.leaseExpiresAt is null or j.leaseExpiresAt < :now) order by j.dueAt")
+    List<OrderLifecycleJob> findClaimable(@Param("now") Instant now, Pageable pageable);
+
+    // Checks the lease again, a job claimed in the meantime is left to its owner
+    @Modifying
+    @Query("update OrderLifecycleJob j set j.leaseOwner = :owner, j.leaseExpiresAt = :leaseExpiresAt "
+            + "where j.id in :ids and (j.leaseExpiresAt is null or j.leaseExpiresAt < :now)")
+    int lease(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+              @Param("leaseExpiresAt") Instant leaseExpiresAt, @Param("now") Instant now);
+
+    @Query("select j.id from OrderLifecycleJob j where j.id in :ids and j.leaseOwner = :owner")
+    List<Long> findIdsLeasedBy(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+
+    // Fails when the lease was lost, the new owner does the work
+    @Modifying
+    @Query("delete from OrderLifecycleJob j where j.id = :id and j.leaseOwner = :owner")
+    int deleteLeased(@Param("id") Long id, @Param("owner") String owner);
+}
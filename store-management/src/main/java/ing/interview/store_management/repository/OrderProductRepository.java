@@ -1,6 +1,36 @@
 package ing.interview.store_management.repository;
+import ing.interview.store_management.dto.OrderLineExportView;
+import ing.interview.store_management.dto.OrderLinePriceView;
 import ing.interview.store_management.model.OrderProduct;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderProductRepository extends JpaRepository<OrderProduct, Long> {
+
+    @Modifying
+    @Query("delete from OrderProduct op where op.order.id in :orderIds")
+    int deleteByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    // Every line of the orders which have a line of one of the products, to recompute their total price
+    @Query("select o.id as orderId, o.totalPrice as totalPrice, p.id as productId, p.price as price, op.quantity as quantity " +
+            "from OrderProduct op join op.order o join op.product p " +
+            "where o.id in (select op2.order.id from OrderProduct op2 where op2.product.id in :productIds)")
+    List<OrderLinePriceView> findLinePricesOfOrdersWithProducts(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("delete from OrderProduct op where op.product.id in :productIds")
+    int deleteByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    // Keyset pagination over (order ID, line ID), so the lines of an order come one after the other
+    @Query("select o.id as orderId, op.id as lineId, o.orderDate as orderDate, o.status as status, o.totalPrice as totalPrice, " +
+            "op.product.id as productId, op.quantity as quantity from OrderProduct op join op.order o " +
+            "where o.id > :afterOrderId or (o.id = :afterOrderId and op.id > :afterLineId) order by o.id, op.id")
+    List<OrderLineExportView> findExportViewsAfter(@Param("afterOrderId") Long afterOrderId, @Param("afterLineId") Long afterLineId,
+                                                   Pageable pageable);
 }
@@ -1,7 +1,34 @@
 package ing.interview.store_management.repository;
 
+import ing.interview.store_management.model.Money;
 import ing.interview.store_management.model.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    // Oldest first, IDs only, the archiver moves them with set based statements
+    @Query("select o.id from Order o where o.status in :statuses and o.orderDate < :before order by o.id")
+    List<Long> findIdsByStatusInAndOrderDateBefore(@Param("statuses") Collection<String> statuses,
+                                                   @Param("before") LocalDateTime before, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Order o where o.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Order o set o.totalPrice = :totalPrice where o.id = :id")
+    int updateTotalPrice(@Param("id") Long id, @Param("totalPrice") Money totalPrice);
+
+    // Only moves an order still in the expected status, so repeating a transition changes nothing
+    @Modifying
+    @Query("update Order o set o.status = :to where o.id = :id and o.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") String from, @Param("to") String to);
 }
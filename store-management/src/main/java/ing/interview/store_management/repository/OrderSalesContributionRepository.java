@@ -0,0 +1,11 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.model.OrderSalesContribution;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface OrderSalesContributionRepository extends JpaRepository<OrderSalesContribution, OrderSalesContribution.Key> {
+
+    List<OrderSalesContribution> findByOrderId(Long orderId);
+}
@@ -1,12 +1,19 @@
 package ing.interview.store_management.repository;
 
+import ing.interview.store_management.dto.AuthorityBitView;
 import ing.interview.store_management.model.Permission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PermissionRepository extends JpaRepository<Permission, Long> {
     Optional<Permission> findByName(String name);
+
+    // Name and bit position only, without loading the EAGER associations
+    @Query("select p.name as name, p.bitPosition as bitPosition from Permission p where p.bitPosition is not null")
+    List<AuthorityBitView> findAllBitPositions();
 }
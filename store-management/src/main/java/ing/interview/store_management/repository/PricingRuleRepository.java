@@ -0,0 +1,11 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.model.PricingRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface PricingRuleRepository extends JpaRepository<PricingRule, Long> {
+
+    List<PricingRule> findByActiveTrue();
+}
@@ -1,7 +1,60 @@
 package ing.interview.store_management.repository;
 
+import ing.interview.store_management.dto.ProductPopularityView;
+import ing.interview.store_management.dto.ProductSearchView;
+import ing.interview.store_management.dto.ProductStockDto;
 import ing.interview.store_management.model.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    // Locks the product row, so no relative stock UPDATE of an order commits between reading the stock and moving it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    // Current stock levels only, without loading the products
+    @Query("select new ing.interview.store_management.dto.ProductStockDto(p.id, p.stock) from Product p where p.id in :ids")
+    List<ProductStockDto> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new ing.interview.store_management.dto.ProductStockDto(p.id, p.stock) from Product p")
+    List<ProductStockDto> findAllStock();
+
+    // Products among the given ones whose stock is kept in ProductStockShard rows
+    @Query("select p.id from Product p where p.id in :ids and p.stockShards > 0")
+    List<Long> findStockShardedIdIn(@Param("ids") Collection<Long> ids);
+
+    List<Product> findByDiscontinuedFalse();
+
+    // Keyset pagination over the searchable fields, used to build the search index without loading whole products
+    @Query("select p.id as id, p.name as name, p.description as description from Product p " +
+            "where p.id > :afterId and p.discontinued = false order by p.id")
+    List<ProductSearchView> findSearchViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset pagination over the product names with the total quantity ordered, archived orders included,
+    // used to build the suggestion trie
+    @Query("select p.id as id, p.name as name, " +
+            "coalesce((select sum(op.quantity) from OrderProduct op where op.product.id = p.id), 0) + " +
+            "coalesce((select sum(l.quantity) from ArchivedOrder a join a.orderLines l where l.productId = p.id), 0) as popularity " +
+            "from Product p where p.id > :afterId and p.discontinued = false order by p.id")
+    List<ProductPopularityView> findPopularityViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("update Product p set p.discontinued = true where p.id in :ids and p.discontinued = false")
+    int discontinueByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Set based, the order lines and stock shards of the products must be deleted first
+    @Modifying
+    @Query("delete from Product p where p.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,10 @@
+package ing.interview.store_management.repository;
+
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+
+    // Adds the deltas to the stock of the products with one UPDATE statement, rows which would go negative are skipped.
+    // The adjusted products already loaded in the persistence context are refreshed
+    int adjustStocks(Map<Long, Integer> stockDeltas);
+}
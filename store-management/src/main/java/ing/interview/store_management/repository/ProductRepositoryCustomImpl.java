@@ -0,0 +1,58 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.Hibernate;
+
+import java.util.Map;
+
+/**
+ * Bulk stock updates which are not expressible as a derived or annotated query
+ */
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Builds "update Product p set p.stock = p.stock + case p.id when :id0 then :delta0 ... end
+     * where p.id in :ids and p.stock + case ... end >= 0", so the whole shipment is a single statement
+     * and the database applies every delta atomically against the current stock.
+     */
+    @Override
+    public int adjustStocks(Map<Long, Integer> stockDeltas) {
+        if (stockDeltas.isEmpty()) {
+            return 0;
+        }
+        StringBuilder caseExpression = new StringBuilder("case p.id");
+        for (int i = 0; i < stockDeltas.size(); i++) {
+            caseExpression.append(" when :id").append(i).append(" then :delta").append(i);
+        }
+        caseExpression.append(" else 0 end");
+
+        Query query = entityManager.createQuery("update Product p set p.stock = p.stock + " + caseExpression
+                + " where p.id in :ids and p.stock + " + caseExpression + " >= 0");
+        int index = 0;
+        for (Map.Entry<Long, Integer> stockDelta : stockDeltas.entrySet()) {
+            query.setParameter("id" + index, stockDelta.getKey());
+            query.setParameter("delta" + index, stockDelta.getValue());
+            index++;
+        }
+        query.setParameter("ids", stockDeltas.keySet());
+        // The refresh below cascades to the loaded order lines of a product (Product.orderProducts is cascade ALL),
+        // pending changes are written first so it reads them back instead of dropping them
+        entityManager.flush();
+        int updated = query.executeUpdate();
+        // The adjusted products loaded by the caller hold the old stock now, they are refreshed and the rest of the
+        // persistence context is left alone. Products not loaded yet are only referenced, never selected
+        for (Long productId : stockDeltas.keySet()) {
+            Product product = entityManager.getReference(Product.class, productId);
+            if (Hibernate.isInitialized(product)) {
+                entityManager.refresh(product);
+            }
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,58 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.dto.ProductStockDto;
+import ing.interview.store_management.dto.StockShardView;
+import ing.interview.store_management.model.ProductStockShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShard, Long> {
+
+    // Takes the quantity from one shard only if that shard holds enough, returns 0 otherwise
+    @Modifying
+    @Query("update ProductStockShard s set s.quantity = s.quantity - :quantity " +
+            "where s.productId = :productId and s.shardIndex = :shardIndex and s.quantity >= :quantity")
+    int takeFromShard(@Param("productId") Long productId, @Param("shardIndex") int shardIndex, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update ProductStockShard s set s.quantity = s.quantity + :quantity " +
+            "where s.productId = :productId and s.shardIndex = :shardIndex")
+    int addToShard(@Param("productId") Long productId, @Param("shardIndex") int shardIndex, @Param("quantity") int quantity);
+
+    @Query("select coalesce(sum(s.quantity), 0) from ProductStockShard s where s.productId = :productId")
+    long sumQuantity(@Param("productId") Long productId);
+
+    @Query("select new ing.interview.store_management.dto.ProductStockDto(s.productId, cast(sum(s.quantity) as Integer)) " +
+            "from ProductStockShard s where s.productId in :productIds group by s.productId")
+    List<ProductStockDto> sumQuantities(@Param("productIds") Collection<Long> productIds);
+
+    @Query("select new ing.interview.store_management.dto.ProductStockDto(s.productId, cast(sum(s.quantity) as Integer)) " +
+            "from ProductStockShard s group by s.productId")
+    List<ProductStockDto> sumAllQuantities();
+
+    @Query("select distinct s.productId from ProductStockShard s")
+    List<Long> findShardedProductIds();
+
+    @Modifying
+    @Query("update ProductStockShard s set s.quantity = :quantity where s.productId = :productId and s.shardIndex = :shardIndex")
+    int setShardQuantity(@Param("productId") Long productId, @Param("shardIndex") int shardIndex, @Param("quantity") int quantity);
+
+    // Locks every shard of the product, used by the slow paths which move quantity between shards.
+    // A projection is returned so no stale managed shard entity can hide the quantities changed by the bulk updates.
+    @Query(value = "select shard_index as shardIndex, quantity as quantity from product_stock_shard " +
+            "where product_id = :productId order by shard_index for update", nativeQuery = true)
+    List<StockShardView> lockShards(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("delete from ProductStockShard s where s.productId = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("delete from ProductStockShard s where s.productId in :productIds")
+    int deleteByProductIdIn(@Param("productIds") Collection<Long> productIds);
+}
@@ -0,0 +1,35 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // Atomically marks an active token as rotated, returns 0 if it was unknown or already rotated
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.tokenHash = :tokenHash and t.revoked = false")
+    int revokeByTokenHash(@Param("tokenHash") String tokenHash);
+
+    // Logout and revocation delete the tokens, so presenting one again is not taken for the reuse of a rotated token
+    @Modifying
+    @Query("delete from RefreshToken t where t.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.username = :username")
+    int deleteAllByUsername(@Param("username") String username);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,28 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    Optional<RevokedToken> findByRevocationKey(String revocationKey);
+
+    @Query("select t.revocationKey from RevokedToken t where t.expiresAt >= :now")
+    List<String> findActiveRevocationKeys(@Param("now") Instant now);
+
+    @Query("select t.revocationKey from RevokedToken t where t.revokedAt >= :since")
+    List<String> findRevocationKeysRevokedSince(@Param("since") Instant since);
+
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -1,11 +1,18 @@
 package ing.interview.store_management.repository;
+import ing.interview.store_management.dto.AuthorityBitView;
 import ing.interview.store_management.model.Role;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Long> {
     Optional<Role> findByName(String name);
+
+    // Name and bit position only, without loading the EAGER associations
+    @Query("select r.name as name, r.bitPosition as bitPosition from Role r where r.bitPosition is not null")
+    List<AuthorityBitView> findAllBitPositions();
 }
@@ -0,0 +1,18 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.model.RollupWatermark;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface RollupWatermarkRepository extends JpaRepository<RollupWatermark, String> {
+
+    // Held until the batch commits, so a rollup runs on one node at a time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from RollupWatermark w where w.name = :name")
+    Optional<RollupWatermark> findByIdForUpdate(@Param("name") String name);
+}
@@ -0,0 +1,28 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.model.SalesChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface SalesChangeRepository extends JpaRepository<SalesChange, Long> {
+
+    @Query("select c from SalesChange c order by c.id")
+    List<SalesChange> findOldest(Pageable pageable);
+
+    @Modifying
+    @Query("delete from SalesChange c where c.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // One change per order with a line of the given products, before those lines are deleted in bulk
+    @Modifying
+    @Query(value = "insert into sales_change (order_id, changed_at) " +
+            "select distinct order_id, :changedAt from order_product where product_id in :productIds", nativeQuery = true)
+    int recordForOrdersWithProducts(@Param("productIds") Collection<Long> productIds, @Param("changedAt") Instant changedAt);
+}
@@ -0,0 +1,30 @@
+package ing.interview.store_management.repository;
+
+import ing.interview.store_management.dto.ReservationExpiryView;
+import ing.interview.store_management.model.ReservationStatus;
+import ing.interview.store_management.model.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // Locks the reservation, so confirm, release and expiry can not both act on it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r where r.id = :id")
+    Optional<StockReservation> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("select distinct q.productId from StockReservation r join r.reservedQuantities q " +
+            "where r.status = :status and q.productId in :productIds")
+    List<Long> findReservedProductIds(@Param("status") ReservationStatus status, @Param("productIds") Collection<Long> productIds);
+
+    // Only what is needed to schedule the expiries, without loading the reserved quantities
+    @Query("select r.id as id, r.expiresAt as expiresAt from StockReservation r where r.status = :status")
+    List<ReservationExpiryView> findExpiriesByStatus(@Param("status") ReservationStatus status);
+}
@@ -1,10 +1,14 @@
 package ing.interview.store_management.repository;
 
 
+import ing.interview.store_management.dto.UserCredentialsView;
 import ing.interview.store_management.model.User;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     // Custom query method to find a user by username
     Optional<User> findByUsername(String username);
-}
\ No newline at end of file
+
+    // Loads only what authentication needs, without pulling the EAGER role/users/permissions graph
+    @Query("select u.username as username, u.password as password, r.name as roleName, p.name as permissionName " +
+            "from User u left join u.role r left join r.permissions p where u.username = :username")
+    List<UserCredentialsView> findCredentialsByUsername(@Param("username") String username);
+}
@@ -0,0 +1,373 @@
+package ing.interview.store_management.search;
+
+import ing.interview.store_management.dto.ProductSearchView;
+import ing.interview.store_management.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the name and description of every product.
+ * Text is normalized (lower case, accents removed) and split on anything which is not a letter or a digit.
+ * Each term maps to the products containing it, with a weight where a name occurrence counts
+ * {@value #NAME_WEIGHT} times a description occurrence.
+ * <p>
+ * A query matches the products containing every query token, either as a whole term or as the prefix of a term,
+ * and ranks them by the sum of weight x inverse document frequency, whole terms ranking above prefix matches.
+ * The index is built from the database when the application is ready and kept current by ProductService.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    static final int NAME_WEIGHT = 3;
+    static final float PREFIX_MATCH_FACTOR = 0.5f;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Term -> product ID -> weight, sorted so the terms starting with a prefix are one sub map
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // Product ID -> its terms, to remove a product without scanning every term
+    private final Map<Long, String[]> documentTerms = new HashMap<>();
+
+    // Products changed through ProductService while the startup build runs, the build must not overwrite them
+    private final Set<Long> changedDuringBuild = new HashSet<>();
+    private boolean building;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${productSearch.buildPageSize:10000}")
+    private int buildPageSize;
+
+    @Value("${productSearch.maxPrefixExpansions:64}")
+    private int maxPrefixExpansions;
+
+    /**
+     * Splits a text into normalized terms.
+     *
+     * @param text the text, may be null.
+     * @return the terms in order of appearance, duplicates included.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATORS.split(normalized)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Indexes a product, replacing what was indexed for it before.
+     *
+     * @param productId   the ID of the product.
+     * @param name        the name of the product.
+     * @param description the description of the product.
+     */
+    public void index(Long productId, String name, String description) {
+        Map<String, Integer> termWeights = termWeights(name, description);
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                changedDuringBuild.add(productId);
+            }
+            removeDocument(productId);
+            addDocument(productId, termWeights);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param productId the ID of the product.
+     */
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                changedDuringBuild.add(productId);
+            }
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the best matching products.
+     *
+     * @param query the text typed by the user, every token must match a term or the prefix of a term.
+     * @param limit the maximum number of results.
+     * @return the IDs of the matching products, best match first.
+     */
+    public List<Long> search(String query, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(query));
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documentTerms.size();
+            List<TokenMatch> matches = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                TokenMatch match = match(token, documentCount);
+                if (match.postings.isEmpty()) {
+                    // Every token has to match
+                    return List.of();
+                }
+                matches.add(match);
+            }
+            // Drive the intersection from the most selective token, the others are only probed
+            matches.sort(Comparator.comparingLong(TokenMatch::estimatedSize));
+            return topMatches(matches, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed products.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the index from the database. Products are read in pages of {@code productSearch.buildPageSize},
+     * and the text of each page is tokenized in parallel before being added under the write lock,
+     * so searches keep being served (on a partial index) during the build.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            building = true;
+            postings.clear();
+            documentTerms.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            Long afterId = 0L;
+            List<ProductSearchView> page;
+            do {
+                page = productRepository.findSearchViewsAfter(afterId, PageRequest.ofSize(buildPageSize));
+                List<IndexedDocument> documents = page.parallelStream()
+                        .map(view -> new IndexedDocument(view.getId(), termWeights(view.getName(), view.getDescription())))
+                        .toList();
+                addBuiltDocuments(documents);
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == buildPageSize);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                building = false;
+                changedDuringBuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        logger.info("Indexed {} products for search in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void addBuiltDocuments(List<IndexedDocument> documents) {
+        lock.writeLock().lock();
+        try {
+            for (IndexedDocument document : documents) {
+                if (!changedDuringBuild.contains(document.productId())) {
+                    addDocument(document.productId(), document.termWeights());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Map<String, Integer> termWeights(String name, String description) {
+        Map<String, Integer> termWeights = new HashMap<>();
+        for (String term : tokenize(name)) {
+            termWeights.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(description)) {
+            termWeights.merge(term, 1, Integer::sum);
+        }
+        return termWeights;
+    }
+
+    // Callers hold the write lock
+    private void addDocument(Long productId, Map<String, Integer> termWeights) {
+        if (termWeights.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Integer> termWeight : termWeights.entrySet()) {
+            postings.computeIfAbsent(termWeight.getKey(), term -> new HashMap<>()).put(productId, termWeight.getValue());
+        }
+        documentTerms.put(productId, termWeights.keySet().toArray(new String[0]));
+    }
+
+    // Callers hold the write lock
+    private void removeDocument(Long productId) {
+        String[] terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the postings of the terms a token matches: the term itself, and up to
+     * {@code productSearch.maxPrefixExpansions} longer terms starting with it.
+     */
+    private TokenMatch match(String token, int documentCount) {
+        TokenMatch match = new TokenMatch();
+        Map<Long, Integer> exact = postings.get(token);
+        if (exact != null) {
+            match.add(exact, idf(exact.size(), documentCount));
+        }
+        NavigableMap<String, Map<Long, Integer>> longerTerms =
+                postings.subMap(token, false, token + Character.MAX_VALUE, false);
+        int expansions = 0;
+        for (Map<Long, Integer> termPostings : longerTerms.values()) {
+            if (expansions++ == maxPrefixExpansions) {
+                break;
+            }
+            match.add(termPostings, idf(termPostings.size(), documentCount) * PREFIX_MATCH_FACTOR);
+        }
+        return match;
+    }
+
+    private List<Long> topMatches(List<TokenMatch> matches, int limit) {
+        TokenMatch driver = matches.get(0);
+        List<TokenMatch> probes = matches.subList(1, matches.size());
+        // Min-heap on the score, holding the best results seen so far
+        PriorityQueue<ScoredProduct> best = new PriorityQueue<>(limit + 1, ScoredProduct.ORDER);
+        Set<Long> seen = new HashSet<>();
+
+        for (Map<Long, Integer> driverPostings : driver.postings) {
+            for (Long productId : driverPostings.keySet()) {
+                if (!seen.add(productId)) {
+                    continue;
+                }
+                float score = driver.score(productId);
+                for (TokenMatch probe : probes) {
+                    float probeScore = probe.score(productId);
+                    if (probeScore == 0) {
+                        score = 0;
+                        break;
+                    }
+                    score += probeScore;
+                }
+                if (score > 0) {
+                    best.add(new ScoredProduct(productId, score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+
+        List<Long> productIds = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            productIds.add(best.poll().productId());
+        }
+        Collections.reverse(productIds);
+        return productIds;
+    }
+
+    // BM25 inverse document frequency, rare terms weigh more
+    private static float idf(int documentFrequency, int documentCount) {
+        return (float) Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * The postings of every term one query token matches, with the factor applied to their weights.
+     */
+    private static final class TokenMatch {
+        private final List<Map<Long, Integer>> postings = new ArrayList<>();
+        private final List<Float> factors = new ArrayList<>();
+        private long estimatedSize;
+
+        void add(Map<Long, Integer> termPostings, float factor) {
+            postings.add(termPostings);
+            factors.add(factor);
+            estimatedSize += termPostings.size();
+        }
+
+        long estimatedSize() {
+            return estimatedSize;
+        }
+
+        // Best scoring term of this token for the product, 0 if the product does not match the token
+        float score(Long productId) {
+            float score = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                Integer weight = postings.get(i).get(productId);
+                if (weight != null) {
+                    score = Math.max(score, weight * factors.get(i));
+                }
+            }
+            return score;
+        }
+    }
+
+    private record IndexedDocument(Long productId, Map<String, Integer> termWeights) {
+    }
+
+    private record ScoredProduct(Long productId, float score) {
+        // Lower score first, on ties the higher ID first so lower IDs are kept
+        static final Comparator<ScoredProduct> ORDER = Comparator.comparingDouble(ScoredProduct::score)
+                .thenComparing(ScoredProduct::productId, Comparator.reverseOrder());
+    }
+}
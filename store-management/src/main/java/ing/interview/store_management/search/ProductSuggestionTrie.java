@@ -0,0 +1,457 @@
+package ing.interview.store_management.search;
+
+import ing.interview.store_management.dto.ProductPopularityView;
+import ing.interview.store_management.dto.ProductSuggestionDto;
+import ing.interview.store_management.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Type-ahead suggestions over the product names, ranked by popularity (total quantity ordered).
+ * <p>
+ * Names are folded (lower case, accents removed, separators collapsed to one space) and stored in a radix trie,
+ * once from the start of every word, so "mouse" also suggests "Wireless Mouse". Every node holds the best
+ * {@code productSuggest.topK} products of its subtree, so a lookup is a walk down the edges followed by returning
+ * that precomputed list: it takes no lock and allocates nothing.
+ * <p>
+ * The trie is immutable: ProductService writes copy the nodes on the path of the changed keys and publish a new root,
+ * and the whole trie is rebuilt from the database every {@code productSuggest.refreshMillis} to pick up popularity changes.
+ */
+@Component
+public class ProductSuggestionTrie {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestionTrie.class);
+
+    static final int MAX_KEY_LENGTH = 64;
+    private static final char SEPARATOR = ' ';
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final ProductSuggestionDto[] NO_SUGGESTIONS = new ProductSuggestionDto[0];
+
+    // Folded form of the first 0x250 chars (Latin scripts), computed once so folding a char is an array read
+    private static final char[] FOLDED = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLDED.length; c++) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = Character.toLowerCase(decomposed.charAt(0));
+            FOLDED[c] = Character.isLetterOrDigit(base) ? base : SEPARATOR;
+        }
+    }
+
+    private final Comparator<ProductSuggestionDto> ranking = Comparator
+            .comparing(ProductSuggestionDto::getPopularity, Comparator.reverseOrder())
+            .thenComparing(ProductSuggestionDto::getName)
+            .thenComparing(ProductSuggestionDto::getProductId);
+
+    // Current state of every product, the source of truth for the writes applied while a rebuild runs
+    private final Map<Long, ProductSuggestionDto> suggestions = new HashMap<>();
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+
+    private volatile Node root = new Node("", NO_CHARS, NO_NODES, NO_SUGGESTIONS, List.of());
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${productSuggest.topK:10}")
+    private int topK = 10;
+
+    @Value("${productSuggest.buildPageSize:10000}")
+    private int buildPageSize = 10000;
+
+    /**
+     * Returns the most popular products whose name, or one of the words of their name, starts with the prefix.
+     *
+     * @param prefix what was typed so far, case, accents and punctuation are ignored.
+     * @return up to {@code productSuggest.topK} suggestions, most popular first. The list is shared and immutable.
+     */
+    public List<ProductSuggestionDto> suggest(CharSequence prefix) {
+        Node node = root;
+        String label = node.label;
+        int labelPosition = 0;
+        boolean started = false;
+        boolean separatorPending = false;
+
+        for (int i = 0; i <= prefix.length(); i++) {
+            char c;
+            if (i == prefix.length()) {
+                // A trailing separator means the next word has started
+                if (!separatorPending) {
+                    break;
+                }
+                c = SEPARATOR;
+                separatorPending = false;
+            } else {
+                c = fold(prefix.charAt(i));
+                if (c == SEPARATOR) {
+                    separatorPending = started;
+                    continue;
+                }
+            }
+
+            // Step over a collapsed separator first, then over the char itself
+            for (int step = separatorPending ? 0 : 1; step < 2; step++) {
+                char next = step == 0 ? SEPARATOR : c;
+                if (labelPosition == label.length()) {
+                    int child = Arrays.binarySearch(node.childChars, next);
+                    if (child < 0) {
+                        return List.of();
+                    }
+                    node = node.children[child];
+                    label = node.label;
+                    labelPosition = 0;
+                }
+                if (label.charAt(labelPosition) != next) {
+                    return List.of();
+                }
+                labelPosition++;
+            }
+            separatorPending = false;
+            started = true;
+        }
+        return node.top;
+    }
+
+    /**
+     * Adds or renames a product. The popularity it had is kept.
+     *
+     * @param productId the ID of the product.
+     * @param name      the name of the product.
+     */
+    public synchronized void put(Long productId, String name) {
+        ProductSuggestionDto previous = suggestions.get(productId);
+        if (previous != null && Objects.equals(previous.getName(), name)) {
+            return;
+        }
+        ProductSuggestionDto suggestion = new ProductSuggestionDto(productId, name, previous != null ? previous.getPopularity() : 0L);
+        suggestions.put(productId, suggestion);
+        if (rebuilding) {
+            changedDuringRebuild.add(productId);
+        }
+        root = replace(root, previous, suggestion);
+    }
+
+    /**
+     * Removes a product.
+     *
+     * @param productId the ID of the product.
+     */
+    public synchronized void remove(Long productId) {
+        ProductSuggestionDto previous = suggestions.remove(productId);
+        if (rebuilding) {
+            changedDuringRebuild.add(productId);
+        }
+        if (previous != null) {
+            root = replace(root, previous, null);
+        }
+    }
+
+    /**
+     * Rebuilds the trie from the database with the current popularity of every product.
+     * The new trie is built bottom-up from the sorted keys while lookups keep using the current one,
+     * the writes made in the meantime are applied to it before it is published.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${productSuggest.refreshMillis:600000}", fixedDelayString = "${productSuggest.refreshMillis:600000}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            rebuilding = true;
+        }
+
+        Map<Long, ProductSuggestionDto> loaded = new HashMap<>();
+        List<KeyedSuggestion> keys = new ArrayList<>();
+        try {
+            Long afterId = 0L;
+            List<ProductPopularityView> page;
+            do {
+                page = productRepository.findPopularityViewsAfter(afterId, PageRequest.ofSize(buildPageSize));
+                for (ProductPopularityView view : page) {
+                    ProductSuggestionDto suggestion = new ProductSuggestionDto(view.getId(), view.getName(), view.getPopularity());
+                    loaded.put(view.getId(), suggestion);
+                    for (String key : keys(view.getName())) {
+                        keys.add(new KeyedSuggestion(key, suggestion));
+                    }
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == buildPageSize);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            }
+            throw e;
+        }
+
+        keys.sort(Comparator.comparing(KeyedSuggestion::key));
+        Node built = new Node("", NO_CHARS, NO_NODES, NO_SUGGESTIONS, List.of());
+        built = buildChildren(built, keys, 0, keys.size(), 0);
+
+        synchronized (this) {
+            for (Long productId : changedDuringRebuild) {
+                ProductSuggestionDto current = suggestions.get(productId);
+                ProductSuggestionDto stale = loaded.remove(productId);
+                if (current != null) {
+                    // Keep the popularity just loaded, with the name written meanwhile
+                    current = new ProductSuggestionDto(productId, current.getName(),
+                            stale != null ? stale.getPopularity() : current.getPopularity());
+                    loaded.put(productId, current);
+                }
+                built = replace(built, stale, current);
+            }
+            suggestions.clear();
+            suggestions.putAll(loaded);
+            changedDuringRebuild.clear();
+            rebuilding = false;
+            root = built;
+        }
+        logger.info("Built the product suggestion trie with {} keys in {} ms", keys.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Folds a char the same way names are folded: lower case, without accent, and any char which is not
+     * a letter or a digit becomes the separator.
+     */
+    static char fold(char c) {
+        if (c < FOLDED.length) {
+            return FOLDED[c];
+        }
+        return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : SEPARATOR;
+    }
+
+    /**
+     * Returns the keys of a name: the folded name starting at every word, each cut at {@value #MAX_KEY_LENGTH} chars.
+     */
+    static List<String> keys(String name) {
+        if (name == null) {
+            return List.of();
+        }
+        StringBuilder folded = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = fold(name.charAt(i));
+            if (c != SEPARATOR || (!folded.isEmpty() && folded.charAt(folded.length() - 1) != SEPARATOR)) {
+                folded.append(c);
+            }
+        }
+        if (!folded.isEmpty() && folded.charAt(folded.length() - 1) == SEPARATOR) {
+            folded.setLength(folded.length() - 1);
+        }
+
+        List<String> keys = new ArrayList<>();
+        for (int start = 0; start < folded.length(); start++) {
+            if (start == 0 || folded.charAt(start - 1) == SEPARATOR) {
+                String key = folded.substring(start, Math.min(folded.length(), start + MAX_KEY_LENGTH));
+                if (!keys.contains(key)) {
+                    keys.add(key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    // Removes the keys of the previous suggestion and inserts those of the current one, either may be null
+    private Node replace(Node node, ProductSuggestionDto previous, ProductSuggestionDto current) {
+        if (previous != null) {
+            for (String key : keys(previous.getName())) {
+                node = remove(node, key, 0, previous.getProductId());
+            }
+        }
+        if (current != null) {
+            for (String key : keys(current.getName())) {
+                node = insert(node, key, 0, current);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Inserts below a node whose label is fully matched, key[0, position) being the path to it.
+     * Only the nodes on the path are copied.
+     */
+    private Node insert(Node node, String key, int position, ProductSuggestionDto suggestion) {
+        if (position == key.length()) {
+            ProductSuggestionDto[] terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+            terminals[terminals.length - 1] = suggestion;
+            return node(node.label, node.childChars, node.children, terminals);
+        }
+
+        int index = Arrays.binarySearch(node.childChars, key.charAt(position));
+        if (index < 0) {
+            Node leaf = node(key.substring(position), NO_CHARS, NO_NODES, new ProductSuggestionDto[]{suggestion});
+            return withChildInserted(node, -index - 1, leaf);
+        }
+
+        Node child = node.children[index];
+        int common = commonPrefixLength(child.label, key, position);
+        if (common < child.label.length()) {
+            // Split the edge, the existing child moves below a new node holding the common part
+            Node lower = node(child.label.substring(common), child.childChars, child.children, child.terminals);
+            child = node(child.label.substring(0, common), new char[]{lower.label.charAt(0)}, new Node[]{lower}, NO_SUGGESTIONS);
+        }
+        return withChildReplaced(node, index, insert(child, key, position + common, suggestion));
+    }
+
+    /**
+     * Removes a product from below a node whose label is fully matched, merging the nodes left with a single child.
+     */
+    private Node remove(Node node, String key, int position, Long productId) {
+        if (position == key.length()) {
+            ProductSuggestionDto[] terminals = Arrays.stream(node.terminals)
+                    .filter(terminal -> !terminal.getProductId().equals(productId))
+                    .toArray(ProductSuggestionDto[]::new);
+            return node(node.label, node.childChars, node.children, terminals);
+        }
+
+        int index = Arrays.binarySearch(node.childChars, key.charAt(position));
+        if (index < 0) {
+            return node;
+        }
+        Node child = node.children[index];
+        if (commonPrefixLength(child.label, key, position) < child.label.length()) {
+            return node;
+        }
+
+        Node updated = remove(child, key, position + child.label.length(), productId);
+        if (updated.terminals.length == 0 && updated.children.length == 0) {
+            return withChildRemoved(node, index);
+        }
+        if (updated.terminals.length == 0 && updated.children.length == 1) {
+            Node grandChild = updated.children[0];
+            updated = node(updated.label + grandChild.label, grandChild.childChars, grandChild.children, grandChild.terminals);
+        }
+        return withChildReplaced(node, index, updated);
+    }
+
+    /**
+     * Builds the children of a node from keys[from, to), sorted, which all share their first depth chars.
+     */
+    private Node buildChildren(Node node, List<KeyedSuggestion> keys, int from, int to, int depth) {
+        List<ProductSuggestionDto> terminals = new ArrayList<>();
+        while (from < to && keys.get(from).key().length() == depth) {
+            terminals.add(keys.get(from++).suggestion());
+        }
+
+        List<Node> children = new ArrayList<>();
+        while (from < to) {
+            char c = keys.get(from).key().charAt(depth);
+            int groupEnd = from + 1;
+            while (groupEnd < to && keys.get(groupEnd).key().charAt(depth) == c) {
+                groupEnd++;
+            }
+            children.add(buildNode(keys, from, groupEnd, depth));
+            from = groupEnd;
+        }
+
+        char[] childChars = new char[children.size()];
+        for (int i = 0; i < childChars.length; i++) {
+            childChars[i] = children.get(i).label.charAt(0);
+        }
+        return node(node.label, childChars, children.toArray(NO_NODES), terminals.toArray(NO_SUGGESTIONS));
+    }
+
+    /**
+     * Builds the node for keys[from, to) which share their first depth + 1 chars, extending its label
+     * while all the keys go on with the same char.
+     */
+    private Node buildNode(List<KeyedSuggestion> keys, int from, int to, int depth) {
+        String first = keys.get(from).key();
+        String last = keys.get(to - 1).key();
+        int end = depth + 1;
+        // Sorted keys: if the first and the last share a char, all of them do
+        while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) {
+            end++;
+        }
+        Node node = new Node(first.substring(depth, end), NO_CHARS, NO_NODES, NO_SUGGESTIONS, List.of());
+        return buildChildren(node, keys, from, to, end);
+    }
+
+    private Node withChildInserted(Node node, int index, Node child) {
+        char[] childChars = new char[node.childChars.length + 1];
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.childChars, 0, childChars, 0, index);
+        System.arraycopy(node.children, 0, children, 0, index);
+        childChars[index] = child.label.charAt(0);
+        children[index] = child;
+        System.arraycopy(node.childChars, index, childChars, index + 1, node.childChars.length - index);
+        System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+        return node(node.label, childChars, children, node.terminals);
+    }
+
+    private Node withChildReplaced(Node node, int index, Node child) {
+        Node[] children = node.children.clone();
+        children[index] = child;
+        return node(node.label, node.childChars, children, node.terminals);
+    }
+
+    private Node withChildRemoved(Node node, int index) {
+        char[] childChars = new char[node.childChars.length - 1];
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.childChars, 0, childChars, 0, index);
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.childChars, index + 1, childChars, index, childChars.length - index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        return node(node.label, childChars, children, node.terminals);
+    }
+
+    private static int commonPrefixLength(String label, String key, int position) {
+        int length = Math.min(label.length(), key.length() - position);
+        int common = 0;
+        while (common < length && label.charAt(common) == key.charAt(position + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    // Creates a node and computes its top suggestions from its own products and the top of its children
+    private Node node(String label, char[] childChars, Node[] children, ProductSuggestionDto[] terminals) {
+        List<ProductSuggestionDto> candidates = new ArrayList<>(Arrays.asList(terminals));
+        for (Node child : children) {
+            candidates.addAll(child.top);
+        }
+        candidates.sort(ranking);
+        List<ProductSuggestionDto> top = new ArrayList<>(Math.min(topK, candidates.size()));
+        Set<Long> productIds = new HashSet<>();
+        for (ProductSuggestionDto candidate : candidates) {
+            if (top.size() == topK) {
+                break;
+            }
+            // A product reached through two of its words is suggested once
+            if (productIds.add(candidate.getProductId())) {
+                top.add(candidate);
+            }
+        }
+        return new Node(label, childChars, children, terminals, List.copyOf(top));
+    }
+
+    /**
+     * A trie node. The label is the edge from its parent, the first char of every child label is repeated
+     * in childChars, sorted, so a child is found with a binary search over a char array.
+     */
+    private record Node(String label, char[] childChars, Node[] children, ProductSuggestionDto[] terminals,
+                        List<ProductSuggestionDto> top) {
+    }
+
+    private record KeyedSuggestion(String key, ProductSuggestionDto suggestion) {
+    }
+}
@@ -0,0 +1,49 @@
+package ing.interview.store_management.security;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener registered on User, Role and Permission which keeps the auth caches in sync:
+ * the {@link PrincipalCache} and the bit positions of the {@link AuthorityBitmask}.
+ * These entities change rarely and a change can affect many users (or rename one), so the caches are cleared.
+ * The callbacks run on the flush, so inside a transaction the caches are cleared again after the commit,
+ * dropping what a login cached from the data as it was before the commit.
+ */
+@Component
+public class AuthDataChangeListener {
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    // Lazy because the bitmask needs repositories, which need the EntityManagerFactory this listener is part of
+    @Lazy
+    @Autowired
+    private AuthorityBitmask authorityBitmask;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        clearCaches();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearCaches();
+                }
+            });
+        }
+    }
+
+    private void clearCaches() {
+        principalCache.clear();
+        authorityBitmask.invalidate();
+    }
+}
@@ -0,0 +1,181 @@
+package ing.interview.store_management.security;
+
+import ing.interview.store_management.dto.AuthorityBitView;
+import ing.interview.store_management.repository.PermissionRepository;
+import ing.interview.store_management.repository.RoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The AuthorityBitmask encodes the authorities of a user into two longs using the stable bit positions stored on
+ * {@link ing.interview.store_management.model.Permission} and {@link ing.interview.store_management.model.Role},
+ * and decodes them back into cached, immutable {@link AuthoritySet}s. Permission checks against a token are a single bit test.
+ */
+@Component("authorityBitmask")
+public class AuthorityBitmask {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final int MAX_BITS = Long.SIZE;
+
+    @Autowired
+    private PermissionRepository permissionRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    // Loaded on first use and dropped, together with the sets decoded with it, when roles or permissions change
+    private volatile BitPositions bitPositions;
+
+    /**
+     * Encodes the authorities of a user into a permission mask and a role mask
+     *
+     * @param authorities The authorities, permission names and "ROLE_" prefixed role names
+     * @return The masks, as {permissionMask, roleMask}
+     * @throws IllegalStateException If an authority has no bit position assigned
+     */
+    public long[] encode(Collection<? extends GrantedAuthority> authorities) {
+        BitPositions positions = bitPositions();
+        long permissionMask = 0;
+        long roleMask = 0;
+        for (GrantedAuthority authority : authorities) {
+            String name = authority.getAuthority();
+            Integer bit = name.startsWith(ROLE_PREFIX)
+                    ? positions.roleBits().get(name.substring(ROLE_PREFIX.length()))
+                    : positions.permissionBits().get(name);
+            if (bit == null) {
+                throw new IllegalStateException("No bit position assigned for authority: " + name);
+            }
+            if (name.startsWith(ROLE_PREFIX)) {
+                roleMask |= 1L << bit;
+            } else {
+                permissionMask |= 1L << bit;
+            }
+        }
+        return new long[]{permissionMask, roleMask};
+    }
+
+    /**
+     * Decodes the masks of a token, the result is cached and shared between requests
+     *
+     * @param permissionMask The permission mask
+     * @param roleMask       The role mask
+     * @return The immutable authority set
+     */
+    public AuthoritySet decode(long permissionMask, long roleMask) {
+        BitPositions positions = bitPositions();
+        return positions.decodedSets().computeIfAbsent(permissionMask, mask -> new ConcurrentHashMap<>())
+                .computeIfAbsent(roleMask, mask -> buildAuthoritySet(positions, permissionMask, roleMask));
+    }
+
+    /**
+     * Checks a role or permission has a bit position the masks can hold, run before it is saved so an authority
+     * without one is rejected when it is created instead of failing every login of its users
+     *
+     * @param name        The role or permission name
+     * @param bitPosition The bit position
+     * @throws IllegalArgumentException If the bit position is missing or out of range
+     */
+    public static void checkBitPosition(String name, Integer bitPosition) {
+        if (bitPosition == null || bitPosition < 0 || bitPosition >= MAX_BITS) {
+            throw new IllegalArgumentException("Authority " + name + " needs a bit position from 0 to " + (MAX_BITS - 1)
+                    + ", got: " + bitPosition);
+        }
+    }
+
+    /**
+     * Checks if the authenticated user has a permission. For JWT authentications this is one bit test,
+     * intended for method security: {@code @PreAuthorize("@authorityBitmask.hasPermission(authentication, 'WRITE')")}
+     *
+     * @param authentication The current authentication
+     * @param permission     The permission name
+     * @return true if the permission is granted
+     */
+    public boolean hasPermission(Authentication authentication, String permission) {
+        if (authentication == null) {
+            return false;
+        }
+        if (authentication instanceof JwtAuthenticationToken jwtAuthentication) {
+            Integer bit = bitPositions().permissionBits().get(permission);
+            return bit != null && (jwtAuthentication.getAuthoritySet().permissionMask() & (1L << bit)) != 0;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (permission.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the cached bit positions and decoded sets, they are reloaded on next use.
+     * Synchronized with the loading, so positions being loaded while it runs are dropped as well.
+     */
+    public synchronized void invalidate() {
+        bitPositions = null;
+    }
+
+    private static AuthoritySet buildAuthoritySet(BitPositions positions, long permissionMask, long roleMask) {
+        List<GrantedAuthority> authorities = new ArrayList<>(Long.bitCount(permissionMask) + Long.bitCount(roleMask));
+        for (int bit = 0; bit < MAX_BITS; bit++) {
+            if ((permissionMask & (1L << bit)) != 0 && positions.permissionNames()[bit] != null) {
+                authorities.add(new SimpleGrantedAuthority(positions.permissionNames()[bit]));
+            }
+        }
+        for (int bit = 0; bit < MAX_BITS; bit++) {
+            if ((roleMask & (1L << bit)) != 0 && positions.roleNames()[bit] != null) {
+                authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX + positions.roleNames()[bit]));
+            }
+        }
+        return new AuthoritySet(permissionMask, roleMask, List.copyOf(authorities));
+    }
+
+    private BitPositions bitPositions() {
+        BitPositions positions = bitPositions;
+        return positions != null ? positions : loadBitPositions();
+    }
+
+    private synchronized BitPositions loadBitPositions() {
+        BitPositions positions = bitPositions;
+        if (positions == null) {
+            positions = new BitPositions(new HashMap<>(), new String[MAX_BITS], new HashMap<>(), new String[MAX_BITS],
+                    new ConcurrentHashMap<>());
+            load(permissionRepository.findAllBitPositions(), positions.permissionBits(), positions.permissionNames());
+            load(roleRepository.findAllBitPositions(), positions.roleBits(), positions.roleNames());
+            bitPositions = positions;
+        }
+        return positions;
+    }
+
+    private void load(List<AuthorityBitView> views, Map<String, Integer> bits, String[] names) {
+        for (AuthorityBitView view : views) {
+            int bit = view.getBitPosition();
+            if (bit < 0 || bit >= MAX_BITS) {
+                throw new IllegalStateException("Bit position out of range for authority: " + view.getName());
+            }
+            bits.put(view.getName(), bit);
+            names[bit] = view.getName();
+        }
+    }
+
+    // Only combinations present in issued tokens end up in decodedSets, so it stays as small as the number of roles
+    private record BitPositions(Map<String, Integer> permissionBits, String[] permissionNames,
+                                Map<String, Integer> roleBits, String[] roleNames,
+                                Map<Long, Map<Long, AuthoritySet>> decodedSets) {
+    }
+
+    /**
+     * The decoded authorities of a token together with the masks they came from
+     */
+    public record AuthoritySet(long permissionMask, long roleMask, List<GrantedAuthority> authorities) {
+    }
+}
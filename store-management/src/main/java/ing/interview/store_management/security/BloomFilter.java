@@ -0,0 +1,72 @@
+package ing.interview.store_management.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size Bloom filter over strings. {@link #mightContain} never returns false for an added key,
+ * and returns true for a key that was never added with roughly the configured false positive probability.
+ * Keys cannot be removed, the owner rebuilds a new filter to drop them. Adds and lookups are lock-free.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions    The number of keys the filter is sized for
+     * @param falsePositiveRate     The false positive probability at that many keys, for example 0.01
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int insertions = Math.max(1, expectedInsertions);
+        long optimalBits = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(Long.SIZE, optimalBits));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / insertions * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            int index = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(index);
+            } while ((current & mask) == 0 && !bits.compareAndSet(index, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars of the key, followed by a murmur3 finalizer to spread the bits
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
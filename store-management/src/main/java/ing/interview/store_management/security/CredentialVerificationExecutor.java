@@ -0,0 +1,84 @@
+package ing.interview.store_management.security;
+
+import ing.interview.store_management.web.WorkloadClass;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The CredentialVerificationExecutor runs the password checks of /authenticate on a dedicated, fixed size pool
+ * with a bounded queue, so a login storm cannot take every request thread with BCrypt work.
+ * When the queue is full the submission is rejected immediately and the caller answers with 503.
+ * The checks run as AUTHENTICATION work, the user lookups take their connections from the pools of that class.
+ * Publishes the metrics "auth.verification.queue.wait", "auth.verification.time" and "auth.verification.queue.size".
+ */
+@Component
+public class CredentialVerificationExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Timer queueWaitTimer;
+    private final Timer verificationTimer;
+
+    public CredentialVerificationExecutor(@Value("${auth.verification.threads:0}") int threads,
+                                          @Value("${auth.verification.queueCapacity:64}") int queueCapacity,
+                                          MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "credential-verifier-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.queueWaitTimer = Timer.builder("auth.verification.queue.wait")
+                .description("Time a credential check waited for a verifier thread")
+                .register(meterRegistry);
+        this.verificationTimer = Timer.builder("auth.verification.time")
+                .description("Time spent verifying credentials, dominated by the password hash")
+                .register(meterRegistry);
+        Gauge.builder("auth.verification.queue.size", executor, pool -> pool.getQueue().size())
+                .description("Credential checks waiting for a verifier thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules a credential check on the verifier pool
+     *
+     * @param verification The check to run, usually a call to the AuthenticationManager
+     * @return A future completed with the result of the check
+     * @throws RejectedExecutionException If the pool and its queue are saturated
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> verification) throws RejectedExecutionException {
+        long submittedAt = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            long startedAt = System.nanoTime();
+            queueWaitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+            WorkloadClass.AUTHENTICATION.enter();
+            try {
+                return verification.get();
+            } finally {
+                WorkloadClass.leave();
+                verificationTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        }, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
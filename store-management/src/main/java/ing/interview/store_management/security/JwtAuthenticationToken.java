@@ -0,0 +1,44 @@
+package ing.interview.store_management.security;
+
+import ing.interview.store_management.security.AuthorityBitmask.AuthoritySet;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.Collection;
+
+/**
+ * Authentication built from a valid JWT. It exposes the shared, cached {@link AuthoritySet} directly
+ * instead of copying the authorities for every request like the generic tokens do.
+ */
+public class JwtAuthenticationToken extends AbstractAuthenticationToken {
+
+    private final String username;
+    private final AuthoritySet authoritySet;
+
+    public JwtAuthenticationToken(String username, AuthoritySet authoritySet) {
+        super(AuthorityUtils.NO_AUTHORITIES);
+        this.username = username;
+        this.authoritySet = authoritySet;
+        setAuthenticated(true);
+    }
+
+    public AuthoritySet getAuthoritySet() {
+        return authoritySet;
+    }
+
+    @Override
+    public Collection<GrantedAuthority> getAuthorities() {
+        return authoritySet.authorities();
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return username;
+    }
+}
@@ -1,82 +1,98 @@
 package ing.interview.store_management.security;
 
-import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
-import jakarta.servlet.FilterConfig;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.ServletRequest;
-import jakarta.servlet.ServletResponse;
+import ing.interview.store_management.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
 
-import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.logging.Logger;
+import java.nio.charset.StandardCharsets;
 
 /**
  * The JwtRequestFilter will intercept each request, check if the JWT is valid, if it is then auth the user
+ * It only runs inside the Spring Security filter chain (its servlet container registration is disabled in SecurityConfig),
+ * once per request, and parses the token a single time.
  */
 @Component
-@WebFilter("/*")
-public class JwtRequestFilter implements Filter {
+public class JwtRequestFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    // Error bodies are encoded once, writing them does not allocate
+    private static final byte[] INVALID_TOKEN = "Invalid or expired token".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INVALID_TOKEN_FORMAT = "Invalid token format".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MISSING_HEADER = "Authorization header missing or incorrect format".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOO_MANY_REQUESTS = "Too many requests".getBytes(StandardCharsets.UTF_8);
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
 
     @Autowired
     private JwtUtil jwtUtil;
 
-    private static final Logger logger = Logger.getLogger(JwtRequestFilter.class.getName());
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RateLimiter rateLimiter;
 
+    /**
+     * Skip the /authenticate endpoints as they are not protected by JWT and /api/public should not be restricted at all,
+     * using the same matcher as the permitAll rule in SecurityConfig
+     */
     @Override
-    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return SecurityConfig.PUBLIC_ENDPOINTS.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws IOException, ServletException {
 
-        HttpServletRequest httpRequest = (HttpServletRequest) request;
-        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            // Token is missing or incorrectly formatted
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST, MISSING_HEADER);
+            return;
+        }
+
+        Claims claims;
+        try {
+            // Verifies signature and expiration in a single parse
+            claims = jwtUtil.parseClaims(header.substring(BEARER_PREFIX.length()));
+        } catch (JwtException | IllegalArgumentException e) {
+            // Catch parsing, signature and expiration errors
+            writeError(response, HttpServletResponse.SC_UNAUTHORIZED, INVALID_TOKEN_FORMAT);
+            return;
+        }
 
-        // Skip the /authenticate endpoint as it is not protected by JWT and /api/public should not be restricted at all
-        if (httpRequest.getRequestURI().equals("/authenticate") || httpRequest.getRequestURI().startsWith("/api/public")) {
-            // Continue with the filter chain without applying JWT validation
-            chain.doFilter(request, response);
+        String username = claims.getSubject();
+        if (username == null
+                || tokenRevocationService.isRevoked(claims.getId(), username, claims.getIssuedAt().toInstant())) {
+            // Token is invalid or revoked
+            writeError(response, HttpServletResponse.SC_UNAUTHORIZED, INVALID_TOKEN);
             return;
         }
 
-        String token = httpRequest.getHeader("Authorization");
-        String username;
-
-        if (token != null && token.startsWith("Bearer ")) {
-            token = token.substring(7);
-
-            try {
-                // Extract username and validate the token
-                username = jwtUtil.extractUsername(token);
-                if (jwtUtil.isTokenValid(token, username)) {
-                    // Extract user roles (if applicable) and set authentication
-                    List<GrantedAuthority> authorities = jwtUtil.getAuthorities(token);
-                    Authentication authentication = new UsernamePasswordAuthenticationToken(username, null, authorities);
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                } else {
-                    // Token is invalid or expired
-                    httpResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                    httpResponse.getWriter().write("Invalid or expired token");
-                    return;
-                }
-            } catch (Exception e) {
-                // Catch parsing or any other exceptions
-                httpResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                httpResponse.getWriter().write("Invalid token format");
-                return;
-            }
-        } else {
-            // Token is missing or incorrectly formatted
-            httpResponse.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            httpResponse.getWriter().write("Authorization header missing or incorrect format");
+        // Extract user roles and permissions and set authentication
+        Authentication authentication = new JwtAuthenticationToken(username, jwtUtil.getAuthorities(claims));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        // Rate limited endpoints take a token from the bucket of the user
+        long waitNanos = rateLimiter.tryAcquire(request, username, authentication.getAuthorities());
+        if (waitNanos > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.ceilDiv(waitNanos, NANOS_PER_SECOND)));
+            writeError(response, HttpStatus.TOO_MANY_REQUESTS.value(), TOO_MANY_REQUESTS);
             return;
         }
 
@@ -84,17 +100,10 @@ public class JwtRequestFilter implements Filter {
         chain.doFilter(request, response);
     }
 
-    @Override
-    public void init(FilterConfig filterConfig) {
-        logger.info("JWT Request Filter Initialized");
-        String jwtExpirationTime = filterConfig.getInitParameter("jwtExpirationTime");
-        if (jwtExpirationTime != null) {
-            logger.info("JWT Expiration Time: " + jwtExpirationTime);
-        }
-    }
-
-    @Override
-    public void destroy() {
-        logger.info("JWT Request Filter Destroyed");
+    private void writeError(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
     }
 }
@@ -1,18 +1,19 @@
 package ing.interview.store_management.security;
 
+import ing.interview.store_management.security.AuthorityBitmask.AuthoritySet;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
+import java.time.Instant;
 import java.util.Date;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
 /**
  * The JwtUtil class to handle the generation, parsing and validation of JWT tokens
@@ -22,6 +23,18 @@ public class JwtUtil {
 
     private static final SecretKey SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
 
+    // The parser is immutable and thread-safe, it is built once
+    private static final JwtParser PARSER = Jwts.parserBuilder()
+            .setSigningKey(SECRET_KEY)
+            .build();
+
+    // Permission and role bitmasks, see AuthorityBitmask
+    private static final String PERMISSION_MASK_CLAIM = "pm";
+    private static final String ROLE_MASK_CLAIM = "rm";
+
+    @Autowired
+    private AuthorityBitmask authorityBitmask;
+
     @Value("${jwt.expirationMillis}")
     private long expirationMillis;
 
@@ -32,11 +45,12 @@ public class JwtUtil {
      * @return The generated JWT token
      */
     public String generateToken(UserDetails userDetails) {
+        long[] masks = authorityBitmask.encode(userDetails.getAuthorities());
 
         return Jwts.builder()
-                .claim("roles", userDetails.getAuthorities().stream()
-                        .map(GrantedAuthority::getAuthority)
-                        .collect(Collectors.toList()))
+                .claim(PERMISSION_MASK_CLAIM, masks[0])
+                .claim(ROLE_MASK_CLAIM, masks[1])
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expirationMillis))
@@ -45,76 +59,46 @@ public class JwtUtil {
     }
 
     /**
-     * Extract roles from the token
-     *
-     * @param token The JWT token
-     * @return Roles extracted from the token
-     */
-    public List<GrantedAuthority> getAuthorities(String token) {
-        Claims claims = getClaims(token);
-        List<String> roles = (List<String>) claims.get("roles");
-        return roles.stream()
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Validates the token, checking the signature and expiration
-     *
-     * @param token    The JWT token
-     * @param username The username to validate against
-     * @return true if the token is valid, false otherwise
-     */
-    public boolean validateToken(String token, String username) {
-        return (username.equals(extractUsername(token)) && !isTokenExpired(token));
-    }
-
-    /**
-     * Verifies the token's signature and expiration, and validates the username
+     * Extract roles and permissions from already parsed claims
      *
-     * @param token    The JWT token
-     * @param username The username to match the token's subject
-     * @return true if the token is valid, false if expired or invalid
+     * @param claims The claims of a JWT token
+     * @return The cached authority set decoded from the token's bitmasks
      */
-    public boolean isTokenValid(String token, String username) {
-        try {
-            return validateToken(token, username);
-        } catch (Exception e) {
-            return false;
-        }
+    public AuthoritySet getAuthorities(Claims claims) {
+        return authorityBitmask.decode(((Number) claims.get(PERMISSION_MASK_CLAIM)).longValue(),
+                ((Number) claims.get(ROLE_MASK_CLAIM)).longValue());
     }
 
     /**
-     * Extracts the username (subject) from the token
+     * Extracts the id (jti) from the token, used to revoke it
      *
      * @param token The JWT token
-     * @return The username (subject) extracted from the token
+     * @return The token id
      */
-    public String extractUsername(String token) {
-        return getClaims(token).getSubject();
+    public String extractTokenId(String token) {
+        return parseClaims(token).getId();
     }
 
     /**
-     * Checks if the token has expired
+     * Extracts the expiration time from the token
      *
      * @param token The JWT token
-     * @return true if the token is expired, false otherwise
+     * @return The expiration time
      */
-    private boolean isTokenExpired(String token) {
-        return getClaims(token).getExpiration().before(new Date());
+    public Instant extractExpiration(String token) {
+        return parseClaims(token).getExpiration().toInstant();
     }
 
     /**
-     * Extracts claims from the JWT token
+     * Verifies the signature and expiration of the token and returns its claims, so a caller needing
+     * several claims parses the token only once
      *
      * @param token The JWT token
      * @return Claims extracted from the token
+     * @throws io.jsonwebtoken.JwtException If the token is malformed, has an invalid signature or is expired
      */
-    private Claims getClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
+    public Claims parseClaims(String token) {
+        return PARSER.parseClaimsJws(token)
                 .getBody();
     }
 }
@@ -0,0 +1,76 @@
+package ing.interview.store_management.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The PrincipalCache keeps the credentials and authorities of recently authenticated users in a bounded LRU map,
+ * so a login does not hit the database. Entries are evicted by {@link AuthDataChangeListener}
+ * whenever user, role or permission data changes.
+ */
+@Component
+public class PrincipalCache {
+
+    private final Map<String, CachedPrincipal> principals;
+
+    // Bumped on every clear, a principal loaded while it moved may be stale and is not cached
+    private long generation;
+
+    public PrincipalCache(@Value("${principalCache.maxEntries:1000}") int maxEntries) {
+        this.principals = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPrincipal> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached principal for a username
+     *
+     * @param username The username
+     * @return The cached principal or null if it's not cached
+     */
+    public synchronized CachedPrincipal get(String username) {
+        return principals.get(username);
+    }
+
+    /**
+     * @return the current generation, to be read before loading a principal and passed to {@link #put}
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches the principal under its username, unless the cache was cleared since it was loaded
+     *
+     * @param principal          The principal to cache
+     * @param loadedInGeneration The generation read before the principal was loaded
+     */
+    public synchronized void put(CachedPrincipal principal, long loadedInGeneration) {
+        if (generation == loadedInGeneration) {
+            principals.put(principal.username(), principal);
+        }
+    }
+
+    /**
+     * Evicts every user, used when user, role or permission data changed
+     */
+    public synchronized void clear() {
+        generation++;
+        principals.clear();
+    }
+
+    /**
+     * Immutable snapshot of a user's credentials. A new UserDetails is built from it on each login because
+     * Spring Security erases the credentials of the UserDetails instance it authenticated.
+     */
+    public record CachedPrincipal(String username, String passwordHash, List<GrantedAuthority> authorities) {
+    }
+}
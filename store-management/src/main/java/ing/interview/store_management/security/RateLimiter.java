@@ -0,0 +1,188 @@
+package ing.interview.store_management.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
+/**
+ * The RateLimiter gives every user a token bucket per rate limited endpoint, so one client flooding the write
+ * endpoints cannot starve the others. Rules come from {@code rateLimit.rules}, each written as
+ * {@code METHOD path-pattern role requests-per-second burst}, with {@code *} as the role for any user;
+ * the first rule matching the request and one of the roles of the user applies, requests matching no rule are
+ * not limited.
+ * <p>
+ * A bucket is a single AtomicLong holding its theoretical arrival time (GCRA, equivalent to a token bucket
+ * refilled at the rule rate and holding up to burst tokens), taking a token is one compare-and-set without lock
+ * or allocation. A bucket whose arrival time has passed is full, so it is dropped by the idle eviction without
+ * changing any decision: memory is bounded by the users active within the last burst window.
+ * Publishes the metrics "rateLimit.rejected" and "rateLimit.buckets".
+ */
+@Component
+public class RateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final List<Rule> rules;
+    private final LongSupplier nanoClock;
+    private final Counter rejected;
+
+    public RateLimiter(@Value("${rateLimit.enabled:true}") boolean enabled,
+                       @Value("${rateLimit.rules:}") String[] rules,
+                       MeterRegistry meterRegistry) {
+        this(enabled ? parseRules(rules) : List.of(), System::nanoTime, meterRegistry);
+    }
+
+    RateLimiter(List<Rule> rules, LongSupplier nanoClock, MeterRegistry meterRegistry) {
+        this.rules = rules;
+        this.nanoClock = nanoClock;
+        this.rejected = Counter.builder("rateLimit.rejected")
+                .description("Requests rejected with 429 by the per-user rate limits")
+                .register(meterRegistry);
+        Gauge.builder("rateLimit.buckets", this, RateLimiter::bucketCount)
+                .description("Token buckets of recently active users")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a token from the bucket of the user for the rule matching the request.
+     *
+     * @param request     the request.
+     * @param subject     the user, the subject of its JWT.
+     * @param authorities the authorities of the user.
+     * @return 0 if the request may proceed, otherwise the nanoseconds until the next token.
+     */
+    public long tryAcquire(HttpServletRequest request, String subject, Collection<? extends GrantedAuthority> authorities) {
+        Rule rule = findRule(request, authorities);
+        if (rule == null) {
+            return 0;
+        }
+        AtomicLong bucket = rule.buckets.get(subject);
+        if (bucket == null) {
+            bucket = rule.buckets.computeIfAbsent(subject, key -> new AtomicLong(Long.MIN_VALUE));
+        }
+
+        long now = nanoClock.getAsLong();
+        while (true) {
+            long arrival = bucket.get();
+            long nextArrival = Math.max(arrival, now) + rule.intervalNanos;
+            long wait = nextArrival - rule.toleranceNanos - now;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, nextArrival)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops the buckets which refilled completely, they behave exactly like a new bucket.
+     */
+    @Scheduled(fixedDelayString = "${rateLimit.evictIdleMillis:60000}")
+    public void evictIdleBuckets() {
+        long now = nanoClock.getAsLong();
+        for (Rule rule : rules) {
+            // A request racing with the removal may take its token from the dropped bucket, granting one extra request
+            rule.buckets.values().removeIf(bucket -> bucket.get() <= now);
+        }
+    }
+
+    /**
+     * @return the number of buckets currently held.
+     */
+    public int bucketCount() {
+        int count = 0;
+        for (Rule rule : rules) {
+            count += rule.buckets.size();
+        }
+        return count;
+    }
+
+    private Rule findRule(HttpServletRequest request, Collection<? extends GrantedAuthority> authorities) {
+        for (Rule rule : rules) {
+            if (rule.method.matches(request.getMethod()) && rule.matcher.matches(request) && rule.appliesTo(authorities)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the rules of {@code rateLimit.rules}.
+     *
+     * @param definitions one rule each, {@code METHOD path-pattern role requests-per-second burst}.
+     * @return the rules, in the same order.
+     * @throws IllegalArgumentException if a rule is malformed.
+     */
+    static List<Rule> parseRules(String[] definitions) {
+        List<Rule> rules = new ArrayList<>();
+        for (String definition : definitions) {
+            if (definition.isBlank()) {
+                continue;
+            }
+            String[] parts = definition.trim().split("\\s+");
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("A rate limit rule is 'METHOD path role requests-per-second burst': " + definition);
+            }
+            double perSecond = Double.parseDouble(parts[3]);
+            int burst = Integer.parseInt(parts[4]);
+            if (perSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("A rate limit needs a positive rate and a burst of at least 1: " + definition);
+            }
+            rules.add(new Rule(HttpMethod.valueOf(parts[0].toUpperCase(Locale.ROOT)), parts[1], parts[2], perSecond, burst));
+        }
+        return rules;
+    }
+
+    /**
+     * One rate limit, with the buckets of the users it applies to.
+     */
+    static final class Rule {
+        private final HttpMethod method;
+        private final RequestMatcher matcher;
+        // Null for any user
+        private final String authority;
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        Rule(HttpMethod method, String pathPattern, String role, double perSecond, int burst) {
+            this.method = method;
+            this.matcher = antMatcher(method, pathPattern);
+            this.authority = "*".equals(role) ? null : "ROLE_" + role;
+            this.intervalNanos = Math.max(1, (long) (NANOS_PER_SECOND / perSecond));
+            this.toleranceNanos = intervalNanos * burst;
+        }
+
+        boolean appliesTo(Collection<? extends GrantedAuthority> authorities) {
+            if (authority == null) {
+                return true;
+            }
+            for (GrantedAuthority grantedAuthority : authorities) {
+                if (authority.equals(grantedAuthority.getAuthority())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package ing.interview.store_management.security;
 
 import ing.interview.store_management.service.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -12,8 +14,12 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.authentication.AuthenticationManager;
 
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
 /**
  * The SecurityConfig class used to configure the Spring Security setup for the store management app
  * It ensures that the application is secure, and only authorized users with the correct roles can access certain endpoints.
@@ -22,12 +28,22 @@ import org.springframework.security.authentication.AuthenticationManager;
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
+    // Path matchers are compiled once and shared by the authorization rules and the JwtRequestFilter
+    public static final RequestMatcher PUBLIC_ENDPOINTS = new OrRequestMatcher(
+            antMatcher("/authenticate"), antMatcher("/authenticate/**"), antMatcher("/api/public/**"));
+    public static final RequestMatcher ADMIN_ENDPOINTS = antMatcher("/api/admin/**");
+    public static final RequestMatcher USER_ENDPOINTS = new OrRequestMatcher(
+            antMatcher("/api/user/**"), antMatcher("/api/products/**"), antMatcher("/api/users/**"));
+
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
 
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
+    @Value("${bcrypt.strength:10}")
+    private int bcryptStrength;
+
     /**
      * Define the AuthenticationManager Bean
      *
@@ -59,9 +75,9 @@ public class SecurityConfig {
                 .csrf().disable()  // Disable CSRF protection for stateless JWT authentication
                 .authorizeHttpRequests(authorizeRequests ->
                         authorizeRequests
-                                .requestMatchers("/authenticate", "/api/public/**").permitAll()
-                                .requestMatchers("/api/admin/**").hasRole("ADMIN")
-                                .requestMatchers("/api/user/**", "/api/products/**","/api/users/**").hasAnyRole("USER", "ADMIN")
+                                .requestMatchers(PUBLIC_ENDPOINTS).permitAll()
+                                .requestMatchers(ADMIN_ENDPOINTS).hasRole("ADMIN")
+                                .requestMatchers(USER_ENDPOINTS).hasAnyRole("USER", "ADMIN")
                                 .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
@@ -73,13 +89,28 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Disables the servlet container registration Spring Boot creates for every Filter bean,
+     * so the JwtRequestFilter only runs once, inside the security filter chain
+     *
+     * @param jwtRequestFilter The JWT filter bean
+     * @return The disabled registration
+     */
+    @Bean
+    public FilterRegistrationBean<JwtRequestFilter> jwtRequestFilterRegistration(JwtRequestFilter jwtRequestFilter) {
+        FilterRegistrationBean<JwtRequestFilter> registration = new FilterRegistrationBean<>(jwtRequestFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     /**
      * Configures the password encoder to hash passwords using BCrypt.
+     * The cost factor is read from "bcrypt.strength", existing hashes keep verifying with the cost they were created with.
      *
      * @return PasswordEncoder object (BCryptPasswordEncoder)
      */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 }
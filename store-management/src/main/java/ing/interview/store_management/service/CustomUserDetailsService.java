@@ -1,7 +1,9 @@
 package ing.interview.store_management.service;
 
-import ing.interview.store_management.model.User;
+import ing.interview.store_management.dto.UserCredentialsView;
 import ing.interview.store_management.repository.UserRepository;
+import ing.interview.store_management.security.PrincipalCache;
+import ing.interview.store_management.security.PrincipalCache.CachedPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.GrantedAuthority;
@@ -10,12 +12,12 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * The CustomUserDetailsService class is loading the users and their roles from the database and assigning them as GrantedAuthority objects
+ * The credentials are read through a projection (username, password hash, role and permission names only) and kept in the {@link PrincipalCache}
  */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -23,23 +25,50 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // Load the user from the database
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-        // Get role as an authority
-        SimpleGrantedAuthority roleAuthority = new SimpleGrantedAuthority("ROLE_" + user.getRole().getName());
-        // Get privileges as authorities
-        List<GrantedAuthority> authorityList = user.getRole().getPermissions().stream()
-                .map(permission -> new SimpleGrantedAuthority(permission.getName()))
-                .collect(Collectors.toList());
-        authorityList.add(roleAuthority);
+        CachedPrincipal principal = principalCache.get(username);
+        if (principal == null) {
+            long generation = principalCache.generation();
+            principal = loadPrincipal(username);
+            principalCache.put(principal, generation);
+        }
         // Return a UserDetails instance with both role and privileges
         return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                authorityList
+                principal.username(),
+                principal.passwordHash(),
+                principal.authorities()
         );
     }
+
+    /**
+     * Loads the credentials of a user with a single projection query, one row per permission of the user's role
+     *
+     * @param username The username
+     * @return The principal with role and permissions as authorities
+     * @throws UsernameNotFoundException If the user does not exist
+     */
+    private CachedPrincipal loadPrincipal(String username) throws UsernameNotFoundException {
+        // Load the user from the database
+        List<UserCredentialsView> rows = userRepository.findCredentialsByUsername(username);
+        if (rows.isEmpty()) {
+            throw new UsernameNotFoundException("User not found: " + username);
+        }
+        UserCredentialsView first = rows.get(0);
+        // Get privileges as authorities
+        List<GrantedAuthority> authorityList = new ArrayList<>(rows.size() + 1);
+        for (UserCredentialsView row : rows) {
+            if (row.getPermissionName() != null) {
+                authorityList.add(new SimpleGrantedAuthority(row.getPermissionName()));
+            }
+        }
+        // Get role as an authority
+        if (first.getRoleName() != null) {
+            authorityList.add(new SimpleGrantedAuthority("ROLE_" + first.getRoleName()));
+        }
+        return new CachedPrincipal(first.getUsername(), first.getPassword(), List.copyOf(authorityList));
+    }
 }
@@ -46,22 +46,22 @@ public class DataInitializer implements CommandLineRunner{
     public void createUserWithRoles() {
         // Create permissions
         Permission readPermission = permissionRepository.findByName("READ")
-                .orElseGet(() -> permissionRepository.save(new Permission("READ")));
+                .orElseGet(() -> permissionRepository.save(new Permission("READ", 0)));
 
         Permission writePermission = permissionRepository.findByName("WRITE")
-                .orElseGet(() -> permissionRepository.save(new Permission("WRITE")));
+                .orElseGet(() -> permissionRepository.save(new Permission("WRITE", 1)));
 
         // Ensure roles are persisted or fetched
         Role adminRole = roleRepository.findByName("ADMIN")
                 .orElseGet(() -> {
-                    Role role = new Role("ADMIN");
+                    Role role = new Role("ADMIN", 0);
                     role.setPermissions(Set.of(readPermission, writePermission));
                     return roleRepository.save(role);
                 });
 
         Role userRole = roleRepository.findByName("USER")
                 .orElseGet(() -> {
-                    Role role = new Role("USER");
+                    Role role = new Role("USER", 1);
                     role.setPermissions(Set.of(readPermission));
                     return roleRepository.save(role);
                 });
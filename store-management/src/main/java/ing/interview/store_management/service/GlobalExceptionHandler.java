@@ -3,7 +3,12 @@ package ing.interview.store_management.service;
 import ing.interview.store_management.exception.InsufficientStockException;
 import ing.interview.store_management.exception.NoValidProductInOrderException;
 import ing.interview.store_management.exception.OrderNotFoundException;
+import ing.interview.store_management.exception.PricingRuleNotFoundException;
+import ing.interview.store_management.exception.ProductDiscontinuedException;
 import ing.interview.store_management.exception.ProductNotFoundException;
+import ing.interview.store_management.exception.ProductReservedException;
+import ing.interview.store_management.exception.ReservationNotActiveException;
+import ing.interview.store_management.exception.ReservationNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -22,6 +27,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
     }
 
+    @ExceptionHandler(PricingRuleNotFoundException.class)
+    public ResponseEntity<?> handlePricingRuleNotFoundException(PricingRuleNotFoundException ex) {
+        logger.error("Pricing rule not found: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+
     @ExceptionHandler(ProductNotFoundException.class)
     public ResponseEntity<?> handleProductNotFoundException(ProductNotFoundException ex) {
         logger.error("Product not found: {}", ex.getMessage());
@@ -40,6 +51,36 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    @ExceptionHandler(ReservationNotFoundException.class)
+    public ResponseEntity<?> handleReservationNotFoundException(ReservationNotFoundException ex) {
+        logger.error("Reservation not found: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ReservationNotActiveException.class)
+    public ResponseEntity<?> handleReservationNotActiveException(ReservationNotActiveException ex) {
+        logger.error("Reservation not active: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ProductDiscontinuedException.class)
+    public ResponseEntity<?> handleProductDiscontinuedException(ProductDiscontinuedException ex) {
+        logger.error("Product discontinued: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ProductReservedException.class)
+    public ResponseEntity<?> handleProductReservedException(ProductReservedException ex) {
+        logger.error("Product reserved: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<?> handleIllegalArgumentException(IllegalArgumentException ex) {
+        logger.error("Invalid argument: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleGlobalException(Exception ex) {
         logger.error("Unexpected error occurred: {}", ex.getMessage());
@@ -0,0 +1,184 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.model.OrderLifecycleJob;
+import ing.interview.store_management.model.OrderStatus;
+import ing.interview.store_management.repository.OrderLifecycleJobRepository;
+import ing.interview.store_management.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Service layer moving placed orders to completed once their completion is due.
+ * The pending completions are OrderLifecycleJob rows written in the transaction creating the order, so they
+ * survive restarts and are shared by every node. Each node polls for due jobs and claims a batch of them with
+ * a lease: the claim locks the rows, skipping those another node is claiming, then stamps them with the node
+ * and the lease expiry. Each claimed job is then completed in its own transaction, which deletes the job only
+ * if the node still holds its lease. A failed job is retried with an exponential backoff, a node which dies
+ * mid-batch leaves jobs whose lease runs out and which the other nodes claim again.
+ */
+@Service
+public class OrderLifecycleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderLifecycleService.class);
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    @Autowired
+    private OrderLifecycleJobRepository orderLifecycleJobRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${orderLifecycle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${orderLifecycle.workerId:}")
+    private String workerId;
+
+    @Value("${orderLifecycle.completeAfterMillis:120000}")
+    private long completeAfterMillis;
+
+    @Value("${orderLifecycle.batchSize:100}")
+    private int batchSize;
+
+    @Value("${orderLifecycle.leaseMillis:60000}")
+    private long leaseMillis;
+
+    @Value("${orderLifecycle.maxAttempts:5}")
+    private int maxAttempts;
+
+    @Value("${orderLifecycle.retryBackoffMillis:10000}")
+    private long retryBackoffMillis;
+
+    @PostConstruct
+    public void init() {
+        if (workerId.isBlank()) {
+            workerId = "node-" + UUID.randomUUID();
+        }
+    }
+
+    /**
+     * Queues the completion of a placed order, in the transaction which placed it.
+     *
+     * @param orderId the ID of the placed order.
+     */
+    @Transactional
+    public void scheduleCompletion(Long orderId) {
+        orderLifecycleJobRepository.save(new OrderLifecycleJob(orderId, Instant.now().plusMillis(completeAfterMillis)));
+    }
+
+    /**
+     * Completes the due orders, batch after batch, until no due job is left unclaimed.
+     */
+    @Scheduled(fixedDelayString = "${orderLifecycle.pollMillis:5000}")
+    public void completeDueOrders() {
+        if (!enabled) {
+            return;
+        }
+        int handled;
+        int total = 0;
+        do {
+            handled = runOnce(workerId);
+            total += handled;
+        } while (handled > 0);
+        if (total > 0) {
+            logger.info("Worker {} handled {} order lifecycle jobs", workerId, total);
+        }
+    }
+
+    /**
+     * Claims one batch of due jobs for the worker and handles them.
+     *
+     * @param worker the worker claiming the jobs, unique per node.
+     * @return the number of jobs handled by the worker, completed or rescheduled after a failure.
+     */
+    public int runOnce(String worker) {
+        Map<Long, Long> claimed = claimBatch(worker);
+        int handled = 0;
+        for (Map.Entry<Long, Long> job : claimed.entrySet()) {
+            Long jobId = job.getKey();
+            Long orderId = job.getValue();
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> complete(jobId, orderId, worker)))) {
+                    handled++;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Order lifecycle job {} of order {} failed", jobId, orderId, e);
+                transactionTemplate.executeWithoutResult(status -> recordFailure(jobId, worker, e));
+                handled++;
+            }
+        }
+        return handled;
+    }
+
+    /**
+     * Leases a batch of due jobs to the worker, in a short transaction of its own.
+     *
+     * @param worker the worker claiming the jobs.
+     * @return the order ID of each job now leased to the worker, by job ID.
+     */
+    Map<Long, Long> claimBatch(String worker) {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            Map<Long, Long> candidates = new LinkedHashMap<>();
+            for (OrderLifecycleJob job : orderLifecycleJobRepository.findClaimable(now, PageRequest.ofSize(batchSize))) {
+                candidates.put(job.getId(), job.getOrderId());
+            }
+            if (candidates.isEmpty()) {
+                return candidates;
+            }
+            orderLifecycleJobRepository.lease(candidates.keySet(), worker, now.plusMillis(leaseMillis), now);
+            List<Long> leased = orderLifecycleJobRepository.findIdsLeasedBy(candidates.keySet(), worker);
+            candidates.keySet().retainAll(leased);
+            return candidates;
+        });
+    }
+
+    private boolean complete(Long jobId, Long orderId, String worker) {
+        if (orderLifecycleJobRepository.deleteLeased(jobId, worker) == 0) {
+            // The lease ran out and another worker claimed the job
+            return false;
+        }
+        // An order canceled or already completed in the meantime is left as it is
+        orderRepository.updateStatus(orderId, OrderStatus.PLACED.getStatus(), OrderStatus.COMPLETED.getStatus());
+        return true;
+    }
+
+    private void recordFailure(Long jobId, String worker, RuntimeException failure) {
+        orderLifecycleJobRepository.findById(jobId)
+                .filter(job -> worker.equals(job.getLeaseOwner()))
+                .ifPresent(job -> {
+                    job.setAttempts(job.getAttempts() + 1);
+                    String error = String.valueOf(failure.getMessage());
+                    job.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+                    job.setLeaseOwner(null);
+                    job.setLeaseExpiresAt(null);
+                    if (job.getAttempts() >= maxAttempts) {
+                        job.setDueAt(null);
+                        logger.error("Order lifecycle job {} of order {} parked after {} attempts",
+                                jobId, job.getOrderId(), job.getAttempts());
+                    } else {
+                        long backoff = retryBackoffMillis << Math.min(job.getAttempts() - 1, 20);
+                        job.setDueAt(Instant.now().plusMillis(backoff));
+                    }
+                    orderLifecycleJobRepository.save(job);
+                });
+    }
+}
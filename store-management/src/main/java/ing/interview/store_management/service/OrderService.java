@@ -1,27 +1,36 @@
 package ing.interview.store_management.service;
 
+import ing.interview.store_management.datasource.ReadYourWrites;
 import ing.interview.store_management.dto.OrderDto;
 import ing.interview.store_management.dto.OrderProductDto;
 import ing.interview.store_management.exception.InsufficientStockException;
 import ing.interview.store_management.exception.NoValidProductInOrderException;
 import ing.interview.store_management.exception.OrderNotFoundException;
+import ing.interview.store_management.exception.ProductDiscontinuedException;
 import ing.interview.store_management.exception.ProductNotFoundException;
+import ing.interview.store_management.journal.StockJournal;
 import ing.interview.store_management.mapper.OrderMapper;
+import ing.interview.store_management.model.Money;
 import ing.interview.store_management.model.Order;
 import ing.interview.store_management.model.OrderProduct;
 import ing.interview.store_management.model.OrderStatus;
 import ing.interview.store_management.model.Product;
+import ing.interview.store_management.model.SalesChange;
+import ing.interview.store_management.model.StockChangeReason;
+import ing.interview.store_management.pricing.PricingEngine;
+import ing.interview.store_management.pricing.PricingPlan;
+import ing.interview.store_management.repository.ArchivedOrderRepository;
 import ing.interview.store_management.repository.OrderProductRepository;
 import ing.interview.store_management.repository.OrderRepository;
 import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.SalesChangeRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -44,11 +53,29 @@ public class OrderService {
     @Autowired
     private OrderProductRepository orderProductRepository;
 
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
     @Autowired
     private OrderMapper orderMapper;
 
-    // A cache or map to hold orders with pending status for processing later (for status change)
-    private Map<Long, Order> pendingOrders = new HashMap<>();
+    @Autowired
+    private StockJournal stockJournal;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private OrderLifecycleService orderLifecycleService;
+
+    @Autowired
+    private SalesChangeRepository salesChangeRepository;
 
     /**
      * Creates an order based on the provided product details and quantities.
@@ -60,51 +87,84 @@ public class OrderService {
      */
     @Transactional
     public OrderDto createOrder(Set<OrderProductDto> orderProductDTOs) throws NoValidProductInOrderException, InsufficientStockException {
+        return createOrder(orderProductDTOs, false);
+    }
+
+    /**
+     * Creates an order for products whose stock is already held by a stock reservation.
+     * The stock is neither checked nor deducted again, the order is priced like any other.
+     * The held stock of products discontinued since the reservation is given back, as their lines are dropped.
+     *
+     * @param orderProductDTOs the reserved products and quantities
+     * @return The created order as a {@link OrderDto}
+     * @throws NoValidProductInOrderException If none of the reserved products exists anymore
+     */
+    @Transactional
+    public OrderDto createOrderFromReservation(Set<OrderProductDto> orderProductDTOs) throws NoValidProductInOrderException {
+        return createOrder(orderProductDTOs, true);
+    }
+
+    private OrderDto createOrder(Set<OrderProductDto> orderProductDTOs, boolean stockHeld) {
         // Validate order info received, and calculate total price
-        BigDecimal totalPrice = validateOrderProductsDtoAndCalculateTotalPriceOfOrder(orderProductDTOs);
+        Money totalPrice = validateOrderProductsDtoAndCalculateTotalPriceOfOrder(orderProductDTOs, !stockHeld);
 
         // Create the order entity
         Order order = createOrderEntity(totalPrice);
 
         // Save the order and process order products
-        saveOrderAndProducts(orderProductDTOs, order);
+        saveOrderAndProducts(orderProductDTOs, order, !stockHeld);
 
         // Change the order status to "PLACED"
         changeOrderStatusToPlaced(order);
 
-        // Add to pending orders for future status change
-        pendingOrders.put(order.getId(), order);
+        // Queue the future status change, it is saved with the order
+        orderLifecycleService.scheduleCompletion(order.getId());
+
+        // Picked up by the sales rollups
+        recordSalesChange(order.getId());
+
+        // The user reads the order back from the primary until the replica has it
+        readYourWrites.pinCurrentUser();
 
         return orderMapper.toDto(order);
     }
 
     /**
-     * Retrieves an order by its ID.
+     * Retrieves an order by its ID, from the archive when the order was archived.
      *
      * @param id the ID of the order to retrieve.
      * @return the order as a DTO.
      * @throws RuntimeException if the order with the specified ID is not found.
      */
+    @Transactional(readOnly = true)
     public OrderDto getOrder(Long id) {
-        Order order = orderRepository.findById(id)
+        Optional<Order> order = orderRepository.findById(id);
+        if (order.isPresent()) {
+            return orderMapper.toDto(order.get());
+        }
+        return archivedOrderRepository.findById(id)
+                .map(orderMapper::toDto)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
-        return orderMapper.toDto(order);
     }
 
     /**
-     * Deletes an order by its ID.
+     * Deletes an order by its ID. The stock taken by the order is not returned, so the stock journal
+     * has nothing to record.
      *
      * @param id the ID of the order to delete.
      */
+    @Transactional
     public void deleteOrder(Long id) {
         orderRepository.deleteById(id);
+        recordSalesChange(id);
     }
 
     /**
-     * Lists all orders in the system.
+     * Lists all orders which are not archived.
      *
      * @return a list of all orders as DTOs.
      */
+    @Transactional(readOnly = true)
     public List<OrderDto> listAllOrders() {
         return orderRepository.findAll().stream()
                 .map(orderMapper::toDto)
@@ -113,25 +173,31 @@ public class OrderService {
 
     /**
      * Validates products in the order and calculates the total price.
+     * The lines are priced by the current pricing plan and summed in minor units, with overflow checks,
+     * then the order discount is applied and the total is converted to Money once.
      *
      * @param orderProductDTOs the list of products in the order
+     * @param checkStock       whether the available stock must cover the quantities
      * @return the total price of the order
      * @throws NoValidProductInOrderException if no valid products were found for the order
      * @throws InsufficientStockException     if the quantity requested exceeds available stock
+     * @throws IllegalArgumentException       if the total does not fit in a long of minor units
      */
-    private BigDecimal validateOrderProductsDtoAndCalculateTotalPriceOfOrder(Set<OrderProductDto> orderProductDTOs) throws NoValidProductInOrderException, InsufficientStockException {
+    private Money validateOrderProductsDtoAndCalculateTotalPriceOfOrder(Set<OrderProductDto> orderProductDTOs, boolean checkStock) throws NoValidProductInOrderException, InsufficientStockException {
         int validProductCount = 0;
-        BigDecimal totalPrice = BigDecimal.ZERO;
+        long totalPrice = 0;
+        PricingPlan pricingPlan = pricingEngine.currentPlan();
 
         // Loop through the products in the order and validate their quantities
         for (OrderProductDto orderProductDto : orderProductDTOs) {
             Product product = productRepository.findById(orderProductDto.getProductId())
                     .orElse(null);
 
-            if (product != null) {
+            // Discontinued products can no longer be ordered
+            if (product != null && !product.isDiscontinued()) {
                 // Check if there's enough stock
-                if (product.getStock() >= orderProductDto.getQuantity()) {
-                    totalPrice = totalPrice.add(product.getPrice().multiply(BigDecimal.valueOf(orderProductDto.getQuantity())));
+                if (!checkStock || getAvailableStock(product) >= orderProductDto.getQuantity()) {
+                    totalPrice = addLineTotal(totalPrice, pricingPlan, product, orderProductDto.getQuantity());
                     validProductCount++;
                 } else {
                     throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
@@ -143,7 +209,7 @@ public class OrderService {
             throw new NoValidProductInOrderException("No valid products to add to the order.");
         }
 
-        return totalPrice;
+        return discountedTotal(totalPrice, pricingPlan);
     }
 
     /**
@@ -152,7 +218,7 @@ public class OrderService {
      * @param totalPrice the total price calculated for the order
      * @return the created order entity
      */
-    private Order createOrderEntity(BigDecimal totalPrice) {
+    private Order createOrderEntity(Money totalPrice) {
         Order order = new Order();
         order.setOrderDate(LocalDateTime.now());
         order.setStatus(OrderStatus.CREATED.getStatus());
@@ -165,15 +231,22 @@ public class OrderService {
      *
      * @param orderProductDTOs the list of products in the order
      * @param order            the order entity to save
+     * @param deductStock      whether the quantities are deducted from the stock, otherwise they are held by a
+     *                         reservation and those of the dropped discontinued products are given back
      */
-    private void saveOrderAndProducts(Set<OrderProductDto> orderProductDTOs, Order order) {
+    private void saveOrderAndProducts(Set<OrderProductDto> orderProductDTOs, Order order, boolean deductStock) {
         for (OrderProductDto orderProductDto : orderProductDTOs) {
             Product product = productRepository.findById(orderProductDto.getProductId())
                     .orElse(null);
 
-            if (product != null && orderProductDto.getQuantity() > 0) {
+            if (product != null && product.isDiscontinued() && !deductStock && orderProductDto.getQuantity() > 0) {
+                // The line is dropped, the stock held for it would otherwise be neither ordered nor released
+                updateProductStock(product, -orderProductDto.getQuantity(), StockChangeReason.RESERVATION_RELEASED);
+            } else if (product != null && !product.isDiscontinued() && orderProductDto.getQuantity() > 0) {
                 // Deduct stock for the product
-                updateProductStock(product, orderProductDto.getQuantity());
+                if (deductStock) {
+                    updateProductStock(product, orderProductDto.getQuantity(), StockChangeReason.ORDER_CREATED);
+                }
 
                 // Create and save OrderProduct entry
                 OrderProduct orderProduct = new OrderProduct();
@@ -181,19 +254,42 @@ public class OrderService {
                 orderProduct.setOrder(order);
                 orderProduct.setQuantity(orderProductDto.getQuantity());
                 orderProductRepository.save(orderProduct);
+                order.getOrderProducts().add(orderProduct);
             }
         }
     }
 
     /**
-     * Updates the stock for a product by deducting the quantity ordered.
+     * Returns the stock of a product, summing its shards when its stock is sharded.
      *
-     * @param product  the product to update
-     * @param quantity the quantity to deduct from the stock
+     * @param product the product
+     * @return the available stock
      */
-    private void updateProductStock(Product product, int quantity) {
-        product.setStock(product.getStock() - quantity);
-        productRepository.save(product);
+    private int getAvailableStock(Product product) {
+        return product.isStockSharded() ? stockShardService.availableStock(product.getId()) : product.getStock();
+    }
+
+    /**
+     * Updates the stock for a product by deducting the quantity ordered, and journals the change.
+     * Sharded products take the quantity from their shards, the others are changed by a relative UPDATE which
+     * only applies while the stock covers the quantity, so concurrent orders never overwrite each other.
+     *
+     * @param product  the product to update, refreshed with its new stock
+     * @param quantity the quantity to deduct from the stock, negative to return stock
+     * @param reason   the reason recorded in the stock journal
+     * @throws InsufficientStockException if the stock does not cover the quantity anymore
+     */
+    private void updateProductStock(Product product, int quantity, StockChangeReason reason) {
+        int stockAfter;
+        if (product.isStockSharded()) {
+            stockAfter = quantity >= 0 ? stockShardService.take(product, quantity) : stockShardService.give(product, -quantity);
+        } else {
+            if (productRepository.adjustStocks(Map.of(product.getId(), -quantity)) == 0) {
+                throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+            }
+            stockAfter = product.getStock();
+        }
+        stockJournal.record(product.getId(), -quantity, stockAfter, reason);
     }
 
     /**
@@ -206,124 +302,232 @@ public class OrderService {
         orderRepository.save(order);
     }
 
-    /**
-     * This method schedules the order status change to "COMPLETED" after 2 minutes.
-     * A Spring @Scheduled task will be used to trigger the status update.
-     */
-    @Scheduled(fixedRate = 120000)  // Run every 2 minutes
-    public void updateOrderStatusToCompleted() {
-        // Iterate over the pending orders and update their status after 2 minutes
-        Iterator<Map.Entry<Long, Order>> iterator = pendingOrders.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<Long, Order> entry = iterator.next();
-            Order order = entry.getValue();
-
-            if (Objects.equals(order.getStatus(), OrderStatus.PLACED.getStatus())) {
-                // Update the status to completed
-                order.setStatus(OrderStatus.COMPLETED.getStatus());
-                orderRepository.save(order);
-
-                // Remove the order from pending orders after completion
-                iterator.remove();
-            }
-        }
-    }
-
     /**
      * Method to handle order update, adjusting the stock as necessary.
+     * The order lines are diffed per product: changed quantities are updated in place, new products are inserted,
+     * missing products (or a quantity of 0) are deleted and their stock is returned.
      *
      * @param orderId          the order ID to update
      * @param orderProductDTOs the new list of products and quantities
      * @return the updated order DTO
-     * @throws InsufficientStockException if the requested quantity exceeds the stock
+     * @throws InsufficientStockException   if the requested quantity exceeds the stock
+     * @throws ProductDiscontinuedException if more of a discontinued product is requested
      */
     @Transactional
-    public OrderDto updateOrder(Long orderId, Set<OrderProductDto> orderProductDTOs) throws InsufficientStockException, OrderNotFoundException, ProductNotFoundException {
+    public OrderDto updateOrder(Long orderId, Set<OrderProductDto> orderProductDTOs) throws InsufficientStockException, OrderNotFoundException, ProductNotFoundException, ProductDiscontinuedException {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new OrderNotFoundException("Order not found"));
+        if (order.getOrderProducts() == null) {
+            order.setOrderProducts(new HashSet<>());
+        }
 
-        // Track old quantities for stock adjustment
-        Map<Long, Integer> oldProductQuantities = getOldProductQuantities(order);
+        // Current lines of the order and requested quantities, by product ID
+        Map<Long, OrderProduct> existingLines = getExistingLines(order);
+        Map<Long, Integer> requestedQuantities = getRequestedQuantities(orderProductDTOs);
 
-        // Validate the new quantities and adjust stock
-        BigDecimal totalPrice = validateAndUpdateOrder(orderProductDTOs, oldProductQuantities);
+        // Load every product involved with a single query
+        Set<Long> productIds = new HashSet<>(existingLines.keySet());
+        productIds.addAll(requestedQuantities.keySet());
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
 
-        // Update the order with new products
-        updateOrderProducts(orderProductDTOs, order, totalPrice);
+        // Quantity taken from (positive) or returned to (negative) the stock of each product
+        Map<Long, Integer> stockDeltas = getStockDeltas(existingLines, requestedQuantities, products);
+        validateStockDeltas(stockDeltas, products);
+
+        // Apply the diff to the order lines and the stock, then recompute the total
+        applyLineDiff(order, existingLines, requestedQuantities, products);
+        applyStockDeltas(stockDeltas, products);
+        order.setTotalPrice(calculateTotalPrice(order));
+        orderRepository.save(order);
+        recordSalesChange(orderId);
+        readYourWrites.pinCurrentUser();
 
         return orderMapper.toDto(order);
     }
 
     /**
-     * Retrieves the old quantities of products in the order to track stock changes.
+     * Records that an order changed, in the transaction of the change, for the SalesRollupJob.
      *
-     * @param order the order to fetch old product quantities for
-     * @return a map of product IDs to their old quantities
+     * @param orderId the ID of the created, updated or deleted order
      */
-    private Map<Long, Integer> getOldProductQuantities(Order order) {
-        Map<Long, Integer> oldProductQuantities = new HashMap<>();
-        if (order.getOrderProducts() != null) {
-            for (OrderProduct orderProduct : order.getOrderProducts()) {
-                oldProductQuantities.put(orderProduct.getProduct().getId(), orderProduct.getQuantity());
-            }
-        }
-        return oldProductQuantities;
+    private void recordSalesChange(Long orderId) {
+        salesChangeRepository.save(new SalesChange(orderId, Instant.now()));
     }
 
     /**
-     * Validates and updates the order, adjusting product stock accordingly.
+     * Indexes the current lines of the order by product ID.
      *
-     * @param orderProductDTOs     the updated list of products in the order
-     * @param oldProductQuantities the old quantities of products in the order
-     * @return the new total price for the updated order
-     * @throws InsufficientStockException if the requested quantity exceeds the available stock
+     * @param order the order to index
+     * @return a map of product IDs to their order line
      */
-    private BigDecimal validateAndUpdateOrder(Set<OrderProductDto> orderProductDTOs, Map<Long, Integer> oldProductQuantities) throws InsufficientStockException {
-        BigDecimal totalPrice = BigDecimal.ZERO;
+    private Map<Long, OrderProduct> getExistingLines(Order order) {
+        Map<Long, OrderProduct> existingLines = new HashMap<>();
+        for (OrderProduct orderProduct : order.getOrderProducts()) {
+            existingLines.put(orderProduct.getProduct().getId(), orderProduct);
+        }
+        return existingLines;
+    }
 
+    /**
+     * Collects the requested quantities by product ID, a quantity of 0 or less means the line is removed.
+     *
+     * @param orderProductDTOs the updated list of products in the order
+     * @return a map of product IDs to their requested quantity
+     */
+    private Map<Long, Integer> getRequestedQuantities(Set<OrderProductDto> orderProductDTOs) {
+        Map<Long, Integer> requestedQuantities = new HashMap<>();
         for (OrderProductDto orderProductDto : orderProductDTOs) {
-            Product product = productRepository.findById(orderProductDto.getProductId())
-                    .orElse(null);
+            requestedQuantities.merge(orderProductDto.getProductId(), Math.max(0, orderProductDto.getQuantity()), Integer::sum);
+        }
+        return requestedQuantities;
+    }
 
-            if (product != null) {
-                int quantityChange = orderProductDto.getQuantity() - oldProductQuantities.getOrDefault(orderProductDto.getProductId(), 0);
-                if (product.getStock() + quantityChange < 0) {
-                    throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
-                }
+    /**
+     * Computes the stock change of every product in the diff. Requested products which do not exist are ignored.
+     *
+     * @param existingLines       the current lines of the order by product ID
+     * @param requestedQuantities the requested quantities by product ID
+     * @param products            the products involved by ID
+     * @return a map of product IDs to the quantity taken from (positive) or returned to (negative) their stock
+     */
+    private Map<Long, Integer> getStockDeltas(Map<Long, OrderProduct> existingLines, Map<Long, Integer> requestedQuantities,
+                                              Map<Long, Product> products) {
+        Map<Long, Integer> stockDeltas = new HashMap<>();
+        for (Long productId : products.keySet()) {
+            OrderProduct existingLine = existingLines.get(productId);
+            int oldQuantity = existingLine != null ? existingLine.getQuantity() : 0;
+            int delta = requestedQuantities.getOrDefault(productId, 0) - oldQuantity;
+            if (delta != 0) {
+                stockDeltas.put(productId, delta);
+            }
+        }
+        return stockDeltas;
+    }
 
-                // Adjust stock based on quantity change
-                updateProductStock(product, quantityChange);
+    /**
+     * Checks that every product has enough stock for the quantity taken from it.
+     * The quantity of a discontinued product can only be lowered.
+     *
+     * @param stockDeltas the quantity taken from (positive) or returned to (negative) the stock of each product
+     * @param products    the products involved by ID
+     * @throws InsufficientStockException   if the requested quantity exceeds the available stock
+     * @throws ProductDiscontinuedException if more of a discontinued product is requested
+     */
+    private void validateStockDeltas(Map<Long, Integer> stockDeltas, Map<Long, Product> products) throws InsufficientStockException, ProductDiscontinuedException {
+        for (Map.Entry<Long, Integer> stockDelta : stockDeltas.entrySet()) {
+            Product product = products.get(stockDelta.getKey());
+            if (product.isDiscontinued() && stockDelta.getValue() > 0) {
+                throw new ProductDiscontinuedException("Product discontinued: " + product.getName());
+            }
+            if (getAvailableStock(product) - stockDelta.getValue() < 0) {
+                throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+            }
+        }
+    }
 
-                totalPrice = totalPrice.add(product.getPrice().multiply(BigDecimal.valueOf(orderProductDto.getQuantity())));
+    /**
+     * Updates the order lines in place: changes quantities, adds new lines and removes the lines no longer requested.
+     * Only the affected rows are written, removed lines are deleted through orphan removal.
+     *
+     * @param order               the order entity to update
+     * @param existingLines       the current lines of the order by product ID
+     * @param requestedQuantities the requested quantities by product ID
+     * @param products            the products involved by ID
+     */
+    private void applyLineDiff(Order order, Map<Long, OrderProduct> existingLines, Map<Long, Integer> requestedQuantities,
+                               Map<Long, Product> products) {
+        for (Map.Entry<Long, OrderProduct> existingLine : existingLines.entrySet()) {
+            int requestedQuantity = requestedQuantities.getOrDefault(existingLine.getKey(), 0);
+            if (requestedQuantity == 0) {
+                order.getOrderProducts().remove(existingLine.getValue());
+            } else if (requestedQuantity != existingLine.getValue().getQuantity()) {
+                existingLine.getValue().setQuantity(requestedQuantity);
+            }
+        }
+        for (Map.Entry<Long, Integer> requested : requestedQuantities.entrySet()) {
+            Product product = products.get(requested.getKey());
+            if (product != null && requested.getValue() > 0 && !existingLines.containsKey(requested.getKey())) {
+                order.getOrderProducts().add(new OrderProduct(order, product, requested.getValue()));
             }
         }
+    }
 
-        return totalPrice;
+    /**
+     * Applies the stock changes of the products with one relative UPDATE statement, which only applies if no stock
+     * goes negative, so a concurrent order taking the same stock in the meantime is never overwritten.
+     * Sharded products are changed through their shards instead.
+     *
+     * @param stockDeltas the quantity taken from (positive) or returned to (negative) the stock of each product
+     * @param products    the products involved by ID, refreshed with their new stock
+     * @throws InsufficientStockException if the stock of a product no longer covers the quantity taken from it
+     */
+    private void applyStockDeltas(Map<Long, Integer> stockDeltas, Map<Long, Product> products) {
+        Map<Long, Integer> rowDeltas = new HashMap<>();
+        for (Map.Entry<Long, Integer> stockDelta : stockDeltas.entrySet()) {
+            Product product = products.get(stockDelta.getKey());
+            if (product.isStockSharded()) {
+                updateProductStock(product, stockDelta.getValue(), StockChangeReason.ORDER_UPDATED);
+            } else {
+                rowDeltas.put(product.getId(), -stockDelta.getValue());
+            }
+        }
+        if (productRepository.adjustStocks(rowDeltas) < rowDeltas.size()) {
+            // Throwing rolls back the rows which were updated
+            throw new InsufficientStockException("Insufficient stock to update the order");
+        }
+        rowDeltas.forEach((productId, delta) ->
+                stockJournal.record(productId, delta, products.get(productId).getStock(), StockChangeReason.ORDER_UPDATED));
     }
 
     /**
-     * Updates the order products with the new quantities.
+     * Calculates the total price of the order from its lines with the current pricing plan, in minor units.
      *
-     * @param orderProductDTOs the updated list of products in the order
-     * @param order            the order entity to update
-     * @param totalPrice       the new total price for the updated order
+     * @param order the order
+     * @return the total price of the order, after discounts
+     * @throws IllegalArgumentException if the total does not fit in a long of minor units
      */
-    private void updateOrderProducts(Set<OrderProductDto> orderProductDTOs, Order order, BigDecimal totalPrice) {
-        Set<OrderProduct> updatedOrderProducts = new HashSet<>();
-        for (OrderProductDto orderProductDto : orderProductDTOs) {
-            Product product = productRepository.findById(orderProductDto.getProductId())
-                    .orElse(null);
+    private Money calculateTotalPrice(Order order) {
+        PricingPlan pricingPlan = pricingEngine.currentPlan();
+        long totalPrice = 0;
+        for (OrderProduct orderProduct : order.getOrderProducts()) {
+            totalPrice = addLineTotal(totalPrice, pricingPlan, orderProduct.getProduct(), orderProduct.getQuantity());
+        }
+        return discountedTotal(totalPrice, pricingPlan);
+    }
 
-            if (product != null && orderProductDto.getQuantity() > 0) {
-                OrderProduct orderProduct = new OrderProduct();
-                orderProduct.setProduct(product);
-                orderProduct.setOrder(order);
-                orderProduct.setQuantity(orderProductDto.getQuantity());
-                updatedOrderProducts.add(orderProduct);
-            }
+    /**
+     * Adds the total of a line, priced by the pricing plan, to the order total in minor units.
+     * An overflow is an order too large to price, so it is reported as a bad request rather than an arithmetic error.
+     *
+     * @param totalPrice  the order total so far, in minor units
+     * @param pricingPlan the current pricing plan
+     * @param product     the product of the line
+     * @param quantity    the quantity of the line
+     * @return the order total with the line, in minor units
+     * @throws IllegalArgumentException if the total does not fit in a long of minor units
+     */
+    private static long addLineTotal(long totalPrice, PricingPlan pricingPlan, Product product, int quantity) {
+        try {
+            return Money.add(totalPrice, pricingPlan.lineTotal(product.getId(), product.getPrice().minorUnits(), quantity));
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("The order total is too large", e);
+        }
+    }
+
+    /**
+     * Applies the order discount of the pricing plan to the order total.
+     *
+     * @param totalPrice  the order total, in minor units
+     * @param pricingPlan the current pricing plan
+     * @return the total price of the order, after discounts
+     * @throws IllegalArgumentException if the discount computation overflows a long of minor units
+     */
+    private static Money discountedTotal(long totalPrice, PricingPlan pricingPlan) {
+        try {
+            return Money.ofMinor(totalPrice - pricingPlan.orderDiscount(totalPrice));
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("The order total is too large", e);
         }
-        order.setTotalPrice(totalPrice);
-        order.setOrderProducts(updatedOrderProducts);
-        orderRepository.save(order);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.dto.PricingRuleDto;
+import ing.interview.store_management.exception.PricingRuleNotFoundException;
+import ing.interview.store_management.mapper.PricingRuleMapper;
+import ing.interview.store_management.model.PricingRule;
+import ing.interview.store_management.repository.PricingRuleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service layer for the promotions applied by the PricingEngine.
+ * Saving or deleting a rule invalidates the compiled pricing plan through the PricingRuleChangeListener.
+ */
+@Service
+public class PricingRuleService {
+
+    private static final int MAX_BASIS_POINTS = 10_000;
+
+    @Autowired
+    private PricingRuleRepository pricingRuleRepository;
+
+    @Autowired
+    private PricingRuleMapper pricingRuleMapper;
+
+    /**
+     * Creates a pricing rule.
+     *
+     * @param pricingRuleDto the rule.
+     * @return the created rule as a DTO.
+     * @throws IllegalArgumentException if a field required by the type of the rule is missing or out of range.
+     */
+    public PricingRuleDto createRule(PricingRuleDto pricingRuleDto) {
+        PricingRule pricingRule = pricingRuleMapper.toEntity(pricingRuleDto);
+        pricingRule.setId(null);
+        validate(pricingRule);
+        return pricingRuleMapper.toDto(pricingRuleRepository.save(pricingRule));
+    }
+
+    /**
+     * Replaces a pricing rule.
+     *
+     * @param id             the ID of the rule.
+     * @param pricingRuleDto the new definition of the rule.
+     * @return the updated rule as a DTO.
+     * @throws PricingRuleNotFoundException if the rule does not exist.
+     * @throws IllegalArgumentException     if the rule is invalid.
+     */
+    public PricingRuleDto updateRule(Long id, PricingRuleDto pricingRuleDto) throws PricingRuleNotFoundException {
+        if (!pricingRuleRepository.existsById(id)) {
+            throw new PricingRuleNotFoundException("Pricing rule not found: " + id);
+        }
+        PricingRule pricingRule = pricingRuleMapper.toEntity(pricingRuleDto);
+        pricingRule.setId(id);
+        validate(pricingRule);
+        return pricingRuleMapper.toDto(pricingRuleRepository.save(pricingRule));
+    }
+
+    /**
+     * Deletes a pricing rule.
+     *
+     * @param id the ID of the rule.
+     */
+    public void deleteRule(Long id) {
+        pricingRuleRepository.deleteById(id);
+    }
+
+    /**
+     * Lists all pricing rules, active or not.
+     *
+     * @return the rules as DTOs.
+     */
+    public List<PricingRuleDto> listRules() {
+        return pricingRuleRepository.findAll().stream()
+                .map(pricingRuleMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks the fields the type of the rule relies on.
+     */
+    private void validate(PricingRule rule) {
+        if (rule.getType() == null) {
+            throw new IllegalArgumentException("The type of the pricing rule is required");
+        }
+        switch (rule.getType()) {
+            case PRODUCT_PERCENT_OFF -> {
+                require(rule.getProductId() != null, "productId is required");
+                require(isValidPercent(rule.getPercentOffBasisPoints()), "percentOffBasisPoints must be between 1 and " + MAX_BASIS_POINTS);
+            }
+            case BUY_N_GET_M_FREE -> {
+                require(rule.getProductId() != null, "productId is required");
+                require(rule.getBuyQuantity() != null && rule.getBuyQuantity() > 0, "buyQuantity must be positive");
+                require(rule.getFreeQuantity() != null && rule.getFreeQuantity() > 0, "freeQuantity must be positive");
+            }
+            case ORDER_THRESHOLD -> {
+                require(rule.getThreshold() != null && rule.getThreshold().minorUnits() >= 0, "threshold must not be negative");
+                require(rule.getAmountOff() != null || rule.getPercentOffBasisPoints() != null,
+                        "amountOff or percentOffBasisPoints is required");
+                require(rule.getAmountOff() == null || rule.getAmountOff().minorUnits() > 0, "amountOff must be positive");
+                require(rule.getPercentOffBasisPoints() == null || isValidPercent(rule.getPercentOffBasisPoints()),
+                        "percentOffBasisPoints must be between 1 and " + MAX_BASIS_POINTS);
+            }
+        }
+    }
+
+    private static boolean isValidPercent(Integer basisPoints) {
+        return basisPoints != null && basisPoints > 0 && basisPoints <= MAX_BASIS_POINTS;
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -1,13 +1,46 @@
 package ing.interview.store_management.service;
 
+import ing.interview.store_management.dto.OrderLinePriceView;
 import ing.interview.store_management.dto.ProductDto;
+import ing.interview.store_management.dto.ProductStockDto;
+import ing.interview.store_management.dto.ProductSuggestionDto;
+import ing.interview.store_management.dto.StockAdjustmentDto;
+import ing.interview.store_management.exception.InsufficientStockException;
+import ing.interview.store_management.exception.ProductNotFoundException;
+import ing.interview.store_management.exception.ProductReservedException;
+import ing.interview.store_management.journal.StockJournal;
 import ing.interview.store_management.mapper.ProductMapper;
+import ing.interview.store_management.model.Money;
 import ing.interview.store_management.model.Product;
+import ing.interview.store_management.model.ReservationStatus;
+import ing.interview.store_management.model.StockChangeReason;
+import ing.interview.store_management.repository.OrderProductRepository;
+import ing.interview.store_management.repository.OrderRepository;
 import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.ProductStockShardRepository;
+import ing.interview.store_management.repository.SalesChangeRepository;
+import ing.interview.store_management.repository.StockReservationRepository;
+import ing.interview.store_management.search.ProductSearchIndex;
+import ing.interview.store_management.search.ProductSuggestionTrie;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -17,12 +50,45 @@ import java.util.stream.Collectors;
 @Service
 public class ProductService {
 
+    // Bounds the IN lists of the set based statements
+    private static final int STATEMENT_CHUNK_SIZE = 500;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private SalesChangeRepository salesChangeRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private StockJournal stockJournal;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestionTrie productSuggestionTrie;
+
+    @Value("${productSearch.maxResults:100}")
+    private int maxSearchResults;
+
     /**
      * Creates a new product in the system.
      *
@@ -32,6 +98,11 @@ public class ProductService {
     public ProductDto createProduct(ProductDto productDto) {
         Product product = productMapper.toEntity(productDto);
         Product savedProduct = productRepository.save(product);
+        if (savedProduct.getStock() != null) {
+            stockJournal.record(savedProduct.getId(), savedProduct.getStock(), savedProduct.getStock(), StockChangeReason.MANUAL_UPDATE);
+        }
+        productSearchIndex.index(savedProduct.getId(), savedProduct.getName(), savedProduct.getDescription());
+        productSuggestionTrie.put(savedProduct.getId(), savedProduct.getName());
         return productMapper.toDto(savedProduct);
     }
 
@@ -43,17 +114,34 @@ public class ProductService {
      * @return the updated product as a DTO.
      * @throws RuntimeException if the product with the specified ID is not found.
      */
+    @Transactional
     public ProductDto updateProduct(Long id, ProductDto updatedProductDTO) {
-        Product product = productRepository.findById(id)
+        // Orders change the stock with a relative UPDATE, which waits for this lock, so none is overwritten
+        // and the journaled delta is the change actually made
+        Product product = productRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
+        int previousStock = getStock(product);
         product.setName(updatedProductDTO.getName());
         product.setDescription(updatedProductDTO.getDescription());
-        product.setPrice(updatedProductDTO.getPrice());
-        product.setStock(updatedProductDTO.getStock());
+        product.setPrice(Money.of(updatedProductDTO.getPrice()));
+        if (product.isStockSharded()) {
+            // Product.stock stays 0, the new stock is spread over the shards, whose own locks guard their quantities
+            if (updatedProductDTO.getStock() != null) {
+                previousStock = stockShardService.setTotal(product, updatedProductDTO.getStock());
+            }
+        } else {
+            product.setStock(updatedProductDTO.getStock());
+        }
 
         product = productRepository.save(product);
-        return productMapper.toDto(product);
+        if (updatedProductDTO.getStock() != null) {
+            stockJournal.record(product.getId(), updatedProductDTO.getStock() - previousStock, updatedProductDTO.getStock(), StockChangeReason.MANUAL_UPDATE);
+        }
+        if (!product.isDiscontinued()) {
+            indexAfterCommit(product.getId(), product.getName(), product.getDescription());
+        }
+        return toDto(product);
     }
 
     /**
@@ -63,29 +151,347 @@ public class ProductService {
      * @return the product as a DTO.
      * @throws RuntimeException if the product with the specified ID is not found.
      */
+    @Transactional(readOnly = true)
     public ProductDto getProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
-        return productMapper.toDto(product);
+        return toDto(product);
     }
 
     /**
-     * Deletes a product by its ID.
+     * Deletes a product by its ID, with its order lines and stock shards.
      *
      * @param id the ID of the product to be deleted.
      */
+    @Transactional
     public void deleteProduct(Long id) {
-        productRepository.deleteById(id);
+        deleteProducts(List.of(id));
+    }
+
+    /**
+     * Deletes products with their order lines and stock shards, using one DELETE statement per table and chunk of IDs,
+     * so neither the products nor their order history are loaded. The orders losing lines keep the share of their
+     * total price of the lines which stay. Discontinue products instead to keep their order history.
+     *
+     * @param ids the IDs of the products to delete, unknown IDs are ignored.
+     * @return the number of products deleted.
+     * @throws ProductReservedException if active stock reservations hold some of the products, nothing is deleted.
+     */
+    @Transactional
+    public int deleteProducts(Collection<Long> ids) throws ProductReservedException {
+        int deleted = 0;
+        Instant now = Instant.now();
+        for (List<Long> chunk : chunks(ids)) {
+            // The orders losing lines are folded into the sales rollups again
+            salesChangeRepository.recordForOrdersWithProducts(chunk, now);
+            Map<Long, Money> totalPrices = totalPricesWithoutProducts(chunk);
+            orderProductRepository.deleteByProductIdIn(chunk);
+            productStockShardRepository.deleteByProductIdIn(chunk);
+            deleted += productRepository.deleteByIdIn(chunk);
+
+            // Checked once the rows are deleted, a reservation taking their stock meanwhile has committed by now
+            List<Long> reservedIds = stockReservationRepository.findReservedProductIds(ReservationStatus.ACTIVE, chunk);
+            if (!reservedIds.isEmpty()) {
+                throw new ProductReservedException("Products held by active stock reservations: " + reservedIds);
+            }
+            totalPrices.forEach(orderRepository::updateTotalPrice);
+        }
+        removeFromIndexesAfterCommit(ids);
+        return deleted;
+    }
+
+    /**
+     * Computes the total price left to the orders which lose their lines of the given products.
+     * The total is split pro rata to the list value of the lines at the current prices, as the sales rollups
+     * split it, so a discount of the order stays applied to the lines which stay.
+     *
+     * @param productIds the IDs of the products whose lines are removed.
+     * @return a map of the affected order IDs to their new total price.
+     */
+    private Map<Long, Money> totalPricesWithoutProducts(List<Long> productIds) {
+        Set<Long> removedIds = new HashSet<>(productIds);
+        Map<Long, List<OrderLinePriceView>> linesByOrder = orderProductRepository.findLinePricesOfOrdersWithProducts(productIds).stream()
+                .collect(Collectors.groupingBy(OrderLinePriceView::getOrderId));
+
+        Map<Long, Money> totalPrices = new HashMap<>();
+        linesByOrder.forEach((orderId, lines) -> {
+            Money totalPrice = lines.get(0).getTotalPrice();
+            if (totalPrice == null) {
+                return;
+            }
+            // Split by quantity when none of the lines has a price
+            boolean byValue = lines.stream().anyMatch(line -> line.getPrice() != null && line.getPrice().minorUnits() > 0);
+            BigInteger weight = BigInteger.ZERO;
+            BigInteger keptWeight = BigInteger.ZERO;
+            for (OrderLinePriceView line : lines) {
+                BigInteger lineWeight = BigInteger.valueOf(line.getQuantity());
+                if (byValue) {
+                    lineWeight = lineWeight.multiply(BigInteger.valueOf(line.getPrice() != null ? line.getPrice().minorUnits() : 0));
+                }
+                weight = weight.add(lineWeight);
+                if (!removedIds.contains(line.getProductId())) {
+                    keptWeight = keptWeight.add(lineWeight);
+                }
+            }
+            if (weight.signum() > 0) {
+                totalPrices.put(orderId, Money.ofMinor(BigInteger.valueOf(totalPrice.minorUnits())
+                        .multiply(keptWeight).divide(weight).longValueExact()));
+            }
+        });
+        return totalPrices;
+    }
+
+    /**
+     * Marks products as discontinued with one UPDATE statement per chunk of IDs. They keep their order history
+     * and can still be read by ID, but are no longer listed, searched, suggested or orderable. Stock held for them by
+     * active reservations is given back when the reservation is confirmed, released or expires.
+     *
+     * @param ids the IDs of the products to discontinue, unknown IDs are ignored.
+     * @return the number of products newly discontinued.
+     */
+    @Transactional
+    public int discontinueProducts(Collection<Long> ids) {
+        int discontinued = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            discontinued += productRepository.discontinueByIdIn(chunk);
+        }
+        removeFromIndexesAfterCommit(ids);
+        return discontinued;
     }
 
     /**
-     * Lists all products in the system.
+     * Lists all products in the system which are not discontinued.
      *
      * @return a list of all products as DTOs.
      */
+    @Transactional(readOnly = true)
     public List<ProductDto> listAllProducts() {
-        return productRepository.findAll().stream()
-                .map(productMapper::toDto)
-                .collect(Collectors.toList());
+        return toDtos(productRepository.findByDiscontinuedFalse());
+    }
+
+    /**
+     * Searches the name and description of the products through the in-memory search index.
+     *
+     * @param query the search text, every word must match a word of the product or the start of one.
+     * @param limit the maximum number of results.
+     * @return the matching products as DTOs, best match first.
+     * @throws IllegalArgumentException if the limit is not between 1 and productSearch.maxResults.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDto> searchProducts(String query, int limit) {
+        if (limit < 1 || limit > maxSearchResults) {
+            throw new IllegalArgumentException("The limit must be between 1 and " + maxSearchResults);
+        }
+        List<Long> productIds = productSearchIndex.search(query, limit);
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        // Keep the ranking of the index, a product deleted or discontinued in the meantime is skipped
+        return toDtos(productIds.stream()
+                .map(products::get)
+                .filter(product -> product != null && !product.isDiscontinued())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Suggests product names for what was typed so far, most ordered products first.
+     *
+     * @param prefix the start of the product name, or of one of its words.
+     * @return the suggestions, served from memory without a database query.
+     */
+    public List<ProductSuggestionDto> suggestProducts(String prefix) {
+        return productSuggestionTrie.suggest(prefix);
+    }
+
+    /**
+     * Splits the stock of a product across a number of shards, so concurrent orders for it do not all
+     * update the same row. The stock reported for the product stays the same.
+     *
+     * @param id     the ID of the product.
+     * @param shards the number of shards, 0 to keep the stock in the product row again.
+     * @return the stock of the product.
+     * @throws ProductNotFoundException if the product does not exist.
+     */
+    public ProductStockDto reshardStock(Long id, int shards) throws ProductNotFoundException {
+        return stockShardService.reshard(id, shards);
+    }
+
+    /**
+     * Adds a relative delta to the stock of a product, atomically in the database,
+     * so concurrent order decrements are never overwritten.
+     *
+     * @param id    the ID of the product.
+     * @param delta the quantity to add, negative to remove.
+     * @return the resulting stock level.
+     * @throws ProductNotFoundException   if the product does not exist.
+     * @throws InsufficientStockException if the stock would become negative.
+     */
+    @Transactional
+    public ProductStockDto adjustStock(Long id, Integer delta) throws ProductNotFoundException, InsufficientStockException {
+        return adjustStocks(List.of(new StockAdjustmentDto(id, delta))).get(0);
+    }
+
+    /**
+     * Adds relative deltas to the stock of several products, for example when receiving a shipment.
+     * All deltas are applied with a single UPDATE statement, and either all of them or none are applied.
+     *
+     * @param stockAdjustments the products and the quantity to add to each, deltas for the same product are summed.
+     * @return the resulting stock levels.
+     * @throws ProductNotFoundException   if one of the products does not exist.
+     * @throws InsufficientStockException if the stock of one of the products would become negative.
+     * @throws IllegalArgumentException   if an adjustment lacks its product ID or delta.
+     */
+    @Transactional
+    public List<ProductStockDto> adjustStocks(List<StockAdjustmentDto> stockAdjustments) throws ProductNotFoundException, InsufficientStockException {
+        return adjustStocks(stockAdjustments, StockChangeReason.STOCK_ADJUSTMENT);
+    }
+
+    /**
+     * Adds relative deltas to the stock of several products, all or none of them, recording them in the stock journal
+     * with the given reason.
+     *
+     * @param stockAdjustments the products and the quantity to add to each, deltas for the same product are summed.
+     * @param reason           the reason recorded in the stock journal.
+     * @return the resulting stock levels.
+     * @throws ProductNotFoundException   if one of the products does not exist.
+     * @throws InsufficientStockException if the stock of one of the products would become negative.
+     * @throws IllegalArgumentException   if an adjustment lacks its product ID or delta.
+     */
+    @Transactional
+    public List<ProductStockDto> adjustStocks(List<StockAdjustmentDto> stockAdjustments, StockChangeReason reason) throws ProductNotFoundException, InsufficientStockException {
+        if (stockAdjustments == null) {
+            throw new IllegalArgumentException("The stock adjustments are required");
+        }
+        Map<Long, Integer> stockDeltas = new LinkedHashMap<>();
+        for (StockAdjustmentDto stockAdjustment : stockAdjustments) {
+            if (stockAdjustment == null || stockAdjustment.getProductId() == null || stockAdjustment.getDelta() == null) {
+                throw new IllegalArgumentException("Every stock adjustment needs a product ID and a delta");
+            }
+            stockDeltas.merge(stockAdjustment.getProductId(), stockAdjustment.getDelta(), Integer::sum);
+        }
+
+        // Sharded products are adjusted through their shards, the others with one UPDATE statement
+        Map<Long, Integer> shardedStocks = adjustShardedStocks(stockDeltas);
+        Map<Long, Integer> rowDeltas = new LinkedHashMap<>(stockDeltas);
+        rowDeltas.keySet().removeAll(shardedStocks.keySet());
+
+        int updated = shardedStocks.size() + productRepository.adjustStocks(rowDeltas);
+        List<ProductStockDto> stockLevels = productRepository.findStockByIdIn(stockDeltas.keySet());
+        for (ProductStockDto stockLevel : stockLevels) {
+            if (shardedStocks.containsKey(stockLevel.getProductId())) {
+                stockLevel.setStock(shardedStocks.get(stockLevel.getProductId()));
+            }
+        }
+
+        if (updated < stockDeltas.size()) {
+            // Throwing rolls back the rows which were updated
+            if (stockLevels.size() < stockDeltas.size()) {
+                Set<Long> foundIds = stockLevels.stream().map(ProductStockDto::getProductId).collect(Collectors.toSet());
+                Long missingId = stockDeltas.keySet().stream().filter(productId -> !foundIds.contains(productId)).findFirst().orElse(null);
+                throw new ProductNotFoundException("Product not found: " + missingId);
+            }
+            throw new InsufficientStockException("Insufficient stock to apply the adjustment");
+        }
+
+        for (ProductStockDto stockLevel : stockLevels) {
+            stockJournal.record(stockLevel.getProductId(), stockDeltas.get(stockLevel.getProductId()), stockLevel.getStock(), reason);
+        }
+        return stockLevels;
+    }
+
+    /**
+     * Applies the deltas of the sharded products among the given ones.
+     *
+     * @param stockDeltas the quantity to add to each product.
+     * @return a map of the sharded product IDs to their resulting stock.
+     * @throws InsufficientStockException if the stock of one of the sharded products would become negative.
+     */
+    private Map<Long, Integer> adjustShardedStocks(Map<Long, Integer> stockDeltas) throws InsufficientStockException {
+        Map<Long, Integer> shardedStocks = new LinkedHashMap<>();
+        List<Long> shardedIds = productRepository.findStockShardedIdIn(stockDeltas.keySet());
+        for (Product product : productRepository.findAllById(shardedIds)) {
+            int delta = stockDeltas.get(product.getId());
+            int stock = delta >= 0 ? stockShardService.give(product, delta) : stockShardService.take(product, -delta);
+            shardedStocks.put(product.getId(), stock);
+        }
+        return shardedStocks;
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += STATEMENT_CHUNK_SIZE) {
+            chunks.add(distinctIds.subList(from, Math.min(from + STATEMENT_CHUNK_SIZE, distinctIds.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Drops the products from the search index and the suggestion trie once the transaction committed,
+     * a rolled back deletion keeps them searchable.
+     */
+    private void removeFromIndexesAfterCommit(Collection<Long> ids) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Long id : ids) {
+                    productSearchIndex.remove(id);
+                    productSuggestionTrie.remove(id);
+                }
+            }
+        });
+    }
+
+    /**
+     * Indexes the new name and description of a product once the transaction committed,
+     * a rolled back update keeps the product searchable under its old name.
+     */
+    private void indexAfterCommit(Long id, String name, String description) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productSearchIndex.index(id, name, description);
+                productSuggestionTrie.put(id, name);
+            }
+        });
+    }
+
+    /**
+     * Returns the stock of a product, summing its shards when its stock is sharded.
+     */
+    private int getStock(Product product) {
+        if (product.isStockSharded()) {
+            return stockShardService.availableStock(product.getId());
+        }
+        return product.getStock() != null ? product.getStock() : 0;
+    }
+
+    /**
+     * Maps products to their DTOs, the shards of all sharded products are summed with one grouped query.
+     */
+    private List<ProductDto> toDtos(List<Product> products) {
+        Map<Long, Integer> shardedStocks = stockShardService.availableStocks(products.stream()
+                .filter(Product::isStockSharded)
+                .map(Product::getId)
+                .collect(Collectors.toList()));
+        List<ProductDto> productDtos = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ProductDto productDto = productMapper.toDto(product);
+            if (product.isStockSharded()) {
+                productDto.setStock(shardedStocks.getOrDefault(product.getId(), 0));
+            }
+            productDtos.add(productDto);
+        }
+        return productDtos;
+    }
+
+    /**
+     * Maps a product to its DTO, which always carries the total stock.
+     */
+    private ProductDto toDto(Product product) {
+        ProductDto productDto = productMapper.toDto(product);
+        if (product.isStockSharded()) {
+            productDto.setStock(stockShardService.availableStock(product.getId()));
+        }
+        return productDto;
     }
-}
\ No newline at end of file
+}
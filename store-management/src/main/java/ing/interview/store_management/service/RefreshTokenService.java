@@ -0,0 +1,159 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.exception.InvalidRefreshTokenException;
+import ing.interview.store_management.model.RefreshToken;
+import ing.interview.store_management.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Service layer for the refresh tokens handed out by /authenticate.
+ * Refresh tokens are opaque random strings, only their SHA-256 hash is stored so a lookup is one indexed read.
+ * Every refresh rotates the token; presenting an already rotated token revokes all the tokens of that user.
+ * Logout and revocation delete the tokens, so a revoked token is merely unknown and never taken for a stolen one.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Value("${jwt.refreshExpirationMillis}")
+    private long refreshExpirationMillis;
+
+    /**
+     * Issues a new refresh token for a user.
+     *
+     * @param username the user the token belongs to.
+     * @return the opaque refresh token, it cannot be recovered later.
+     */
+    @Transactional
+    public String issue(String username) {
+        byte[] randomBytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(randomBytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+        refreshTokenRepository.save(new RefreshToken(hash(token), username,
+                Instant.now().plusMillis(refreshExpirationMillis)));
+        return token;
+    }
+
+    /**
+     * Consumes a refresh token, it can not be used again afterwards.
+     *
+     * @param token the opaque refresh token.
+     * @return the username the token belongs to.
+     * @throws InvalidRefreshTokenException if the token is unknown, expired or was already used.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public String consume(String token) throws InvalidRefreshTokenException {
+        if (token == null || token.isEmpty()) {
+            throw new InvalidRefreshTokenException("Refresh token missing");
+        }
+        String tokenHash = hash(token);
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(tokenHash)
+                .orElseThrow(() -> new InvalidRefreshTokenException("Invalid refresh token"));
+
+        if (refreshTokenRepository.revokeByTokenHash(tokenHash) == 0) {
+            // The token was already rotated, someone may be replaying a stolen token
+            logger.warn("Reuse of a rotated refresh token detected for user {}", refreshToken.getUsername());
+            refreshTokenRepository.deleteAllByUsername(refreshToken.getUsername());
+            throw new InvalidRefreshTokenException("Invalid refresh token");
+        }
+        if (refreshToken.getExpiresAt().isBefore(Instant.now())) {
+            throw new InvalidRefreshTokenException("Refresh token expired");
+        }
+        return refreshToken.getUsername();
+    }
+
+    /**
+     * Rotates a refresh token in one transaction: consumes it, reloads its user so role or permission changes are
+     * reflected in the next JWT, and issues the next token. If the user is gone nothing changes.
+     *
+     * @param token the opaque refresh token.
+     * @return the reloaded user and the next refresh token.
+     * @throws InvalidRefreshTokenException if the token is unknown, expired or was already used.
+     * @throws UsernameNotFoundException    if the user of the token no longer exists.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Rotation rotate(String token) throws InvalidRefreshTokenException, UsernameNotFoundException {
+        String username = consume(token);
+        UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
+        return new Rotation(userDetails, issue(username));
+    }
+
+    /**
+     * Revokes a single refresh token by deleting it, used on logout. Unknown tokens are ignored.
+     *
+     * @param token the opaque refresh token.
+     */
+    @Transactional
+    public void revoke(String token) {
+        if (token != null && !token.isEmpty()) {
+            refreshTokenRepository.deleteByTokenHash(hash(token));
+        }
+    }
+
+    /**
+     * Revokes every refresh token of a user by deleting them.
+     *
+     * @param username the user whose tokens are revoked.
+     * @return the number of revoked tokens.
+     */
+    @Transactional
+    public int revokeAll(String username) {
+        return refreshTokenRepository.deleteAllByUsername(username);
+    }
+
+    /**
+     * Deletes the expired refresh tokens, revoked or not, with a single statement.
+     */
+    @Scheduled(fixedRateString = "${jwt.refreshCleanupMillis:3600000}")
+    @Transactional
+    public void deleteExpiredTokens() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.info("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    /**
+     * The outcome of a rotation.
+     *
+     * @param userDetails  the user the token belongs to, freshly loaded.
+     * @param refreshToken the next opaque refresh token.
+     */
+    public record Rotation(UserDetails userDetails, String refreshToken) {
+    }
+
+    private String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.dto.ProductStockDto;
+import ing.interview.store_management.dto.ReservationExpiryView;
+import ing.interview.store_management.dto.ReservationRequest;
+import ing.interview.store_management.dto.StockAdjustmentDto;
+import ing.interview.store_management.dto.StockReservationDto;
+import ing.interview.store_management.exception.InsufficientStockException;
+import ing.interview.store_management.exception.ProductNotFoundException;
+import ing.interview.store_management.exception.ReservationNotActiveException;
+import ing.interview.store_management.exception.ReservationNotFoundException;
+import ing.interview.store_management.expiry.HierarchicalTimingWheel;
+import ing.interview.store_management.model.ReservationStatus;
+import ing.interview.store_management.model.ReservedQuantity;
+import ing.interview.store_management.model.StockChangeReason;
+import ing.interview.store_management.model.StockReservation;
+import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.StockReservationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service layer for time-limited stock reservations.
+ * Reserving takes the quantities out of the product stock right away, so concurrent orders can not sell them.
+ * Confirming turns the reservation into an order without deducting the stock a second time, while releasing
+ * or letting the reservation expire gives the stock back. Expiries are tracked by a hierarchical timing wheel,
+ * so the many open checkouts cost no polling of the database.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${reservation.tickMillis:100}")
+    private long tickMillis;
+
+    @Value("${reservation.wheelSize:64}")
+    private int wheelSize;
+
+    @Value("${reservation.defaultTtlSeconds:600}")
+    private long defaultTtlSeconds;
+
+    @Value("${reservation.maxTtlSeconds:3600}")
+    private long maxTtlSeconds;
+
+    @Value("${reservation.expiryRetryMillis:1000}")
+    private long expiryRetryMillis;
+
+    @Value("${reservation.expiryMaxRetryMillis:60000}")
+    private long expiryMaxRetryMillis;
+
+    private HierarchicalTimingWheel<Long> expiryWheel;
+
+    // Scheduled expiry of every active reservation, cancelled when the reservation is confirmed or released
+    private final Map<Long, HierarchicalTimingWheel.Timeout> expiries = new ConcurrentHashMap<>();
+
+    // Failed expiry attempts of the reservations whose expiry is being retried
+    private final Map<Long, Integer> expiryAttempts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void startExpiryWheel() {
+        expiryWheel = new HierarchicalTimingWheel<>(tickMillis, wheelSize, this::onExpiry, "reservation-expiry");
+    }
+
+    @PreDestroy
+    public void stopExpiryWheel() {
+        expiryWheel.close();
+    }
+
+    /**
+     * Schedules the expiry of the reservations left active by a previous run.
+     * Those whose deadline already passed expire right away.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleActiveReservations() {
+        List<ReservationExpiryView> activeReservations = stockReservationRepository.findExpiriesByStatus(ReservationStatus.ACTIVE);
+        for (ReservationExpiryView reservation : activeReservations) {
+            scheduleExpiry(reservation.getId(), reservation.getExpiresAt());
+        }
+        logger.info("Scheduled the expiry of {} active stock reservations", activeReservations.size());
+    }
+
+    /**
+     * Holds stock for a checkout.
+     *
+     * @param reservationRequest the products and quantities to hold, and for how long.
+     * @return the active reservation.
+     * @throws ProductNotFoundException   if one of the products does not exist.
+     * @throws InsufficientStockException if the stock of one of the products does not cover the quantity.
+     */
+    @Transactional
+    public StockReservationDto reserve(ReservationRequest reservationRequest) throws ProductNotFoundException, InsufficientStockException {
+        long ttlSeconds = reservationRequest.getTtlSeconds() != null ? reservationRequest.getTtlSeconds() : defaultTtlSeconds;
+        if (ttlSeconds <= 0 || ttlSeconds > maxTtlSeconds) {
+            throw new IllegalArgumentException("The reservation time to live must be between 1 and " + maxTtlSeconds + " seconds");
+        }
+        Map<Long, Integer> quantities = getReservedQuantities(reservationRequest.getOrderProducts());
+
+        // Take the stock first, nothing is saved when one of the products lacks stock
+        productService.adjustStocks(toAdjustments(quantities, -1), StockChangeReason.RESERVATION_HELD);
+
+        StockReservation reservation = new StockReservation();
+        reservation.setStatus(ReservationStatus.ACTIVE);
+        reservation.setCreatedAt(Instant.now());
+        reservation.setExpiresAt(reservation.getCreatedAt().plusSeconds(ttlSeconds));
+        quantities.forEach((productId, quantity) -> reservation.getReservedQuantities().add(new ReservedQuantity(productId, quantity)));
+        StockReservation savedReservation = stockReservationRepository.save(reservation);
+
+        // A rolled back reservation must not expire and give back stock it never took
+        afterCommit(() -> scheduleExpiry(savedReservation.getId(), savedReservation.getExpiresAt()));
+        return toDto(savedReservation);
+    }
+
+    /**
+     * Turns an active reservation into an order. The held stock becomes the stock of the order.
+     *
+     * @param id the ID of the reservation.
+     * @return the created order.
+     * @throws ReservationNotFoundException  if the reservation does not exist.
+     * @throws ReservationNotActiveException if the reservation is no longer active.
+     */
+    @Transactional
+    public OrderDto confirm(Long id) throws ReservationNotFoundException, ReservationNotActiveException {
+        StockReservation reservation = getActiveReservationForUpdate(id);
+
+        OrderDto order = orderService.createOrderFromReservation(toOrderProducts(reservation));
+        reservation.setStatus(ReservationStatus.CONFIRMED);
+        reservation.setOrderId(order.getId());
+        stockReservationRepository.save(reservation);
+
+        afterCommit(() -> cancelExpiry(id));
+        return order;
+    }
+
+    /**
+     * Releases an active reservation and gives its stock back.
+     *
+     * @param id the ID of the reservation.
+     * @throws ReservationNotFoundException  if the reservation does not exist.
+     * @throws ReservationNotActiveException if the reservation is no longer active.
+     */
+    @Transactional
+    public void release(Long id) throws ReservationNotFoundException, ReservationNotActiveException {
+        StockReservation reservation = getActiveReservationForUpdate(id);
+        returnStock(reservation, ReservationStatus.RELEASED);
+        afterCommit(() -> cancelExpiry(id));
+    }
+
+    /**
+     * Retrieves a reservation.
+     *
+     * @param id the ID of the reservation.
+     * @return the reservation.
+     * @throws ReservationNotFoundException if the reservation does not exist.
+     */
+    public StockReservationDto getReservation(Long id) throws ReservationNotFoundException {
+        return stockReservationRepository.findById(id)
+                .map(this::toDto)
+                .orElseThrow(() -> new ReservationNotFoundException("Reservation not found: " + id));
+    }
+
+    /**
+     * Expires a reservation, giving its stock back, unless it was confirmed or released in the meantime.
+     *
+     * @param id the ID of the reservation.
+     */
+    @Transactional
+    public void expire(Long id) {
+        stockReservationRepository.findByIdForUpdate(id)
+                .filter(reservation -> reservation.getStatus() == ReservationStatus.ACTIVE)
+                .filter(reservation -> !reservation.getExpiresAt().isAfter(Instant.now()))
+                .ifPresent(reservation -> {
+                    returnStock(reservation, ReservationStatus.EXPIRED);
+                    logger.info("Stock reservation {} expired", id);
+                });
+    }
+
+    // Runs on the thread of the timing wheel. A failed expiry (a lock timeout or a transient database error) is
+    // retried with a doubling backoff, otherwise the reservation would hold its stock until the next start
+    private void onExpiry(Long id) {
+        expiries.remove(id);
+        try {
+            transactionTemplate.executeWithoutResult(status -> expire(id));
+            expiryAttempts.remove(id);
+        } catch (RuntimeException e) {
+            int attempt = expiryAttempts.merge(id, 1, Integer::sum);
+            long backoffMillis = Math.min(expiryRetryMillis << Math.min(attempt - 1, 20), expiryMaxRetryMillis);
+            logger.warn("Expiry of stock reservation {} failed (attempt {}), retrying in {} ms", id, attempt, backoffMillis, e);
+            scheduleExpiry(id, Instant.now().plusMillis(backoffMillis));
+        }
+    }
+
+    private void scheduleExpiry(Long id, Instant expiresAt) {
+        // One millisecond later, so the expiry never runs within the sub-millisecond before expiresAt
+        expiries.put(id, expiryWheel.schedule(id, expiresAt.toEpochMilli() + 1));
+    }
+
+    private void cancelExpiry(Long id) {
+        expiryAttempts.remove(id);
+        HierarchicalTimingWheel.Timeout timeout = expiries.remove(id);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private StockReservation getActiveReservationForUpdate(Long id) {
+        StockReservation reservation = stockReservationRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ReservationNotFoundException("Reservation not found: " + id));
+        // A reservation past its deadline is expired, even if the timing wheel did not get to it yet
+        if (reservation.getStatus() != ReservationStatus.ACTIVE || !reservation.getExpiresAt().isAfter(Instant.now())) {
+            throw new ReservationNotActiveException("Reservation " + id + " is no longer active");
+        }
+        return reservation;
+    }
+
+    private void returnStock(StockReservation reservation, ReservationStatus status) {
+        reservation.setStatus(status);
+        stockReservationRepository.save(reservation);
+
+        Map<Long, Integer> quantities = reservation.getReservedQuantities().stream()
+                .collect(Collectors.toMap(ReservedQuantity::getProductId, ReservedQuantity::getQuantity, Integer::sum));
+        // A deleted product has no stock to give back, the reservation still ends
+        Set<Long> existingIds = productRepository.findStockByIdIn(quantities.keySet()).stream()
+                .map(ProductStockDto::getProductId)
+                .collect(Collectors.toSet());
+        if (quantities.keySet().retainAll(existingIds)) {
+            logger.warn("Stock reservation {} holds stock of deleted products, only the rest is given back", reservation.getId());
+        }
+        if (!quantities.isEmpty()) {
+            productService.adjustStocks(toAdjustments(quantities, 1), StockChangeReason.RESERVATION_RELEASED);
+        }
+    }
+
+    /**
+     * Sums the requested quantities by product ID.
+     *
+     * @param orderProductDTOs the requested products and quantities.
+     * @return a map of product IDs to their quantity.
+     */
+    private static Map<Long, Integer> getReservedQuantities(Set<OrderProductDto> orderProductDTOs) {
+        if (orderProductDTOs == null || orderProductDTOs.isEmpty()) {
+            throw new IllegalArgumentException("A reservation needs at least one product");
+        }
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderProductDto orderProductDto : orderProductDTOs) {
+            if (orderProductDto.getProductId() == null || orderProductDto.getQuantity() == null || orderProductDto.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Every reserved product needs an ID and a positive quantity");
+            }
+            quantities.merge(orderProductDto.getProductId(), orderProductDto.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private static List<StockAdjustmentDto> toAdjustments(Map<Long, Integer> quantities, int sign) {
+        List<StockAdjustmentDto> stockAdjustments = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> stockAdjustments.add(new StockAdjustmentDto(productId, sign * quantity)));
+        return stockAdjustments;
+    }
+
+    private static Set<OrderProductDto> toOrderProducts(StockReservation reservation) {
+        return reservation.getReservedQuantities().stream()
+                .map(reserved -> new OrderProductDto(null, reserved.getProductId(), reserved.getQuantity()))
+                .collect(Collectors.toSet());
+    }
+
+    private StockReservationDto toDto(StockReservation reservation) {
+        return new StockReservationDto(reservation.getId(), reservation.getStatus(), reservation.getExpiresAt(),
+                reservation.getOrderId(), toOrderProducts(reservation));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
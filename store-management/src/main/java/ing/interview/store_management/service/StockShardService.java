@@ -0,0 +1,220 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.dto.ProductStockDto;
+import ing.interview.store_management.dto.StockShardView;
+import ing.interview.store_management.exception.InsufficientStockException;
+import ing.interview.store_management.exception.ProductNotFoundException;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.model.ProductStockShard;
+import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.ProductStockShardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Service layer for the sharded stock of hot products.
+ * The stock of a sharded product is split across ProductStockShard rows and Product.stock stays 0.
+ * Orders take from a random shard with a conditional UPDATE, so concurrent orders for the same product
+ * mostly lock different rows. Callers only ever see the total, which is the sum of the shards.
+ */
+@Service
+public class StockShardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockShardService.class);
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${stockShards.maxShards:64}")
+    private int maxShards;
+
+    /**
+     * Returns the stock of a sharded product.
+     *
+     * @param productId the ID of the product.
+     * @return the sum of its shards.
+     */
+    public int availableStock(Long productId) {
+        return (int) productStockShardRepository.sumQuantity(productId);
+    }
+
+    /**
+     * Returns the stock of several sharded products with a single grouped query.
+     *
+     * @param productIds the IDs of the products.
+     * @return a map of product IDs to the sum of their shards.
+     */
+    public Map<Long, Integer> availableStocks(Collection<Long> productIds) {
+        Map<Long, Integer> stocks = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return stocks;
+        }
+        for (ProductStockDto stock : productStockShardRepository.sumQuantities(productIds)) {
+            stocks.put(stock.getProductId(), stock.getStock());
+        }
+        return stocks;
+    }
+
+    /**
+     * Takes a quantity from the stock of a sharded product.
+     * Starts at a random shard and falls back to the others; only when no single shard holds the whole quantity
+     * are all the shards locked and drained one after the other.
+     *
+     * @param product  the sharded product.
+     * @param quantity the quantity to take.
+     * @return the stock left after the change.
+     * @throws InsufficientStockException if the shards together do not hold the quantity.
+     */
+    @Transactional
+    public int take(Product product, int quantity) throws InsufficientStockException {
+        int shards = product.getStockShards();
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            if (productStockShardRepository.takeFromShard(product.getId(), (start + i) % shards, quantity) == 1) {
+                return availableStock(product.getId());
+            }
+        }
+
+        // Slow path, the quantity is spread over several shards
+        List<StockShardView> lockedShards = productStockShardRepository.lockShards(product.getId());
+        int total = lockedShards.stream().mapToInt(StockShardView::getQuantity).sum();
+        if (total < quantity) {
+            throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+        }
+        int remaining = quantity;
+        for (StockShardView shard : lockedShards) {
+            int taken = Math.min(shard.getQuantity(), remaining);
+            if (taken > 0) {
+                productStockShardRepository.setShardQuantity(product.getId(), shard.getShardIndex(), shard.getQuantity() - taken);
+                remaining -= taken;
+            }
+        }
+        return total - quantity;
+    }
+
+    /**
+     * Returns a quantity to the stock of a sharded product, into a random shard.
+     *
+     * @param product  the sharded product.
+     * @param quantity the quantity to add.
+     * @return the stock after the change.
+     */
+    @Transactional
+    public int give(Product product, int quantity) {
+        int shardIndex = ThreadLocalRandom.current().nextInt(product.getStockShards());
+        productStockShardRepository.addToShard(product.getId(), shardIndex, quantity);
+        return availableStock(product.getId());
+    }
+
+    /**
+     * Replaces the stock of a sharded product, spreading it evenly over its shards.
+     *
+     * @param product the sharded product.
+     * @param stock   the new total stock.
+     * @return the total stock it replaced, read under the lock of the shards.
+     */
+    @Transactional
+    public int setTotal(Product product, int stock) {
+        int previousStock = productStockShardRepository.lockShards(product.getId()).stream().mapToInt(StockShardView::getQuantity).sum();
+        spreadEvenly(product.getId(), product.getStockShards(), stock);
+        return previousStock;
+    }
+
+    /**
+     * Changes the number of shards of a product. The current stock is moved into the new shards,
+     * a count of 0 moves it back into Product.stock.
+     *
+     * @param productId the ID of the product.
+     * @param shards    the number of shards, 0 to stop sharding.
+     * @return the product stock, which is unchanged.
+     * @throws ProductNotFoundException if the product does not exist.
+     */
+    @Transactional
+    public ProductStockDto reshard(Long productId, int shards) throws ProductNotFoundException {
+        if (shards < 0 || shards > maxShards) {
+            throw new IllegalArgumentException("The number of stock shards must be between 0 and " + maxShards);
+        }
+        // Orders change the stock of an unsharded product with a relative UPDATE, which waits for this lock
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new ProductNotFoundException("Product not found: " + productId));
+
+        int stock;
+        if (product.isStockSharded()) {
+            stock = productStockShardRepository.lockShards(productId).stream().mapToInt(StockShardView::getQuantity).sum();
+            productStockShardRepository.deleteByProductId(productId);
+        } else {
+            stock = product.getStock() != null ? product.getStock() : 0;
+        }
+
+        if (shards > 0) {
+            List<ProductStockShard> newShards = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++) {
+                newShards.add(new ProductStockShard(productId, i, evenShare(stock, shards, i)));
+            }
+            productStockShardRepository.saveAll(newShards);
+            product.setStock(0);
+            product.setStockShards(shards);
+        } else {
+            product.setStock(stock);
+            product.setStockShards(null);
+        }
+        productRepository.save(product);
+        logger.info("Product {} now keeps its stock of {} in {} shards", productId, stock, shards);
+        return new ProductStockDto(productId, stock);
+    }
+
+    /**
+     * Evens out the shards of every sharded product, so random picks keep finding a shard which holds the quantity.
+     * Each product is rebalanced in its own short transaction, and only when one of its shards fell below half its fair share.
+     */
+    @Scheduled(fixedDelayString = "${stockShards.rebalanceMillis:5000}")
+    public void rebalance() {
+        for (Long productId : productStockShardRepository.findShardedProductIds()) {
+            transactionTemplate.executeWithoutResult(status -> rebalance(productId));
+        }
+    }
+
+    private void rebalance(Long productId) {
+        List<StockShardView> lockedShards = productStockShardRepository.lockShards(productId);
+        if (lockedShards.isEmpty()) {
+            return;
+        }
+        int total = lockedShards.stream().mapToInt(StockShardView::getQuantity).sum();
+        int fairShare = total / lockedShards.size();
+        boolean skewed = lockedShards.stream().anyMatch(shard -> shard.getQuantity() < fairShare / 2);
+        if (skewed) {
+            spreadEvenly(productId, lockedShards.size(), total);
+            logger.debug("Rebalanced the {} stock shards of product {}", lockedShards.size(), productId);
+        }
+    }
+
+    private void spreadEvenly(Long productId, int shards, int stock) {
+        for (int i = 0; i < shards; i++) {
+            productStockShardRepository.setShardQuantity(productId, i, evenShare(stock, shards, i));
+        }
+    }
+
+    // The first (stock % shards) shards get one unit more
+    private static int evenShare(int stock, int shards, int shardIndex) {
+        return stock / shards + (shardIndex < stock % shards ? 1 : 0);
+    }
+}
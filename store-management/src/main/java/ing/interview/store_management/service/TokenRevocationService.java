@@ -0,0 +1,169 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.model.RevokedToken;
+import ing.interview.store_management.repository.RevokedTokenRepository;
+import ing.interview.store_management.security.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Service layer for revoking JWT tokens before they expire.
+ * Revocations are stored in the store_revoked_token table and mirrored in an in-memory Bloom filter,
+ * so checking a token that was never revoked (nearly every request) does not touch the database.
+ * Only a Bloom filter hit, a revoked token or a rare false positive, is confirmed with an indexed lookup.
+ * The filter is rebuilt on startup and after expired revocations are pruned. Revocations made by another
+ * instance are polled every jwt.revocation.pollMillis, so they apply here within seconds.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+    private static final String USER_KEY_PREFIX = "user:";
+    // Each poll reads back this far before the previous one, covering revocations committed late, the revocation
+    // time of a user being truncated to the second, and clock skew between the instances
+    private static final long POLL_OVERLAP_MILLIS = 30_000;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${jwt.expirationMillis}")
+    private long expirationMillis;
+
+    @Value("${jwt.revocation.expectedEntries:100000}")
+    private int expectedEntries;
+
+    @Value("${jwt.revocation.falsePositiveRate:0.001}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter revokedKeys = new BloomFilter(1, 0.5);
+    private Instant lastPolledAt = Instant.EPOCH;
+
+    /**
+     * Revokes a single token until it expires.
+     *
+     * @param tokenId   the id (jti) of the token.
+     * @param expiresAt the expiration of the token.
+     */
+    @Transactional
+    public void revokeToken(String tokenId, Instant expiresAt) {
+        if (revokedTokenRepository.findByRevocationKey(tokenId).isEmpty()) {
+            revokedTokenRepository.save(new RevokedToken(tokenId, Instant.now(), expiresAt));
+        }
+        addToFilterNowAndAfterCommit(tokenId);
+    }
+
+    /**
+     * Revokes every token of a user issued up to now.
+     *
+     * @param username the user whose tokens are revoked.
+     */
+    @Transactional
+    public void revokeAllTokens(String username) {
+        String key = USER_KEY_PREFIX + username;
+        // Tokens carry their issue time in seconds, every token issued in this second is revoked too,
+        // so one minted just before the call can not pass as issued afterwards
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        RevokedToken revokedToken = revokedTokenRepository.findByRevocationKey(key)
+                .orElseGet(() -> new RevokedToken(key, now, now));
+        revokedToken.setRevokedAt(now);
+        // Every token issued up to now has expired after one access token lifetime
+        revokedToken.setExpiresAt(now.plusMillis(expirationMillis));
+        revokedTokenRepository.save(revokedToken);
+        addToFilterNowAndAfterCommit(key);
+    }
+
+    /**
+     * Checks if a token was revoked, either on its own or with all the tokens of its user.
+     *
+     * @param tokenId  the id (jti) of the token.
+     * @param username the subject of the token.
+     * @param issuedAt the issue time of the token.
+     * @return true if the token is revoked.
+     */
+    public boolean isRevoked(String tokenId, String username, Instant issuedAt) {
+        BloomFilter filter = revokedKeys;
+        if (tokenId != null && filter.mightContain(tokenId)
+                && revokedTokenRepository.findByRevocationKey(tokenId).isPresent()) {
+            return true;
+        }
+        String userKey = USER_KEY_PREFIX + username;
+        if (filter.mightContain(userKey)) {
+            return revokedTokenRepository.findByRevocationKey(userKey)
+                    .map(revokedToken -> !issuedAt.isAfter(revokedToken.getRevokedAt()))
+                    .orElse(false);
+        }
+        return false;
+    }
+
+    /**
+     * Deletes the revocations of tokens which have expired anyway, then rebuilds the filter without them.
+     */
+    @Scheduled(fixedRateString = "${jwt.revocation.pruneMillis:600000}", initialDelayString = "${jwt.revocation.pruneMillis:600000}")
+    @Transactional
+    public void pruneExpiredRevocations() {
+        int deleted = revokedTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.info("Pruned {} expired token revocations", deleted);
+        }
+        rebuildFilter();
+    }
+
+    /**
+     * Builds a new filter from the revocations in the database and swaps it in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuildFilter() {
+        Instant now = Instant.now();
+        List<String> keys = revokedTokenRepository.findActiveRevocationKeys(now);
+        BloomFilter filter = new BloomFilter(Math.max(expectedEntries, keys.size() * 2), falsePositiveRate);
+        keys.forEach(filter::add);
+        revokedKeys = filter;
+        lastPolledAt = now;
+    }
+
+    /**
+     * Adds the revocations made since the previous poll, by this or any other instance, to the filter.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.pollMillis:2000}", initialDelayString = "${jwt.revocation.pollMillis:2000}")
+    public synchronized void pollNewRevocations() {
+        Instant now = Instant.now();
+        revokedTokenRepository.findRevocationKeysRevokedSince(lastPolledAt.minusMillis(POLL_OVERLAP_MILLIS))
+                .forEach(revokedKeys::add);
+        lastPolledAt = now;
+    }
+
+    /**
+     * Adds a revoked key to the filter right away, so the revocation applies before the commit, and again once
+     * the transaction committed: a rebuild running in between read the database without the uncommitted row
+     * and swapped in a filter without the key.
+     */
+    private void addToFilterNowAndAfterCommit(String key) {
+        addToFilter(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToFilter(key);
+                }
+            });
+        }
+    }
+
+    // Synchronized with the rebuild so an add can not land in a filter that is being replaced
+    private synchronized void addToFilter(String key) {
+        revokedKeys.add(key);
+    }
+}
@@ -0,0 +1,45 @@
+package ing.interview.store_management.web;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Lets clients ask for CBOR ({@code application/cbor}) or Smile ({@code application/x-jackson-smile}) instead of
+ * JSON through the Accept header, which is cheaper to encode and decode and smaller on the wire for the bulk
+ * product and order lists. Both are written by the same Jackson configuration as JSON, so the payloads have
+ * the same shape. The converters are placed right after the JSON one, a request without a specific Accept
+ * header still gets JSON.
+ */
+@Configuration
+public class BinaryContentNegotiationConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Drop the ones Spring registers itself when the formats are on the classpath, they ignore the Boot settings
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+        int json = 0;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+                json = i + 1;
+                break;
+            }
+        }
+        converters.add(json, new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build()));
+        converters.add(json, new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.factory(new CBORFactory()).build()));
+    }
+}
@@ -0,0 +1,98 @@
+package ing.interview.store_management.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Bulkhead caps the number of requests of one WorkloadClass running at once. A request waits at most
+ * {@code maxWaitMillis} for a permit and is then rejected, so a saturated class sheds its own load instead of
+ * taking request threads and pooled connections from the others: a request holds at most one connection at a time,
+ * a class can therefore never hold more connections than its permits. Its connections come from pools of its own,
+ * of as many connections as permits, see DataSourceRoutingConfig.
+ * Publishes the metrics "bulkhead.active", "bulkhead.wait" and "bulkhead.rejected", tagged with the workload.
+ */
+public class Bulkhead {
+
+    private final WorkloadClass workloadClass;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+    private final Semaphore permits;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public Bulkhead(WorkloadClass workloadClass, int maxConcurrent, long maxWaitMillis, long retryAfterSeconds,
+                    MeterRegistry meterRegistry) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("A bulkhead needs at least one permit: " + workloadClass.getKey());
+        }
+        this.workloadClass = workloadClass;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.permits = new Semaphore(maxConcurrent);
+
+        String workload = workloadClass.getKey();
+        this.waitTimer = Timer.builder("bulkhead.wait")
+                .description("Time a request waited for a permit of its workload class")
+                .tag("workload", workload)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("bulkhead.rejected")
+                .description("Requests rejected because their workload class was saturated")
+                .tag("workload", workload)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.active", this, Bulkhead::active)
+                .description("Requests of the workload class currently running")
+                .tag("workload", workload)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a permit, waiting at most the configured time.
+     *
+     * @return true if the request may run and must call {@link #release()}, false if it is rejected.
+     */
+    public boolean tryAcquire() {
+        // Uncontended path, no timing needed
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = maxWaitNanos > 0 && permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejected.increment();
+        }
+        return acquired;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * @return the number of requests currently holding a permit.
+     */
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public WorkloadClass getWorkloadClass() {
+        return workloadClass;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,41 @@
+package ing.interview.store_management.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Creates a Bulkhead per WorkloadClass from {@code bulkhead.<key>.maxConcurrent}, {@code .maxWaitMillis} and
+ * {@code .retryAfterSeconds}, and registers the BulkheadFilter just before the Spring Security filter chain.
+ */
+@Configuration
+public class BulkheadConfig {
+
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilterRegistration(
+            Environment environment, MeterRegistry meterRegistry,
+            @Value("${bulkhead.enabled:true}") boolean enabled) {
+        Map<WorkloadClass, Bulkhead> bulkheads = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            String prefix = "bulkhead." + workloadClass.getKey() + ".";
+            bulkheads.put(workloadClass, new Bulkhead(workloadClass,
+                    environment.getProperty(prefix + "maxConcurrent", Integer.class, 10),
+                    environment.getProperty(prefix + "maxWaitMillis", Long.class, 0L),
+                    environment.getProperty(prefix + "retryAfterSeconds", Long.class, 1L),
+                    meterRegistry));
+        }
+
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(new BulkheadFilter(bulkheads));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        registration.setAsyncSupported(true);
+        registration.setEnabled(enabled);
+        return registration;
+    }
+}
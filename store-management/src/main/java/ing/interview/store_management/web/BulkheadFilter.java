@@ -0,0 +1,101 @@
+package ing.interview.store_management.web;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The BulkheadFilter runs every request of a WorkloadClass under the Bulkhead of that class, ahead of the
+ * security filter chain so an overloaded class is shed before any token parsing or database work.
+ * A rejected request gets 503 with Retry-After and a message naming the overloaded class.
+ * The requests run as work of their class, fetching their connections from the pools of the class.
+ * Asynchronous requests, such as /authenticate, keep their permit until the async processing completes.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Map<WorkloadClass, Bulkhead> bulkheads;
+    // Error bodies are encoded once, writing them does not allocate
+    private final Map<WorkloadClass, byte[]> overloadBodies = new EnumMap<>(WorkloadClass.class);
+
+    public BulkheadFilter(Map<WorkloadClass, Bulkhead> bulkheads) {
+        this.bulkheads = new EnumMap<>(bulkheads);
+        for (WorkloadClass workloadClass : this.bulkheads.keySet()) {
+            overloadBodies.put(workloadClass, (workloadClass.getDisplayName() + " is overloaded, retry later")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = findBulkhead(request);
+        if (bulkhead == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!bulkhead.tryAcquire()) {
+            byte[] body = overloadBodies.get(bulkhead.getWorkloadClass());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(bulkhead.getRetryAfterSeconds()));
+            response.setContentType("text/plain;charset=UTF-8");
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+            return;
+        }
+
+        boolean releaseNow = true;
+        bulkhead.getWorkloadClass().enter();
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // onComplete also follows timeouts and errors
+                request.getAsyncContext().addListener(new ReleaseOnComplete(bulkhead));
+                releaseNow = false;
+            }
+        } finally {
+            WorkloadClass.leave();
+            if (releaseNow) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    private Bulkhead findBulkhead(HttpServletRequest request) {
+        for (Map.Entry<WorkloadClass, Bulkhead> entry : bulkheads.entrySet()) {
+            if (entry.getKey().matches(request)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private record ReleaseOnComplete(Bulkhead bulkhead) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            bulkhead.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ing.interview.store_management.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import static org.springframework.http.HttpMethod.DELETE;
+import static org.springframework.http.HttpMethod.GET;
+import static org.springframework.http.HttpMethod.POST;
+import static org.springframework.http.HttpMethod.PUT;
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
+/**
+ * The classes of requests isolated from each other by their own Bulkhead, configured under
+ * {@code bulkhead.<key>.*}. Requests matching none of them are not limited.
+ * Each class also takes its connections from pools of its own, see DataSourceRoutingConfig.
+ */
+public enum WorkloadClass {
+
+    PRODUCT_READS("productReads", "Product catalog",
+            antMatcher(GET, "/api/products/**")),
+    ORDER_WRITES("orderWrites", "Order processing",
+            new OrRequestMatcher(antMatcher(POST, "/api/orders/**"), antMatcher(PUT, "/api/orders/**"),
+                    antMatcher(DELETE, "/api/orders/**"), antMatcher(POST, "/api/reservations/**"),
+                    antMatcher(DELETE, "/api/reservations/**"))),
+    // The full order listing and the analytics exports scan whole tables
+    REPORTING("reporting", "Reporting",
+            new OrRequestMatcher(antMatcher(GET, "/api/orders"), antMatcher("/api/admin/order-snapshots/**"),
+                    antMatcher("/api/admin/sales/**"))),
+    AUTHENTICATION("auth", "Authentication",
+            new OrRequestMatcher(antMatcher("/authenticate"), antMatcher("/authenticate/**")));
+
+    private static final ThreadLocal<WorkloadClass> CURRENT = new ThreadLocal<>();
+
+    private final String key;
+    private final String displayName;
+    private final RequestMatcher matcher;
+
+    WorkloadClass(String key, String displayName, RequestMatcher matcher) {
+        this.key = key;
+        this.displayName = displayName;
+        this.matcher = matcher;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Routes the connections fetched by the current thread to the pools of this class, until {@link #leave()}.
+     */
+    public void enter() {
+        CURRENT.set(this);
+    }
+
+    public static void leave() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the class the current thread works for, null outside of any class.
+     */
+    public static WorkloadClass current() {
+        return CURRENT.get();
+    }
+
+    public boolean matches(HttpServletRequest request) {
+        return matcher.matches(request);
+    }
+}
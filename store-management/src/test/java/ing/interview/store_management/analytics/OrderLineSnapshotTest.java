@@ -0,0 +1,133 @@
+package ing.interview.store_management.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderLineSnapshotTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void scan_shouldReturnEveryLineWithItsOrderTotal() throws IOException {
+        // Arrange
+        Path file = directory.resolve("lines.olc");
+        try (OrderLineSnapshotWriter writer = new OrderLineSnapshotWriter(file, 4)) {
+            writer.append(1, START, "completed", 10, 2, 1500);
+            writer.append(1, START, "completed", 11, 1, 1500);
+            writer.append(2, START + DAY, "canceled", 10, 5, 990);
+            writer.append(3, START + 2 * DAY, "placed", 12, 1, 0);
+            writer.append(3, START + 2 * DAY, "placed", 13, 3, 0);
+            writer.commit();
+        }
+
+        // Act
+        List<String> lines = new ArrayList<>();
+        try (OrderLineSnapshotReader reader = OrderLineSnapshotReader.open(file)) {
+            assertEquals(5, reader.rowCount());
+            assertEquals(2, reader.blockCount());
+            reader.scan(Long.MIN_VALUE, Long.MAX_VALUE, (orderId, date, status, productId, quantity, total) ->
+                    lines.add(orderId + "/" + (date - START) / DAY + "/" + status + "/" + productId + "/" + quantity + "/" + total));
+        }
+
+        // Assert
+        assertEquals(List.of("1/0/completed/10/2/1500", "1/0/completed/11/1/1500", "2/1/canceled/10/5/990",
+                "3/2/placed/12/1/0", "3/2/placed/13/3/0"), lines);
+    }
+
+    @Test
+    void aggregate_shouldCountEachOrderOnceAcrossBlocks() throws IOException {
+        // Arrange, one order a day with 3 lines, blocks of 5 rows so orders span blocks
+        Path file = directory.resolve("lines.olc");
+        try (OrderLineSnapshotWriter writer = new OrderLineSnapshotWriter(file, 5)) {
+            for (int day = 0; day < 30; day++) {
+                for (int line = 0; line < 3; line++) {
+                    writer.append(day + 1, START + day * DAY + 1000, "completed", 100 + line, line + 1, 1000 + day);
+                }
+            }
+            writer.commit();
+        }
+
+        // Act
+        OrderLineAggregate all;
+        OrderLineAggregate week;
+        try (OrderLineSnapshotReader reader = OrderLineSnapshotReader.open(file)) {
+            all = reader.aggregate(Long.MIN_VALUE, Long.MAX_VALUE);
+            week = reader.aggregate(START + 10 * DAY, START + 17 * DAY);
+        }
+
+        // Assert
+        assertEquals(new OrderLineAggregate(30, 90, 180, 30 * 1000 + 435), all);
+        long weekRevenue = 0;
+        for (int day = 10; day < 17; day++) {
+            weekRevenue += 1000 + day;
+        }
+        assertEquals(new OrderLineAggregate(7, 21, 42, weekRevenue), week);
+    }
+
+    @Test
+    void writer_shouldEncodeRepetitiveLinesCompactly() throws IOException {
+        // Arrange
+        Path file = directory.resolve("lines.olc");
+        int rows = 100_000;
+        long bytes;
+
+        // Act
+        try (OrderLineSnapshotWriter writer = new OrderLineSnapshotWriter(file, 65536)) {
+            for (int i = 0; i < rows; i++) {
+                writer.append(i / 2 + 1, START + i * 1000L, i % 10 == 0 ? "canceled" : "completed", i % 500, 1 + i % 3, 2599);
+            }
+            bytes = writer.commit();
+        }
+
+        // Assert, far below the 40 bytes of the six raw fixed-size fields
+        assertTrue(bytes < rows * 4L, "snapshot takes " + bytes + " bytes");
+    }
+
+    @Test
+    void close_shouldDeleteAnUncommittedSnapshot() throws IOException {
+        // Arrange
+        Path file = directory.resolve("lines.olc");
+
+        // Act
+        try (OrderLineSnapshotWriter writer = new OrderLineSnapshotWriter(file, 4)) {
+            writer.append(1, START, "completed", 10, 2, 1500);
+        }
+
+        // Assert
+        assertFalse(Files.exists(file));
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void open_shouldRejectATruncatedFile() throws IOException {
+        // Arrange
+        Path file = directory.resolve("lines.olc");
+        try (OrderLineSnapshotWriter writer = new OrderLineSnapshotWriter(file, 4)) {
+            writer.append(1, START, "completed", 10, 2, 1500);
+            writer.commit();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> OrderLineSnapshotReader.open(file).close());
+    }
+}
@@ -0,0 +1,248 @@
+package ing.interview.store_management.analytics;
+
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.model.DailyProductSales;
+import ing.interview.store_management.model.DailySales;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.model.SalesChange;
+import ing.interview.store_management.repository.DailyProductSalesRepository;
+import ing.interview.store_management.repository.DailySalesRepository;
+import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.SalesChangeRepository;
+import ing.interview.store_management.service.OrderService;
+import ing.interview.store_management.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Folds created, updated and deleted orders into the rollups of an embedded database of its own, with the
+ * scheduled runs disabled so only the test runs the job. Every test drains the pending changes first, and
+ * checks the daily totals as a difference, as other orders may be placed on the same day.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:salesRollup",
+        "salesRollup.enabled=false",
+        "salesRollup.batchSize=3",
+        "orderLifecycle.enabled=false"
+})
+class SalesRollupJobTest {
+
+    @Autowired
+    private SalesRollupJob salesRollupJob;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SalesChangeRepository salesChangeRepository;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private Long cheapId;
+    private Long expensiveId;
+    private DailySales before;
+
+    @BeforeEach
+    void setUp() {
+        salesRollupJob.rollup();
+        cheapId = createProduct("Rollup cheap", "10.00");
+        expensiveId = createProduct("Rollup expensive", "30.00");
+        before = today();
+    }
+
+    @Test
+    void rollup_shouldAddCreatedOrdersToTheDailyAndProductTotals() {
+        // Arrange
+        OrderDto first = orderService.createOrder(Set.of(
+                new OrderProductDto(null, cheapId, 2),
+                new OrderProductDto(null, expensiveId, 1)));
+        OrderDto second = orderService.createOrder(Set.of(new OrderProductDto(null, cheapId, 1)));
+
+        // Act
+        int processed = salesRollupJob.rollup();
+
+        // Assert
+        assertEquals(2, processed);
+        DailySales after = today();
+        assertEquals(2, after.getOrderCount() - before.getOrderCount());
+        assertEquals(4, after.getUnits() - before.getUnits());
+        assertEquals(minor(first.getTotalPrice()) + minor(second.getTotalPrice()),
+                after.getRevenueMinor() - before.getRevenueMinor());
+
+        DailyProductSales cheap = productSales(cheapId);
+        DailyProductSales expensive = productSales(expensiveId);
+        assertEquals(3, cheap.getUnits());
+        assertEquals(2, cheap.getOrderCount());
+        assertEquals(1, expensive.getUnits());
+        assertEquals(1, expensive.getOrderCount());
+        assertEquals(after.getRevenueMinor() - before.getRevenueMinor(), cheap.getRevenueMinor() + expensive.getRevenueMinor(),
+                "The revenue of an order is split over its products without losing a cent");
+        assertEquals(0, salesChangeRepository.count());
+        assertTrue(salesRollupJob.watermark().getLastChangeId() > 0);
+    }
+
+    @Test
+    void rollup_shouldReplaceTheContributionOfUpdatedAndDeletedOrders() {
+        // Arrange
+        OrderDto order = orderService.createOrder(Set.of(
+                new OrderProductDto(null, cheapId, 2),
+                new OrderProductDto(null, expensiveId, 1)));
+        salesRollupJob.rollup();
+
+        // Act, the expensive line is removed
+        OrderDto updated = orderService.updateOrder(order.getId(), Set.of(new OrderProductDto(null, cheapId, 1)));
+        salesRollupJob.rollup();
+
+        // Assert
+        DailySales after = today();
+        assertEquals(1, after.getOrderCount() - before.getOrderCount());
+        assertEquals(1, after.getUnits() - before.getUnits());
+        assertEquals(minor(updated.getTotalPrice()), after.getRevenueMinor() - before.getRevenueMinor());
+        assertEquals(1, productSales(cheapId).getUnits());
+        assertFalse(dailyProductSalesRepository.existsById(new DailyProductSales.Key(LocalDate.now(), expensiveId)));
+
+        // Act, the order is deleted
+        orderService.deleteOrder(order.getId());
+        salesRollupJob.rollup();
+
+        // Assert
+        after = today();
+        assertEquals(before.getOrderCount(), after.getOrderCount());
+        assertEquals(before.getUnits(), after.getUnits());
+        assertEquals(before.getRevenueMinor(), after.getRevenueMinor());
+        assertFalse(dailyProductSalesRepository.existsById(new DailyProductSales.Key(LocalDate.now(), cheapId)));
+    }
+
+    @Test
+    void rollup_shouldLeaveTheTotalsUnchangedWhenAnOrderIsFoldedAgain() {
+        // Arrange
+        OrderDto order = orderService.createOrder(Set.of(new OrderProductDto(null, expensiveId, 2)));
+        salesRollupJob.rollup();
+        DailySales once = today();
+
+        // Act, a repeated change, as left by a run which failed before removing it
+        salesChangeRepository.save(new SalesChange(order.getId(), Instant.now()));
+        salesChangeRepository.save(new SalesChange(order.getId(), Instant.now()));
+        int processed = salesRollupJob.rollup();
+
+        // Assert
+        assertEquals(2, processed);
+        DailySales twice = today();
+        assertEquals(once.getOrderCount(), twice.getOrderCount());
+        assertEquals(once.getUnits(), twice.getUnits());
+        assertEquals(once.getRevenueMinor(), twice.getRevenueMinor());
+        assertEquals(2, productSales(expensiveId).getUnits());
+        assertEquals(1, productSales(expensiveId).getOrderCount());
+        assertEquals(0, salesRollupJob.rollup(), "Nothing left to fold");
+    }
+
+    @Test
+    void runBatch_shouldCountEveryOrderOnceWhenSeveralNodesRollUp() throws Exception {
+        // Arrange
+        int orders = 30;
+        for (int i = 0; i < orders; i++) {
+            orderService.createOrder(Set.of(new OrderProductDto(null, cheapId, 1)));
+        }
+        ExecutorService nodes = Executors.newFixedThreadPool(4);
+
+        // Act, each node runs batches until nothing is left, waiting out the lock of the others
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int node = 0; node < 4; node++) {
+            results.add(nodes.submit(() -> {
+                int processed = 0;
+                long deadline = System.currentTimeMillis() + 30_000;
+                while (salesChangeRepository.count() > 0 && System.currentTimeMillis() < deadline) {
+                    try {
+                        processed += salesRollupJob.runBatch();
+                    } catch (PessimisticLockingFailureException e) {
+                        // Lock timeout, retried
+                    }
+                }
+                return processed;
+            }));
+        }
+        int processed = 0;
+        for (Future<Integer> result : results) {
+            processed += result.get();
+        }
+        nodes.shutdown();
+
+        // Assert
+        assertEquals(orders, processed);
+        DailySales after = today();
+        assertEquals(orders, after.getOrderCount() - before.getOrderCount());
+        assertEquals(orders, after.getUnits() - before.getUnits());
+        assertEquals(orders, productSales(cheapId).getUnits());
+        assertEquals(orders, productSales(cheapId).getOrderCount());
+    }
+
+    @Test
+    void rollup_shouldFoldAgainTheOrdersOfDeletedProducts() {
+        // Arrange
+        orderService.createOrder(Set.of(
+                new OrderProductDto(null, cheapId, 2),
+                new OrderProductDto(null, expensiveId, 1)));
+        salesRollupJob.rollup();
+
+        // Act
+        productService.deleteProducts(List.of(expensiveId));
+        int processed = salesRollupJob.rollup();
+
+        // Assert
+        assertEquals(1, processed);
+        assertFalse(dailyProductSalesRepository.existsById(new DailyProductSales.Key(LocalDate.now(), expensiveId)));
+        DailySales after = today();
+        assertEquals(1, after.getOrderCount() - before.getOrderCount());
+        assertEquals(2, after.getUnits() - before.getUnits());
+        assertEquals(after.getRevenueMinor() - before.getRevenueMinor(), productSales(cheapId).getRevenueMinor());
+    }
+
+    private Long createProduct(String name, String price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(Money.of(new BigDecimal(price)));
+        product.setStock(1_000);
+        return productRepository.save(product).getId();
+    }
+
+    private DailySales today() {
+        return dailySalesRepository.findById(LocalDate.now()).orElseGet(() -> new DailySales(LocalDate.now()));
+    }
+
+    private DailyProductSales productSales(Long productId) {
+        return dailyProductSalesRepository.findById(new DailyProductSales.Key(LocalDate.now(), productId)).orElseThrow();
+    }
+
+    private long minor(BigDecimal amount) {
+        return Money.of(amount).minorUnits();
+    }
+}
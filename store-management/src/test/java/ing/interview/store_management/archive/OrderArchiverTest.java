@@ -0,0 +1,179 @@
+package ing.interview.store_management.archive;
+
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.dto.ProductPopularityView;
+import ing.interview.store_management.model.ArchivedOrder;
+import ing.interview.store_management.model.ArchivedOrderLine;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.Order;
+import ing.interview.store_management.model.OrderProduct;
+import ing.interview.store_management.model.OrderStatus;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.repository.ArchivedOrderRepository;
+import ing.interview.store_management.repository.OrderProductRepository;
+import ing.interview.store_management.repository.OrderRepository;
+import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.service.OrderService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archives orders of an embedded database of its own, in chunks of 2 without throttling, with the scheduled
+ * run pushed out so only the test archives. Every test orders a product of its own and only checks its orders.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderArchive",
+        "orderArchive.chunkSize=2",
+        "orderArchive.throttleMillis=0",
+        "orderArchive.initialDelayMillis=3600000",
+        "orderLifecycle.enabled=false",
+        "salesRollup.enabled=false"
+})
+class OrderArchiverTest {
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        Product product = new Product();
+        product.setName("Archived product");
+        product.setPrice(Money.of(BigDecimal.TEN));
+        product.setStock(1_000);
+        productId = productRepository.save(product).getId();
+    }
+
+    @Test
+    void archive_shouldMoveOnlyTheFinishedOrdersPastTheRetention() {
+        // Arrange, three chunks worth of old finished orders
+        LocalDateTime old = LocalDateTime.now().minusDays(91);
+        Long completed = placeOrder(OrderStatus.COMPLETED, old, 1);
+        Long canceled = placeOrder(OrderStatus.CANCELED, old, 2);
+        Long completedToo = placeOrder(OrderStatus.COMPLETED, old.minusDays(30), 3);
+        Long stillPlaced = placeOrder(OrderStatus.PLACED, old, 4);
+        Long recent = placeOrder(OrderStatus.COMPLETED, LocalDateTime.now().minusDays(89), 5);
+        Order original = orderRepository.findById(canceled).orElseThrow();
+        Set<ArchivedOrderLine> originalLines = lines(productId).stream()
+                .filter(line -> line.getOrder().getId().equals(canceled))
+                .map(line -> new ArchivedOrderLine(line.getId(), line.getProduct().getId(), line.getQuantity()))
+                .collect(Collectors.toSet());
+
+        // Act
+        orderArchiver.archive();
+
+        // Assert
+        for (Long archived : List.of(completed, canceled, completedToo)) {
+            assertFalse(orderRepository.existsById(archived));
+            assertTrue(archivedOrderRepository.existsById(archived));
+        }
+        assertTrue(orderRepository.existsById(stillPlaced));
+        assertTrue(orderRepository.existsById(recent));
+        assertEquals(Set.of(stillPlaced, recent), lines(productId).stream().map(OrderProduct::getOrder).map(Order::getId)
+                .collect(Collectors.toSet()), "Only the lines of the kept orders are left");
+
+        ArchivedOrder archivedOrder = archivedOrderRepository.findById(canceled).orElseThrow();
+        assertEquals(original.getStatus(), archivedOrder.getStatus());
+        assertEquals(original.getTotalPrice(), archivedOrder.getTotalPrice());
+        assertEquals(original.getOrderDate(), archivedOrder.getOrderDate());
+        assertEquals(originalLines, archivedOrder.getOrderLines());
+        assertEquals(2, orderService.getOrder(canceled).getOrderProducts().iterator().next().getQuantity(),
+                "An archived order is still read by ID");
+    }
+
+    @Test
+    void archiveChunk_shouldMoveNothingOfAChunkWhichFails() {
+        // Arrange, the second order of the chunk is already in the archive, so copying it fails
+        LocalDateTime old = LocalDateTime.now().minusDays(91);
+        Long first = placeOrder(OrderStatus.COMPLETED, old, 1);
+        Long second = placeOrder(OrderStatus.COMPLETED, old, 2);
+        ArchivedOrder clash = new ArchivedOrder();
+        clash.setId(second);
+        clash.setStatus(OrderStatus.COMPLETED.getStatus());
+        archivedOrderRepository.save(clash);
+
+        // Act & Assert, both orders stay in exactly one tier
+        assertThrows(DataIntegrityViolationException.class, () -> orderArchiver.archiveChunk(LocalDateTime.now().minusDays(90)));
+        assertTrue(orderRepository.existsById(first));
+        assertTrue(orderRepository.existsById(second));
+        assertFalse(archivedOrderRepository.existsById(first));
+        assertEquals(2, lines(productId).size());
+        assertTrue(archivedOrderRepository.findById(second).orElseThrow().getOrderLines().isEmpty());
+
+        // Lets the other tests archive both orders
+        archivedOrderRepository.deleteById(second);
+    }
+
+    @Test
+    void findPopularityViewsAfter_shouldCountTheArchivedOrders() {
+        // Arrange
+        LocalDateTime old = LocalDateTime.now().minusDays(91);
+        placeOrder(OrderStatus.COMPLETED, old, 2);
+        placeOrder(OrderStatus.PLACED, old, 3);
+
+        // Act
+        orderArchiver.archive();
+        List<ProductPopularityView> popularity = productRepository.findPopularityViewsAfter(productId - 1, PageRequest.ofSize(1));
+
+        // Assert
+        assertEquals(productId, popularity.get(0).getId());
+        assertEquals(5L, popularity.get(0).getPopularity());
+    }
+
+    private Long placeOrder(OrderStatus status, LocalDateTime orderDate, int quantity) {
+        OrderDto order = orderService.createOrder(Set.of(new OrderProductDto(null, productId, quantity)));
+        transactionTemplate.executeWithoutResult(transaction -> {
+            Order managedOrder = entityManager.find(Order.class, order.getId());
+            managedOrder.setStatus(status.getStatus());
+            managedOrder.setOrderDate(orderDate);
+        });
+        return order.getId();
+    }
+
+    private List<OrderProduct> lines(Long productId) {
+        return orderProductRepository.findAll().stream()
+                .filter(line -> line.getProduct().getId().equals(productId))
+                .toList();
+    }
+}
@@ -0,0 +1,93 @@
+package ing.interview.store_management.controller;
+
+import ing.interview.store_management.dto.AuthenticationRequest;
+import ing.interview.store_management.dto.AuthenticationResponse;
+import ing.interview.store_management.security.CredentialVerificationExecutor;
+import ing.interview.store_management.security.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Logs in against an embedded database of its own with a verifier pool of one thread and a queue of one,
+ * so two blocked checks saturate it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:authentication",
+        "auth.verification.threads=1",
+        "auth.verification.queueCapacity=1",
+        "auth.verification.retryAfterSeconds=7",
+        "orderLifecycle.enabled=false",
+        "salesRollup.enabled=false"
+})
+class AuthenticationControllerTest {
+
+    @Autowired
+    private AuthenticationController authenticationController;
+
+    @Autowired
+    private CredentialVerificationExecutor credentialVerificationExecutor;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Test
+    void authenticate_shouldVerifyTheCredentialsOnTheVerifierPool() throws Exception {
+        // Act
+        ResponseEntity<?> login = authenticationController.authenticate(new AuthenticationRequest("admin", "admin123"))
+                .get(5, TimeUnit.SECONDS);
+        ResponseEntity<?> badPassword = authenticationController.authenticate(new AuthenticationRequest("admin", "wrong"))
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(HttpStatus.OK, login.getStatusCode());
+        AuthenticationResponse tokens = assertInstanceOf(AuthenticationResponse.class, login.getBody());
+        assertEquals("admin", jwtUtil.parseClaims(tokens.getJwt()).getSubject());
+        assertEquals(HttpStatus.UNAUTHORIZED, badPassword.getStatusCode());
+    }
+
+    @Test
+    void authenticate_shouldAnswerServiceUnavailableWhileThePoolIsSaturated() throws Exception {
+        // Arrange, one check holds the verifier thread and one the queue
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocking = credentialVerificationExecutor.submit(() -> {
+            running.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        running.await(5, TimeUnit.SECONDS);
+        CompletableFuture<Boolean> queued = credentialVerificationExecutor.submit(() -> true);
+
+        // Act
+        ResponseEntity<?> rejected = authenticationController.authenticate(new AuthenticationRequest("admin", "admin123"))
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+        assertEquals("7", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        // Once the pool drains logins go through again
+        release.countDown();
+        blocking.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        ResponseEntity<?> login = authenticationController.authenticate(new AuthenticationRequest("admin", "admin123"))
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.OK, login.getStatusCode());
+        assertInstanceOf(AuthenticationResponse.class, login.getBody());
+    }
+}
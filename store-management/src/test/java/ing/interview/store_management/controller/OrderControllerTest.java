@@ -0,0 +1,60 @@
+package ing.interview.store_management.controller;
+
+import ing.interview.store_management.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class OrderControllerTest {
+
+    private static final String TOO_LARGE = "[{\"productId\":1,\"quantity\":2000000000}]";
+
+    @Mock
+    private OrderService orderService;
+
+    @InjectMocks
+    private OrderController orderController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(orderController).build();
+    }
+
+    @Test
+    void createOrder_shouldAnswerBadRequestForAnOrderTooLargeToPrice() throws Exception {
+        // Arrange
+        when(orderService.createOrder(any())).thenThrow(new IllegalArgumentException("The order total is too large"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(TOO_LARGE))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("The order total is too large"));
+    }
+
+    @Test
+    void updateOrder_shouldAnswerBadRequestForAnOrderTooLargeToPrice() throws Exception {
+        // Arrange
+        when(orderService.updateOrder(eq(1L), any())).thenThrow(new IllegalArgumentException("The order total is too large"));
+
+        // Act & Assert
+        mockMvc.perform(put("/api/orders/1").contentType(MediaType.APPLICATION_JSON).content(TOO_LARGE))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("The order total is too large"));
+    }
+}
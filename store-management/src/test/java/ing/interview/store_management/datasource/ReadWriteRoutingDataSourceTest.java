@@ -0,0 +1,160 @@
+package ing.interview.store_management.datasource;
+
+import ing.interview.store_management.web.WorkloadClass;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routes through separate in-memory H2 databases, standing in for the replica and for the pools of ORDER_WRITES.
+ * Each holds a marker row naming it, replication is simulated by copying the heartbeat row by hand.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private JdbcTemplate ordersPrimary;
+    private JdbcTemplate ordersReplica;
+    private ReplicaLagMonitor replicaLagMonitor;
+    private ReadYourWrites readYourWrites;
+    private JdbcTemplate routed;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate writeTransaction;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primaryDataSource = new DriverManagerDataSource("jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1");
+        DataSource replicaDataSource = new DriverManagerDataSource("jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1");
+        DataSource ordersPrimaryDataSource = new DriverManagerDataSource("jdbc:h2:mem:routing_orders_primary;DB_CLOSE_DELAY=-1");
+        DataSource ordersReplicaDataSource = new DriverManagerDataSource("jdbc:h2:mem:routing_orders_replica;DB_CLOSE_DELAY=-1");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        ordersPrimary = new JdbcTemplate(ordersPrimaryDataSource);
+        ordersReplica = new JdbcTemplate(ordersReplicaDataSource);
+        for (JdbcTemplate database : new JdbcTemplate[]{primary, replica, ordersPrimary, ordersReplica}) {
+            database.execute("create table marker (name varchar(16))");
+            database.execute("create table replication_heartbeat (id int primary key, beat_at bigint not null)");
+        }
+        primary.update("insert into marker values ('primary')");
+        replica.update("insert into marker values ('replica')");
+        ordersPrimary.update("insert into marker values ('orders-primary')");
+        ordersReplica.update("insert into marker values ('orders-replica')");
+
+        replicaLagMonitor = new ReplicaLagMonitor(primaryDataSource, replicaDataSource, true, 2_000);
+        readYourWrites = new ReadYourWrites();
+        ReflectionTestUtils.setField(readYourWrites, "readYourWritesMillis", 5_000L);
+        WorkloadDataSources workloadDataSources = new WorkloadDataSources(
+                Map.of(WorkloadClass.ORDER_WRITES, ordersPrimaryDataSource), Map.of(WorkloadClass.ORDER_WRITES, ordersReplicaDataSource));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource,
+                replicaDataSource, workloadDataSources, replicaLagMonitor, readYourWrites));
+        routed = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.execute("drop all objects");
+        replica.execute("drop all objects");
+        ordersPrimary.execute("drop all objects");
+        ordersReplica.execute("drop all objects");
+        SecurityContextHolder.clearContext();
+        WorkloadClass.leave();
+    }
+
+    @Test
+    void readOnlyTransactions_shouldUseTheReplicaOnceItCaughtUp() {
+        // Arrange
+        assertFalse(replicaLagMonitor.isReplicaUsable());
+        assertEquals("primary", readOnlyTransaction.execute(status -> whereAmI()));
+        replicate(System.currentTimeMillis());
+
+        // Act
+        replicaLagMonitor.heartbeat();
+
+        // Assert
+        assertTrue(replicaLagMonitor.isReplicaUsable());
+        assertEquals("replica", readOnlyTransaction.execute(status -> whereAmI()));
+        assertEquals("primary", writeTransaction.execute(status -> whereAmI()));
+        assertEquals("primary", whereAmI());
+    }
+
+    @Test
+    void readOnlyTransactions_shouldFallBackToThePrimaryWhenTheReplicaLags() {
+        // Arrange, the last heartbeat the replica received is 10 seconds old
+        replicate(System.currentTimeMillis() - 10_000);
+
+        // Act
+        replicaLagMonitor.heartbeat();
+
+        // Assert
+        assertFalse(replicaLagMonitor.isReplicaUsable());
+        assertTrue(replicaLagMonitor.getLagMillis() >= 10_000);
+        assertEquals("primary", readOnlyTransaction.execute(status -> whereAmI()));
+    }
+
+    @Test
+    void readOnlyTransactions_shouldReadTheirOwnWritesFromThePrimary() {
+        // Arrange
+        replicate(System.currentTimeMillis());
+        replicaLagMonitor.heartbeat();
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("alice", null, "ROLE_USER"));
+
+        // Act
+        readYourWrites.pinCurrentUser();
+
+        // Assert
+        assertEquals("primary", readOnlyTransaction.execute(status -> whereAmI()));
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("bob", null, "ROLE_USER"));
+        assertEquals("replica", readOnlyTransaction.execute(status -> whereAmI()));
+    }
+
+    @Test
+    void workloadClasses_shouldUseTheirOwnPoolsOnEitherDatabase() {
+        // Arrange, the replica lags, so the reads of the other work fall back to the shared primary pool
+        replicate(System.currentTimeMillis() - 10_000);
+        replicaLagMonitor.heartbeat();
+        assertEquals("primary", readOnlyTransaction.execute(status -> whereAmI()));
+
+        // Act
+        WorkloadClass.ORDER_WRITES.enter();
+
+        // Assert
+        assertEquals("orders-primary", writeTransaction.execute(status -> whereAmI()));
+        assertEquals("orders-primary", readOnlyTransaction.execute(status -> whereAmI()));
+        replicate(System.currentTimeMillis());
+        replicaLagMonitor.heartbeat();
+        assertEquals("orders-replica", readOnlyTransaction.execute(status -> whereAmI()));
+        // A class without pools of its own shares those of the other work
+        WorkloadClass.REPORTING.enter();
+        assertEquals("replica", readOnlyTransaction.execute(status -> whereAmI()));
+        assertEquals("primary", writeTransaction.execute(status -> whereAmI()));
+        WorkloadClass.leave();
+        assertEquals("primary", writeTransaction.execute(status -> whereAmI()));
+    }
+
+    private String whereAmI() {
+        return routed.queryForObject("select name from marker", String.class);
+    }
+
+    private void replicate(long beatAt) {
+        replica.update("merge into replication_heartbeat key (id) values (1, ?)", beatAt);
+    }
+}
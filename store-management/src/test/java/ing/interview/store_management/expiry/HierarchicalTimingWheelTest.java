@@ -0,0 +1,101 @@
+package ing.interview.store_management.expiry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    private final List<String> fired = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> firedAt = new ConcurrentHashMap<>();
+    private HierarchicalTimingWheel<String> wheel;
+
+    @AfterEach
+    void tearDown() {
+        wheel.close();
+    }
+
+    @Test
+    void schedule_shouldFireEntriesAfterTheirDeadlineInOrder() throws InterruptedException {
+        // Arrange
+        wheel = newWheel(10, 8);
+        long now = System.currentTimeMillis();
+
+        // Act
+        wheel.schedule("late", now + 150);
+        wheel.schedule("early", now + 50);
+        long deadline = now + 150;
+        awaitFired(2, 2000);
+
+        // Assert
+        assertEquals(List.of("early", "late"), fired);
+        assertTrue(firedAt.get("late") >= deadline, "fired before its deadline");
+    }
+
+    @Test
+    void cancel_shouldPreventTheCallback() throws InterruptedException {
+        // Arrange
+        wheel = newWheel(10, 8);
+        long now = System.currentTimeMillis();
+        HierarchicalTimingWheel.Timeout cancelled = wheel.schedule("cancelled", now + 50);
+        wheel.schedule("kept", now + 100);
+
+        // Act
+        cancelled.cancel();
+        awaitFired(1, 2000);
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        // Assert
+        assertEquals(List.of("kept"), fired);
+    }
+
+    @Test
+    void schedule_shouldCascadeLongDeadlinesThroughOverflowWheels() throws InterruptedException {
+        // Arrange, the first wheel spans 16 ms so the deadline goes two wheels up
+        wheel = newWheel(2, 8);
+        long deadline = System.currentTimeMillis() + 300;
+
+        // Act
+        wheel.schedule("overflow", deadline);
+        awaitFired(1, 2000);
+
+        // Assert
+        assertEquals(List.of("overflow"), fired);
+        assertTrue(firedAt.get("overflow") >= deadline, "fired before its deadline");
+    }
+
+    @Test
+    void schedule_shouldFirePastDeadlinesRightAway() throws InterruptedException {
+        // Arrange
+        wheel = newWheel(100, 8);
+
+        // Act
+        wheel.schedule("past", System.currentTimeMillis() - 1000);
+        awaitFired(1, 500);
+
+        // Assert
+        assertEquals(List.of("past"), fired);
+    }
+
+    private HierarchicalTimingWheel<String> newWheel(long tickMillis, int wheelSize) {
+        return new HierarchicalTimingWheel<>(tickMillis, wheelSize, payload -> {
+            firedAt.put(payload, System.currentTimeMillis());
+            fired.add(payload);
+        }, "test-expiry");
+    }
+
+    private void awaitFired(int count, long timeoutMillis) throws InterruptedException {
+        long giveUp = System.currentTimeMillis() + timeoutMillis;
+        while (fired.size() < count && System.currentTimeMillis() < giveUp) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package ing.interview.store_management.journal;
+
+import ing.interview.store_management.model.StockChangeReason;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockJournalTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void reopen_shouldReplayRecordsAcrossSegments() {
+        // Arrange
+        StockJournal journal = open(1_000, 1_000_000);
+        Map<Long, Integer> expected = appendRandomChanges(journal, 3_500);
+        journal.close();
+
+        // Act
+        StockJournal reopened = open(1_000, 1_000_000);
+
+        // Assert
+        assertEquals(expected, reopened.currentStock());
+        reopened.close();
+    }
+
+    @Test
+    void reopen_shouldReplayFromSnapshotAndDropCoveredSegments() throws IOException {
+        // Arrange
+        StockJournal journal = open(1_000, 2_500);
+        Map<Long, Integer> expected = appendRandomChanges(journal, 3_500);
+        // The snapshot is written by the flusher thread, run in place here
+        journal.flush();
+        journal.close();
+
+        // Act
+        StockJournal reopened = open(1_000, 2_500);
+
+        // Assert
+        assertEquals(expected, reopened.currentStock());
+        assertTrue(segmentCount() <= 2, "Segments covered by the snapshot should be deleted");
+        reopened.close();
+    }
+
+    @Test
+    void reopen_shouldContinueAppendingAfterLastRecord() {
+        // Arrange
+        StockJournal journal = open(1_000, 1_000_000);
+        journal.append(1L, -2, 8, StockChangeReason.ORDER_CREATED);
+        journal.close();
+
+        // Act
+        StockJournal reopened = open(1_000, 1_000_000);
+        long sequence = reopened.append(1L, 5, 13, StockChangeReason.MANUAL_UPDATE);
+        reopened.close();
+
+        // Assert
+        assertEquals(2L, sequence);
+        StockJournal replayed = open(1_000, 1_000_000);
+        assertEquals(Map.of(1L, 13), replayed.currentStock());
+        replayed.close();
+    }
+
+    @Test
+    void append_shouldSumDeltasWhenChangesAreAppendedOutOfCommitOrder() {
+        // Arrange, two orders take 2 then 3 from a stock of 10, the second one is appended first
+        StockJournal journal = open(1_000, 1_000_000);
+        journal.append(1L, 10, 10, StockChangeReason.MANUAL_UPDATE);
+
+        // Act
+        journal.append(1L, -3, 5, StockChangeReason.ORDER_CREATED);
+        journal.append(1L, -2, 8, StockChangeReason.ORDER_CREATED);
+        journal.close();
+
+        // Assert
+        StockJournal replayed = open(1_000, 1_000_000);
+        assertEquals(Map.of(1L, 5), replayed.currentStock());
+        replayed.close();
+    }
+
+    @Test
+    void reconcile_shouldDropMissingProductsAndCorrectStocks() {
+        // Arrange
+        StockJournal journal = open(1_000, 1_000_000);
+        journal.append(1L, 10, 10, StockChangeReason.MANUAL_UPDATE);
+        journal.append(2L, 7, 7, StockChangeReason.MANUAL_UPDATE);
+        journal.append(3L, 4, 4, StockChangeReason.MANUAL_UPDATE);
+
+        // Act, product 2 is gone, product 3 changed while the journal was off and product 4 is new to it
+        int reconciled = journal.reconcile(Map.of(1L, 10, 3L, 6, 4L, 9));
+        journal.close();
+
+        // Assert
+        assertEquals(3, reconciled);
+        StockJournal replayed = open(1_000, 1_000_000);
+        assertEquals(0, replayed.reconcile(Map.of(1L, 10, 3L, 6, 4L, 9)), "Already reconciled");
+        assertEquals(Map.of(1L, 10, 3L, 6, 4L, 9), replayed.currentStock());
+        replayed.close();
+    }
+
+    @Test
+    void flush_shouldKeepEveryRecordAppendedWhileForcing() throws Exception {
+        // Arrange
+        StockJournal journal = open(1_000, 1_000_000);
+        journal.append(1L, 10, 10, StockChangeReason.MANUAL_UPDATE);
+
+        // Act
+        Thread flusher = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                journal.flush();
+            }
+        });
+        flusher.start();
+        for (int i = 0; i < 500; i++) {
+            journal.append(1L, -1, 9 - i, StockChangeReason.ORDER_CREATED);
+        }
+        flusher.join();
+        journal.close();
+
+        // Assert
+        StockJournal replayed = open(1_000, 1_000_000);
+        assertEquals(Map.of(1L, -490), replayed.currentStock());
+        replayed.close();
+    }
+
+    @Test
+    void append_shouldLeaveTheSnapshotToTheFlusher() throws IOException {
+        // Arrange
+        StockJournal journal = open(1_000, 2_500);
+
+        // Act
+        Map<Long, Integer> expected = appendRandomChanges(journal, 3_500);
+
+        // Assert
+        assertTrue(Files.notExists(directory.resolve("snapshot.bin")), "Appends should not write the snapshot");
+        assertEquals(4, segmentCount());
+        journal.flush();
+        assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        assertTrue(Files.notExists(directory.resolve("snapshot.bin.tmp")));
+        assertEquals(1, segmentCount());
+        journal.close();
+        StockJournal reopened = open(1_000, 2_500);
+        assertEquals(expected, reopened.currentStock());
+        reopened.close();
+    }
+
+    @Test
+    void record_shouldNotThrowWhenTheAppendFails() throws IOException {
+        // Arrange, the journal directory is replaced by a file, so no segment can be opened
+        Path journalDirectory = directory.resolve("journal");
+        StockJournal journal = new StockJournal(journalDirectory.toString(), 1_000, 1_000, 1_000_000, true);
+        journal.open();
+        journal.close();
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(journalDirectory);
+        Files.createFile(journalDirectory);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> journal.record(1L, -2, 8, StockChangeReason.ORDER_CREATED));
+    }
+
+    @Test
+    void open_shouldRejectDirectoryAlreadyInUse() {
+        // Arrange
+        StockJournal journal = open(1_000, 1_000_000);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> open(1_000, 1_000_000));
+        journal.close();
+    }
+
+    private StockJournal open(int segmentRecords, long snapshotEveryRecords) {
+        StockJournal journal = new StockJournal(directory.toString(), segmentRecords, 1_000, snapshotEveryRecords, true);
+        journal.open();
+        return journal;
+    }
+
+    private Map<Long, Integer> appendRandomChanges(StockJournal journal, int count) {
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            long productId = i % 37;
+            int stockAfter = expected.getOrDefault(productId, 100) - (i % 5) + 2;
+            journal.append(productId, stockAfter - expected.getOrDefault(productId, 100), stockAfter, StockChangeReason.ORDER_UPDATED);
+            expected.put(productId, stockAfter);
+        }
+        return expected;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+}
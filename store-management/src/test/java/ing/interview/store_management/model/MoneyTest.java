@@ -0,0 +1,39 @@
+package ing.interview.store_management.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void of_shouldConvertDecimalsToMinorUnits() {
+        assertEquals(1234, Money.of(new BigDecimal("12.34")).minorUnits());
+        assertEquals(1200, Money.of(new BigDecimal("12")).minorUnits());
+        assertEquals(1230, Money.of(new BigDecimal("12.300")).minorUnits());
+        assertNull(Money.of(null));
+    }
+
+    @Test
+    void of_shouldRejectExtraDecimalsAndOverflow() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("12.345")));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1e20")));
+    }
+
+    @Test
+    void toBigDecimal_shouldKeepTheCurrencyScale() {
+        assertEquals(new BigDecimal("5.00"), Money.ofMinor(500).toBigDecimal());
+        assertEquals("-0.05", Money.ofMinor(-5).toString());
+    }
+
+    @Test
+    void arithmetic_shouldFailOnOverflow() {
+        assertEquals(Money.ofMinor(3_000), Money.ofMinor(1_000).times(2).plus(Money.ofMinor(1_000)));
+        assertThrows(ArithmeticException.class, () -> Money.lineTotal(Long.MAX_VALUE / 2, 3));
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+    }
+}
@@ -0,0 +1,35 @@
+package ing.interview.store_management.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderProductTest {
+
+    @Test
+    void hashCode_shouldFollowTheProductAndSurvivePersist() {
+        // Arrange
+        Order order = new Order();
+        OrderProduct first = new OrderProduct(order, product(1L), 2);
+        OrderProduct second = new OrderProduct(order, product(2L), 3);
+        order.getOrderProducts().add(first);
+        order.getOrderProducts().add(second);
+
+        // Act, the ids are assigned on persist
+        first.setId(10L);
+        second.setId(11L);
+
+        // Assert
+        assertNotEquals(first.hashCode(), second.hashCode());
+        assertTrue(order.getOrderProducts().remove(first));
+        assertEquals(1, order.getOrderProducts().size());
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,106 @@
+package ing.interview.store_management.pricing;
+
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.PricingRule;
+import ing.interview.store_management.model.PricingRuleType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PricingPlanTest {
+
+    @Test
+    void lineTotal_shouldApplyFreeUnitsThenBestPercentage() {
+        // Arrange
+        PricingPlan plan = PricingPlan.compile(List.of(
+                buyNGetMFree(1L, 1L, 2, 1, 0),
+                percentOff(2L, 1L, 1_000),
+                percentOff(3L, 1L, 2_500)));
+
+        // Act & Assert: 7 units, 2 free, 25% off 5 x 10.00
+        assertEquals(3_750, plan.lineTotal(1L, 1_000, 7));
+        // Products without rules pay price x quantity
+        assertEquals(7_000, plan.lineTotal(2L, 1_000, 7));
+    }
+
+    @Test
+    void lineTotal_shouldRoundPercentageDiscountDown() {
+        PricingPlan plan = PricingPlan.compile(List.of(percentOff(1L, 1L, 3_333)));
+
+        // 33.33% of 0.99 is 0.329967, 0.32 is taken off
+        assertEquals(67, plan.lineTotal(1L, 99, 1));
+    }
+
+    @Test
+    void orderDiscount_shouldApplyBestReachedThreshold() {
+        // Arrange
+        PricingPlan plan = PricingPlan.compile(List.of(
+                threshold(1L, 10_000, 1_000L, null),
+                threshold(2L, 50_000, 2_000L, null),
+                threshold(3L, 20_000, null, 1_000)));
+
+        // Act & Assert
+        assertEquals(0, plan.orderDiscount(9_999));
+        assertEquals(1_000, plan.orderDiscount(10_000));
+        // 10% of 25000 beats the 1000 amount
+        assertEquals(2_500, plan.orderDiscount(25_000));
+        // 10% of 60000 beats the 2000 amount
+        assertEquals(6_000, plan.orderDiscount(60_000));
+    }
+
+    @Test
+    void compile_shouldNotDependOnRuleOrder() {
+        // Arrange
+        List<PricingRule> rules = new ArrayList<>(List.of(
+                buyNGetMFree(1L, 1L, 2, 1, 5),
+                buyNGetMFree(2L, 1L, 1, 1, 1),
+                percentOff(3L, 1L, 500),
+                threshold(4L, 1_000, 100L, 200)));
+        PricingPlan plan = PricingPlan.compile(rules);
+
+        // Act
+        Collections.reverse(rules);
+        PricingPlan reversed = PricingPlan.compile(rules);
+
+        // Assert: the buy 1 get 1 rule has the lower priority value and wins
+        assertEquals(1_900, plan.lineTotal(1L, 1_000, 4));
+        assertEquals(plan.lineTotal(1L, 1_000, 4), reversed.lineTotal(1L, 1_000, 4));
+        assertEquals(plan.orderDiscount(5_000), reversed.orderDiscount(5_000));
+    }
+
+    static PricingRule percentOff(Long id, Long productId, int basisPoints) {
+        PricingRule rule = rule(id, PricingRuleType.PRODUCT_PERCENT_OFF, 0);
+        rule.setProductId(productId);
+        rule.setPercentOffBasisPoints(basisPoints);
+        return rule;
+    }
+
+    static PricingRule buyNGetMFree(Long id, Long productId, int buyQuantity, int freeQuantity, int priority) {
+        PricingRule rule = rule(id, PricingRuleType.BUY_N_GET_M_FREE, priority);
+        rule.setProductId(productId);
+        rule.setBuyQuantity(buyQuantity);
+        rule.setFreeQuantity(freeQuantity);
+        return rule;
+    }
+
+    static PricingRule threshold(Long id, long thresholdMinor, Long amountOffMinor, Integer basisPoints) {
+        PricingRule rule = rule(id, PricingRuleType.ORDER_THRESHOLD, 0);
+        rule.setThreshold(Money.ofMinor(thresholdMinor));
+        rule.setAmountOff(amountOffMinor != null ? Money.ofMinor(amountOffMinor) : null);
+        rule.setPercentOffBasisPoints(basisPoints);
+        return rule;
+    }
+
+    private static PricingRule rule(Long id, PricingRuleType type, int priority) {
+        PricingRule rule = new PricingRule();
+        rule.setId(id);
+        rule.setName(type + " " + id);
+        rule.setType(type);
+        rule.setPriority(priority);
+        return rule;
+    }
+}
@@ -0,0 +1,69 @@
+package ing.interview.store_management.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        ReflectionTestUtils.setField(index, "maxPrefixExpansions", 64);
+    }
+
+    @Test
+    void tokenize_shouldNormalizeCaseAccentsAndSeparators() {
+        assertEquals(List.of("cafe", "creme", "500ml"), ProductSearchIndex.tokenize("Café-CRÈME, 500ml!"));
+    }
+
+    @Test
+    void search_shouldRequireEveryTokenAndMatchPrefixes() {
+        // Arrange
+        index.index(1L, "Wireless Mouse", "Ergonomic mouse with USB receiver");
+        index.index(2L, "Wired Keyboard", "Mechanical keyboard");
+        index.index(3L, "Mouse Pad", "Large pad for any mouse");
+
+        // Act & Assert
+        assertEquals(List.of(1L), index.search("wire mouse", 10));
+        assertEquals(List.of(1L, 2L), index.search("wir", 10));
+        assertEquals(List.of(), index.search("wireless keyboard", 10));
+    }
+
+    @Test
+    void search_shouldRankNameMatchesAboveDescriptionMatches() {
+        // Arrange
+        index.index(1L, "Laptop bag", "Fits a 15 inch laptop");
+        index.index(2L, "Backpack", "Padded laptop compartment");
+        index.index(3L, "Laptops stand", "Aluminium");
+
+        // Act
+        List<Long> results = index.search("laptop", 10);
+
+        // Assert, a name prefix match still outranks a description match
+        assertEquals(List.of(1L, 3L, 2L), results);
+    }
+
+    @Test
+    void indexAndRemove_shouldReplacePreviousTerms() {
+        // Arrange
+        index.index(1L, "Green tea", null);
+
+        // Act
+        index.index(1L, "Black coffee", null);
+
+        // Assert
+        assertEquals(List.of(), index.search("tea", 10));
+        assertEquals(List.of(1L), index.search("coffee", 10));
+
+        index.remove(1L);
+        assertEquals(List.of(), index.search("coffee", 10));
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,105 @@
+package ing.interview.store_management.search;
+
+import ing.interview.store_management.dto.ProductPopularityView;
+import ing.interview.store_management.dto.ProductSuggestionDto;
+import ing.interview.store_management.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSuggestionTrieTest {
+
+    private ProductSuggestionTrie trie;
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        trie = new ProductSuggestionTrie();
+        productRepository = mock(ProductRepository.class);
+        ReflectionTestUtils.setField(trie, "productRepository", productRepository);
+        ReflectionTestUtils.setField(trie, "topK", 2);
+    }
+
+    @Test
+    void suggest_shouldMatchNameAndWordStartsIgnoringCaseAndAccents() {
+        // Arrange
+        trie.put(1L, "Crème brûlée");
+        trie.put(2L, "Wireless Mouse");
+        trie.put(3L, "Mouse pad");
+
+        // Act & Assert
+        assertEquals(List.of(1L), ids(trie.suggest("CREME BR")));
+        assertEquals(List.of(1L), ids(trie.suggest("brul")));
+        assertEquals(List.of(3L, 2L), ids(trie.suggest("mou")));
+        assertEquals(List.of(2L), ids(trie.suggest("wireless-  mouse")));
+        assertEquals(List.of(3L), ids(trie.suggest("mouse ")));
+        assertEquals(List.of(), ids(trie.suggest("keyboard")));
+    }
+
+    @Test
+    void putAndRemove_shouldUpdateSuggestions() {
+        // Arrange
+        trie.put(1L, "Green tea");
+        trie.put(2L, "Green tea bags");
+
+        // Act
+        trie.put(1L, "Black tea");
+        trie.remove(2L);
+
+        // Assert
+        assertEquals(List.of(), ids(trie.suggest("green")));
+        assertEquals(List.of(1L), ids(trie.suggest("tea")));
+        assertEquals(List.of(1L), ids(trie.suggest("bl")));
+    }
+
+    @Test
+    void rebuild_shouldRankByPopularityAndKeepTopK() {
+        // Arrange
+        when(productRepository.findPopularityViewsAfter(eq(0L), any())).thenReturn(List.of(
+                new PopularityView(1L, "Cola", 5L),
+                new PopularityView(2L, "Cola zero", 50L),
+                new PopularityView(3L, "Coffee", 20L),
+                new PopularityView(4L, "Cocoa", 1L)));
+
+        // Act
+        trie.rebuild();
+
+        // Assert
+        assertEquals(List.of(2L, 3L), ids(trie.suggest("co")));
+        assertEquals(List.of(2L, 1L), ids(trie.suggest("col")));
+        assertEquals(List.of(2L), ids(trie.suggest("zero")));
+        // The list is served from the trie as is
+        assertSame(trie.suggest("co"), trie.suggest("co"));
+    }
+
+    private static List<Long> ids(List<ProductSuggestionDto> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDto::getProductId).toList();
+    }
+
+    private record PopularityView(Long id, String name, Long popularity) implements ProductPopularityView {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Long getPopularity() {
+            return popularity;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ing.interview.store_management.security;
+
+import ing.interview.store_management.model.Permission;
+import ing.interview.store_management.repository.PermissionRepository;
+import ing.interview.store_management.security.AuthorityBitmask.AuthoritySet;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Encodes and decodes the authorities created by the DataInitializer, and permissions of its own,
+ * against an embedded database of its own.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:authorityBitmask",
+        "orderLifecycle.enabled=false",
+        "salesRollup.enabled=false"
+})
+class AuthorityBitmaskTest {
+
+    @Autowired
+    private AuthorityBitmask authorityBitmask;
+
+    @Autowired
+    private PermissionRepository permissionRepository;
+
+    @Test
+    void decode_shouldGiveBackTheEncodedAuthorities() {
+        // Arrange
+        List<GrantedAuthority> admin = authorities("READ", "WRITE", "ROLE_ADMIN");
+
+        // Act
+        long[] masks = authorityBitmask.encode(admin);
+        AuthoritySet decoded = authorityBitmask.decode(masks[0], masks[1]);
+
+        // Assert, READ and WRITE are bits 0 and 1, ADMIN is bit 0
+        assertArrayEquals(new long[]{0b11, 0b1}, masks);
+        assertEquals(names(admin), names(decoded.authorities()));
+        assertSame(decoded, authorityBitmask.decode(masks[0], masks[1]));
+    }
+
+    @Test
+    void decode_shouldIgnoreBitsWithoutAnAuthority() {
+        // Act, bit 40 is not assigned
+        AuthoritySet decoded = authorityBitmask.decode(1L | 1L << 40, 1L << 1 | 1L << 40);
+
+        // Assert
+        assertEquals(Set.of("READ", "ROLE_USER"), names(decoded.authorities()));
+        assertThrows(IllegalStateException.class, () -> authorityBitmask.encode(authorities("UNKNOWN")));
+    }
+
+    @Test
+    void decode_shouldSeeAPermissionCreatedAfterTheCacheWasLoaded() {
+        // Arrange
+        long[] masks = {1L | 1L << 10, 0};
+        assertEquals(Set.of("READ"), names(authorityBitmask.decode(masks[0], masks[1]).authorities()));
+
+        // Act, the saved permission resets the cached positions and decoded sets
+        permissionRepository.save(new Permission("EXPORT", 10));
+
+        // Assert
+        assertEquals(Set.of("READ", "EXPORT"), names(authorityBitmask.decode(masks[0], masks[1]).authorities()));
+        assertArrayEquals(masks, authorityBitmask.encode(authorities("READ", "EXPORT")));
+    }
+
+    @Test
+    void save_shouldRejectAPermissionTheMaskHasNoBitFor() {
+        // Act & Assert
+        for (Integer bitPosition : new Integer[]{null, -1, 64}) {
+            RuntimeException exception = assertThrows(RuntimeException.class,
+                    () -> permissionRepository.save(new Permission("NO_BIT", bitPosition)));
+            assertInstanceOf(IllegalArgumentException.class, NestedExceptionUtils.getMostSpecificCause(exception));
+        }
+        assertEquals(0, permissionRepository.findByName("NO_BIT").stream().count());
+    }
+
+    private static List<GrantedAuthority> authorities(String... names) {
+        return Stream.of(names).<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+    }
+
+    private static Set<String> names(List<GrantedAuthority> authorities) {
+        return authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+    }
+}
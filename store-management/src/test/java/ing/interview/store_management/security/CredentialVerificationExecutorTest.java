@@ -0,0 +1,76 @@
+package ing.interview.store_management.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CredentialVerificationExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CredentialVerificationExecutor executor;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new CredentialVerificationExecutor(1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void submit_shouldRejectOnceTheThreadAndTheQueueAreTaken() throws Exception {
+        // Arrange, one check runs and one waits in the queue
+        CountDownLatch running = new CountDownLatch(1);
+        CompletableFuture<String> first = executor.submit(() -> {
+            running.countDown();
+            awaitRelease();
+            return "first";
+        });
+        running.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> second = executor.submit(() -> "second");
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> "third"));
+        assertEquals(1.0, meterRegistry.get("auth.verification.queue.size").gauge().value());
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+    }
+
+    @Test
+    void submit_shouldCompleteTheFutureOnTheVerifierThreadAndTimeIt() throws Exception {
+        // Act
+        CompletableFuture<String> verification = executor.submit(() -> Thread.currentThread().getName());
+        String verifierThread = verification.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("credential-verifier-1", verifierThread);
+        assertNotEquals(Thread.currentThread().getName(), verifierThread);
+        assertEquals(1, meterRegistry.get("auth.verification.queue.wait").timer().count());
+        assertEquals(1, meterRegistry.get("auth.verification.time").timer().count());
+        assertEquals(0.0, meterRegistry.get("auth.verification.queue.size").gauge().value());
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ing.interview.store_management.security;
+
+import ing.interview.store_management.service.CustomUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class JwtRequestFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Autowired
+    private FilterRegistrationBean<JwtRequestFilter> jwtRequestFilterRegistration;
+
+    @SpyBean
+    private JwtRequestFilter jwtRequestFilter;
+
+    @SpyBean
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        clearInvocations(jwtRequestFilter, jwtUtil);
+    }
+
+    @Test
+    void jwtRequestFilter_shouldOnlyBeRegisteredInTheSecurityChain() {
+        // Assert, a servlet container registration would run the filter a second time around the chain
+        assertFalse(jwtRequestFilterRegistration.isEnabled());
+    }
+
+    @Test
+    void authenticatedRequest_shouldRunFilterAndParseTheTokenExactlyOnce() throws Exception {
+        // Arrange
+        String token = jwtUtil.generateToken(customUserDetailsService.loadUserByUsername("user"));
+        clearInvocations(jwtUtil);
+
+        // Act
+        mockMvc.perform(get("/api/user/profile").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // Assert, doFilter counts every registration of the filter, doFilterInternal only the first one
+        verify(jwtRequestFilter, times(1)).doFilter(any(), any(), any());
+        verify(jwtRequestFilter, times(1)).doFilterInternal(any(), any(), any());
+        verify(jwtUtil, times(1)).parseClaims(token);
+    }
+
+    @Test
+    void requestWithoutToken_shouldRunFilterExactlyOnce() throws Exception {
+        // Act
+        mockMvc.perform(get("/api/user/profile"))
+                .andExpect(status().isBadRequest());
+
+        // Assert
+        verify(jwtRequestFilter, times(1)).doFilter(any(), any(), any());
+        verify(jwtRequestFilter, times(1)).doFilterInternal(any(), any(), any());
+    }
+
+    @Test
+    void publicRequest_shouldSkipFilter() throws Exception {
+        // Act
+        mockMvc.perform(get("/api/public"))
+                .andExpect(status().isOk());
+
+        // Assert
+        verify(jwtRequestFilter, never()).doFilterInternal(any(), any(), any());
+    }
+}
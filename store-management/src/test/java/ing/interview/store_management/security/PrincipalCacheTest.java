@@ -0,0 +1,52 @@
+package ing.interview.store_management.security;
+
+import ing.interview.store_management.security.PrincipalCache.CachedPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PrincipalCacheTest {
+
+    @Test
+    void put_shouldEvictTheLeastRecentlyUsedUserOverTheBound() {
+        // Arrange
+        PrincipalCache principalCache = new PrincipalCache(2);
+        principalCache.put(principal("alice"), principalCache.generation());
+        principalCache.put(principal("bob"), principalCache.generation());
+        principalCache.get("alice");
+
+        // Act
+        principalCache.put(principal("carol"), principalCache.generation());
+
+        // Assert, bob was used last longest ago
+        assertNotNull(principalCache.get("alice"));
+        assertNull(principalCache.get("bob"));
+        assertNotNull(principalCache.get("carol"));
+    }
+
+    @Test
+    void put_shouldSkipAPrincipalLoadedBeforeTheCacheWasCleared() {
+        // Arrange
+        PrincipalCache principalCache = new PrincipalCache(10);
+        principalCache.put(principal("alice"), principalCache.generation());
+        long generation = principalCache.generation();
+
+        // Act, the user data changed while bob was loaded
+        principalCache.clear();
+        principalCache.put(principal("bob"), generation);
+
+        // Assert
+        assertNull(principalCache.get("alice"));
+        assertNull(principalCache.get("bob"));
+        principalCache.put(principal("bob"), principalCache.generation());
+        assertNotNull(principalCache.get("bob"));
+    }
+
+    private static CachedPrincipal principal(String username) {
+        return new CachedPrincipal(username, "hash", List.of(new SimpleGrantedAuthority("READ")));
+    }
+}
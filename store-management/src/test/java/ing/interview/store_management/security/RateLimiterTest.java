@@ -0,0 +1,126 @@
+package ing.interview.store_management.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final List<GrantedAuthority> USER = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    private static final List<GrantedAuthority> ADMIN = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new RateLimiter(RateLimiter.parseRules(new String[]{
+                "POST /api/orders ADMIN 50 200",
+                "POST /api/orders USER 5 20",
+                "PUT /api/products/* * 2 10"
+        }), clock::get, meterRegistry);
+    }
+
+    @Test
+    void tryAcquire_shouldAllowTheBurstThenRejectUntilRefilled() {
+        // Arrange
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(request("POST", "/api/orders"), "alice", USER));
+        }
+
+        // Act
+        long wait = rateLimiter.tryAcquire(request("POST", "/api/orders"), "alice", USER);
+
+        // Assert, one token every 200 ms
+        assertEquals(SECOND / 5, wait);
+        assertEquals(1.0, meterRegistry.get("rateLimit.rejected").counter().count());
+        clock.addAndGet(wait);
+        assertEquals(0, rateLimiter.tryAcquire(request("POST", "/api/orders"), "alice", USER));
+        assertTrue(rateLimiter.tryAcquire(request("POST", "/api/orders"), "alice", USER) > 0);
+    }
+
+    @Test
+    void tryAcquire_shouldKeepSeparateBucketsPerUser() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.tryAcquire(request("PUT", "/api/products/7"), "alice", USER);
+        }
+
+        // Act & Assert
+        assertTrue(rateLimiter.tryAcquire(request("PUT", "/api/products/8"), "alice", USER) > 0);
+        assertEquals(0, rateLimiter.tryAcquire(request("PUT", "/api/products/8"), "bob", USER));
+    }
+
+    @Test
+    void tryAcquire_shouldApplyTheLimitOfTheRole() {
+        // Act, 21 orders exceed the user burst but not the admin one
+        long userWait = 0;
+        long adminWait = 0;
+        for (int i = 0; i < 21; i++) {
+            userWait = rateLimiter.tryAcquire(request("POST", "/api/orders"), "alice", USER);
+            adminWait = rateLimiter.tryAcquire(request("POST", "/api/orders"), "admin", ADMIN);
+        }
+
+        // Assert
+        assertTrue(userWait > 0);
+        assertEquals(0, adminWait);
+    }
+
+    @Test
+    void tryAcquire_shouldNotLimitUnmatchedRequests() {
+        // Act & Assert
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(request("GET", "/api/orders"), "alice", USER));
+            assertEquals(0, rateLimiter.tryAcquire(request("POST", "/api/products"), "alice", USER));
+        }
+        assertEquals(0, rateLimiter.bucketCount());
+    }
+
+    @Test
+    void evictIdleBuckets_shouldOnlyDropRefilledBuckets() {
+        // Arrange, alice sends a burst, bob a single order
+        for (int i = 0; i < 20; i++) {
+            rateLimiter.tryAcquire(request("POST", "/api/orders"), "alice", USER);
+        }
+        rateLimiter.tryAcquire(request("POST", "/api/orders"), "bob", USER);
+        clock.addAndGet(SECOND);
+
+        // Act
+        rateLimiter.evictIdleBuckets();
+
+        // Assert, alice got 5 of her 20 tokens back, bob is full again
+        assertEquals(1, rateLimiter.bucketCount());
+        assertEquals(1.0, meterRegistry.get("rateLimit.buckets").gauge().value());
+        assertEquals(0, rateLimiter.tryAcquire(request("POST", "/api/orders"), "alice", USER));
+        clock.addAndGet(4 * SECOND);
+        rateLimiter.evictIdleBuckets();
+        assertEquals(0, rateLimiter.bucketCount());
+    }
+
+    @Test
+    void parseRules_shouldRejectMalformedRules() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.parseRules(new String[]{"POST /api/orders USER 5"}));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.parseRules(new String[]{"POST /api/orders USER 0 20"}));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.parseRules(new String[]{"POST /api/orders USER 5 many"}));
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setServletPath(uri);
+        return request;
+    }
+}
@@ -0,0 +1,100 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.model.Role;
+import ing.interview.store_management.model.User;
+import ing.interview.store_management.repository.RoleRepository;
+import ing.interview.store_management.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Loads the users created by the DataInitializer, and users of its own, against an embedded database of its own.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:userDetails",
+        "orderLifecycle.enabled=false",
+        "salesRollup.enabled=false"
+})
+class CustomUserDetailsServiceTest {
+
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void loadUserByUsername_shouldReadTheRoleAndItsPermissions() {
+        // Act
+        UserDetails admin = customUserDetailsService.loadUserByUsername("admin");
+
+        // Assert
+        assertEquals("admin", admin.getUsername());
+        assertEquals(userRepository.findByUsername("admin").orElseThrow().getPassword(), admin.getPassword());
+        assertEquals(Set.of("READ", "WRITE", "ROLE_ADMIN"), authorities(admin));
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("nobody"));
+    }
+
+    @Test
+    void loadUserByUsername_shouldNotKeepWhatALoginReadBeforeTheCommitOfAChange() throws Exception {
+        // Arrange
+        createUser("carol", "USER");
+        assertEquals(Set.of("READ", "ROLE_USER"), authorities(customUserDetailsService.loadUserByUsername("carol")));
+
+        // Act, a login on another thread reads the committed data while the role change is not committed yet
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+        transactionTemplate.executeWithoutResult(status -> {
+            User carol = userRepository.findByUsername("carol").orElseThrow();
+            carol.setRole(roleRepository.findByName("ADMIN").orElseThrow());
+            // The listener clears the cache on the flush, before the commit
+            entityManager.flush();
+            try {
+                assertEquals(Set.of("READ", "ROLE_USER"),
+                        authorities(otherThread.submit(() -> customUserDetailsService.loadUserByUsername("carol")).get()));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        otherThread.shutdown();
+
+        // Assert, what the other login read was dropped on the commit
+        assertEquals(Set.of("READ", "WRITE", "ROLE_ADMIN"), authorities(customUserDetailsService.loadUserByUsername("carol")));
+    }
+
+    private void createUser(String username, String roleName) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Role role = roleRepository.findByName(roleName).orElseThrow();
+            User user = new User(username, "hash");
+            user.setRole(role);
+            userRepository.save(user);
+        });
+    }
+
+    private static Set<String> authorities(UserDetails userDetails) {
+        return userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,92 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.OrderProduct;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.repository.OrderProductRepository;
+import ing.interview.store_management.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Contention run of the order flow against the embedded database.
+ * It is opt-in because it is slow, run it with:
+ * {@code mvn test -Dtest=OrderContentionSimulationTest -Dcontention.simulation=true [-Dcontention.threads=...]}
+ * Set {@code -Dcontention.stockShards=N} to run the same workload against sharded stock.
+ * Creating, updating and deleting orders all move stock between a product and its order lines, so
+ * the stock left plus the quantities still ordered must add up to the seeded stock.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "contention.simulation", matches = "true")
+class OrderContentionSimulationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderContentionSimulationTest.class);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Test
+    void concurrentOrders_shouldConserveStockAndNeverOversell() throws InterruptedException {
+        // Arrange
+        OrderContentionSimulator.Settings settings = OrderContentionSimulator.Settings.fromSystemProperties();
+        List<Long> productIds = seedProducts(settings);
+
+        // Act
+        OrderContentionSimulator.Report report =
+                new OrderContentionSimulator(orderService, productIds, settings).run();
+        logger.info("Contention run {} -> {}", settings, report);
+
+        // Assert
+        Map<Long, Integer> orderedQuantities = new HashMap<>();
+        for (OrderProduct orderProduct : orderProductRepository.findAll()) {
+            orderedQuantities.merge(orderProduct.getProduct().getId(), orderProduct.getQuantity(), Integer::sum);
+        }
+        for (Long productId : productIds) {
+            Product product = productRepository.findById(productId).orElseThrow();
+            int stock = product.isStockSharded() ? stockShardService.availableStock(productId) : product.getStock();
+            int ordered = orderedQuantities.getOrDefault(productId, 0);
+            assertTrue(stock >= 0, "Negative stock for product " + productId);
+            assertEquals(settings.initialStock(), stock + ordered,
+                    "Stock not conserved for product " + productId);
+        }
+    }
+
+    private List<Long> seedProducts(OrderContentionSimulator.Settings settings) {
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < settings.products(); i++) {
+            Product product = new Product();
+            product.setName("Contention product " + i);
+            product.setDescription("Seeded by the contention simulation");
+            product.setPrice(Money.of(BigDecimal.valueOf(10 + i)));
+            product.setStock(settings.initialStock());
+            Long productId = productRepository.save(product).getId();
+            if (settings.stockShards() > 0) {
+                stockShardService.reshard(productId, settings.stockShards());
+            }
+            productIds.add(productId);
+        }
+        return productIds;
+    }
+}
@@ -0,0 +1,219 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.exception.InsufficientStockException;
+import ing.interview.store_management.exception.NoValidProductInOrderException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process contention harness for the order flow.
+ * Runs a fixed number of worker threads, each issuing a seeded mix of create/update/delete calls
+ * against {@link OrderService}, with product popularity drawn from a Zipfian distribution.
+ * The workload each thread issues is reproducible for a given seed, the interleaving is not.
+ */
+public class OrderContentionSimulator {
+
+    private final OrderService orderService;
+    private final Settings settings;
+    private final List<Long> productIds;
+
+    // Orders created during the run which are still candidates for update/delete
+    private final Set<Long> liveOrderIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public OrderContentionSimulator(OrderService orderService, List<Long> productIds, Settings settings) {
+        this.orderService = orderService;
+        this.productIds = productIds;
+        this.settings = settings;
+    }
+
+    /**
+     * Runs the configured workload and blocks until every worker is done.
+     *
+     * @return the measured throughput, outcome counts and latency distribution
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public Report run() throws InterruptedException {
+        ZipfianGenerator popularity = new ZipfianGenerator(productIds.size(), settings.zipfExponent());
+        long[][] latencies = new long[settings.threads()][settings.operationsPerThread()];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(settings.threads());
+        ExecutorService executor = Executors.newFixedThreadPool(settings.threads());
+
+        for (int t = 0; t < settings.threads(); t++) {
+            final int worker = t;
+            executor.execute(() -> {
+                Random random = new Random(settings.seed() + worker);
+                try {
+                    start.await();
+                    for (int i = 0; i < settings.operationsPerThread(); i++) {
+                        long begin = System.nanoTime();
+                        runOperation(random, popularity);
+                        latencies[worker][i] = System.nanoTime() - begin;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Report(all.length, succeeded.get(), rejected.get(), aborted.get(), skipped.get(), elapsedNanos, all);
+    }
+
+    /**
+     * Picks an operation according to the configured mix and executes it, classifying the outcome.
+     * An update or delete which finds no live order to work on, another worker deleted it, is skipped.
+     */
+    private void runOperation(Random random, ZipfianGenerator popularity) {
+        int roll = random.nextInt(100);
+        try {
+            if (roll < settings.createPercent() || liveOrderIds.isEmpty()) {
+                OrderDto order = orderService.createOrder(randomLines(random, popularity));
+                liveOrderIds.add(order.getId());
+            } else if (roll < settings.createPercent() + settings.updatePercent()) {
+                Long orderId = pickLiveOrder(random);
+                if (orderId == null) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+                orderService.updateOrder(orderId, randomLines(random, popularity));
+            } else {
+                Long orderId = pickLiveOrder(random);
+                if (orderId == null || !liveOrderIds.remove(orderId)) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+                orderService.deleteOrder(orderId);
+            }
+            succeeded.incrementAndGet();
+        } catch (InsufficientStockException | NoValidProductInOrderException e) {
+            rejected.incrementAndGet();
+        } catch (RuntimeException e) {
+            aborted.incrementAndGet();
+        }
+    }
+
+    private Set<OrderProductDto> randomLines(Random random, ZipfianGenerator popularity) {
+        int lineCount = 1 + random.nextInt(settings.maxLinesPerOrder());
+        Set<Long> picked = new HashSet<>();
+        Set<OrderProductDto> lines = new HashSet<>();
+        for (int i = 0; i < lineCount; i++) {
+            Long productId = productIds.get(popularity.next(random));
+            if (picked.add(productId)) {
+                lines.add(new OrderProductDto(null, productId, 1 + random.nextInt(settings.maxQuantityPerLine())));
+            }
+        }
+        return lines;
+    }
+
+    private Long pickLiveOrder(Random random) {
+        List<Long> snapshot = new ArrayList<>(liveOrderIds);
+        return snapshot.isEmpty() ? null : snapshot.get(random.nextInt(snapshot.size()));
+    }
+
+    /**
+     * Workload parameters. Every value can be overridden through a {@code contention.*} system property.
+     */
+    public record Settings(int threads, int products, int initialStock, int operationsPerThread,
+                           int createPercent, int updatePercent, int maxLinesPerOrder,
+                           int maxQuantityPerLine, double zipfExponent, long seed, int stockShards) {
+
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("contention.threads", 500),
+                    Integer.getInteger("contention.products", 10),
+                    Integer.getInteger("contention.initialStock", 5_000),
+                    Integer.getInteger("contention.operationsPerThread", 20),
+                    Integer.getInteger("contention.createPercent", 60),
+                    Integer.getInteger("contention.updatePercent", 30),
+                    Integer.getInteger("contention.maxLinesPerOrder", 3),
+                    Integer.getInteger("contention.maxQuantityPerLine", 3),
+                    Double.parseDouble(System.getProperty("contention.zipfExponent", "0.99")),
+                    Long.getLong("contention.seed", 42L),
+                    Integer.getInteger("contention.stockShards", 0));
+        }
+    }
+
+    /**
+     * Outcome of a run: operation counts, wall-clock time and the sorted per-operation latencies.
+     */
+    public record Report(long operations, long succeeded, long rejected, long aborted, long skipped,
+                         long elapsedNanos, long[] sortedLatencyNanos) {
+
+        public double throughputPerSecond() {
+            return operations * 1_000_000_000d / elapsedNanos;
+        }
+
+        public double abortRate() {
+            return operations == 0 ? 0 : (double) aborted / operations;
+        }
+
+        public long percentileMicros(double percentile) {
+            if (sortedLatencyNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100d * sortedLatencyNanos.length) - 1;
+            return sortedLatencyNanos[Math.max(0, index)] / 1_000;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ops=%d ok=%d rejected=%d aborted=%d skipped=%d (abort rate %.2f%%) throughput=%.1f ops/s "
+                            + "latency p50=%dus p90=%dus p99=%dus max=%dus",
+                    operations, succeeded, rejected, aborted, skipped, abortRate() * 100, throughputPerSecond(),
+                    percentileMicros(50), percentileMicros(90), percentileMicros(99), percentileMicros(100));
+        }
+    }
+
+    /**
+     * Samples indexes in [0, n) with probability proportional to 1 / (rank ^ exponent).
+     */
+    static class ZipfianGenerator {
+
+        private final double[] cumulative;
+
+        ZipfianGenerator(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.Order;
+import ing.interview.store_management.model.OrderLifecycleJob;
+import ing.interview.store_management.model.OrderStatus;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.repository.OrderLifecycleJobRepository;
+import ing.interview.store_management.repository.OrderRepository;
+import ing.interview.store_management.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs several in-process workers, standing in for nodes, against one embedded database of its own, with the
+ * scheduled polling disabled so only the workers of the test claim jobs.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderLifecycle",
+        "orderLifecycle.enabled=false",
+        "orderLifecycle.completeAfterMillis=0",
+        "orderLifecycle.batchSize=7"
+})
+class OrderLifecycleServiceTest {
+
+    @Autowired
+    private OrderLifecycleService orderLifecycleService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderLifecycleJobRepository orderLifecycleJobRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        orderLifecycleJobRepository.deleteAll();
+        Product product = new Product();
+        product.setName("Lifecycle product");
+        product.setPrice(Money.of(BigDecimal.TEN));
+        product.setStock(1_000);
+        productId = productRepository.save(product).getId();
+    }
+
+    @Test
+    void runOnce_shouldCompleteEveryOrderExactlyOnceAcrossWorkers() throws Exception {
+        // Arrange
+        List<Long> orderIds = placeOrders(60);
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+
+        // Act, each worker keeps claiming until the queue is drained
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int worker = 0; worker < 4; worker++) {
+            String workerId = "worker-" + worker;
+            results.add(workers.submit(() -> {
+                int handled = 0;
+                long deadline = System.currentTimeMillis() + 30_000;
+                while (orderLifecycleJobRepository.count() > 0 && System.currentTimeMillis() < deadline) {
+                    handled += orderLifecycleService.runOnce(workerId);
+                }
+                return handled;
+            }));
+        }
+        int handled = 0;
+        for (Future<Integer> result : results) {
+            handled += result.get();
+        }
+        workers.shutdown();
+
+        // Assert
+        assertEquals(orderIds.size(), handled);
+        assertEquals(0, orderLifecycleJobRepository.count());
+        for (Long orderId : orderIds) {
+            assertEquals(OrderStatus.COMPLETED.getStatus(), orderRepository.findById(orderId).orElseThrow().getStatus());
+        }
+    }
+
+    @Test
+    void runOnce_shouldReclaimTheJobsOfACrashedWorkerOnceTheirLeaseExpired() {
+        // Arrange, a worker claims every job and dies
+        List<Long> orderIds = placeOrders(5);
+        Map<Long, Long> claimedByCrashed = orderLifecycleService.claimBatch("crashed");
+        assertEquals(5, claimedByCrashed.size());
+
+        // Act & Assert, the leased jobs are left alone until the lease runs out
+        assertEquals(0, orderLifecycleService.runOnce("healthy"));
+        List<OrderLifecycleJob> jobs = orderLifecycleJobRepository.findAll();
+        jobs.forEach(job -> job.setLeaseExpiresAt(Instant.now().minusSeconds(1)));
+        orderLifecycleJobRepository.saveAll(jobs);
+        assertEquals(5, orderLifecycleService.runOnce("healthy"));
+
+        for (Long orderId : orderIds) {
+            assertEquals(OrderStatus.COMPLETED.getStatus(), orderRepository.findById(orderId).orElseThrow().getStatus());
+        }
+        assertTrue(orderLifecycleJobRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void runOnce_shouldLeaveOrdersNoLongerPlacedUnchanged() {
+        // Arrange
+        Long orderId = placeOrders(1).get(0);
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        order.setStatus(OrderStatus.CANCELED.getStatus());
+        orderRepository.save(order);
+
+        // Act
+        int handled = orderLifecycleService.runOnce("worker");
+
+        // Assert
+        assertEquals(1, handled);
+        assertEquals(OrderStatus.CANCELED.getStatus(), orderRepository.findById(orderId).orElseThrow().getStatus());
+        assertEquals(0, orderLifecycleJobRepository.count());
+    }
+
+    private List<Long> placeOrders(int count) {
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orderIds.add(orderService.createOrder(Set.of(new OrderProductDto(null, productId, 1))).getId());
+        }
+        return orderIds;
+    }
+}
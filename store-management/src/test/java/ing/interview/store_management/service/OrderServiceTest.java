@@ -1,18 +1,26 @@
 package ing.interview.store_management.service;
+import ing.interview.store_management.datasource.ReadYourWrites;
 import ing.interview.store_management.dto.OrderDto;
 import ing.interview.store_management.dto.OrderProductDto;
 import ing.interview.store_management.exception.InsufficientStockException;
 import ing.interview.store_management.exception.NoValidProductInOrderException;
 import ing.interview.store_management.exception.OrderNotFoundException;
 import ing.interview.store_management.exception.ProductNotFoundException;
+import ing.interview.store_management.journal.StockJournal;
 import ing.interview.store_management.mapper.OrderMapper;
+import ing.interview.store_management.model.ArchivedOrder;
+import ing.interview.store_management.model.Money;
 import ing.interview.store_management.model.Order;
 import ing.interview.store_management.model.OrderProduct;
 import ing.interview.store_management.model.OrderStatus;
 import ing.interview.store_management.model.Product;
+import ing.interview.store_management.pricing.PricingEngine;
+import ing.interview.store_management.pricing.PricingPlan;
+import ing.interview.store_management.repository.ArchivedOrderRepository;
 import ing.interview.store_management.repository.OrderProductRepository;
 import ing.interview.store_management.repository.OrderRepository;
 import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.SalesChangeRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -21,15 +29,20 @@ import org.mockito.MockitoAnnotations;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class OrderServiceTest {
@@ -43,25 +56,62 @@ class OrderServiceTest {
     @Mock
     private OrderProductRepository orderProductRepository;
 
+    @Mock
+    private ArchivedOrderRepository archivedOrderRepository;
+
     @Mock
     private OrderMapper orderMapper;
 
+    @Mock
+    private StockJournal stockJournal;
+
+    @Mock
+    private StockShardService stockShardService;
+
+    @Mock
+    private PricingEngine pricingEngine;
+
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    @Mock
+    private OrderLifecycleService orderLifecycleService;
+
+    @Mock
+    private SalesChangeRepository salesChangeRepository;
+
     @InjectMocks
     private OrderService orderService;
 
     private Product product;
     private Set<OrderProductDto> orderProductDtos;
+    // Products whose stock the mocked relative UPDATE changes, as the refresh of the adjusted products would
+    private final Map<Long, Product> products = new HashMap<>();
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(pricingEngine.currentPlan()).thenReturn(PricingPlan.EMPTY);
 
         // Create a sample product for testing
         product = new Product();
         product.setId(1L);
         product.setName("Product1");
-        product.setPrice(BigDecimal.valueOf(100));
+        product.setPrice(Money.of(BigDecimal.valueOf(100)));
         product.setStock(10);
+        products.put(1L, product);
+        when(productRepository.adjustStocks(any())).thenAnswer(invocation -> {
+            Map<Long, Integer> stockDeltas = invocation.getArgument(0);
+            int updated = 0;
+            for (Map.Entry<Long, Integer> stockDelta : stockDeltas.entrySet()) {
+                Product adjusted = products.get(stockDelta.getKey());
+                if (adjusted != null && adjusted.getStock() + stockDelta.getValue() >= 0) {
+                    adjusted.setStock(adjusted.getStock() + stockDelta.getValue());
+                    updated++;
+                }
+            }
+            return updated;
+        });
 
         // Create sample OrderProductDto
         OrderProductDto orderProductDto = new OrderProductDto();
@@ -92,6 +142,7 @@ class OrderServiceTest {
         assertNotNull(orderDto);
         verify(orderRepository, times(2)).save(any(Order.class));
         verify(orderProductRepository, times(1)).save(any(OrderProduct.class));
+        verify(orderLifecycleService, times(1)).scheduleCompletion(1L);
     }
 
     @Test
@@ -106,6 +157,30 @@ class OrderServiceTest {
         });
     }
 
+    @Test
+    void createOrder_shouldThrowInsufficientStockException_whenAConcurrentOrderTookTheStock() {
+        // Arrange, the stock read was enough but the relative update finds less
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.adjustStocks(any())).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () -> {
+            orderService.createOrder(orderProductDtos);
+        });
+    }
+
+    @Test
+    void createOrder_shouldThrowIllegalArgumentException_whenTheTotalOverflows() {
+        // Arrange, 5 times 9e18 minor units does not fit in a long
+        product.setPrice(Money.of(new BigDecimal("90000000000000000")));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> {
+            orderService.createOrder(orderProductDtos);
+        });
+    }
+
     @Test
     void createOrder_shouldThrowNoValidProductInOrderException_whenNoProductFound() {
         // Arrange
@@ -124,7 +199,7 @@ class OrderServiceTest {
         order.setId(1L);
         order.setStatus(OrderStatus.PLACED.getStatus());
         when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
         when(orderMapper.toDto(any(Order.class))).thenReturn(new OrderDto());
 
         // Act
@@ -133,6 +208,40 @@ class OrderServiceTest {
         // Assert
         assertNotNull(updatedOrderDto);
         verify(orderRepository, times(1)).save(any(Order.class));
+        assertEquals(5, product.getStock());
+        assertEquals(1, order.getOrderProducts().size());
+    }
+
+    @Test
+    void updateOrder_shouldReturnStockOfRemovedLines() throws InsufficientStockException, OrderNotFoundException, ProductNotFoundException {
+        // Arrange
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setName("Product2");
+        product2.setPrice(Money.of(BigDecimal.valueOf(150)));
+        product2.setStock(20);
+        products.put(2L, product2);
+
+        Order order = new Order();
+        order.setId(1L);
+        order.setStatus(OrderStatus.PLACED.getStatus());
+        OrderProduct removedLine = new OrderProduct(order, product2, 4);
+        removedLine.setId(2L);
+        order.getOrderProducts().add(removedLine);
+
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product, product2));
+        when(orderMapper.toDto(any(Order.class))).thenReturn(new OrderDto());
+
+        // Act
+        orderService.updateOrder(1L, orderProductDtos);
+
+        // Assert
+        assertEquals(24, product2.getStock());
+        assertEquals(5, product.getStock());
+        assertEquals(1, order.getOrderProducts().size());
+        assertEquals(Money.of(BigDecimal.valueOf(500)), order.getTotalPrice());
+        verify(productRepository, times(1)).adjustStocks(Map.of(1L, -5, 2L, 4));
     }
 
     @Test
@@ -153,20 +262,20 @@ class OrderServiceTest {
         order.setId(1L);
         order.setOrderDate(LocalDateTime.now());
         order.setStatus(OrderStatus.CREATED.getStatus());
-        order.setTotalPrice(BigDecimal.valueOf(100));
+        order.setTotalPrice(Money.of(BigDecimal.valueOf(100)));
 
         OrderProduct orderProduct = new OrderProduct();
         orderProduct.setId(1L);
         orderProduct.setProduct(product);
         orderProduct.setOrder(order);
-        orderProduct.setQuantity(34);  // Initial quantity is 1, total stock is 2
+        orderProduct.setQuantity(1);  // Initial quantity is 1, total stock is 2
 
         // Add the order product to the order
         Set<OrderProduct> orderProducts = new HashSet<>();
         orderProducts.add(orderProduct);
         order.setOrderProducts(orderProducts);
         when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
 
         assertThrows(InsufficientStockException.class, () -> {
             orderService.updateOrder(1L, orderProductDtos);
@@ -174,17 +283,14 @@ class OrderServiceTest {
     }
 
     @Test
-    void deleteOrder_shouldDeleteOrder() {
-        // Arrange
-        Order order = new Order();
-        order.setId(1L);
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
-
+    void deleteOrder_shouldDeleteOrderWithoutChangingStock() {
         // Act
         orderService.deleteOrder(1L);
 
         // Assert
         verify(orderRepository, times(1)).deleteById(1L);
+        assertEquals(10, product.getStock());
+        verifyNoInteractions(stockJournal);
     }
 
     @Test
@@ -203,6 +309,33 @@ class OrderServiceTest {
         verify(orderRepository, times(1)).findById(1L);
     }
 
+    @Test
+    void getOrder_shouldFallBackToArchive() {
+        // Arrange
+        ArchivedOrder archivedOrder = new ArchivedOrder();
+        archivedOrder.setId(1L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.empty());
+        when(archivedOrderRepository.findById(1L)).thenReturn(Optional.of(archivedOrder));
+        when(orderMapper.toDto(any(ArchivedOrder.class))).thenReturn(new OrderDto());
+
+        // Act
+        OrderDto orderDto = orderService.getOrder(1L);
+
+        // Assert
+        assertNotNull(orderDto);
+        verify(archivedOrderRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getOrder_shouldThrowWhenNeitherHotNorArchived() {
+        // Arrange
+        when(orderRepository.findById(1L)).thenReturn(Optional.empty());
+        when(archivedOrderRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> orderService.getOrder(1L));
+    }
+
     @Test
     void createOrder_shouldHandleMultipleProducts() throws NoValidProductInOrderException, InsufficientStockException {
         // Arrange
@@ -222,8 +355,9 @@ class OrderServiceTest {
         Product product2 = new Product();
         product2.setId(2L);
         product2.setName("Product2");
-        product2.setPrice(BigDecimal.valueOf(150));
+        product2.setPrice(Money.of(BigDecimal.valueOf(150)));
         product2.setStock(20);
+        products.put(2L, product2);
 
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
         when(productRepository.findById(2L)).thenReturn(Optional.of(product2));
@@ -0,0 +1,109 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that an order update only writes the rows that changed, by counting the statements it prepares in the
+ * Hibernate statistics. Runs against an embedded database of its own with the background jobs which query it
+ * turned off, so only the update is counted.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderUpdateStatements",
+        "orderLifecycle.enabled=false",
+        "salesRollup.enabled=false",
+        "stockShards.rebalanceMillis=3600000"
+})
+class OrderServiceUpdateStatementsTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * The statements of an update: the order, its lines with their products and the products involved are read (3),
+     * the changed, added and removed lines are written (3), the stocks are updated in one statement (1) and the three
+     * adjusted products refreshed (3), the sales change is inserted (1) and the order total updated (1).
+     */
+    private static final long UPDATE_STATEMENTS = 12;
+
+    @Test
+    void updateOrder_shouldOnlyWriteChangedLinesAndStocks() {
+        // Act & Assert, the unchanged lines cost no statement
+        assertEquals(UPDATE_STATEMENTS, countUpdateStatements(1));
+        assertEquals(UPDATE_STATEMENTS, countUpdateStatements(10));
+    }
+
+    /**
+     * Updates an order whose kept lines stay as they are, one line changes, one is removed and one is added.
+     *
+     * @param keptLines the number of lines which stay as they are.
+     * @return the number of statements prepared by the update.
+     */
+    private long countUpdateStatements(int keptLines) {
+        List<Product> kept = new ArrayList<>();
+        Set<OrderProductDto> lines = new HashSet<>();
+        Set<OrderProductDto> updatedLines = new HashSet<>();
+        for (int i = 0; i < keptLines; i++) {
+            Product product = saveProduct("Kept " + i, 10);
+            kept.add(product);
+            lines.add(new OrderProductDto(null, product.getId(), 2));
+            updatedLines.add(new OrderProductDto(null, product.getId(), 2));
+        }
+        Product changed = saveProduct("Changed", 10);
+        Product removed = saveProduct("Removed", 10);
+        Product added = saveProduct("Added", 10);
+        lines.add(new OrderProductDto(null, changed.getId(), 2));
+        lines.add(new OrderProductDto(null, removed.getId(), 2));
+        updatedLines.add(new OrderProductDto(null, changed.getId(), 5));
+        updatedLines.add(new OrderProductDto(null, added.getId(), 1));
+        OrderDto order = orderService.createOrder(lines);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        orderService.updateOrder(order.getId(), updatedLines);
+        long statements = statistics.getPrepareStatementCount();
+
+        for (Product product : kept) {
+            assertEquals(8, productRepository.findById(product.getId()).orElseThrow().getStock());
+        }
+        assertEquals(5, productRepository.findById(changed.getId()).orElseThrow().getStock());
+        assertEquals(10, productRepository.findById(removed.getId()).orElseThrow().getStock());
+        assertEquals(9, productRepository.findById(added.getId()).orElseThrow().getStock());
+        // The refresh of the changed product after its stock update keeps the new quantity of its line
+        assertEquals(5, orderService.getOrder(order.getId()).getOrderProducts().stream()
+                .filter(line -> line.getProductId().equals(changed.getId()))
+                .findFirst().orElseThrow().getQuantity());
+        return statements;
+    }
+
+    private Product saveProduct(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(Money.of(BigDecimal.TEN));
+        product.setStock(stock);
+        return productRepository.save(product);
+    }
+}
@@ -0,0 +1,124 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.controller.PricingRuleController;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.dto.PricingRuleDto;
+import ing.interview.store_management.exception.PricingRuleNotFoundException;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.PricingRuleType;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.pricing.PricingEngine;
+import ing.interview.store_management.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Changes pricing rules against an embedded database of its own and checks the orders placed afterwards
+ * are priced with the new rules.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pricingRules",
+        "orderLifecycle.enabled=false",
+        "salesRollup.enabled=false"
+})
+class PricingRuleServiceTest {
+
+    @Autowired
+    private PricingRuleService pricingRuleService;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PricingRuleController pricingRuleController;
+
+    @Autowired
+    private GlobalExceptionHandler globalExceptionHandler;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void updateRule_shouldRepriceTheOrdersPlacedAfterTheCommit() throws Exception {
+        // Arrange
+        Long productId = createProduct("10.00");
+        PricingRuleDto rule = pricingRuleService.createRule(percentOff(productId, 1_000));
+        assertEquals(Money.of(new BigDecimal("9.00")), orderTotal(productId));
+
+        // Act, another thread compiles the plan from the committed rules while the change is not committed yet
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+        transactionTemplate.executeWithoutResult(status -> {
+            pricingRuleService.updateRule(rule.getId(), percentOff(productId, 5_000));
+            // The rule listener invalidates the plan on the flush, before the commit
+            entityManager.flush();
+            try {
+                otherThread.submit(pricingEngine::currentPlan).get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        otherThread.shutdown();
+
+        // Assert, the plan compiled before the commit was dropped
+        assertEquals(Money.of(new BigDecimal("5.00")), orderTotal(productId));
+    }
+
+    @Test
+    void updateRule_shouldAnswerNotFoundForAnUnknownRule() throws Exception {
+        // Arrange
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(pricingRuleController).setControllerAdvice(globalExceptionHandler).build();
+
+        // Act & Assert
+        assertThrows(PricingRuleNotFoundException.class, () -> pricingRuleService.updateRule(-1L, percentOff(1L, 1_000)));
+        mockMvc.perform(put("/api/admin/pricing-rules/-1").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"PRODUCT_PERCENT_OFF\",\"productId\":1,\"percentOffBasisPoints\":1000}"))
+                .andExpect(status().isNotFound());
+    }
+
+    private Long createProduct(String price) {
+        Product product = new Product();
+        product.setName("Discounted product");
+        product.setPrice(Money.of(new BigDecimal(price)));
+        product.setStock(100);
+        return productRepository.save(product).getId();
+    }
+
+    private static PricingRuleDto percentOff(Long productId, int basisPoints) {
+        PricingRuleDto rule = new PricingRuleDto();
+        rule.setName("Percent off");
+        rule.setType(PricingRuleType.PRODUCT_PERCENT_OFF);
+        rule.setProductId(productId);
+        rule.setPercentOffBasisPoints(basisPoints);
+        return rule;
+    }
+
+    private Money orderTotal(Long productId) {
+        return Money.of(orderService.createOrder(Set.of(new OrderProductDto(null, productId, 1))).getTotalPrice());
+    }
+}
@@ -0,0 +1,145 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.dto.ProductDto;
+import ing.interview.store_management.dto.ReservationRequest;
+import ing.interview.store_management.dto.StockReservationDto;
+import ing.interview.store_management.exception.NoValidProductInOrderException;
+import ing.interview.store_management.exception.ProductDiscontinuedException;
+import ing.interview.store_management.exception.ProductReservedException;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.OrderProduct;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.repository.OrderProductRepository;
+import ing.interview.store_management.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that deleting and discontinuing products runs set based statements without loading any entity,
+ * using the Hibernate statistics
+ */
+@SpringBootTest
+class ProductBulkDeletionTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void deleteProducts_shouldDeleteProductsAndOrderLinesWithoutLoadingThem() {
+        // Arrange
+        ProductDto first = createProduct("Bulk delete first");
+        ProductDto second = createProduct("Bulk delete second");
+        ProductDto kept = createProduct("Bulk delete kept");
+        OrderDto order = orderService.createOrder(Set.of(
+                new OrderProductDto(null, first.getId(), 1),
+                new OrderProductDto(null, second.getId(), 2),
+                new OrderProductDto(null, kept.getId(), 3)));
+        long linesBefore = orderProductRepository.count();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        int deleted = productService.deleteProducts(List.of(first.getId(), second.getId(), -1L));
+
+        // Assert
+        assertEquals(2, deleted);
+        assertEquals(0, statistics.getEntityStatistics(Product.class.getName()).getLoadCount(), "No product is loaded");
+        assertEquals(0, statistics.getEntityStatistics(OrderProduct.class.getName()).getLoadCount(), "No order line is loaded");
+        assertEquals(0, statistics.getEntityStatistics(OrderProduct.class.getName()).getDeleteCount(),
+                "Order lines are only deleted by set based statements");
+        assertFalse(productRepository.existsById(first.getId()));
+        assertFalse(productRepository.existsById(second.getId()));
+        assertEquals(linesBefore - 2, orderProductRepository.count());
+        assertEquals(1, orderService.getOrder(order.getId()).getOrderProducts().size());
+        // The kept line holds 3 of the 6 units at the same price, so half the total
+        assertEquals(Money.ofMinor(Money.of(order.getTotalPrice()).minorUnits() / 2),
+                Money.of(orderService.getOrder(order.getId()).getTotalPrice()));
+        assertTrue(productService.searchProducts("Bulk delete", 10).stream()
+                .allMatch(product -> product.getId().equals(kept.getId())));
+    }
+
+    @Test
+    void discontinueProducts_shouldKeepOrderHistoryButStopListingAndOrdering() {
+        // Arrange
+        ProductDto product = createProduct("Discontinued lamp");
+        OrderDto order = orderService.createOrder(Set.of(new OrderProductDto(null, product.getId(), 1)));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        int discontinued = productService.discontinueProducts(List.of(product.getId()));
+
+        // Assert
+        assertEquals(1, discontinued);
+        assertEquals(0, statistics.getEntityStatistics(Product.class.getName()).getLoadCount());
+        assertEquals(0, productService.discontinueProducts(List.of(product.getId())), "Already discontinued");
+        assertTrue(productService.getProduct(product.getId()).isDiscontinued());
+        assertEquals(1, orderService.getOrder(order.getId()).getOrderProducts().size());
+        assertTrue(productService.listAllProducts().stream().noneMatch(listed -> listed.getId().equals(product.getId())));
+        assertTrue(productService.searchProducts("lamp", 10).isEmpty());
+        assertTrue(productService.suggestProducts("Discontinued").isEmpty());
+        assertThrows(NoValidProductInOrderException.class,
+                () -> orderService.createOrder(Set.of(new OrderProductDto(null, product.getId(), 1))));
+        assertThrows(ProductDiscontinuedException.class,
+                () -> orderService.updateOrder(order.getId(), Set.of(new OrderProductDto(null, product.getId(), 2))));
+    }
+
+    @Test
+    void deleteProducts_shouldRefuseProductsHeldByActiveReservations() {
+        // Arrange
+        ProductDto reserved = createProduct("Reserved chair");
+        ProductDto free = createProduct("Free chair");
+        StockReservationDto reservation = stockReservationService.reserve(
+                new ReservationRequest(Set.of(new OrderProductDto(null, reserved.getId(), 1)), null));
+
+        // Act & Assert, nothing is deleted
+        assertThrows(ProductReservedException.class,
+                () -> productService.deleteProducts(List.of(free.getId(), reserved.getId())));
+        assertTrue(productRepository.existsById(reserved.getId()));
+        assertTrue(productRepository.existsById(free.getId()));
+
+        stockReservationService.release(reservation.getId());
+        assertEquals(2, productService.deleteProducts(List.of(free.getId(), reserved.getId())));
+    }
+
+    private ProductDto createProduct(String name) {
+        ProductDto product = new ProductDto();
+        product.setName(name);
+        product.setDescription("Seeded by the bulk deletion test");
+        product.setPrice(BigDecimal.TEN);
+        product.setStock(100);
+        return productService.createProduct(product);
+    }
+}
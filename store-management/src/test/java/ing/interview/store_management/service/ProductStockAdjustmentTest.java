@@ -0,0 +1,245 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.controller.ProductController;
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.dto.ProductDto;
+import ing.interview.store_management.dto.ProductStockDto;
+import ing.interview.store_management.dto.StockAdjustmentDto;
+import ing.interview.store_management.exception.InsufficientStockException;
+import ing.interview.store_management.exception.ProductNotFoundException;
+import ing.interview.store_management.journal.StockJournal;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.Order;
+import ing.interview.store_management.model.OrderProduct;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.repository.OrderProductRepository;
+import ing.interview.store_management.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Applies stock adjustments through the service and the batch endpoint, without the security filters,
+ * against the embedded database.
+ */
+@SpringBootTest
+class ProductStockAdjustmentTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private GlobalExceptionHandler globalExceptionHandler;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StockJournal stockJournal;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(productController).setControllerAdvice(globalExceptionHandler).build();
+    }
+
+    @Test
+    void adjustStocks_shouldApplyEveryDeltaAndSumThoseOfTheSameProduct() {
+        // Arrange
+        Long first = createProduct(10);
+        Long second = createProduct(5);
+
+        // Act
+        List<ProductStockDto> stockLevels = productService.adjustStocks(List.of(
+                new StockAdjustmentDto(first, 4), new StockAdjustmentDto(second, -5), new StockAdjustmentDto(first, 1)));
+
+        // Assert
+        assertEquals(2, stockLevels.size());
+        assertEquals(15, stock(first));
+        assertEquals(0, stock(second));
+    }
+
+    @Test
+    void adjustStocks_shouldApplyNothingWhenOneStockWouldGoNegative() {
+        // Arrange
+        Long first = createProduct(10);
+        Long second = createProduct(1);
+
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () -> productService.adjustStocks(List.of(
+                new StockAdjustmentDto(first, 5), new StockAdjustmentDto(second, -2))));
+        assertEquals(10, stock(first));
+        assertEquals(1, stock(second));
+        assertThrows(ProductNotFoundException.class, () -> productService.adjustStocks(List.of(
+                new StockAdjustmentDto(first, 5), new StockAdjustmentDto(-1L, 1))));
+        assertEquals(10, stock(first));
+    }
+
+    @Test
+    void adjustStocks_shouldRejectAdjustmentsWithoutProductOrDelta() {
+        // Arrange
+        Long productId = createProduct(10);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.adjustStocks(List.of(new StockAdjustmentDto(null, 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.adjustStocks(List.of(new StockAdjustmentDto(productId, null))));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.adjustStocks(Arrays.asList((StockAdjustmentDto) null)));
+    }
+
+    @Test
+    void adjustStocks_shouldRefreshAdjustedProductsAndKeepTheRestOfThePersistenceContext() {
+        // Arrange
+        Long productId = createProduct(10);
+        Long otherId = createProduct(10);
+        OrderDto order = orderService.createOrder(Set.of(new OrderProductDto(null, otherId, 1)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = entityManager.find(Product.class, productId);
+            Order managedOrder = entityManager.find(Order.class, order.getId());
+
+            // Act
+            productService.adjustStocks(List.of(new StockAdjustmentDto(productId, 3)));
+
+            // Assert
+            assertTrue(entityManager.contains(product), "The adjusted product stays managed");
+            assertTrue(entityManager.contains(managedOrder), "Other entities stay managed");
+            assertEquals(13, product.getStock());
+        });
+    }
+
+    @Test
+    void adjustStocks_shouldKeepAPendingChangeOfAnOrderLineOfTheAdjustedProduct() {
+        // Arrange
+        Long productId = createProduct(10);
+        orderService.createOrder(Set.of(new OrderProductDto(null, productId, 2)));
+
+        Long lineId = transactionTemplate.execute(status -> {
+            Product product = entityManager.find(Product.class, productId);
+            OrderProduct line = product.getOrderProducts().iterator().next();
+            line.setQuantity(3);
+
+            // Act, the refresh of the product cascades to its loaded lines
+            productRepository.adjustStocks(Map.of(productId, -1));
+
+            // Assert
+            assertEquals(3, line.getQuantity());
+            assertEquals(9, product.getStock());
+            return line.getId();
+        });
+        assertEquals(3, orderProductRepository.findById(lineId).orElseThrow().getQuantity());
+        assertEquals(9, stock(productId));
+    }
+
+    @Test
+    void updateProduct_shouldWaitForAConcurrentStockChangeAndJournalTheDeltaMade() throws Exception {
+        // Arrange, an order takes 3 of the stock and holds the row until it commits
+        Long productId = createProduct(10);
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> order = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            productService.adjustStocks(List.of(new StockAdjustmentDto(productId, -3)));
+            taken.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        taken.await();
+
+        // Act, the update waits for the order before it reads the stock
+        Future<ProductDto> update = executor.submit(() -> productService.updateProduct(productId,
+                new ProductDto(productId, "Adjusted product", null, BigDecimal.ONE, 50, false)));
+        Thread.sleep(200);
+        commit.countDown();
+        order.get(10, TimeUnit.SECONDS);
+        update.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert, the journal holds -3 then +43 and agrees with the database
+        assertEquals(50, stock(productId));
+        assertEquals(50, stockJournal.currentStock().get(productId));
+    }
+
+    @Test
+    void adjustStocksEndpoint_shouldApplyTheBatchAndAnswerBadRequestForAMissingDelta() throws Exception {
+        // Arrange
+        Long first = createProduct(10);
+        Long second = createProduct(10);
+
+        // Act & Assert
+        mockMvc.perform(patch("/api/products/stock").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"productId\":" + first + ",\"delta\":5},{\"productId\":" + second + ",\"delta\":-3}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        assertEquals(15, stock(first));
+        assertEquals(7, stock(second));
+
+        mockMvc.perform(patch("/api/products/stock").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"productId\":" + first + "}]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/products/stock").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"productId\":" + second + ",\"delta\":-100}]"))
+                .andExpect(status().isBadRequest());
+        assertEquals(15, stock(first));
+        assertEquals(7, stock(second));
+    }
+
+    private Long createProduct(int stock) {
+        Product product = new Product();
+        product.setName("Adjusted product");
+        product.setPrice(Money.of(BigDecimal.ONE));
+        product.setStock(stock);
+        return productRepository.save(product).getId();
+    }
+
+    private int stock(Long productId) {
+        return productRepository.findById(productId).orElseThrow().getStock();
+    }
+}
@@ -0,0 +1,144 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.exception.InvalidRefreshTokenException;
+import ing.interview.store_management.model.RefreshToken;
+import ing.interview.store_management.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Issues, rotates, revokes and cleans up refresh tokens against an embedded database of its own.
+ * Every test works with users of its own.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:refreshTokens",
+        "orderLifecycle.enabled=false",
+        "salesRollup.enabled=false"
+})
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Test
+    void consume_shouldRotateTheToken() {
+        // Arrange
+        String token = refreshTokenService.issue("alice");
+
+        // Act
+        String username = refreshTokenService.consume(token);
+
+        // Assert
+        assertEquals("alice", username);
+        assertEquals(1, tokens("alice").size());
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.consume("unknown"));
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.consume(null));
+    }
+
+    @Test
+    void rotate_shouldConsumeAndIssueTogether() {
+        // Arrange, "user" is created by the DataInitializer
+        String token = refreshTokenService.issue("user");
+        String orphan = refreshTokenService.issue("nobody");
+
+        // Act
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(token);
+
+        // Assert
+        assertEquals("user", rotation.userDetails().getUsername());
+        assertEquals("user", refreshTokenService.consume(rotation.refreshToken()));
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate(token));
+        // Without a user nothing is issued and the token is not consumed either
+        assertThrows(UsernameNotFoundException.class, () -> refreshTokenService.rotate(orphan));
+        assertEquals("nobody", refreshTokenService.consume(orphan));
+    }
+
+    @Test
+    void consume_shouldRevokeEveryTokenOfTheUserWhenARotatedTokenIsReused() {
+        // Arrange
+        String stolen = refreshTokenService.issue("bob");
+        refreshTokenService.consume(stolen);
+        String current = refreshTokenService.issue("bob");
+        String otherUser = refreshTokenService.issue("carol");
+
+        // Act
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.consume(stolen));
+
+        // Assert
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.consume(current));
+        assertEquals(List.of(), tokens("bob"));
+        assertEquals("carol", refreshTokenService.consume(otherUser));
+    }
+
+    @Test
+    void consume_shouldNotTakeALoggedOutTokenForAStolenOne() {
+        // Arrange
+        String loggedOut = refreshTokenService.issue("dave");
+        String otherSession = refreshTokenService.issue("dave");
+        refreshTokenService.revoke(loggedOut);
+
+        // Act
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.consume(loggedOut));
+
+        // Assert, the other session of the user goes on
+        assertEquals("dave", refreshTokenService.consume(otherSession));
+    }
+
+    @Test
+    void revokeAll_shouldEndEverySessionOfTheUserOnly() {
+        // Arrange
+        String first = refreshTokenService.issue("erin");
+        String second = refreshTokenService.issue("erin");
+        String otherUser = refreshTokenService.issue("frank");
+
+        // Act
+        int revoked = refreshTokenService.revokeAll("erin");
+
+        // Assert
+        assertEquals(2, revoked);
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.consume(first));
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.consume(second));
+        assertEquals("frank", refreshTokenService.consume(otherUser));
+    }
+
+    @Test
+    void expiredTokens_shouldBeRejectedAndDeleted() {
+        // Arrange
+        String expired = refreshTokenService.issue("grace");
+        refreshTokenService.issue("grace");
+        RefreshToken expiredToken = tokens("grace").get(0);
+        expiredToken.setExpiresAt(Instant.now().minusSeconds(1));
+        refreshTokenRepository.save(expiredToken);
+
+        // Act & Assert
+        InvalidRefreshTokenException exception = assertThrows(InvalidRefreshTokenException.class,
+                () -> refreshTokenService.consume(expired));
+        assertEquals("Refresh token expired", exception.getMessage());
+
+        refreshTokenService.deleteExpiredTokens();
+        List<RefreshToken> left = tokens("grace");
+        assertEquals(1, left.size());
+        assertFalse(left.get(0).getExpiresAt().isBefore(Instant.now()));
+    }
+
+    // Ordered by ID, so by issue order
+    private List<RefreshToken> tokens(String username) {
+        return refreshTokenRepository.findAll().stream()
+                .filter(token -> token.getUsername().equals(username))
+                .sorted(Comparator.comparing(RefreshToken::getId))
+                .toList();
+    }
+}
@@ -0,0 +1,235 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.dto.ReservationRequest;
+import ing.interview.store_management.dto.StockAdjustmentDto;
+import ing.interview.store_management.dto.StockReservationDto;
+import ing.interview.store_management.exception.ReservationNotActiveException;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.model.ReservationStatus;
+import ing.interview.store_management.model.ReservedQuantity;
+import ing.interview.store_management.model.StockChangeReason;
+import ing.interview.store_management.model.StockReservation;
+import ing.interview.store_management.repository.OrderRepository;
+import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.StockReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Reserves, confirms, releases and expires reservations against an embedded database of its own, with a fast
+ * ticking timing wheel and retry so the expiries run within the test.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stockReservation",
+        "reservation.tickMillis=10",
+        "reservation.expiryRetryMillis=50",
+        "orderLifecycle.enabled=false",
+        "salesRollup.enabled=false"
+})
+class StockReservationServiceTest {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @SpyBean
+    private StockReservationRepository stockReservationRepository;
+
+    @Test
+    void confirm_shouldTurnTheHeldStockIntoAnOrderWithoutTakingItAgain() throws InterruptedException {
+        // Arrange
+        Long productId = createProduct(10);
+        StockReservationDto reservation = stockReservationService.reserve(request(1, new OrderProductDto(null, productId, 3)));
+        assertEquals(7, stock(productId));
+
+        // Act
+        OrderDto order = stockReservationService.confirm(reservation.getId());
+
+        // Assert
+        assertEquals(7, stock(productId));
+        assertTrue(orderRepository.existsById(order.getId()));
+        StockReservationDto confirmed = stockReservationService.getReservation(reservation.getId());
+        assertEquals(ReservationStatus.CONFIRMED, confirmed.getStatus());
+        assertEquals(order.getId(), confirmed.getOrderId());
+
+        // The cancelled expiry never gives the stock back
+        Thread.sleep(1_500);
+        assertEquals(7, stock(productId));
+        assertThrows(ReservationNotActiveException.class, () -> stockReservationService.release(reservation.getId()));
+    }
+
+    @Test
+    void confirm_shouldGiveBackTheHeldStockOfADiscontinuedProduct() {
+        // Arrange
+        Long kept = createProduct(10);
+        Long discontinued = createProduct(10);
+        StockReservationDto reservation = stockReservationService.reserve(request(null,
+                new OrderProductDto(null, kept, 2), new OrderProductDto(null, discontinued, 3)));
+        productService.discontinueProducts(List.of(discontinued));
+
+        // Act
+        OrderDto order = stockReservationService.confirm(reservation.getId());
+
+        // Assert, the discontinued line is dropped and its stock is no longer held
+        assertEquals(8, stock(kept));
+        assertEquals(10, stock(discontinued));
+        assertEquals(1, order.getOrderProducts().size());
+        assertEquals(ReservationStatus.CONFIRMED, stockReservationService.getReservation(reservation.getId()).getStatus());
+    }
+
+    @Test
+    void release_shouldGiveTheStockBackOnce() {
+        // Arrange
+        Long first = createProduct(10);
+        Long second = createProduct(5);
+        StockReservationDto reservation = stockReservationService.reserve(request(null,
+                new OrderProductDto(null, first, 4), new OrderProductDto(null, second, 5)));
+        assertEquals(6, stock(first));
+        assertEquals(0, stock(second));
+
+        // Act
+        stockReservationService.release(reservation.getId());
+
+        // Assert
+        assertEquals(10, stock(first));
+        assertEquals(5, stock(second));
+        assertEquals(ReservationStatus.RELEASED, stockReservationService.getReservation(reservation.getId()).getStatus());
+        assertThrows(ReservationNotActiveException.class, () -> stockReservationService.release(reservation.getId()));
+        stockReservationService.expire(reservation.getId());
+        assertEquals(10, stock(first));
+        assertEquals(5, stock(second));
+    }
+
+    @Test
+    void expiry_shouldGiveTheStockBackOnceTheReservationTimesOut() throws InterruptedException {
+        // Arrange
+        Long productId = createProduct(10);
+        StockReservationDto reservation = stockReservationService.reserve(request(1, new OrderProductDto(null, productId, 6)));
+
+        // Act
+        ReservationStatus status = awaitStatusOtherThan(reservation.getId(), ReservationStatus.ACTIVE);
+
+        // Assert
+        assertEquals(ReservationStatus.EXPIRED, status);
+        assertEquals(10, stock(productId));
+        stockReservationService.expire(reservation.getId());
+        assertEquals(10, stock(productId));
+        assertThrows(ReservationNotActiveException.class, () -> stockReservationService.confirm(reservation.getId()));
+    }
+
+    @Test
+    void expiry_shouldBeRetriedWhenTheFirstAttemptFails() throws InterruptedException {
+        // Arrange, the first attempt hits a lock timeout
+        Long productId = createProduct(10);
+        StockReservationDto reservation = stockReservationService.reserve(request(1, new OrderProductDto(null, productId, 6)));
+        doThrow(new QueryTimeoutException("Lock timeout")).doCallRealMethod()
+                .when(stockReservationRepository).findByIdForUpdate(reservation.getId());
+
+        // Act
+        ReservationStatus status = awaitStatusOtherThan(reservation.getId(), ReservationStatus.ACTIVE);
+
+        // Assert
+        assertEquals(ReservationStatus.EXPIRED, status);
+        assertEquals(10, stock(productId));
+        verify(stockReservationRepository, times(2)).findByIdForUpdate(reservation.getId());
+    }
+
+    @Test
+    void scheduleActiveReservations_shouldExpireTheReservationsLeftByAPreviousRun() throws InterruptedException {
+        // Arrange, stock held by a reservation whose deadline passed while the application was down
+        Long productId = createProduct(10);
+        productService.adjustStocks(List.of(new StockAdjustmentDto(productId, -4)), StockChangeReason.RESERVATION_HELD);
+        Long reservationId = saveActiveReservation(Instant.now().minusSeconds(5), new ReservedQuantity(productId, 4));
+
+        // Act
+        stockReservationService.scheduleActiveReservations();
+        ReservationStatus status = awaitStatusOtherThan(reservationId, ReservationStatus.ACTIVE);
+
+        // Assert
+        assertEquals(ReservationStatus.EXPIRED, status);
+        assertEquals(10, stock(productId));
+
+        // Scheduling again, as a second start would, gives nothing more back
+        stockReservationService.scheduleActiveReservations();
+        Thread.sleep(200);
+        assertEquals(10, stock(productId));
+    }
+
+    @Test
+    void release_shouldEndTheReservationWhenOneOfItsProductsWasDeleted() {
+        // Arrange
+        Long kept = createProduct(10);
+        Long deleted = createProduct(10);
+        StockReservationDto reservation = stockReservationService.reserve(request(null,
+                new OrderProductDto(null, kept, 2), new OrderProductDto(null, deleted, 3)));
+        productRepository.deleteById(deleted);
+
+        // Act
+        stockReservationService.release(reservation.getId());
+
+        // Assert
+        assertEquals(ReservationStatus.RELEASED, stockReservationService.getReservation(reservation.getId()).getStatus());
+        assertEquals(10, stock(kept));
+    }
+
+    private Long createProduct(int stock) {
+        Product product = new Product();
+        product.setName("Reserved product");
+        product.setPrice(Money.of(BigDecimal.TEN));
+        product.setStock(stock);
+        return productRepository.save(product).getId();
+    }
+
+    private int stock(Long productId) {
+        return productRepository.findById(productId).orElseThrow().getStock();
+    }
+
+    private static ReservationRequest request(Integer ttlSeconds, OrderProductDto... orderProducts) {
+        return new ReservationRequest(Set.of(orderProducts), ttlSeconds != null ? ttlSeconds.longValue() : null);
+    }
+
+    private Long saveActiveReservation(Instant expiresAt, ReservedQuantity... reservedQuantities) {
+        StockReservation reservation = new StockReservation();
+        reservation.setStatus(ReservationStatus.ACTIVE);
+        reservation.setCreatedAt(expiresAt.minusSeconds(60));
+        reservation.setExpiresAt(expiresAt);
+        reservation.getReservedQuantities().addAll(Set.of(reservedQuantities));
+        return stockReservationRepository.save(reservation).getId();
+    }
+
+    private ReservationStatus awaitStatusOtherThan(Long reservationId, ReservationStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        ReservationStatus current = stockReservationService.getReservation(reservationId).getStatus();
+        while (current == status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            current = stockReservationService.getReservation(reservationId).getStatus();
+        }
+        return current;
+    }
+}
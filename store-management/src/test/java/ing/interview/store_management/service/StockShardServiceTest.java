@@ -0,0 +1,285 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.exception.InsufficientStockException;
+import ing.interview.store_management.exception.ProductNotFoundException;
+import ing.interview.store_management.model.Money;
+import ing.interview.store_management.model.OrderProduct;
+import ing.interview.store_management.model.Product;
+import ing.interview.store_management.model.ProductStockShard;
+import ing.interview.store_management.repository.OrderProductRepository;
+import ing.interview.store_management.repository.ProductRepository;
+import ing.interview.store_management.repository.ProductStockShardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Takes, gives, reshards and rebalances sharded stock against an embedded database of its own, with the
+ * scheduled rebalancing pushed out so only the test moves stock between shards.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stockShards",
+        "stockShards.rebalanceMillis=3600000",
+        "orderLifecycle.enabled=false",
+        "salesRollup.enabled=false"
+})
+class StockShardServiceTest {
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void reshard_shouldSpreadTheStockEvenlyAndMoveItBackWhenShardingStops() {
+        // Arrange
+        Long productId = createProduct(10);
+
+        // Act & Assert
+        assertEquals(10, stockShardService.reshard(productId, 4).getStock());
+        assertEquals(List.of(3, 3, 2, 2), shards(productId));
+        Product sharded = productRepository.findById(productId).orElseThrow();
+        assertEquals(0, sharded.getStock());
+        assertEquals(4, sharded.getStockShards());
+
+        stockShardService.reshard(productId, 3);
+        assertEquals(List.of(4, 3, 3), shards(productId));
+
+        stockShardService.reshard(productId, 0);
+        assertEquals(List.of(), shards(productId));
+        Product unsharded = productRepository.findById(productId).orElseThrow();
+        assertEquals(10, unsharded.getStock());
+        assertNull(unsharded.getStockShards());
+
+        assertThrows(IllegalArgumentException.class, () -> stockShardService.reshard(productId, 65));
+        assertThrows(ProductNotFoundException.class, () -> stockShardService.reshard(-1L, 2));
+    }
+
+    @Test
+    void take_shouldTakeFromASingleShardWhenOneHoldsTheQuantity() {
+        // Arrange
+        Product product = shardedProduct(100, 4);
+
+        // Act
+        int stockLeft = stockShardService.take(product, 10);
+
+        // Assert
+        assertEquals(90, stockLeft);
+        List<Integer> shards = shards(product.getId());
+        assertEquals(1, shards.stream().filter(quantity -> quantity == 15).count());
+        assertEquals(3, shards.stream().filter(quantity -> quantity == 25).count());
+    }
+
+    @Test
+    void take_shouldDrainSeveralShardsWhenNoneHoldsTheQuantity() {
+        // Arrange
+        Product product = shardedProduct(10, 4);
+
+        // Act
+        int stockLeft = stockShardService.take(product, 9);
+
+        // Assert
+        assertEquals(1, stockLeft);
+        assertEquals(1, stockShardService.availableStock(product.getId()));
+        assertTrue(shards(product.getId()).stream().allMatch(quantity -> quantity >= 0));
+
+        assertThrows(InsufficientStockException.class, () -> stockShardService.take(product, 2));
+        assertEquals(1, stockShardService.availableStock(product.getId()));
+    }
+
+    @Test
+    void give_shouldAddTheQuantityToOneShard() {
+        // Arrange
+        Product product = shardedProduct(10, 4);
+
+        // Act
+        int stock = stockShardService.give(product, 5);
+
+        // Assert
+        assertEquals(15, stock);
+        assertEquals(15, stockShardService.availableStock(product.getId()));
+    }
+
+    @Test
+    void setTotal_shouldReplaceTheStockAndSpreadItEvenly() {
+        // Arrange
+        Product product = shardedProduct(10, 4);
+
+        // Act
+        stockShardService.setTotal(product, 21);
+
+        // Assert
+        assertEquals(List.of(6, 5, 5, 5), shards(product.getId()));
+    }
+
+    @Test
+    void rebalance_shouldEvenOutOnlyTheSkewedProducts() {
+        // Arrange
+        Product skewed = shardedProduct(40, 4);
+        Product balanced = shardedProduct(40, 4);
+        setShards(skewed.getId(), 40, 0, 0, 0);
+        setShards(balanced.getId(), 11, 9, 10, 10);
+
+        // Act
+        stockShardService.rebalance();
+
+        // Assert
+        assertEquals(List.of(10, 10, 10, 10), shards(skewed.getId()));
+        assertEquals(List.of(11, 9, 10, 10), shards(balanced.getId()));
+    }
+
+    @Test
+    void take_shouldNeverOversellUnderConcurrentTakes() throws Exception {
+        // Arrange
+        int initialStock = 200;
+        Product product = shardedProduct(initialStock, 8);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act, more is asked than there is, taken quantities are only counted when the take committed
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            results.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                int taken = 0;
+                start.await();
+                for (int i = 0; i < 20; i++) {
+                    int quantity = 1 + random.nextInt(5);
+                    try {
+                        stockShardService.take(product, quantity);
+                        taken += quantity;
+                    } catch (RuntimeException e) {
+                        // Insufficient stock or a lock timeout, rolled back
+                    }
+                }
+                return taken;
+            }));
+        }
+        start.countDown();
+        int taken = 0;
+        for (Future<Integer> result : results) {
+            taken += result.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        int stockLeft = stockShardService.availableStock(product.getId());
+        assertTrue(shards(product.getId()).stream().allMatch(quantity -> quantity >= 0), "A shard went negative");
+        assertEquals(initialStock, taken + stockLeft, "The shards must sum to the stock which was not taken");
+    }
+
+    @Test
+    void reshard_shouldLoseNoOrderPlacedWhileTheStockMoves() throws Exception {
+        // Arrange
+        int initialStock = 300;
+        Long productId = createProduct(initialStock);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act, four threads order while one moves the stock in and out of shards
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 30; i++) {
+                    try {
+                        orderService.createOrder(Set.of(new OrderProductDto(null, productId, 1)));
+                    } catch (RuntimeException e) {
+                        // Insufficient stock seen through a stale sharding state, or a lock timeout, rolled back
+                    }
+                }
+                return null;
+            }));
+        }
+        results.add(executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 20; i++) {
+                try {
+                    stockShardService.reshard(productId, i % 2 == 0 ? 4 : 0);
+                } catch (RuntimeException e) {
+                    // Lock timeout, rolled back
+                }
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        // Assert, the stock left and the quantities ordered add up to the initial stock
+        Product product = productRepository.findById(productId).orElseThrow();
+        int stockLeft = product.isStockSharded() ? stockShardService.availableStock(productId) : product.getStock();
+        int ordered = orderProductRepository.findAll().stream()
+                .filter(line -> line.getProduct().getId().equals(productId))
+                .mapToInt(OrderProduct::getQuantity)
+                .sum();
+        assertTrue(stockLeft >= 0, "Negative stock");
+        assertEquals(initialStock, stockLeft + ordered, "Stock lost or created while resharding");
+    }
+
+    private Long createProduct(int stock) {
+        Product product = new Product();
+        product.setName("Sharded product");
+        product.setPrice(Money.of(BigDecimal.ONE));
+        product.setStock(stock);
+        return productRepository.save(product).getId();
+    }
+
+    private Product shardedProduct(int stock, int shards) {
+        Long productId = createProduct(stock);
+        stockShardService.reshard(productId, shards);
+        return productRepository.findById(productId).orElseThrow();
+    }
+
+    // Shard quantities ordered by shard index
+    private List<Integer> shards(Long productId) {
+        return productStockShardRepository.findAll().stream()
+                .filter(shard -> shard.getProductId().equals(productId))
+                .sorted(Comparator.comparing(ProductStockShard::getShardIndex))
+                .map(ProductStockShard::getQuantity)
+                .toList();
+    }
+
+    private void setShards(Long productId, int... quantities) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < quantities.length; i++) {
+                productStockShardRepository.setShardQuantity(productId, i, quantities[i]);
+            }
+        });
+    }
+}
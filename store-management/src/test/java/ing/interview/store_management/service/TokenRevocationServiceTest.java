@@ -0,0 +1,101 @@
+package ing.interview.store_management.service;
+
+import ing.interview.store_management.model.RevokedToken;
+import ing.interview.store_management.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @InjectMocks
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(tokenRevocationService, "expirationMillis", 3_600_000L);
+        ReflectionTestUtils.setField(tokenRevocationService, "expectedEntries", 1_000);
+        ReflectionTestUtils.setField(tokenRevocationService, "falsePositiveRate", 0.001);
+        when(revokedTokenRepository.findByRevocationKey(any())).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void revokeToken_shouldSurviveARebuildRunningBeforeTheCommit() {
+        // Arrange, the rebuild reads the database before the revocation is committed
+        TransactionSynchronizationManager.initSynchronization();
+        tokenRevocationService.revokeToken("jti-1", Instant.now().plusSeconds(60));
+        when(revokedTokenRepository.findActiveRevocationKeys(any())).thenReturn(List.of());
+        tokenRevocationService.rebuildFilter();
+
+        // Act
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        // Assert
+        when(revokedTokenRepository.findByRevocationKey("jti-1"))
+                .thenReturn(Optional.of(new RevokedToken("jti-1", Instant.now(), Instant.now().plusSeconds(60))));
+        assertTrue(tokenRevocationService.isRevoked("jti-1", "alice", Instant.now()));
+    }
+
+    @Test
+    void pollNewRevocations_shouldPickUpRevocationsMadeByAnotherInstance() {
+        // Arrange, another instance revokes the token after this one built its filter
+        when(revokedTokenRepository.findActiveRevocationKeys(any())).thenReturn(List.of());
+        tokenRevocationService.rebuildFilter();
+        when(revokedTokenRepository.findByRevocationKey("jti-1"))
+                .thenReturn(Optional.of(new RevokedToken("jti-1", Instant.now(), Instant.now().plusSeconds(60))));
+        assertFalse(tokenRevocationService.isRevoked("jti-1", "alice", Instant.now()));
+        when(revokedTokenRepository.findRevocationKeysRevokedSince(any())).thenReturn(List.of("jti-1"));
+
+        // Act
+        tokenRevocationService.pollNewRevocations();
+
+        // Assert
+        assertTrue(tokenRevocationService.isRevoked("jti-1", "alice", Instant.now()));
+    }
+
+    @Test
+    void revokeAllTokens_shouldRevokeTokensIssuedEarlierInTheSameSecond() {
+        // Arrange
+        tokenRevocationService.revokeAllTokens("alice");
+        ArgumentCaptor<RevokedToken> saved = ArgumentCaptor.forClass(RevokedToken.class);
+        verify(revokedTokenRepository).save(saved.capture());
+        Instant revokedAt = saved.getValue().getRevokedAt();
+        when(revokedTokenRepository.findByRevocationKey("user:alice")).thenReturn(Optional.of(saved.getValue()));
+
+        // Act & Assert, JWT issue times are in whole seconds, a token minted just before the call has iat == revokedAt
+        assertTrue(revokedAt.equals(revokedAt.truncatedTo(ChronoUnit.SECONDS)));
+        assertTrue(tokenRevocationService.isRevoked("jti-same-second", "alice", revokedAt));
+        assertTrue(tokenRevocationService.isRevoked("jti-old", "alice", revokedAt.minusSeconds(1)));
+        assertFalse(tokenRevocationService.isRevoked("jti-new", "alice", revokedAt.plusSeconds(1)));
+        assertFalse(tokenRevocationService.isRevoked("jti-other", "bob", revokedAt));
+    }
+}
@@ -0,0 +1,116 @@
+package ing.interview.store_management.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import ing.interview.store_management.dto.OrderDto;
+import ing.interview.store_management.dto.OrderProductDto;
+import ing.interview.store_management.dto.ProductDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = JacksonAutoConfiguration.class)
+class BinaryContentNegotiationTest {
+
+    private static final TypeReference<List<ProductDto>> PRODUCT_LIST = new TypeReference<>() {
+    };
+    private static final TypeReference<List<OrderDto>> ORDER_LIST = new TypeReference<>() {
+    };
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Test
+    void extendMessageConverters_shouldKeepJsonFirstAndReplaceDefaultBinaryConverters() {
+        // Arrange
+        BinaryContentNegotiationConfig config = new BinaryContentNegotiationConfig();
+        ReflectionTestUtils.setField(config, "objectMapperBuilder", objectMapperBuilder);
+        List<HttpMessageConverter<?>> converters = new ArrayList<>(List.of(new StringHttpMessageConverter(),
+                new MappingJackson2HttpMessageConverter(), new MappingJackson2CborHttpMessageConverter()));
+
+        // Act
+        config.extendMessageConverters(converters);
+
+        // Assert
+        assertEquals(4, converters.size());
+        assertInstanceOf(StringHttpMessageConverter.class, converters.get(0));
+        assertInstanceOf(MappingJackson2HttpMessageConverter.class, converters.get(1));
+        assertInstanceOf(MappingJackson2CborHttpMessageConverter.class, converters.get(2));
+        assertInstanceOf(MappingJackson2SmileHttpMessageConverter.class, converters.get(3));
+    }
+
+    @Test
+    void binaryFormats_shouldRoundTripSmallerThanJson() throws IOException {
+        // Arrange
+        List<ProductDto> products = products(500);
+        List<OrderDto> orders = orders(200);
+        ObjectMapper json = mapper(new JsonFactory());
+
+        for (ObjectMapper binary : List.of(mapper(new CBORFactory()), mapper(new SmileFactory()))) {
+            // Act
+            byte[] productBytes = binary.writeValueAsBytes(products);
+            byte[] orderBytes = binary.writeValueAsBytes(orders);
+
+            // Assert
+            assertEquals(products, binary.readValue(productBytes, PRODUCT_LIST));
+            assertEquals(orders, binary.readValue(orderBytes, ORDER_LIST));
+            assertTrue(productBytes.length < json.writeValueAsBytes(products).length);
+            assertTrue(orderBytes.length < json.writeValueAsBytes(orders).length);
+        }
+    }
+
+    // The builder Boot configures from spring.jackson.*, the converters are built from it too
+    private ObjectMapper mapper(JsonFactory factory) {
+        return objectMapperBuilder.factory(factory).build();
+    }
+
+    static List<ProductDto> products(int count) {
+        Random random = new Random(42);
+        List<ProductDto> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            products.add(new ProductDto((long) i, "Product " + i, "Description of product " + i,
+                    BigDecimal.valueOf(100 + random.nextInt(100_000), 2), random.nextInt(1_000), false));
+        }
+        return products;
+    }
+
+    static List<OrderDto> orders(int count) {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<OrderDto> orders = new ArrayList<>(count);
+        long lineId = 1;
+        for (int i = 1; i <= count; i++) {
+            Set<OrderProductDto> lines = new HashSet<>();
+            for (int line = 0; line < 1 + random.nextInt(5); line++) {
+                lines.add(new OrderProductDto(lineId++, (long) (1 + random.nextInt(10_000)), 1 + random.nextInt(10)));
+            }
+            orders.add(new OrderDto((long) i, start.plusMinutes(i), "completed",
+                    BigDecimal.valueOf(100 + random.nextInt(1_000_000), 2), lines));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,133 @@
+package ing.interview.store_management.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private Map<WorkloadClass, Bulkhead> bulkheads;
+    private BulkheadFilter bulkheadFilter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkheads = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            bulkheads.put(workloadClass, new Bulkhead(workloadClass, 1, 0, 5, meterRegistry));
+        }
+        bulkheadFilter = new BulkheadFilter(bulkheads);
+    }
+
+    @Test
+    void doFilter_shouldRejectOnlyTheSaturatedClass() throws Exception {
+        // Arrange, a full order dump holds the only reporting permit
+        assertTrue(bulkheads.get(WorkloadClass.REPORTING).tryAcquire());
+
+        // Act
+        MockHttpServletResponse reporting = filter(request("GET", "/api/orders"), new MockFilterChain());
+        MockHttpServletResponse orderWrite = filter(request("POST", "/api/orders"), new MockFilterChain());
+        MockHttpServletResponse productRead = filter(request("GET", "/api/products/3"), new MockFilterChain());
+
+        // Assert
+        assertEquals(503, reporting.getStatus());
+        assertEquals("5", reporting.getHeader("Retry-After"));
+        assertEquals("Reporting is overloaded, retry later", reporting.getContentAsString());
+        assertEquals(200, orderWrite.getStatus());
+        assertEquals(200, productRead.getStatus());
+        assertEquals(1.0, meterRegistry.get("bulkhead.rejected").tag("workload", "reporting").counter().count());
+        assertEquals(0.0, meterRegistry.get("bulkhead.rejected").tag("workload", "orderWrites").counter().count());
+    }
+
+    @Test
+    void doFilter_shouldReleaseThePermitAfterTheRequest() throws Exception {
+        // Act
+        filter(request("PUT", "/api/orders/1"), new MockFilterChain());
+
+        // Assert
+        assertEquals(0, bulkheads.get(WorkloadClass.ORDER_WRITES).active());
+        assertEquals(200, filter(request("DELETE", "/api/orders/1"), new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void doFilter_shouldHoldThePermitUntilAsyncProcessingCompletes() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = request("POST", "/authenticate");
+        request.setAsyncSupported(true);
+        FilterChain startsAsync = (servletRequest, servletResponse) -> servletRequest.startAsync();
+
+        // Act
+        filter(request, startsAsync);
+
+        // Assert
+        Bulkhead auth = bulkheads.get(WorkloadClass.AUTHENTICATION);
+        assertEquals(1, auth.active());
+        assertEquals(503, filter(request("POST", "/authenticate/refresh"), new MockFilterChain()).getStatus());
+        request.getAsyncContext().complete();
+        assertEquals(0, auth.active());
+    }
+
+    @Test
+    void doFilter_shouldNotLimitUnclassifiedRequests() throws Exception {
+        // Arrange
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.tryAcquire();
+        }
+
+        // Act
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = filter(request("GET", "/api/user/profile"), chain);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader("Retry-After"));
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void doFilter_shouldRunEachRequestAsWorkOfItsClass() throws Exception {
+        // Arrange
+        List<WorkloadClass> current = new ArrayList<>();
+        FilterChain recordsWorkloadClass = (servletRequest, servletResponse) -> current.add(WorkloadClass.current());
+
+        // Act
+        filter(request("POST", "/api/orders"), recordsWorkloadClass);
+        filter(request("POST", "/authenticate/refresh"), recordsWorkloadClass);
+        filter(request("GET", "/api/products/3"), recordsWorkloadClass);
+        filter(request("GET", "/api/orders"), recordsWorkloadClass);
+        filter(request("GET", "/api/user/profile"), recordsWorkloadClass);
+
+        // Assert
+        assertEquals(Arrays.asList(WorkloadClass.ORDER_WRITES, WorkloadClass.AUTHENTICATION, WorkloadClass.PRODUCT_READS,
+                WorkloadClass.REPORTING, null), current);
+        assertNull(WorkloadClass.current());
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        bulkheadFilter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setServletPath(uri);
+        return request;
+    }
+}